@@ -2,7 +2,7 @@ package com.kinghy.rag.aop;
 
 import com.kinghy.rag.annotation.Loggable;
 import com.kinghy.rag.entity.LogInfo;
-import com.kinghy.rag.service.LogInfoService;
+import com.kinghy.rag.task.AuditLogWriter;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
@@ -18,7 +18,8 @@ import java.util.*;
 public class LoggingAspect {
 
     @Autowired
-    private LogInfoService logInfoService;
+    private AuditLogWriter auditLogWriter;
+
     @Pointcut("@annotation(loggable)")
     public void loggableMethods(Loggable loggable) {
     }
@@ -41,30 +42,27 @@ public class LoggingAspect {
             MethodSignature signature = (MethodSignature) joinPoint.getSignature();
             // 获取方法参数名
             String[] parameterNames = signature.getParameterNames();
-
-            Map<String, Object> selectedParams = new HashMap<>();
             // 将注解里的参数名数组转为 List 方便判断
             List<String> targetParams = Arrays.asList(loggable.value());
 
-            if (parameterNames != null) {
-                for (int i = 0; i < parameterNames.length; i++) {
-                    // 如果当前参数名在注解配置的名单里，就记录下来
-                    if (targetParams.contains(parameterNames[i])) {
-                        selectedParams.put(parameterNames[i], args[i]);
+            // 参数序列化在审计日志写入线程中进行，不占用请求线程
+            auditLogWriter.submit(logInfo, () -> {
+                Map<String, Object> selectedParams = new HashMap<>();
+                if (parameterNames != null) {
+                    for (int i = 0; i < parameterNames.length; i++) {
+                        // 如果当前参数名在注解配置的名单里，就记录下来
+                        if (targetParams.contains(parameterNames[i])) {
+                            selectedParams.put(parameterNames[i], args[i]);
+                        }
                     }
                 }
-            }
-            // 保存筛选后的参数 (建议使用 JSON.toJSONString(selectedParams))
-            logInfo.setRequestParams(selectedParams.toString());
-            // --- 补充的核心逻辑结束 ---
+                // 保存筛选后的参数 (建议使用 JSON.toJSONString(selectedParams))
+                return selectedParams.toString();
+            });
         } else {
             // 如果没有指定特定参数，则记录所有参数
-            logInfo.setRequestParams(Arrays.toString(args));
+            auditLogWriter.submit(logInfo, () -> Arrays.toString(args));
         }
-
-
-
-        logInfoService.save(logInfo);
     }
 }
     
\ No newline at end of file
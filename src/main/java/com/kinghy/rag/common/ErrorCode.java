@@ -24,6 +24,7 @@ public enum ErrorCode {
     KNOWLEDGE_BASE_NAME_EXISTS(40002, "知识库名称已存在"),
     KNOWLEDGE_BASE_ACCESS_DENIED(40301, "无权限访问该知识库"),
     KNOWLEDGE_BASE_FILE_NOT_FOUND(40402, "知识库文件不存在"),
+    INGESTION_JOB_NOT_FOUND(40403, "入库任务不存在"),
     KNOWLEDGE_BASE_DELETE_ERROR(50011, "知识库删除失败"),
     VECTOR_STORE_ERROR(50012, "向量存储操作失败");
 
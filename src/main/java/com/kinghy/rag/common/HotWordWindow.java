@@ -0,0 +1,70 @@
+package com.kinghy.rag.common;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 热词统计时间窗口枚举
+ *
+ * @author yunzhongxiaoma
+ * @description 每个窗口由若干个固定长度的时间桶组成，查询时合并最近的若干个桶，
+ *              窗口随时间按桶的粒度向前滑动
+ */
+public enum HotWordWindow {
+    /**
+     * 最近5分钟，1分钟一个桶
+     */
+    FIVE_MINUTES("5m", TimeUnit.MINUTES.toMillis(1), 5),
+
+    /**
+     * 最近1小时，5分钟一个桶
+     */
+    ONE_HOUR("1h", TimeUnit.MINUTES.toMillis(5), 12),
+
+    /**
+     * 最近24小时，1小时一个桶
+     */
+    ONE_DAY("24h", TimeUnit.HOURS.toMillis(1), 24);
+
+    private final String code;
+
+    private final long bucketMillis;
+
+    private final int buckets;
+
+    HotWordWindow(String code, long bucketMillis, int buckets) {
+        this.code = code;
+        this.bucketMillis = bucketMillis;
+        this.buckets = buckets;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public long getBucketMillis() {
+        return bucketMillis;
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+
+    /**
+     * 时间所在桶的起始时间
+     */
+    public long bucketStart(long timeMillis) {
+        return timeMillis - Math.floorMod(timeMillis, bucketMillis);
+    }
+
+    /**
+     * 根据编码获取窗口，不存在时返回null
+     */
+    public static HotWordWindow fromCode(String code) {
+        for (HotWordWindow window : values()) {
+            if (window.code.equals(code)) {
+                return window;
+            }
+        }
+        return null;
+    }
+}
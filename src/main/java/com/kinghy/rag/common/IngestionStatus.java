@@ -0,0 +1,51 @@
+package com.kinghy.rag.common;
+
+/**
+ * 文件入库任务状态枚举
+ * 
+ * @author yunzhongxiaoma
+ * @since 1.0.0
+ */
+public enum IngestionStatus {
+    /**
+     * 排队中（包含上传到对象存储）
+     */
+    PENDING("排队中"),
+    
+    /**
+     * 解析与切分文档
+     */
+    PARSING("解析中"),
+    
+    /**
+     * 向量化并写入向量库
+     */
+    EMBEDDING("向量化中"),
+    
+    /**
+     * 入库完成
+     */
+    DONE("已完成"),
+    
+    /**
+     * 入库失败
+     */
+    FAILED("失败");
+    
+    private final String description;
+    
+    IngestionStatus(String description) {
+        this.description = description;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    /**
+     * 是否为终止状态
+     */
+    public boolean isTerminal() {
+        return this == DONE || this == FAILED;
+    }
+}
@@ -0,0 +1,47 @@
+package com.kinghy.rag.common;
+
+/**
+ * 敏感词处理动作枚举（按分类配置，按严格程度从高到低排列）
+ *
+ * @author yunzhongxiaoma
+ */
+public enum SensitiveAction {
+    /**
+     * 拦截：拒绝请求或停止输出
+     */
+    BLOCK("拦截"),
+
+    /**
+     * 屏蔽：将敏感词替换为*后继续
+     */
+    MASK("屏蔽"),
+
+    /**
+     * 仅记录：放行并计数
+     */
+    LOG("仅记录");
+
+    private final String description;
+
+    SensitiveAction(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * 解析分类配置的动作，未配置或无法识别时按拦截处理
+     */
+    public static SensitiveAction of(String action) {
+        if (action != null) {
+            for (SensitiveAction value : values()) {
+                if (value.name().equalsIgnoreCase(action.trim())) {
+                    return value;
+                }
+            }
+        }
+        return BLOCK;
+    }
+}
@@ -0,0 +1,81 @@
+package com.kinghy.rag.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 接口审计日志配置
+ *
+ * @author yunzhongxiaoma
+ * @description 控制 {@code @Loggable} 审计日志是同步写库，还是进入有界队列由后台线程批量写库，
+ *              以及队列写满时的处理方式
+ */
+@Configuration
+@ConfigurationProperties(prefix = "rag.audit-log")
+@Data
+public class AuditLogConfig {
+
+    /**
+     * 是否异步批量写库，关闭后在请求线程中逐条写库
+     */
+    private boolean async = true;
+
+    /**
+     * 待写入日志队列容量
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * 每批最多写入的日志条数，攒满立即写库
+     */
+    private int maxBatchSize = 500;
+
+    /**
+     * 两次写库的最大间隔（毫秒）
+     */
+    private long flushIntervalMs = 200;
+
+    /**
+     * 队列写满时的处理方式
+     */
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+
+    /**
+     * BLOCK 模式下请求线程等待队列空位的最长时间（毫秒），超时后丢弃
+     */
+    private long blockTimeoutMs = 50;
+
+    /**
+     * SAMPLE 模式下开始采样的队列占用比例
+     */
+    private double sampleThreshold = 0.8;
+
+    /**
+     * SAMPLE 模式下采样期间保留的日志比例
+     */
+    private double sampleRate = 0.1;
+
+    /**
+     * 应用关闭时等待队列写完的最长时间（毫秒）
+     */
+    private long shutdownTimeoutMs = 5000;
+
+    /**
+     * 队列写满时的处理方式
+     */
+    public enum OverflowPolicy {
+        /**
+         * 直接丢弃新日志，请求线程不等待
+         */
+        DROP,
+        /**
+         * 请求线程最多等待 blockTimeoutMs，仍无空位则丢弃
+         */
+        BLOCK,
+        /**
+         * 队列占用超过 sampleThreshold 后按 sampleRate 采样，写满后丢弃
+         */
+        SAMPLE
+    }
+}
@@ -0,0 +1,33 @@
+package com.kinghy.rag.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 聊天会话缓存配置
+ *
+ * @author yunzhongxiaoma
+ * @description 会话信息和用户当前会话在进程内缓存一份，Redis 在后；
+ *              任一节点修改后通过 Redis 发布订阅通知其他节点失效本地副本
+ */
+@Configuration
+@ConfigurationProperties(prefix = "rag.chat-cache")
+@Data
+public class ChatCacheConfig {
+
+    /**
+     * 是否启用进程内近端缓存
+     */
+    private boolean nearCacheEnabled = true;
+
+    /**
+     * 近端缓存的最大条目数（会话信息、当前会话各自独立计算）
+     */
+    private long nearCacheMaxSize = 10000;
+
+    /**
+     * 近端缓存写入后的过期时间（秒），失效通知丢失时的兜底
+     */
+    private long nearCacheTtlSeconds = 60;
+}
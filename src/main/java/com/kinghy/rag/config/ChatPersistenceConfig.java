@@ -0,0 +1,81 @@
+package com.kinghy.rag.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 聊天消息持久化配置
+ *
+ * @author yunzhongxiaoma
+ * @description 控制聊天消息是逐条同步写库，还是进入写后日志由后台线程按批写库；
+ *              流式对话中的写库操作在独立的有界线程池中执行，不占用请求和流式响应线程
+ */
+@Configuration
+@ConfigurationProperties(prefix = "rag.chat-persistence")
+@Data
+public class ChatPersistenceConfig {
+
+    /**
+     * 持久化模式
+     */
+    private Durability durability = Durability.DIRECT;
+
+    /**
+     * 两次刷盘的最大间隔（毫秒）
+     */
+    private long flushIntervalMs = 20;
+
+    /**
+     * 每批最多写入的消息数，攒满立即刷盘
+     */
+    private int maxBatchSize = 200;
+
+    /**
+     * 待写入消息队列容量，队列满时写入方阻塞
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * 组提交模式下等待所在批次提交的最长时间（毫秒）
+     */
+    private long commitTimeoutMs = 5000;
+
+    /**
+     * 应用关闭时等待队列写完的最长时间（毫秒）
+     */
+    private long shutdownTimeoutMs = 10000;
+
+    /**
+     * 单批写库失败后的重试次数
+     */
+    private int maxRetries = 2;
+
+    /**
+     * 流式对话持久化线程数
+     */
+    private int workerThreads = 4;
+
+    /**
+     * 流式对话持久化任务的排队上限，超过后拒绝新的对话请求
+     */
+    private int workerQueueCapacity = 1000;
+
+    /**
+     * 持久化模式
+     */
+    public enum Durability {
+        /**
+         * 逐条同步写库，返回时消息和会话统计都已提交
+         */
+        DIRECT,
+        /**
+         * 组提交：与其他请求的消息合并成一批写库，等所在批次提交后再返回，返回时已持久化
+         */
+        GROUP_COMMIT,
+        /**
+         * 异步：进入队列立即返回，进程崩溃时可能丢失最近一个刷盘间隔内的消息
+         */
+        ASYNC
+    }
+}
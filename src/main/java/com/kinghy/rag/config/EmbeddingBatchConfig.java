@@ -0,0 +1,83 @@
+package com.kinghy.rag.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 文档向量化批处理配置
+ *
+ * @author yunzhongxiaoma
+ * @description 入库时多个文件的文档片段合并成按 token 数限定的批次调用嵌入模型，
+ *              批次大小根据调用耗时和失败情况自适应调整
+ */
+@Configuration
+@ConfigurationProperties(prefix = "rag.embedding-batch")
+@Data
+public class EmbeddingBatchConfig {
+
+    /**
+     * 是否启用跨请求合并批处理
+     */
+    private boolean enabled = true;
+
+    /**
+     * 初始每批 token 数上限
+     */
+    private int initialTokenBudget = 4096;
+
+    /**
+     * 每批 token 数下限
+     */
+    private int minTokenBudget = 512;
+
+    /**
+     * 每批 token 数上限
+     */
+    private int maxTokenBudget = 16384;
+
+    /**
+     * 调用耗时低于目标时每次增加的 token 数
+     */
+    private int tokenBudgetStep = 512;
+
+    /**
+     * 单批目标耗时（毫秒），超过后缩小批次
+     */
+    private long targetLatencyMs = 2000;
+
+    /**
+     * 每批最多文本条数（受嵌入模型接口限制）
+     */
+    private int maxBatchSize = 25;
+
+    /**
+     * 同时进行的批次数
+     */
+    private int maxConcurrentBatches = 4;
+
+    /**
+     * 凑批最长等待时间（毫秒）
+     */
+    private long maxWaitMs = 20;
+
+    /**
+     * 单批失败后的最大重试次数，重试时批次对半拆分
+     */
+    private int maxRetries = 2;
+
+    /**
+     * 待向量化片段队列容量
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * 写入向量库时每批文档数
+     */
+    private int insertBatchSize = 100;
+
+    /**
+     * 同时写入向量库的批次数
+     */
+    private int insertConcurrency = 2;
+}
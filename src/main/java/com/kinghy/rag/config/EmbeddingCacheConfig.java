@@ -0,0 +1,72 @@
+package com.kinghy.rag.config;
+
+import com.kinghy.rag.service.EmbeddingCacheService;
+import com.kinghy.rag.utils.BatchingEmbeddingModel;
+import com.kinghy.rag.utils.CachingEmbeddingModel;
+import lombok.Data;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 查询向量缓存配置
+ *
+ * @author yunzhongxiaoma
+ * @description 本地缓存 + Redis 两级缓存查询文本的向量，热点问题无需重复调用嵌入模型
+ */
+@Configuration
+@ConfigurationProperties(prefix = "rag.embedding-cache")
+@Data
+public class EmbeddingCacheConfig {
+
+    /**
+     * 是否启用查询向量缓存
+     */
+    private boolean enabled = true;
+
+    /**
+     * 嵌入模型标识，作为缓存键的一部分，切换模型后旧向量自然失效
+     */
+    private String modelId = "text-embedding-v1";
+
+    /**
+     * 本地缓存最大条目数
+     */
+    private long localMaxSize = 10000;
+
+    /**
+     * 本地缓存过期时间（分钟）
+     */
+    private long localTtlMinutes = 30;
+
+    /**
+     * Redis 缓存过期时间（小时）
+     */
+    private long redisTtlHours = 24;
+
+    /**
+     * 文档片段向量（按内容哈希寻址）过期时间（天）
+     */
+    private long chunkTtlDays = 30;
+
+    /**
+     * 为容器中的 EmbeddingModel 包装查询向量缓存和入库批处理，向量库检索时即可命中缓存
+     */
+    @Bean
+    public static BeanPostProcessor cachingEmbeddingModelPostProcessor(ObjectProvider<EmbeddingCacheService> embeddingCacheService,
+                                                                       ObjectProvider<EmbeddingBatchConfig> embeddingBatchConfig) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof EmbeddingModel embeddingModel && !(bean instanceof CachingEmbeddingModel)) {
+                    BatchingEmbeddingModel batching = new BatchingEmbeddingModel(embeddingModel, embeddingBatchConfig::getObject);
+                    return new CachingEmbeddingModel(batching, embeddingCacheService::getObject);
+                }
+                return bean;
+            }
+        };
+    }
+}
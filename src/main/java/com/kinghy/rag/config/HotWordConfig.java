@@ -0,0 +1,63 @@
+package com.kinghy.rag.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 实时热词统计配置
+ *
+ * @author yunzhongxiaoma
+ * @description 用户消息分词后写入本节点的 Count-Min Sketch 和候选热词集合，
+ *              定期发布到 Redis，查询时合并所有节点在窗口内的时间桶
+ */
+@Configuration
+@ConfigurationProperties(prefix = "rag.hot-word")
+@Data
+public class HotWordConfig {
+
+    /**
+     * 是否启用实时热词统计
+     */
+    private boolean enabled = true;
+
+    /**
+     * sketch 每行的计数格数
+     */
+    private int sketchWidth = 2048;
+
+    /**
+     * sketch 的行数
+     */
+    private int sketchDepth = 4;
+
+    /**
+     * 每个时间桶保留的候选热词数
+     */
+    private int candidateCapacity = 200;
+
+    /**
+     * 单次查询最多返回的热词数
+     */
+    private int maxK = 100;
+
+    /**
+     * 待分词消息队列容量，队列满时丢弃
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * 本节点统计结果发布到 Redis 的间隔（毫秒）
+     */
+    private long publishIntervalMs = 10000;
+
+    /**
+     * 参与统计的最短词长
+     */
+    private int minWordLength = 2;
+
+    /**
+     * 参与统计的最长词长
+     */
+    private int maxWordLength = 9;
+}
@@ -0,0 +1,72 @@
+package com.kinghy.rag.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 文件异步入库配置
+ *
+ * @author yunzhongxiaoma
+ * @description 入库流水线各阶段的并发数、阶段间队列容量等参数配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "rag.ingestion")
+@Data
+public class IngestionConfig {
+
+    /**
+     * 阶段间队列容量，队列满时上游阶段阻塞；入口队列满时拒绝新的上传
+     */
+    private int queueCapacity = 16;
+
+    /**
+     * 上传对象存储的线程数
+     */
+    private int storeWorkers = 2;
+
+    /**
+     * 解析文档的线程数
+     */
+    private int parseWorkers = 2;
+
+    /**
+     * 向量化的线程数
+     */
+    private int embedWorkers = 2;
+
+    /**
+     * 文档解析时每段正文的字符数，按段交给切分器，避免整篇文档一次性进入内存
+     */
+    private int segmentChars = 32000;
+
+    /**
+     * 上传文件的临时目录，为空时使用系统临时目录
+     */
+    private String tempDir;
+
+    /**
+     * SSE 推送任务状态的轮询间隔（毫秒）
+     */
+    private long statusPollIntervalMs = 1000;
+
+    /**
+     * SSE 推送任务状态的最长时间（分钟）
+     */
+    private long statusStreamTimeoutMinutes = 30;
+
+    /**
+     * 应用关闭时等待各阶段工作线程退出的最长时间（毫秒），之后队列中剩余的任务标记为失败
+     */
+    private long shutdownTimeoutMs = 5000;
+
+    /**
+     * 未结束的任务超过该时间（分钟）没有进展时视为进程退出遗留的任务，标记为失败并清理临时文件
+     */
+    private long orphanJobTimeoutMinutes = 60;
+
+    /**
+     * 检查遗留任务和临时文件的间隔（毫秒）
+     */
+    private long orphanCheckIntervalMs = 600000;
+}
@@ -0,0 +1,62 @@
+package com.kinghy.rag.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 对象存储配置
+ *
+ * @author yunzhongxiaoma
+ * @description 存储实现的选择、OSS客户端连接池和分片上传参数、本地磁盘存储目录等配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "rag.object-storage")
+@Data
+public class ObjectStorageConfig {
+
+    /**
+     * 存储实现：oss（阿里云OSS）或 local（本地磁盘）
+     */
+    private String type = "oss";
+
+    /**
+     * OSS客户端最大连接数
+     */
+    private int maxConnections = 64;
+
+    /**
+     * OSS建立连接超时时间（毫秒）
+     */
+    private int connectionTimeoutMs = 5000;
+
+    /**
+     * OSS读写超时时间（毫秒）
+     */
+    private int socketTimeoutMs = 60000;
+
+    /**
+     * 空闲连接保留时间（毫秒）
+     */
+    private long idleConnectionTimeMs = 60000;
+
+    /**
+     * 超过该大小（字节）的文件使用分片并行上传
+     */
+    private long multipartThreshold = 16L * 1024 * 1024;
+
+    /**
+     * 分片大小（字节）
+     */
+    private long partSize = 8L * 1024 * 1024;
+
+    /**
+     * 分片上传并发数
+     */
+    private int uploadParallelism = 4;
+
+    /**
+     * 本地磁盘存储的根目录
+     */
+    private String localRoot = "./data/object-storage";
+}
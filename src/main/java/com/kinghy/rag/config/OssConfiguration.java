@@ -1,25 +1,38 @@
 package com.kinghy.rag.config;
 
 import com.kinghy.rag.utils.AliOssUtil;
+import com.kinghy.rag.utils.LocalObjectStorage;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.nio.file.Paths;
+
 /**
- * 配置类，用于创建AliOssUtil对象
+ * 配置类，根据 rag.object-storage.type 创建对象存储实现
  */
 @Configuration
 @Slf4j
 public class OssConfiguration {
 
-    @Bean
+    @Bean(destroyMethod = "shutdown")
     @ConditionalOnMissingBean
-    public AliOssUtil aliOssUtil(AliOssProperties aliOssProperties) {
+    @ConditionalOnProperty(prefix = "rag.object-storage", name = "type", havingValue = "oss", matchIfMissing = true)
+    public AliOssUtil aliOssUtil(AliOssProperties aliOssProperties, ObjectStorageConfig objectStorageConfig) {
         log.info("开始创建阿里云文件上传工具类对象：{}", aliOssProperties);
         return new AliOssUtil(aliOssProperties.getEndpoint(),
                 aliOssProperties.getAccessKeyId(),
                 aliOssProperties.getAccessKeySecret(),
-                aliOssProperties.getBucketName());
+                aliOssProperties.getBucketName(),
+                objectStorageConfig);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "rag.object-storage", name = "type", havingValue = "local")
+    public LocalObjectStorage localObjectStorage(ObjectStorageConfig objectStorageConfig) {
+        log.info("使用本地磁盘对象存储：{}", objectStorageConfig.getLocalRoot());
+        return new LocalObjectStorage(Paths.get(objectStorageConfig.getLocalRoot()));
     }
 }
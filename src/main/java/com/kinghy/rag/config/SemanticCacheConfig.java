@@ -0,0 +1,42 @@
+package com.kinghy.rag.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 语义答案缓存配置
+ *
+ * @author yunzhongxiaoma
+ * @description 相同知识库、相同系统提示词下语义相近的问题直接回放历史答案
+ */
+@Configuration
+@ConfigurationProperties(prefix = "rag.semantic-cache")
+@Data
+public class SemanticCacheConfig {
+
+    /**
+     * 是否启用语义答案缓存
+     */
+    private boolean enabled = true;
+
+    /**
+     * 命中所需的最小余弦相似度
+     */
+    private double similarityThreshold = 0.95;
+
+    /**
+     * 每个（知识库集合, 系统提示词）下最多保留的条目数
+     */
+    private int maxEntriesPerBucket = 200;
+
+    /**
+     * 缓存过期时间（小时）
+     */
+    private long ttlHours = 24;
+
+    /**
+     * 回放答案时每个分片的字符数
+     */
+    private int replayChunkSize = 16;
+}
@@ -0,0 +1,61 @@
+package com.kinghy.rag.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 多知识库向量检索配置
+ *
+ * @author yunzhongxiaoma
+ * @description 多知识库并发检索的并发度、超时等参数配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "rag.vector-search")
+@Data
+public class VectorSearchConfig {
+
+    /**
+     * 并发检索线程数
+     */
+    private int parallelism = 8;
+
+    /**
+     * 检索任务队列容量，队列满时跳过后续知识库的检索并返回部分结果
+     */
+    private int queueCapacity = 256;
+
+    /**
+     * 单个知识库检索超时时间（毫秒）
+     */
+    private long perKnowledgeBaseTimeoutMs = 2000;
+
+    /**
+     * 整体检索截止时间（毫秒），超时后返回已完成知识库的结果
+     */
+    private long globalTimeoutMs = 3000;
+
+    /**
+     * 检索耗时指标中单独打标签的知识库数量上限，先出现的知识库占用名额，
+     * 超出后的知识库归入 knowledgeBaseId=other，避免时间序列随知识库数量无限增长
+     */
+    private int latencyMetricMaxKnowledgeBases = 100;
+
+    /**
+     * 多知识库结果融合策略：rrf / min-max / weighted
+     */
+    private String fusion = "rrf";
+
+    /**
+     * RRF 平滑常数 k
+     */
+    private int rrfK = 60;
+
+    /**
+     * weighted 策略下各知识库的权重（知识库ID -> 权重），未配置的知识库权重为1
+     */
+    private Map<Long, Float> knowledgeBaseWeights = new HashMap<>();
+}
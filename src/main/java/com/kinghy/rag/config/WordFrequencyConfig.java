@@ -0,0 +1,58 @@
+package com.kinghy.rag.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 日志词频统计配置
+ *
+ * @author yunzhongxiaoma
+ * @description 词频统计按 log_info 主键增量处理，每页日志的分词结果和处理进度在同一个事务中提交
+ */
+@Configuration
+@ConfigurationProperties(prefix = "rag.word-frequency")
+@Data
+public class WordFrequencyConfig {
+
+    /**
+     * 每页读取的日志条数
+     */
+    private int pageSize = 500;
+
+    /**
+     * 每条 upsert 语句最多合并的词数
+     */
+    private int upsertBatchSize = 500;
+
+    /**
+     * 单次任务最多处理的页数，剩余的留给下一次任务
+     */
+    private int maxPagesPerRun = 200;
+
+    /**
+     * 分词线程数，0 表示使用 CPU 核数
+     */
+    private int parallelism = 0;
+
+    /**
+     * 单个分词分片最多处理的日志条数
+     */
+    private int segmentLeafSize = 64;
+
+    /**
+     * 参与统计的最短词长
+     */
+    private int minWordLength = 2;
+
+    /**
+     * 参与统计的最长词长
+     */
+    private int maxWordLength = 9;
+
+    /**
+     * 只统计生成时间早于该秒数之前的日志。主键是雪花ID，按生成时间而不是提交顺序递增，
+     * 需要留出足够的时间让较早生成、较晚提交的日志落库，应大于日志写入的最长耗时和各节点的时钟偏差
+     */
+    private long commitLagSeconds = 60;
+}
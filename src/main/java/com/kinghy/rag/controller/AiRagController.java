@@ -20,7 +20,7 @@ package com.kinghy.rag.controller;
 import com.kinghy.rag.annotation.Loggable;
 import com.kinghy.rag.common.ApplicationConstant;
 import com.kinghy.rag.context.BaseContext;
-import com.kinghy.rag.entity.SensitiveWord;
+import com.kinghy.rag.pojo.dto.SensitiveCheckResult;
 import com.kinghy.rag.service.SensitiveWordService;
 import com.kinghy.rag.service.VectorStoreManager;
 import io.swagger.v3.oas.annotations.Operation;
@@ -88,13 +88,11 @@ public class AiRagController {
     public Flux<String> generate(@RequestParam(value = "message", defaultValue = "你好") String message) throws IOException {
 
         // 敏感词过滤
-        List<SensitiveWord> list = sensitiveWordService.list();
-
-        for (SensitiveWord sensitiveWord : list) {
-            if (message.contains(sensitiveWord.getWord())) {
-                return Flux.just("包含敏感词:" + sensitiveWord.getWord());
-            }
+        SensitiveCheckResult checkResult = sensitiveWordService.match(message);
+        if (checkResult.isBlocked()) {
+            return Flux.just("包含敏感词:" + checkResult.getBlockedWord());
         }
+        message = checkResult.getText();
 
         Long userId = BaseContext.getCurrentId();
         Flux<String> content = chatClient.prompt()
@@ -111,7 +109,8 @@ public class AiRagController {
                         )
                         .build())
                 .stream()// 流式方式
-                .content();
+                .content()
+                .transform(sensitiveWordService::moderate);
 
         return content;
     }
@@ -126,12 +125,11 @@ public class AiRagController {
         log.info("基于知识库进行RAG对话，知识库ID列表: {}, 消息: {}", knowledgeBaseIds, message);
         
         // 敏感词过滤
-        List<SensitiveWord> list = sensitiveWordService.list();
-        for (SensitiveWord sensitiveWord : list) {
-            if (message.contains(sensitiveWord.getWord())) {
-                return Flux.just("包含敏感词:" + sensitiveWord.getWord());
-            }
+        SensitiveCheckResult checkResult = sensitiveWordService.match(message);
+        if (checkResult.isBlocked()) {
+            return Flux.just("包含敏感词:" + checkResult.getBlockedWord());
         }
+        message = checkResult.getText();
 
         // 验证知识库ID列表
         if (knowledgeBaseIds == null || knowledgeBaseIds.isEmpty()) {
@@ -181,7 +179,8 @@ public class AiRagController {
                     .advisors(a -> a.param("current_data", LocalDate.now().toString()))
                     .advisors(a -> a.param(ChatMemory.CONVERSATION_ID, userId))
                     .stream()
-                    .content();
+                    .content()
+                    .transform(sensitiveWordService::moderate);
 
             return content;
             
@@ -5,22 +5,27 @@ import com.kinghy.rag.annotation.Loggable;
 import com.kinghy.rag.common.ApplicationConstant;
 import com.kinghy.rag.common.BaseResponse;
 import com.kinghy.rag.common.ResultUtils;
+import com.kinghy.rag.constant.MessageConstant;
 import com.kinghy.rag.context.BaseContext;
 import com.kinghy.rag.entity.ChatMessage;
 import com.kinghy.rag.entity.ChatSession;
-import com.kinghy.rag.entity.SensitiveWord;
 import com.kinghy.rag.pojo.dto.ChatMessageDTO;
+import com.kinghy.rag.pojo.dto.SensitiveCheckResult;
 import com.kinghy.rag.pojo.vo.ChatMessageVO;
 import com.kinghy.rag.service.ChatMessageService;
 import com.kinghy.rag.service.ChatSessionService;
+import com.kinghy.rag.service.SemanticAnswerCacheService;
 import com.kinghy.rag.service.SensitiveWordService;
 import com.kinghy.rag.service.VectorStoreManager;
+import com.kinghy.rag.task.ChatPersistenceStage;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
 import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.beans.BeanUtils;
@@ -33,6 +38,8 @@ import reactor.core.publisher.Flux;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -62,8 +69,17 @@ public class ChatController {
 
     @Autowired
     private VectorStoreManager vectorStoreManager;
+    
+    @Autowired
+    private SemanticAnswerCacheService semanticAnswerCacheService;
+
+    @Autowired
+    private ChatPersistenceStage chatPersistenceStage;
+
+    private final ChatMemory chatMemory;
 
     public ChatController(ChatClient.Builder builder, ChatMemory chatMemory) {
+        this.chatMemory = chatMemory;
         this.chatClient = builder
                 .defaultSystem("""
                         你是一家名为"XX公司"的知识库系统的客户客服代理。请友好乐于助人，充满喜悦地回复。
@@ -82,47 +98,44 @@ public class ChatController {
                                       @RequestParam(value = "sessionId", required = false) String sessionId) {
         
         // 敏感词检查
-        List<SensitiveWord> list = sensitiveWordService.list();
-        for (SensitiveWord sensitiveWord : list) {
-            if (message.contains(sensitiveWord.getWord())) {
-                return Flux.just("包含敏感词:" + sensitiveWord.getWord());
-            }
+        SensitiveCheckResult checkResult = sensitiveWordService.match(message);
+        if (checkResult.isBlocked()) {
+            return Flux.just("包含敏感词:" + checkResult.getBlockedWord());
         }
+        String userMessage = checkResult.getText();
 
         Integer userId = BaseContext.getCurrentId().intValue();
         
-        // 获取或创建会话
-        ChatSession currentSession = getCurrentOrCreateSession(userId, sessionId);
-        String activeSessionId = currentSession.getSessionId();
-        
-        // 保存用户消息
-        chatMessageService.saveUserMessage(activeSessionId, userId, message);
-        
-        // 生成AI响应并保存
-        StringBuilder responseBuilder = new StringBuilder();
-        
-        return chatClient.prompt()
-                .system(prompt)
-                .advisors(a -> a.param(ChatMemory.CONVERSATION_ID, userId))
-                .user(message)
-                .stream()
-                .content()
-                .doOnNext(chunk -> {
-                    // 累积响应内容
-                    responseBuilder.append(chunk);
-                })
-                .doOnComplete(() -> {
-                    // 流式响应完成后，保存完整的AI响应
-                    String fullResponse = responseBuilder.toString();
-                    if (StringUtils.hasText(fullResponse)) {
-                        chatMessageService.saveAssistantMessage(activeSessionId, userId, fullResponse, null);
-                        log.info("保存AI响应消息，会话ID: {}, 用户ID: {}, 响应长度: {}", 
-                                activeSessionId, userId, fullResponse.length());
-                    }
-                })
-                .doOnError(error -> {
-                    log.error("流式对话过程中发生错误，会话ID: {}, 用户ID: {}", activeSessionId, userId, error);
-                });
+        // 会话激活和用户消息写库在持久化线程中完成后再开始生成
+        return withUserTurn(userId, sessionId, userMessage, activeSessionId -> {
+            // 生成AI响应并保存
+            StringBuilder responseBuilder = new StringBuilder();
+            
+            return chatClient.prompt()
+                    .system(prompt)
+                    .advisors(a -> a.param(ChatMemory.CONVERSATION_ID, userId))
+                    .user(userMessage)
+                    .stream()
+                    .content()
+                    .transform(sensitiveWordService::moderate)
+                    .doOnNext(chunk -> {
+                        // 累积响应内容
+                        responseBuilder.append(chunk);
+                    })
+                    .doOnComplete(() -> {
+                        // 流式响应完成后，保存完整的AI响应，写库不阻塞推送线程
+                        String fullResponse = responseBuilder.toString();
+                        if (StringUtils.hasText(fullResponse)) {
+                            chatPersistenceStage.execute("assistant_message", () ->
+                                    chatMessageService.saveAssistantMessage(activeSessionId, userId, fullResponse, null));
+                            log.info("保存AI响应消息，会话ID: {}, 用户ID: {}, 响应长度: {}", 
+                                    activeSessionId, userId, fullResponse.length());
+                        }
+                    })
+                    .doOnError(error -> {
+                        log.error("流式对话过程中发生错误，会话ID: {}, 用户ID: {}", activeSessionId, userId, error);
+                    });
+        });
     }
 
     @Operation(summary = "streamRag", description = "基于知识库的流式RAG对话接口")
@@ -136,33 +149,45 @@ public class ChatController {
         
         log.info("基于知识库的流式RAG对话，知识库ID列表: {}, 消息: {}", knowledgeBaseIds, message);
         
-        // 敏感词检查
-        List<SensitiveWord> list = sensitiveWordService.list();
-        for (SensitiveWord sensitiveWord : list) {
-            if (message.contains(sensitiveWord.getWord())) {
-                return Flux.just("包含敏感词:" + sensitiveWord.getWord());
-            }
-        }
-
-        Integer userId = BaseContext.getCurrentId().intValue();
-        
-        // 获取或创建会话
-        ChatSession currentSession = getCurrentOrCreateSession(userId, sessionId);
-        String activeSessionId = currentSession.getSessionId();
-        
-        // 保存用户消息
-        chatMessageService.saveUserMessage(activeSessionId, userId, message);
-        
-        // 如果没有指定知识库，使用普通对话
+        // 如果没有指定知识库，使用普通对话，敏感词检查和用户消息保存都由普通对话完成
         if (knowledgeBaseIds == null || knowledgeBaseIds.isEmpty()) {
             log.info("未指定知识库，使用普通对话模式");
             return streamRagChat(message, prompt, sessionId);
         }
-        
-        // 生成AI响应并保存
-        StringBuilder responseBuilder = new StringBuilder();
+
+        // 敏感词检查
+        SensitiveCheckResult checkResult = sensitiveWordService.match(message);
+        if (checkResult.isBlocked()) {
+            return Flux.just("包含敏感词:" + checkResult.getBlockedWord());
+        }
+        message = checkResult.getText();
+
+        Integer userId = BaseContext.getCurrentId().intValue();
+        String question = message;
         
         try {
+            // 回答会带上对话记忆，只有对话还没有历史时回答才与用户无关，才能读写语义缓存
+            String conversationId = String.valueOf(userId);
+            boolean cacheable = chatMemory.get(conversationId).isEmpty();
+
+            // 语义缓存命中时直接回放历史答案，跳过检索和模型调用
+            String cachedAnswer = cacheable ? semanticAnswerCacheService.lookup(question, knowledgeBaseIds, prompt) : null;
+            if (cachedAnswer != null) {
+                return withUserTurn(userId, sessionId, question, activeSessionId ->
+                        semanticAnswerCacheService.replay(cachedAnswer)
+                                .doOnComplete(() -> {
+                                    // 跳过了模型调用，需要补写对话记忆，后续轮次才能看到这一问一答
+                                    chatMemory.add(conversationId,
+                                            List.of(new UserMessage(question), new AssistantMessage(cachedAnswer)));
+                                    Map<String, Object> metadata = new HashMap<>();
+                                    metadata.put("knowledgeBaseIds", knowledgeBaseIds);
+                                    metadata.put("semanticCacheHit", true);
+                                    chatPersistenceStage.execute("assistant_message", () ->
+                                            chatMessageService.saveAssistantMessage(activeSessionId, userId, cachedAnswer,
+                                                    JSON.toJSONString(metadata)));
+                                }));
+            }
+            
             // 在指定知识库中进行相似性搜索
             SearchRequest searchRequest = SearchRequest.builder()
                     .query(message)
@@ -221,36 +246,50 @@ public class ChatController {
                         """, context, message);
             }
             
-            return chatClient.prompt()
-                    .system(prompt)
-                    .advisors(a -> a.param(ChatMemory.CONVERSATION_ID, userId))
-                    .user(enhancedMessage)
-                    .stream()
-                    .content()
-                    .doOnNext(chunk -> {
-                        // 累积响应内容
-                        responseBuilder.append(chunk);
-                    })
-                    .doOnComplete(() -> {
-                        // 流式响应完成后，保存完整的AI响应
-                        String fullResponse = responseBuilder.toString();
-                        if (StringUtils.hasText(fullResponse)) {
-                            // 构建元数据，包含使用的知识库信息
-                            Map<String, Object> metadata = new HashMap<>();
-                            metadata.put("knowledgeBaseIds", knowledgeBaseIds);
-                            metadata.put("searchResultsCount", searchResults.size());
-                            metadata.put("hasContext", !context.isEmpty());
-                            
-                            chatMessageService.saveAssistantMessage(activeSessionId, userId, fullResponse, 
-                                    metadata.isEmpty() ? null : JSON.toJSONString(metadata));
-                            log.info("保存基于知识库的AI响应消息，会话ID: {}, 用户ID: {}, 知识库: {}, 响应长度: {}", 
-                                    activeSessionId, userId, knowledgeBaseIds, fullResponse.length());
-                        }
-                    })
-                    .doOnError(error -> {
-                        log.error("基于知识库的流式对话过程中发生错误，会话ID: {}, 用户ID: {}, 知识库: {}", 
-                                activeSessionId, userId, knowledgeBaseIds, error);
-                    });
+            String userPrompt = enhancedMessage;
+            return withUserTurn(userId, sessionId, question, activeSessionId -> {
+                // 生成AI响应并保存
+                StringBuilder responseBuilder = new StringBuilder();
+
+                return chatClient.prompt()
+                        .system(prompt)
+                        .advisors(a -> a.param(ChatMemory.CONVERSATION_ID, userId))
+                        .user(userPrompt)
+                        .stream()
+                        .content()
+                        .transform(sensitiveWordService::moderate)
+                        .doOnNext(chunk -> {
+                            // 累积响应内容
+                            responseBuilder.append(chunk);
+                        })
+                        .doOnComplete(() -> {
+                            // 流式响应完成后，保存完整的AI响应，写库不阻塞推送线程
+                            String fullResponse = responseBuilder.toString();
+                            if (StringUtils.hasText(fullResponse)) {
+                                // 构建元数据，包含使用的知识库信息
+                                Map<String, Object> metadata = new HashMap<>();
+                                metadata.put("knowledgeBaseIds", knowledgeBaseIds);
+                                metadata.put("searchResultsCount", searchResults.size());
+                                metadata.put("hasContext", !context.isEmpty());
+                                
+                                chatPersistenceStage.execute("assistant_message", () ->
+                                        chatMessageService.saveAssistantMessage(activeSessionId, userId, fullResponse, 
+                                                metadata.isEmpty() ? null : JSON.toJSONString(metadata)));
+                                log.info("保存基于知识库的AI响应消息，会话ID: {}, 用户ID: {}, 知识库: {}, 响应长度: {}", 
+                                        activeSessionId, userId, knowledgeBaseIds, fullResponse.length());
+                                
+                                // 依赖对话历史的回答和被敏感词拦截的回答不进入语义缓存
+                                if (cacheable && !fullResponse.contains(MessageConstant.SENSITIVE_OUTPUT_BLOCKED)) {
+                                    chatPersistenceStage.execute("semantic_cache_store", () ->
+                                            semanticAnswerCacheService.store(question, knowledgeBaseIds, prompt, fullResponse));
+                                }
+                            }
+                        })
+                        .doOnError(error -> {
+                            log.error("基于知识库的流式对话过程中发生错误，会话ID: {}, 用户ID: {}, 知识库: {}", 
+                                    activeSessionId, userId, knowledgeBaseIds, error);
+                        });
+            });
             
         } catch (Exception e) {
             log.error("基于知识库的RAG对话失败", e);
@@ -268,12 +307,11 @@ public class ChatController {
                 messageDTO.getContent(), messageDTO.getSessionId(), messageDTO.getKnowledgeBaseIds());
         
         // 敏感词检查
-        List<SensitiveWord> list = sensitiveWordService.list();
-        for (SensitiveWord sensitiveWord : list) {
-            if (messageDTO.getContent().contains(sensitiveWord.getWord())) {
-                return ResultUtils.error("消息包含敏感词: " + sensitiveWord.getWord());
-            }
+        SensitiveCheckResult checkResult = sensitiveWordService.match(messageDTO.getContent());
+        if (checkResult.isBlocked()) {
+            return ResultUtils.error("消息包含敏感词: " + checkResult.getBlockedWord());
         }
+        messageDTO.setContent(checkResult.getText());
 
         Integer userId = BaseContext.getCurrentId().intValue();
         
@@ -471,6 +509,25 @@ public class ChatController {
         return ResultUtils.success(messageVOs);
     }
 
+    /**
+     * 在持久化线程中获取会话并保存用户消息，完成后再开始生成回答
+     *
+     * <p>持久化任务排队已满时直接告知客户端稍后重试，不阻塞请求线程</p>
+     */
+    private Flux<String> withUserTurn(Integer userId, String sessionId, String message,
+                                      Function<String, Flux<String>> chat) {
+        return chatPersistenceStage.submit("user_message", () -> {
+                    String activeSessionId = getCurrentOrCreateSession(userId, sessionId).getSessionId();
+                    chatMessageService.saveUserMessage(activeSessionId, userId, message);
+                    return activeSessionId;
+                })
+                .flatMapMany(chat)
+                .onErrorResume(RejectedExecutionException.class, e -> {
+                    log.warn("对话持久化任务排队已满，拒绝请求，用户ID: {}", userId);
+                    return Flux.just("当前对话请求较多，请稍后重试。");
+                });
+    }
+
     /**
      * 获取或创建当前会话
      */
@@ -4,21 +4,30 @@ import com.kinghy.rag.common.ApplicationConstant;
 import com.kinghy.rag.common.BaseResponse;
 import com.kinghy.rag.common.ResultUtils;
 import com.kinghy.rag.context.BaseContext;
+import com.kinghy.rag.entity.IngestionJob;
 import com.kinghy.rag.entity.KnowledgeBaseFile;
+import com.kinghy.rag.service.FileDownloadService;
+import com.kinghy.rag.service.IngestionJobService;
 import com.kinghy.rag.service.KnowledgeBaseFileService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
  * 知识库文件管理控制器
- * 提供知识库文件的上传、删除、查询等功能，支持批量操作
+ * 提供知识库文件的上传、更新、下载、删除、查询等功能，支持批量操作
  * 
  * @author yunzhongxiaoma
  * @since 1.0.0
@@ -32,25 +41,31 @@ public class KnowledgeBaseFileController {
     @Autowired
     private KnowledgeBaseFileService knowledgeBaseFileService;
 
+    @Autowired
+    private IngestionJobService ingestionJobService;
+
+    @Autowired
+    private FileDownloadService fileDownloadService;
+
     /**
      * 上传单个文件到知识库
      * 
      * @param knowledgeBaseId 知识库ID
      * @param file 上传的文件
-     * @return 上传后的文件信息
+     * @return 入库任务，可通过任务ID查询入库进度
      */
-    @Operation(summary = "上传文件到知识库", description = "上传单个文件到指定的知识库")
+    @Operation(summary = "上传文件到知识库", description = "上传单个文件到指定的知识库，立即返回入库任务")
     @PostMapping("/{knowledgeBaseId}/files")
-    public BaseResponse<KnowledgeBaseFile> uploadFile(
+    public BaseResponse<IngestionJob> uploadFile(
             @Parameter(description = "知识库ID") @PathVariable Long knowledgeBaseId,
             @Parameter(description = "上传的文件") @RequestParam("file") MultipartFile file) {
         log.info("上传文件到知识库请求, 知识库ID: {}, 文件名: {}", knowledgeBaseId, file.getOriginalFilename());
         
         Long userId = BaseContext.getCurrentId();
-        KnowledgeBaseFile uploadedFile = knowledgeBaseFileService.uploadFile(knowledgeBaseId, file, userId);
+        IngestionJob job = knowledgeBaseFileService.uploadFile(knowledgeBaseId, file, userId);
         
-        log.info("文件上传成功, 文件ID: {}", uploadedFile.getId());
-        return ResultUtils.success(uploadedFile);
+        log.info("文件已提交入库, 任务ID: {}", job.getId());
+        return ResultUtils.success(job);
     }
 
     /**
@@ -58,20 +73,48 @@ public class KnowledgeBaseFileController {
      * 
      * @param knowledgeBaseId 知识库ID
      * @param files 上传的文件列表
-     * @return 上传后的文件信息列表
+     * @return 入库任务列表
      */
-    @Operation(summary = "批量上传文件到知识库", description = "批量上传多个文件到指定的知识库")
+    @Operation(summary = "批量上传文件到知识库", description = "批量上传多个文件到指定的知识库，立即返回入库任务")
     @PostMapping("/{knowledgeBaseId}/files/batch")
-    public BaseResponse<List<KnowledgeBaseFile>> uploadFiles(
+    public BaseResponse<List<IngestionJob>> uploadFiles(
             @Parameter(description = "知识库ID") @PathVariable Long knowledgeBaseId,
             @Parameter(description = "上传的文件列表") @RequestParam("files") List<MultipartFile> files) {
         log.info("批量上传文件到知识库请求, 知识库ID: {}, 文件数量: {}", knowledgeBaseId, files.size());
         
         Long userId = BaseContext.getCurrentId();
-        List<KnowledgeBaseFile> uploadedFiles = knowledgeBaseFileService.uploadFiles(knowledgeBaseId, files, userId);
+        List<IngestionJob> jobs = knowledgeBaseFileService.uploadFiles(knowledgeBaseId, files, userId);
         
-        log.info("批量文件上传成功, 上传文件数量: {}", uploadedFiles.size());
-        return ResultUtils.success(uploadedFiles);
+        log.info("批量文件已提交入库, 任务数量: {}", jobs.size());
+        return ResultUtils.success(jobs);
+    }
+
+    /**
+     * 查询文件入库任务
+     * 
+     * @param jobId 任务ID
+     * @return 入库任务
+     */
+    @Operation(summary = "查询入库任务", description = "查询文件入库任务的状态和进度")
+    @GetMapping("/ingestion-jobs/{jobId}")
+    public BaseResponse<IngestionJob> getIngestionJob(
+            @Parameter(description = "任务ID") @PathVariable Long jobId) {
+        Long userId = BaseContext.getCurrentId();
+        return ResultUtils.success(ingestionJobService.getJob(jobId, userId));
+    }
+
+    /**
+     * 订阅文件入库任务进度（SSE）
+     * 
+     * @param jobId 任务ID
+     * @return 任务状态变化流，任务完成或失败后结束
+     */
+    @Operation(summary = "订阅入库进度", description = "以SSE方式推送文件入库任务的状态和进度")
+    @GetMapping(value = "/ingestion-jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<IngestionJob> watchIngestionJob(
+            @Parameter(description = "任务ID") @PathVariable Long jobId) {
+        Long userId = BaseContext.getCurrentId();
+        return ingestionJobService.watchJob(jobId, userId);
     }
 
     /**
@@ -112,6 +155,62 @@ public class KnowledgeBaseFileController {
         return ResultUtils.success(file);
     }
 
+    /**
+     * 下载单个文件
+     * 
+     * @param fileId 文件ID
+     * @param request HTTP请求，可携带Range、If-None-Match、If-Range
+     * @param response HTTP响应，文件内容以流的方式写出
+     */
+    @Operation(summary = "下载文件", description = "流式下载知识库文件，支持断点续传和条件请求")
+    @GetMapping("/files/{fileId}/download")
+    public void downloadFile(
+            @Parameter(description = "文件ID") @PathVariable Long fileId,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.info("下载文件请求, 文件ID: {}, Range: {}", fileId, request.getHeader(HttpHeaders.RANGE));
+        
+        Long userId = BaseContext.getCurrentId();
+        fileDownloadService.download(fileId, userId, request, response);
+    }
+
+    /**
+     * 打包下载多个文件
+     * 
+     * @param fileIds 文件ID列表
+     * @param response HTTP响应，zip内容以流的方式写出
+     */
+    @Operation(summary = "打包下载文件", description = "把多个知识库文件边读边压缩为zip流下载")
+    @GetMapping("/files/download")
+    public void downloadFiles(
+            @Parameter(description = "文件ID列表") @RequestParam List<Long> fileIds,
+            HttpServletResponse response) throws IOException {
+        log.info("打包下载文件请求, 文件ID列表: {}", fileIds);
+        
+        Long userId = BaseContext.getCurrentId();
+        fileDownloadService.downloadZip(fileIds, userId, response);
+    }
+
+    /**
+     * 更新文件内容
+     * 
+     * @param fileId 文件ID
+     * @param file 新版本文件
+     * @return 入库任务，可通过任务ID查询更新进度
+     */
+    @Operation(summary = "更新文件", description = "上传文件的新版本，只对变化的片段重新生成向量，立即返回入库任务")
+    @PutMapping("/files/{fileId}")
+    public BaseResponse<IngestionJob> updateFile(
+            @Parameter(description = "文件ID") @PathVariable Long fileId,
+            @Parameter(description = "新版本文件") @RequestParam("file") MultipartFile file) {
+        log.info("更新文件请求, 文件ID: {}, 文件名: {}", fileId, file.getOriginalFilename());
+        
+        Long userId = BaseContext.getCurrentId();
+        IngestionJob job = knowledgeBaseFileService.updateFile(fileId, file, userId);
+        
+        log.info("文件更新已提交入库, 任务ID: {}", job.getId());
+        return ResultUtils.success(job);
+    }
+
     /**
      * 删除单个文件
      * 
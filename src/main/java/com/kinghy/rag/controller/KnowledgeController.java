@@ -14,18 +14,23 @@ import com.kinghy.rag.common.BaseResponse;
 import com.kinghy.rag.common.ErrorCode;
 import com.kinghy.rag.common.ResultUtils;
 import com.kinghy.rag.context.BaseContext;
+import com.kinghy.rag.entity.IngestionJob;
 import com.kinghy.rag.entity.KnowledgeBase;
 import com.kinghy.rag.entity.KnowledgeBaseFile;
+import com.kinghy.rag.exception.BusinessException;
 import com.kinghy.rag.pojo.dto.QueryFileDTO;
+import com.kinghy.rag.service.FileDownloadService;
 import com.kinghy.rag.service.KnowledgeBaseFileService;
 import com.kinghy.rag.service.KnowledgeBaseService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -41,6 +46,9 @@ public class KnowledgeController {
     @Autowired
     private KnowledgeBaseFileService knowledgeBaseFileService;
 
+    @Autowired
+    private FileDownloadService fileDownloadService;
+
     /**
      * 上传附件接口（兼容性接口）
      * 文件将上传到默认的公共知识库中
@@ -65,11 +73,11 @@ public class KnowledgeController {
             KnowledgeBase defaultKnowledgeBase = getOrCreateDefaultKnowledgeBase(userId);
             
             // 上传文件到默认知识库
-            List<KnowledgeBaseFile> uploadedFiles = knowledgeBaseFileService.uploadFiles(
+            List<IngestionJob> jobs = knowledgeBaseFileService.uploadFiles(
                 defaultKnowledgeBase.getId(), files, userId);
             
-            log.info("用户 {} 成功上传 {} 个文件到默认知识库", userId, uploadedFiles.size());
-            return ResultUtils.success("文件上传成功，共上传 " + uploadedFiles.size() + " 个文件");
+            log.info("用户 {} 提交 {} 个文件到默认知识库", userId, jobs.size());
+            return ResultUtils.success("文件上传成功，共 " + jobs.size() + " 个文件正在后台处理");
             
         } catch (Exception e) {
             log.error("文件上传失败", e);
@@ -163,46 +171,18 @@ public class KnowledgeController {
      * 注意：此接口暂时保留，但建议使用新的文件管理接口
      * 
      * @param ids 文件ID列表
-     * @return 下载结果
+     * @param response HTTP响应，zip内容以流的方式写出
      */
-    @Operation(summary = "download", description = "文件下载（兼容性接口）")
+    @Operation(summary = "download", description = "文件下载（兼容性接口），以zip流返回所选文件")
     @GetMapping("/download")
-    public BaseResponse<String> downloadFiles(@RequestParam List<Long> ids) {
-        if (ids.isEmpty()) {
-            return ResultUtils.error(ErrorCode.PARAMS_ERROR, "请选择要下载的文件");
+    public void downloadFiles(@RequestParam List<Long> ids, HttpServletResponse response) throws IOException {
+        Long userId = BaseContext.getCurrentId();
+        if (userId == null) {
+            throw new BusinessException(ErrorCode.NOT_LOGIN_ERROR, "用户未登录");
         }
         
-        try {
-            Long userId = BaseContext.getCurrentId();
-            if (userId == null) {
-                return ResultUtils.error(ErrorCode.NOT_LOGIN_ERROR, "用户未登录");
-            }
-            
-            // 验证文件权限并获取下载链接
-            List<String> downloadUrls = ids.stream()
-                .map(id -> {
-                    try {
-                        KnowledgeBaseFile file = knowledgeBaseFileService.validateFileAccess(id, userId);
-                        return file.getFileUrl();
-                    } catch (Exception e) {
-                        log.warn("文件 {} 访问权限验证失败: {}", id, e.getMessage());
-                        return null;
-                    }
-                })
-                .filter(url -> url != null)
-                .collect(Collectors.toList());
-            
-            if (downloadUrls.isEmpty()) {
-                return ResultUtils.error(ErrorCode.OPERATION_ERROR, "没有可下载的文件");
-            }
-            
-            log.info("用户 {} 请求下载 {} 个文件", userId, downloadUrls.size());
-            return ResultUtils.success("获取下载链接成功，共 " + downloadUrls.size() + " 个文件");
-            
-        } catch (Exception e) {
-            log.error("获取下载链接失败", e);
-            return ResultUtils.error(ErrorCode.OPERATION_ERROR, "获取下载链接失败：" + e.getMessage());
-        }
+        log.info("用户 {} 请求下载 {} 个文件", userId, ids.size());
+        fileDownloadService.downloadZip(ids, userId, response);
     }
 
     /**
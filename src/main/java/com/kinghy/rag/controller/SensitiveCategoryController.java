@@ -7,6 +7,7 @@ import com.kinghy.rag.common.BaseResponse;
 import com.kinghy.rag.common.ResultUtils;
 import com.kinghy.rag.entity.SensitiveCategory;
 import com.kinghy.rag.service.SensitiveCategoryService;
+import com.kinghy.rag.service.SensitiveWordService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
@@ -36,6 +37,9 @@ public class SensitiveCategoryController {
     @Autowired
     private SensitiveCategoryService sensitiveCategoryService;
 
+    @Autowired
+    private SensitiveWordService sensitiveWordService;
+
     // 新增接口
     @Operation(summary = "新增敏感词分类")
     @PostMapping("/add")
@@ -43,14 +47,23 @@ public class SensitiveCategoryController {
         entity.setCreatedTime(LocalDate.now());
         entity.setUpdateTime(LocalDate.now());
         entity.setStatus("1");
-        return ResultUtils.success(sensitiveCategoryService.save(entity));
+        boolean saved = sensitiveCategoryService.save(entity);
+        if (saved) {
+            // 分类动作变更需要全量重建敏感词词库
+            sensitiveWordService.publishChange(null);
+        }
+        return ResultUtils.success(saved);
     }
 
     // 批量删除接口
     @Operation(summary = "批量删除")
     @DeleteMapping("/batch")
     public BaseResponse<Boolean> batchDelete(@RequestBody List<Integer> ids) {
-        return ResultUtils.success(sensitiveCategoryService.removeByIds(ids));
+        boolean removed = sensitiveCategoryService.removeByIds(ids);
+        if (removed) {
+            sensitiveWordService.publishChange(null);
+        }
+        return ResultUtils.success(removed);
     }
 
     // 修改接口
@@ -58,7 +71,11 @@ public class SensitiveCategoryController {
     @PutMapping("/update")
     public BaseResponse<Boolean> update(@RequestBody SensitiveCategory entity) {
         entity.setUpdateTime(LocalDate.now());
-        return ResultUtils.success(sensitiveCategoryService.updateById(entity));
+        boolean updated = sensitiveCategoryService.updateById(entity);
+        if (updated) {
+            sensitiveWordService.publishChange(null);
+        }
+        return ResultUtils.success(updated);
     }
 
     // 分页查询接口
@@ -16,6 +16,7 @@ import org.springframework.web.bind.annotation.*;
 import java.time.LocalDate;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @Title: SenSitiveWordController
@@ -43,6 +44,7 @@ public class SensitiveWordController {
         sensitiveWord.setUpdatedAt(LocalDate.now().toString());
         boolean save = sensitiveWordService.save(sensitiveWord);
         if (save){
+            sensitiveWordService.publishChange(List.of(sensitiveWord.getId()));
             return ResultUtils.success(true);
         }
         return ResultUtils.error("新增失败");
@@ -51,7 +53,11 @@ public class SensitiveWordController {
     @Operation(summary = "删除敏感词")
     @DeleteMapping("/{id}")
     public boolean deleteSensitiveWord(@PathVariable Integer id) {
-        return sensitiveWordService.removeById(id);
+        boolean removed = sensitiveWordService.removeById(id);
+        if (removed) {
+            sensitiveWordService.publishChange(List.of(id));
+        }
+        return removed;
     }
 
     @Operation(summary = "批量删除敏感词")
@@ -59,6 +65,7 @@ public class SensitiveWordController {
     public BaseResponse deleteSensitiveWords(@RequestBody List<Integer> ids) {
         boolean b = sensitiveWordService.removeByIds(ids);
         if (b){
+            sensitiveWordService.publishChange(ids);
             return ResultUtils.success("删除成功");
         }
         return ResultUtils.error("删除失败");
@@ -67,7 +74,11 @@ public class SensitiveWordController {
     @Operation(summary = "更新敏感词")
     @PutMapping
     public boolean updateSensitiveWord(@RequestBody SensitiveWord sensitiveWord) {
-        return sensitiveWordService.updateById(sensitiveWord);
+        boolean updated = sensitiveWordService.updateById(sensitiveWord);
+        if (updated) {
+            sensitiveWordService.publishChange(List.of(sensitiveWord.getId()));
+        }
+        return updated;
     }
 
     @Operation(summary = "分页查询敏感词")
@@ -79,6 +90,12 @@ public class SensitiveWordController {
         return ResultUtils.success(page1);
     }
 
+    @Operation(summary = "查询各分类敏感词命中次数")
+    @GetMapping("/hits")
+    public BaseResponse<Map<String, Long>> getCategoryHitCounts() {
+        return ResultUtils.success(sensitiveWordService.getCategoryHitCounts());
+    }
+
     @Operation(summary = "查询所有敏感词")
     @GetMapping
     public List<SensitiveWord> getAllSensitiveWords() {
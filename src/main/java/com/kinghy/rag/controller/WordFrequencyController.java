@@ -2,9 +2,12 @@ package com.kinghy.rag.controller;
 
 import com.kinghy.rag.common.ApplicationConstant;
 import com.kinghy.rag.common.BaseResponse;
+import com.kinghy.rag.common.HotWordWindow;
 import com.kinghy.rag.common.PageResult;
 import com.kinghy.rag.common.ResultUtils;
 import com.kinghy.rag.pojo.dto.WordFrequencyPageQueryDTO;
+import com.kinghy.rag.pojo.vo.HotWordVO;
+import com.kinghy.rag.service.HotWordService;
 import com.kinghy.rag.service.WordFrequencyService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -40,6 +43,9 @@ public class WordFrequencyController {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private HotWordService hotWordService;
+
 
     // 分页条件查询
     @PostMapping("/page")
@@ -50,6 +56,18 @@ public class WordFrequencyController {
         return ResultUtils.success(pageResult);
     }
 
+    // 实时热词 Top-K
+    @GetMapping("/top")
+    @Operation(summary = "top", description = "查询时间窗口内的实时热词，窗口可选 5m / 1h / 24h")
+    public BaseResponse<List<HotWordVO>> top(@RequestParam(value = "k", defaultValue = "10") Integer k,
+                                             @RequestParam(value = "window", defaultValue = "1h") String window) {
+        HotWordWindow hotWordWindow = HotWordWindow.fromCode(window);
+        if (hotWordWindow == null) {
+            return ResultUtils.error("不支持的时间窗口: " + window);
+        }
+        return ResultUtils.success(hotWordService.topK(k, hotWordWindow));
+    }
+
     // 清空数据
     @DeleteMapping("/clean")
     @Operation(summary = "clean", description = "清空数据")
@@ -18,7 +18,7 @@ import java.time.LocalDateTime;
  */
 @TableName(value = "chat_session")
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class ChatSession implements Serializable {
@@ -0,0 +1,101 @@
+package com.kinghy.rag.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 文件入库任务实体类
+ * 
+ * @author yunzhongxiaoma
+ * @since 1.0.0
+ */
+@TableName(value = "tb_ingestion_job")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestionJob {
+    
+    /**
+     * 主键ID
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+    
+    /**
+     * 知识库ID
+     */
+    @TableField("knowledge_base_id")
+    private Long knowledgeBaseId;
+    
+    /**
+     * 入库完成后生成的文件ID
+     */
+    @TableField("file_id")
+    private Long fileId;
+    
+    /**
+     * 存储文件名
+     */
+    @TableField("file_name")
+    private String fileName;
+    
+    /**
+     * 原始文件名
+     */
+    @TableField("original_name")
+    private String originalName;
+    
+    /**
+     * 文件大小(字节)
+     */
+    @TableField("file_size")
+    private Long fileSize;
+    
+    /**
+     * 任务状态：PENDING/PARSING/EMBEDDING/DONE/FAILED
+     */
+    @TableField("status")
+    private String status;
+    
+    /**
+     * 进度（0-100）
+     */
+    @TableField("progress")
+    private Integer progress;
+    
+    /**
+     * 切分后的文档片段数量
+     */
+    @TableField("chunk_count")
+    private Integer chunkCount;
+    
+    /**
+     * 失败原因
+     */
+    @TableField("error_message")
+    private String errorMessage;
+    
+    /**
+     * 上传用户ID
+     */
+    @TableField("upload_user_id")
+    private Integer uploadUserId;
+    
+    /**
+     * 创建时间
+     */
+    @TableField(value = "create_time", fill = FieldFill.INSERT)
+    private LocalDateTime createTime;
+    
+    /**
+     * 更新时间
+     */
+    @TableField(value = "update_time", fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updateTime;
+}
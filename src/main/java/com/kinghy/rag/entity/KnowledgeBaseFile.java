@@ -69,6 +69,24 @@ public class KnowledgeBaseFile {
     @TableField("vector_ids")
     private String vectorIds;
     
+    /**
+     * 文件内容SHA-256
+     */
+    @TableField("content_hash")
+    private String contentHash;
+    
+    /**
+     * 片段内容SHA-256列表(JSON格式，与向量ID列表一一对应)
+     */
+    @TableField("chunk_hashes")
+    private String chunkHashes;
+    
+    /**
+     * 索引版本号，每次增量更新加一
+     */
+    @TableField("version")
+    private Integer version;
+    
     /**
      * 上传用户ID
      */
@@ -39,4 +39,9 @@ public class SensitiveCategory {
      * 状态
      */
     private String status;
+
+    /**
+     * 命中后的处理动作：BLOCK（拦截）、MASK（屏蔽）、LOG（仅记录）
+     */
+    private String action;
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.kinghy.rag.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.kinghy.rag.entity.ChatSession;
+import com.kinghy.rag.pojo.dto.SessionTouch;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
@@ -64,6 +65,18 @@ public interface ChatSessionMapper extends BaseMapper<ChatSession> {
      */
     void updateLastMessageTime(@Param("sessionId") String sessionId);
 
+    /**
+     * 累加消息计数并推进最后消息时间（一条语句完成）
+     */
+    void touchSession(@Param("sessionId") String sessionId,
+                      @Param("delta") int delta,
+                      @Param("lastMessageTime") LocalDateTime lastMessageTime);
+
+    /**
+     * 批量累加消息计数并推进最后消息时间（一条语句完成，同一会话只能出现一次）
+     */
+    void touchSessions(@Param("list") List<SessionTouch> touches);
+
     /**
      * 将用户的其他会话设为非活跃状态
      */
@@ -0,0 +1,15 @@
+package com.kinghy.rag.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.kinghy.rag.entity.IngestionJob;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * 文件入库任务数据访问层接口
+ * 
+ * @author yunzhongxiaoma
+ * @since 1.0.0
+ */
+@Mapper
+public interface IngestionJobMapper extends BaseMapper<IngestionJob> {
+}
@@ -24,6 +24,31 @@ public interface KnowledgeBaseFileMapper extends BaseMapper<KnowledgeBaseFile> {
      */
     List<KnowledgeBaseFile> selectByKnowledgeBaseId(@Param("knowledgeBaseId") Long knowledgeBaseId);
     
+    /**
+     * 查询并锁定知识库的所有文件记录，需在事务中调用
+     * 
+     * @param knowledgeBaseId 知识库ID
+     * @return 文件列表
+     */
+    List<KnowledgeBaseFile> selectByKnowledgeBaseIdForUpdate(@Param("knowledgeBaseId") Long knowledgeBaseId);
+    
+    /**
+     * 查询并锁定文件记录，需在事务中调用
+     * 
+     * @param id 文件ID
+     * @return 文件信息
+     */
+    KnowledgeBaseFile selectByIdForUpdate(@Param("id") Long id);
+    
+    /**
+     * 版本号未变化时更新文件的索引内容（文件名、地址、向量ID、哈希等），并将版本号加一
+     * 
+     * @param file 新的文件内容，id 为目标文件ID
+     * @param version 读取旧版本时的版本号
+     * @return 影响行数，为0表示文件已被删除或已被其他更新修改
+     */
+    int updateIndexByVersion(@Param("file") KnowledgeBaseFile file, @Param("version") Integer version);
+    
     /**
      * 根据知识库ID删除所有文件
      * 
@@ -48,4 +73,23 @@ public interface KnowledgeBaseFileMapper extends BaseMapper<KnowledgeBaseFile> {
      * @return 文件信息
      */
     KnowledgeBaseFile selectByIdAndUserId(@Param("fileId") Long fileId, @Param("userId") Long userId);
-}
\ No newline at end of file
+    
+    /**
+     * 根据文件内容哈希查询最早的一条文件记录
+     * 
+     * @param knowledgeBaseId 知识库ID，为空时在全部知识库中查找
+     * @param contentHash 文件内容SHA-256
+     * @return 文件信息
+     */
+    KnowledgeBaseFile selectFirstByContentHash(@Param("knowledgeBaseId") Long knowledgeBaseId,
+                                               @Param("contentHash") String contentHash);
+    
+    /**
+     * 锁定一条引用该对象存储文件的记录。删除文件和复用文件都先在引用记录上加锁，
+     * 锁定不到说明已没有记录引用该文件
+     * 
+     * @param fileUrl 文件URL
+     * @return 记录ID，没有引用时返回null
+     */
+    Long selectIdByFileUrlForUpdate(@Param("fileUrl") String fileUrl);
+}
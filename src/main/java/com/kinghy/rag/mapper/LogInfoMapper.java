@@ -3,6 +3,9 @@ package com.kinghy.rag.mapper;
 import com.kinghy.rag.entity.LogInfo;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 /**
 * @author kinghy
@@ -14,6 +17,16 @@ import org.apache.ibatis.annotations.Mapper;
 @Mapper
 public interface LogInfoMapper extends BaseMapper<LogInfo> {
 
+    /**
+     * 批量插入日志
+     */
+    void batchInsert(@Param("list") List<LogInfo> logs);
+
+    /**
+     * 按主键顺序查询 (afterId, beforeId) 区间内的一页日志，只取词频统计需要的列
+     */
+    List<LogInfo> selectPageAfterId(@Param("afterId") Long afterId, @Param("beforeId") Long beforeId,
+                                    @Param("limit") int limit);
 }
 
 
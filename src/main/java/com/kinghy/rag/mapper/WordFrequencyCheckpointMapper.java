@@ -0,0 +1,29 @@
+package com.kinghy.rag.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 词频统计进度Mapper
+ *
+ * @author yunzhongxiaoma
+ * @description 记录各统计任务已处理到的 log_info 最大主键
+ */
+@Mapper
+public interface WordFrequencyCheckpointMapper {
+
+    /**
+     * 任务首次运行时插入进度记录，已存在时忽略
+     */
+    int initCheckpoint(@Param("jobName") String jobName);
+
+    /**
+     * 查询并锁定任务进度，同一时刻只有一个节点能推进
+     */
+    Long selectLastLogIdForUpdate(@Param("jobName") String jobName);
+
+    /**
+     * 更新任务进度
+     */
+    int updateLastLogId(@Param("jobName") String jobName, @Param("lastLogId") Long lastLogId);
+}
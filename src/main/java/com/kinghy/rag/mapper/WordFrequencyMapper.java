@@ -3,6 +3,9 @@ package com.kinghy.rag.mapper;
 import com.kinghy.rag.entity.WordFrequency;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 /**
 * @author kinghy
@@ -14,6 +17,10 @@ import org.apache.ibatis.annotations.Mapper;
 @Mapper
 public interface WordFrequencyMapper extends BaseMapper<WordFrequency> {
 
+    /**
+     * 批量累加词频，词不存在时插入，依赖 (word, business_type) 唯一索引
+     */
+    void batchUpsert(@Param("list") List<WordFrequency> wordFrequencies);
 }
 
 
@@ -0,0 +1,33 @@
+package com.kinghy.rag.pojo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 聊天会话缓存失效通知（Redis pub/sub 消息体）
+ *
+ * @author yunzhongxiaoma
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatCacheInvalidationMessage implements Serializable {
+
+    /**
+     * 发出通知的节点标识，节点忽略自己发出的通知
+     */
+    private String nodeId;
+
+    /**
+     * 当前会话发生变化的用户ID，为空表示不涉及
+     */
+    private Integer userId;
+
+    /**
+     * 会话信息发生变化的会话ID，为空表示不涉及
+     */
+    private String sessionId;
+}
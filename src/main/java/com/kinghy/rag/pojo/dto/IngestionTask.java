@@ -0,0 +1,103 @@
+package com.kinghy.rag.pojo.dto;
+
+import lombok.Builder;
+import lombok.Data;
+import org.springframework.ai.document.Document;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 入库流水线中流转的任务上下文
+ *
+ * @author yunzhongxiaoma
+ */
+@Data
+@Builder
+public class IngestionTask {
+
+    /**
+     * 入库任务ID
+     */
+    private Long jobId;
+
+    /**
+     * 增量更新的目标文件ID，为空时表示新增文件
+     */
+    private Long targetFileId;
+
+    private Long knowledgeBaseId;
+
+    private Long userId;
+
+    /**
+     * 存储文件名（对象存储中的对象名）
+     */
+    private String fileName;
+
+    /**
+     * 本次上传生成的对象名；复用已有文件时 fileName 改为已有文件的对象名，复用失败时用它重新上传
+     */
+    private String uploadFileName;
+
+    private String originalName;
+
+    private String fileType;
+
+    private Long fileSize;
+
+    /**
+     * 上传时落盘的临时文件，入库结束后删除
+     */
+    private Path tempFile;
+
+    /**
+     * 文件内容SHA-256
+     */
+    private String contentHash;
+
+    /**
+     * 上传对象存储后的文件URL
+     */
+    private String fileUrl;
+
+    /**
+     * 是否复用了其他记录已上传的同内容文件，复用时失败回滚不删除对象存储文件
+     */
+    private boolean fileReused;
+
+    /**
+     * 解析、切分后的文档片段
+     */
+    private List<Document> documents;
+
+    /**
+     * 写入向量库后的向量ID
+     */
+    private List<String> vectorIds;
+
+    /**
+     * 片段内容SHA-256，与向量ID一一对应
+     */
+    private List<String> chunkHashes;
+
+    /**
+     * 本次任务新写入的向量ID，失败回滚时只删除这部分
+     */
+    private List<String> addedVectorIds;
+
+    /**
+     * 增量更新时旧版本中已不存在的片段向量ID，文件记录更新后删除
+     */
+    private List<String> staleVectorIds;
+
+    /**
+     * 增量更新时比对所依据的旧版本号，更新文件记录时版本号必须未变化
+     */
+    private Integer baseVersion;
+
+    /**
+     * 增量更新时旧版本的文件URL，更新后不再被引用时删除
+     */
+    private String previousFileUrl;
+}
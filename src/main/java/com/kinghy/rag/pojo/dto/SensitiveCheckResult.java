@@ -0,0 +1,46 @@
+package com.kinghy.rag.pojo.dto;
+
+import com.kinghy.rag.common.SensitiveAction;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 敏感词检查结果：一次扫描得到的全部命中及处理后的文本
+ *
+ * @author yunzhongxiaoma
+ */
+@Data
+@AllArgsConstructor
+public class SensitiveCheckResult {
+
+    /**
+     * 处理后的文本（MASK 分类的敏感词已替换为*）
+     */
+    private String text;
+
+    /**
+     * 全部命中记录
+     */
+    private List<SensitiveHit> hits;
+
+    /**
+     * 是否需要拦截
+     */
+    public boolean isBlocked() {
+        return getBlockedWord() != null;
+    }
+
+    /**
+     * 第一个需要拦截的敏感词，没有则返回null
+     */
+    public String getBlockedWord() {
+        for (SensitiveHit hit : hits) {
+            if (hit.getAction() == SensitiveAction.BLOCK) {
+                return hit.getWord();
+            }
+        }
+        return null;
+    }
+}
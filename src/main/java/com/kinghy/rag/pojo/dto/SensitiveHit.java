@@ -0,0 +1,40 @@
+package com.kinghy.rag.pojo.dto;
+
+import com.kinghy.rag.common.SensitiveAction;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 敏感词命中记录
+ *
+ * @author yunzhongxiaoma
+ */
+@Data
+@AllArgsConstructor
+public class SensitiveHit {
+
+    /**
+     * 命中的敏感词
+     */
+    private String word;
+
+    /**
+     * 敏感词分类
+     */
+    private String category;
+
+    /**
+     * 分类对应的处理动作
+     */
+    private SensitiveAction action;
+
+    /**
+     * 命中起始位置（包含）
+     */
+    private int start;
+
+    /**
+     * 命中结束位置（不包含）
+     */
+    private int end;
+}
@@ -0,0 +1,29 @@
+package com.kinghy.rag.pojo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 敏感词变更通知（Redis pub/sub 消息体）
+ *
+ * @author yunzhongxiaoma
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensitiveWordChangeMessage implements Serializable {
+
+    /**
+     * 变更后的词库版本号
+     */
+    private Long version;
+
+    /**
+     * 发生变更的敏感词ID（新增、修改或删除）
+     */
+    private List<Integer> ids;
+}
@@ -0,0 +1,33 @@
+package com.kinghy.rag.pojo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 会话统计增量
+ *
+ * @author yunzhongxiaoma
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionTouch {
+
+    /**
+     * 会话ID
+     */
+    private String sessionId;
+
+    /**
+     * 新增的消息数
+     */
+    private int delta;
+
+    /**
+     * 新增消息中最晚的时间
+     */
+    private LocalDateTime lastMessageTime;
+}
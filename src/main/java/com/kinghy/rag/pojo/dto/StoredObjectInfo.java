@@ -0,0 +1,31 @@
+package com.kinghy.rag.pojo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 对象存储中的对象元信息
+ *
+ * @author yunzhongxiaoma
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredObjectInfo {
+
+    /**
+     * 对象大小（字节）
+     */
+    private long contentLength;
+
+    /**
+     * 最后修改时间（毫秒时间戳）
+     */
+    private long lastModified;
+
+    /**
+     * 实体标签，内容变化时随之变化
+     */
+    private String eTag;
+}
@@ -0,0 +1,26 @@
+package com.kinghy.rag.pojo.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 热词视图对象
+ *
+ * @author yunzhongxiaoma
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HotWordVO {
+
+    /**
+     * 词
+     */
+    private String word;
+
+    /**
+     * 窗口内的估计出现次数
+     */
+    private Long count;
+}
@@ -1,22 +1,11 @@
 package com.kinghy.rag.scheduled;
 
-import com.baomidou.mybatisplus.core.conditions.Wrapper;
-import com.kinghy.rag.entity.LogInfo;
-import com.kinghy.rag.entity.WordFrequency;
-import com.kinghy.rag.service.LogInfoService;
-import com.kinghy.rag.service.WordFrequencyService;
+import com.kinghy.rag.task.WordFrequencyAggregator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.wltea.analyzer.core.IKSegmenter;
-import org.wltea.analyzer.core.Lexeme;
-
-import java.io.IOException;
-import java.io.StringReader;
-import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * @Title: TaskJobScheduled
@@ -31,10 +20,8 @@ import java.util.stream.Collectors;
 public class TaskJobScheduled {
 
     @Autowired
-    private LogInfoService logInfoService;
+    private WordFrequencyAggregator wordFrequencyAggregator;
 
-    @Autowired
-    private WordFrequencyService wordFrequencyService;
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
@@ -57,66 +44,12 @@ public class TaskJobScheduled {
 
     public void taskJob() {
         log.info("分词器定时任务开始执行");
-        redisTemplate.delete("wordFrequencyList");
-        // 获取所有的热词数据
-        List<WordFrequency> wordFrequencies = wordFrequencyService.list();
-        // 转为 Map key为word value为WordFrequency  判断是否存在
-        Map<String, List<WordFrequency>> collectMap = wordFrequencies.stream().collect(Collectors.groupingBy(WordFrequency::getWord));
-        StringBuilder text = new StringBuilder();
-        // 获取所有日志
-        List<LogInfo> list = logInfoService.list((Wrapper<LogInfo>) null);
-        for (LogInfo logInfo : list){
-            // 将日志中的参数转为字符串
-            text.append(logInfo.getRequestParams());
-        }
-        String result = text.toString();
-        // 分词
-        Map<String, WordFrequency> newMap= new HashMap<>();
-        try (StringReader reader = new StringReader(result)) {
-            IKSegmenter segment = new IKSegmenter(reader, true);
-            Lexeme lexeme;
-            List<WordFrequency> wordFrequencyList = new ArrayList<>();
-            List<WordFrequency> updateList = new ArrayList<>();
-            while ((lexeme = segment.next()) != null) {
-                // 只有一个字
-                if (lexeme.getLength() <= 1){
-                    continue;
-                }
-                // 字符过长不统计， 没有意义
-                if (lexeme.getLength() >=10){
-                    continue;
-                }
-                // 不存在的是新热词
-                if (!collectMap.containsKey(lexeme.getLexemeText())){
-                    // 防止重复新增
-                    if(newMap.containsKey(lexeme.getLexemeText())){
-                        WordFrequency wordFrequency = newMap.get(lexeme.getLexemeText());
-                        wordFrequency.setCountNum(wordFrequency.getCountNum()+1);
-                    }
-                    else {
-                        WordFrequency wordFrequency = new WordFrequency();
-                        wordFrequency.setWord(lexeme.getLexemeText());
-                        wordFrequency.setCountNum(1);
-                        wordFrequency.setBusinessType("log");
-                        wordFrequency.setCreateTime(new Date());
-                        wordFrequency.setUpdateTime(new Date());
-                        wordFrequencyList.add(wordFrequency);
-                        newMap.put(lexeme.getLexemeText(), wordFrequency);
-                    }
-                // 存在的修改数量+1
-                }else if (collectMap.containsKey(lexeme.getLexemeText())){
-                    WordFrequency wordFrequency = collectMap.get(lexeme.getLexemeText()).get(0);
-                    wordFrequency.setCountNum(wordFrequency.getCountNum()+1);
-                    wordFrequency.setUpdateTime(new Date());
-                    updateList.add(wordFrequency);
-                }
-            }
-            // 新增新热词、修改老热词数量
-            wordFrequencyService.saveBatch(wordFrequencyList);
-            wordFrequencyService.saveOrUpdateBatch(updateList);
-
-        } catch (IOException e) {
-            e.printStackTrace();
+        long start = System.currentTimeMillis();
+        // 只处理上次之后新增的日志，词频按页累加到词频表
+        int processed = wordFrequencyAggregator.processNewLogs();
+        if (processed > 0) {
+            redisTemplate.delete("wordFrequencyList");
         }
+        log.info("分词器定时任务执行完成，处理日志数: {}, 耗时: {}ms", processed, System.currentTimeMillis() - start);
     }
 }
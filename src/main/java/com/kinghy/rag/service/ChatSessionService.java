@@ -2,9 +2,12 @@ package com.kinghy.rag.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.kinghy.rag.entity.ChatSession;
+import com.kinghy.rag.pojo.dto.SessionTouch;
 import com.kinghy.rag.pojo.vo.CursorPageResult;
 import com.kinghy.rag.pojo.vo.PageResult;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -109,6 +112,23 @@ public interface ChatSessionService extends IService<ChatSession> {
      */
     void updateLastMessageTime(String sessionId);
 
+    /**
+     * 累加会话消息计数并推进最后消息时间，一条语句完成，只加一次行锁
+     * 
+     * @param sessionId 会话ID
+     * @param delta 新增的消息数
+     * @param lastMessageTime 新增消息中最晚的时间
+     */
+    void touchSession(String sessionId, int delta, LocalDateTime lastMessageTime);
+
+    /**
+     * 批量应用会话统计增量，同一会话的多条增量先合并，
+     * 按会话ID排序后用一条语句更新，并发调用之间加锁顺序一致
+     * 
+     * @param touches 会话统计增量
+     */
+    void touchSessions(Collection<SessionTouch> touches);
+
     /**
      * 激活会话（设置为当前活跃会话）
      * 
@@ -0,0 +1,44 @@
+package com.kinghy.rag.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 查询向量缓存服务接口
+ *
+ * @author yunzhongxiaoma
+ * @since 1.0.0
+ */
+public interface EmbeddingCacheService {
+
+    /**
+     * 获取文本的缓存向量
+     *
+     * @param text 查询文本
+     * @return 向量，未命中返回null
+     */
+    float[] get(String text);
+
+    /**
+     * 缓存文本的向量
+     *
+     * @param text 查询文本
+     * @param embedding 向量
+     */
+    void put(String text, float[] embedding);
+
+    /**
+     * 按内容哈希批量获取文档片段向量
+     *
+     * @param contentHashes 片段内容的SHA-256
+     * @return 与入参一一对应的向量，未命中的位置为null
+     */
+    List<float[]> getChunkEmbeddings(List<String> contentHashes);
+
+    /**
+     * 按内容哈希批量保存文档片段向量
+     *
+     * @param embeddings 片段内容的SHA-256 -> 向量
+     */
+    void putChunkEmbeddings(Map<String, float[]> embeddings);
+}
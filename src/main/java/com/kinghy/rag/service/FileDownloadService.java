@@ -0,0 +1,35 @@
+package com.kinghy.rag.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 知识库文件下载服务接口
+ *
+ * @author yunzhongxiaoma
+ * @since 1.0.0
+ */
+public interface FileDownloadService {
+
+    /**
+     * 流式下载单个文件，支持Range断点续传和基于ETag的条件请求
+     *
+     * @param fileId 文件ID
+     * @param userId 用户ID
+     * @param request HTTP请求
+     * @param response HTTP响应
+     */
+    void download(Long fileId, Long userId, HttpServletRequest request, HttpServletResponse response) throws IOException;
+
+    /**
+     * 把多个文件边读边压缩为zip流输出，不在内存中缓存整个压缩包
+     *
+     * @param fileIds 文件ID列表
+     * @param userId 用户ID
+     * @param response HTTP响应
+     */
+    void downloadZip(List<Long> fileIds, Long userId, HttpServletResponse response) throws IOException;
+}
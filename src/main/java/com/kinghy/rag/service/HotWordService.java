@@ -0,0 +1,31 @@
+package com.kinghy.rag.service;
+
+import com.kinghy.rag.common.HotWordWindow;
+import com.kinghy.rag.pojo.vo.HotWordVO;
+
+import java.util.List;
+
+/**
+ * 实时热词服务接口
+ *
+ * @author yunzhongxiaoma
+ * @description 统计用户消息中的热词，按滑动时间窗口查询所有节点合并后的 Top-K
+ */
+public interface HotWordService {
+
+    /**
+     * 记录一条用户消息，分词和计数在后台线程中进行，不阻塞调用方
+     *
+     * @param text 消息内容
+     */
+    void record(String text);
+
+    /**
+     * 查询时间窗口内出现次数最多的词
+     *
+     * @param k      返回的热词数
+     * @param window 时间窗口
+     * @return 按估计次数从大到小排列的热词
+     */
+    List<HotWordVO> topK(int k, HotWordWindow window);
+}
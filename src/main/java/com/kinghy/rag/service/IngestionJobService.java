@@ -0,0 +1,82 @@
+package com.kinghy.rag.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.kinghy.rag.common.IngestionStatus;
+import com.kinghy.rag.entity.IngestionJob;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+
+/**
+ * 文件入库任务服务接口
+ * 
+ * @author yunzhongxiaoma
+ * @since 1.0.0
+ */
+public interface IngestionJobService extends IService<IngestionJob> {
+    
+    /**
+     * 创建入库任务
+     * 
+     * @param knowledgeBaseId 知识库ID
+     * @param fileName 存储文件名
+     * @param originalName 原始文件名
+     * @param fileSize 文件大小
+     * @param userId 上传用户ID
+     * @return 入库任务
+     */
+    IngestionJob createJob(Long knowledgeBaseId, String fileName, String originalName, Long fileSize, Long userId);
+    
+    /**
+     * 更新任务状态和进度
+     * 
+     * @param jobId 任务ID
+     * @param status 状态
+     * @param progress 进度（0-100）
+     */
+    void updateStatus(Long jobId, IngestionStatus status, int progress);
+    
+    /**
+     * 标记任务完成
+     * 
+     * @param jobId 任务ID
+     * @param fileId 生成的文件ID
+     * @param chunkCount 文档片段数量
+     */
+    void markDone(Long jobId, Long fileId, int chunkCount);
+    
+    /**
+     * 标记任务失败
+     * 
+     * @param jobId 任务ID
+     * @param errorMessage 失败原因
+     */
+    void markFailed(Long jobId, String errorMessage);
+    
+    /**
+     * 将指定时间之前最后更新、仍未结束的任务标记为失败
+     * 
+     * @param updatedBefore 最后更新时间上限
+     * @param errorMessage 失败原因
+     * @return 标记的任务数
+     */
+    int failStaleJobs(LocalDateTime updatedBefore, String errorMessage);
+    
+    /**
+     * 查询入库任务（校验知识库访问权限）
+     * 
+     * @param jobId 任务ID
+     * @param userId 用户ID
+     * @return 入库任务
+     */
+    IngestionJob getJob(Long jobId, Long userId);
+    
+    /**
+     * 订阅入库任务的状态变化，任务结束后流完成
+     * 
+     * @param jobId 任务ID
+     * @param userId 用户ID
+     * @return 状态变化流
+     */
+    Flux<IngestionJob> watchJob(Long jobId, Long userId);
+}
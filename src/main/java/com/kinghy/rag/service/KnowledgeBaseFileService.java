@@ -1,6 +1,7 @@
 package com.kinghy.rag.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.kinghy.rag.entity.IngestionJob;
 import com.kinghy.rag.entity.KnowledgeBaseFile;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -17,13 +18,14 @@ public interface KnowledgeBaseFileService extends IService<KnowledgeBaseFile> {
     
     /**
      * 上传文件到指定知识库
+     * 文件落盘后立即返回入库任务，解析、向量化等步骤在后台流水线中执行
      * 
      * @param knowledgeBaseId 知识库ID
      * @param file 上传的文件
      * @param userId 用户ID
-     * @return 上传后的文件信息
+     * @return 入库任务
      */
-    KnowledgeBaseFile uploadFile(Long knowledgeBaseId, MultipartFile file, Long userId);
+    IngestionJob uploadFile(Long knowledgeBaseId, MultipartFile file, Long userId);
     
     /**
      * 批量上传文件到指定知识库
@@ -31,9 +33,19 @@ public interface KnowledgeBaseFileService extends IService<KnowledgeBaseFile> {
      * @param knowledgeBaseId 知识库ID
      * @param files 上传的文件列表
      * @param userId 用户ID
-     * @return 上传后的文件信息列表
+     * @return 入库任务列表
      */
-    List<KnowledgeBaseFile> uploadFiles(Long knowledgeBaseId, List<MultipartFile> files, Long userId);
+    List<IngestionJob> uploadFiles(Long knowledgeBaseId, List<MultipartFile> files, Long userId);
+    
+    /**
+     * 使用新版本内容更新知识库文件，只对新增或修改的片段重新生成向量
+     * 
+     * @param fileId 文件ID
+     * @param file 新版本文件
+     * @param userId 用户ID
+     * @return 入库任务
+     */
+    IngestionJob updateFile(Long fileId, MultipartFile file, Long userId);
     
     /**
      * 删除知识库文件
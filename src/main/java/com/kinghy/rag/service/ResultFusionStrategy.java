@@ -0,0 +1,32 @@
+package com.kinghy.rag.service;
+
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 多知识库检索结果融合策略
+ * 不同知识库返回的分数不一定可以直接比较，由策略决定如何统一打分并取前topK
+ *
+ * @author yunzhongxiaoma
+ * @since 1.0.0
+ */
+public interface ResultFusionStrategy {
+
+    /**
+     * 策略名称，对应配置项 rag.vector-search.fusion
+     *
+     * @return 策略名称
+     */
+    String getName();
+
+    /**
+     * 融合各知识库的检索结果
+     *
+     * @param perKnowledgeBaseResults 各知识库的检索结果（知识库ID -> 按相似度降序排列的文档）
+     * @param topK 返回数量
+     * @return 按融合分数降序排列的前topK个文档
+     */
+    List<Document> fuse(Map<Long, List<Document>> perKnowledgeBaseResults, int topK);
+}
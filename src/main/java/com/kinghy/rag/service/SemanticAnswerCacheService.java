@@ -0,0 +1,49 @@
+package com.kinghy.rag.service;
+
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * 语义答案缓存服务接口
+ *
+ * @author yunzhongxiaoma
+ * @since 1.0.0
+ */
+public interface SemanticAnswerCacheService {
+
+    /**
+     * 查找语义相近问题的缓存答案
+     *
+     * @param question 用户问题
+     * @param knowledgeBaseIds 知识库ID列表
+     * @param systemPrompt 系统提示词
+     * @return 缓存答案，未命中返回null
+     */
+    String lookup(String question, List<Long> knowledgeBaseIds, String systemPrompt);
+
+    /**
+     * 缓存问题的答案
+     *
+     * @param question 用户问题
+     * @param knowledgeBaseIds 知识库ID列表
+     * @param systemPrompt 系统提示词
+     * @param answer 完整回答
+     */
+    void store(String question, List<Long> knowledgeBaseIds, String systemPrompt, String answer);
+
+    /**
+     * 知识库文件变更后使涉及该知识库的缓存失效
+     *
+     * @param knowledgeBaseId 知识库ID
+     */
+    void invalidate(Long knowledgeBaseId);
+
+    /**
+     * 将缓存答案按流式分片回放
+     *
+     * @param answer 缓存答案
+     * @return 分片流
+     */
+    Flux<String> replay(String answer);
+}
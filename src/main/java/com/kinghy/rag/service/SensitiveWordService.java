@@ -2,6 +2,11 @@ package com.kinghy.rag.service;
 
 import com.kinghy.rag.entity.SensitiveWord;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.kinghy.rag.pojo.dto.SensitiveCheckResult;
+import reactor.core.publisher.Flux;
+
+import java.util.Collection;
+import java.util.Map;
 
 /**
 * @author kinghy
@@ -10,4 +15,44 @@ import com.baomidou.mybatisplus.extension.service.IService;
 */
 public interface SensitiveWordService extends IService<SensitiveWord> {
 
+    /**
+     * 检查文本中的敏感词（内存自动机，单次线性扫描），
+     * 返回全部命中及其分类，并按分类动作处理文本
+     *
+     * @param text 待检查文本
+     * @return 检查结果
+     */
+    SensitiveCheckResult match(String text);
+
+    /**
+     * 对模型的流式输出做敏感词审核，自动机状态跨分片保留，
+     * 被拆分到两个分片中的敏感词同样能被识别；
+     * 命中拦截分类时截断输出并结束流，命中屏蔽分类时替换为*
+     *
+     * @param content 模型输出流
+     * @return 审核后的输出流
+     */
+    Flux<String> moderate(Flux<String> content);
+
+    /**
+     * 通知敏感词变更：递增Redis中的词库版本号并广播到所有节点，
+     * 各节点在后台增量重建匹配器后原子替换
+     *
+     * @param ids 发生变更的敏感词ID，为null时各节点全量重建（如分类变更）
+     */
+    void publishChange(Collection<Integer> ids);
+
+    /**
+     * 获取本节点当前生效的词库版本号
+     *
+     * @return 版本号
+     */
+    long getDictionaryVersion();
+
+    /**
+     * 获取本节点各分类的命中次数
+     *
+     * @return 分类 -> 命中次数
+     */
+    Map<String, Long> getCategoryHitCounts();
 }
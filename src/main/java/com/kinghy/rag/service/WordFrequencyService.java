@@ -5,6 +5,8 @@ import com.kinghy.rag.entity.WordFrequency;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.kinghy.rag.pojo.dto.WordFrequencyPageQueryDTO;
 
+import java.util.Map;
+
 /**
 * @author kinghy
 * @description 针对表【word_frequency】的数据库操作Service
@@ -13,4 +15,12 @@ import com.kinghy.rag.pojo.dto.WordFrequencyPageQueryDTO;
 public interface WordFrequencyService extends IService<WordFrequency> {
 
     PageResult pageQuery(WordFrequencyPageQueryDTO queryDTO);
+
+    /**
+     * 把一批词频增量累加到词频表，不存在的词新增
+     *
+     * @param businessType 业务类型
+     * @param counts       词 -> 本次新增的出现次数
+     */
+    void mergeCounts(String businessType, Map<String, Integer> counts);
 }
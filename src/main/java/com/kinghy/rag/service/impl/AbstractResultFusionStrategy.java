@@ -0,0 +1,167 @@
+package com.kinghy.rag.service.impl;
+
+import com.kinghy.rag.service.ResultFusionStrategy;
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 结果融合策略基类
+ * 每个文档的分数只提取一次存入float数组，再用容量为topK的小顶堆选出结果
+ *
+ * @author yunzhongxiaoma
+ * @since 1.0.0
+ */
+public abstract class AbstractResultFusionStrategy implements ResultFusionStrategy {
+
+    @Override
+    public List<Document> fuse(Map<Long, List<Document>> perKnowledgeBaseResults, int topK) {
+        int total = 0;
+        for (List<Document> results : perKnowledgeBaseResults.values()) {
+            total += results.size();
+        }
+        if (total == 0 || topK <= 0) {
+            return Collections.emptyList();
+        }
+
+        Document[] documents = new Document[total];
+        float[] scores = new float[total];
+        int offset = 0;
+        for (Map.Entry<Long, List<Document>> entry : perKnowledgeBaseResults.entrySet()) {
+            List<Document> results = entry.getValue();
+            for (int i = 0; i < results.size(); i++) {
+                documents[offset + i] = results.get(i);
+            }
+            score(entry.getKey(), results, scores, offset);
+            offset += results.size();
+        }
+
+        // 同一文档出现在多个结果列表时合并分数，重复项置为无效
+        Map<String, Integer> firstIndex = new HashMap<>(total * 2);
+        for (int i = 0; i < total; i++) {
+            String id = documents[i].getId();
+            Integer first = firstIndex.putIfAbsent(id, i);
+            if (first != null) {
+                scores[first] = combine(scores[first], scores[i]);
+                documents[i] = null;
+            }
+        }
+        return selectTopK(documents, scores, topK);
+    }
+
+    /**
+     * 为一个知识库的检索结果打分，分数越高越相关
+     *
+     * @param knowledgeBaseId 知识库ID
+     * @param results 该知识库的检索结果
+     * @param scores 分数数组
+     * @param offset 该知识库结果在分数数组中的起始位置
+     */
+    protected abstract void score(Long knowledgeBaseId, List<Document> results, float[] scores, int offset);
+
+    /**
+     * 合并同一文档在不同结果列表中的分数，默认取最大值
+     */
+    protected float combine(float first, float second) {
+        return Math.max(first, second);
+    }
+
+    /**
+     * 提取文档的原始相似度，优先使用score，其次用1 - distance换算
+     *
+     * @param document 文档
+     * @return 相似度，越高越相关
+     */
+    protected static float similarity(Document document) {
+        Double score = document.getScore();
+        if (score != null) {
+            return score.floatValue();
+        }
+        Object distance = document.getMetadata().get("distance");
+        if (distance instanceof Number number) {
+            return 1f - number.floatValue();
+        }
+        if (distance != null) {
+            return 1f - Float.parseFloat(distance.toString());
+        }
+        return 0f;
+    }
+
+    /**
+     * 用小顶堆选出分数最高的topK个文档，分数相同时靠前的文档优先
+     */
+    private static List<Document> selectTopK(Document[] documents, float[] scores, int topK) {
+        int[] heap = new int[Math.min(topK, documents.length)];
+        int size = 0;
+        for (int i = 0; i < documents.length; i++) {
+            if (documents[i] == null) {
+                continue;
+            }
+            if (size < heap.length) {
+                heap[size] = i;
+                siftUp(heap, size++, scores);
+            } else if (ranksBefore(i, heap[0], scores)) {
+                heap[0] = i;
+                siftDown(heap, size, scores);
+            }
+        }
+
+        // 依次弹出堆顶得到升序，倒序填充即为结果
+        Document[] sorted = new Document[size];
+        for (int n = size; n > 0; n--) {
+            sorted[n - 1] = documents[heap[0]];
+            heap[0] = heap[n - 1];
+            siftDown(heap, n - 1, scores);
+        }
+        List<Document> results = new ArrayList<>(size);
+        Collections.addAll(results, sorted);
+        return results;
+    }
+
+    /**
+     * a 是否应排在 b 之前
+     */
+    private static boolean ranksBefore(int a, int b, float[] scores) {
+        return scores[a] > scores[b] || (scores[a] == scores[b] && a < b);
+    }
+
+    private static void siftUp(int[] heap, int index, float[] scores) {
+        int value = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!ranksBefore(heap[parent], value, scores)) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = value;
+    }
+
+    private static void siftDown(int[] heap, int size, float[] scores) {
+        if (size == 0) {
+            return;
+        }
+        int index = 0;
+        int value = heap[0];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && ranksBefore(heap[child], heap[child + 1], scores)) {
+                child++;
+            }
+            if (!ranksBefore(value, heap[child], scores)) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = value;
+    }
+}
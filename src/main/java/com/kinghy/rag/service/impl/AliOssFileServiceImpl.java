@@ -6,7 +6,7 @@ import com.kinghy.rag.exception.BusinessException;
 import com.kinghy.rag.common.ErrorCode;
 import com.kinghy.rag.service.AliOssFileService;
 import com.kinghy.rag.mapper.AliOssFileMapper;
-import com.kinghy.rag.utils.AliOssUtil;
+import com.kinghy.rag.utils.ObjectStorage;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -14,6 +14,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -35,7 +36,7 @@ public class AliOssFileServiceImpl extends ServiceImpl<AliOssFileMapper, AliOssF
     private AliOssFileMapper aliOssFileMapper;
 
     @Autowired
-    private AliOssUtil aliOssUtil;
+    private ObjectStorage objectStorage;
 
     @Override
     @Transactional(rollbackFor = Exception.class)
@@ -55,7 +56,10 @@ public class AliOssFileServiceImpl extends ServiceImpl<AliOssFileMapper, AliOssF
             String objectName = UUID.randomUUID() + extension;
             
             // 上传到OSS
-            String url = aliOssUtil.upload(file.getBytes(), objectName);
+            String url;
+            try (InputStream in = file.getInputStream()) {
+                url = objectStorage.upload(in, file.getSize(), objectName);
+            }
             
             // 保存文件记录
             long currMillis = System.currentTimeMillis();
@@ -118,7 +122,7 @@ public class AliOssFileServiceImpl extends ServiceImpl<AliOssFileMapper, AliOssF
         
         try {
             // 删除OSS文件
-            aliOssUtil.deleteOss(ossFile.getUrl());
+            objectStorage.delete(ossFile.getUrl());
             
             // 删除数据库记录
             this.removeById(fileId);
@@ -143,18 +147,22 @@ public class AliOssFileServiceImpl extends ServiceImpl<AliOssFileMapper, AliOssF
             throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "未找到要删除的文件");
         }
         
-        int successCount = 0;
+        // 一次批量删除全部对象，再删除数据库记录
+        List<String> urls = new ArrayList<>(ossFiles.size());
+        List<Long> ids = new ArrayList<>(ossFiles.size());
         for (AliOssFile ossFile : ossFiles) {
-            try {
-                deleteOssFile(ossFile.getId());
-                successCount++;
-            } catch (Exception e) {
-                log.error("批量删除中文件 {} 删除失败", ossFile.getFileName(), e);
-                // 继续删除其他文件
-            }
+            urls.add(ossFile.getUrl());
+            ids.add(ossFile.getId());
+        }
+        try {
+            objectStorage.deleteAll(urls);
+        } catch (Exception e) {
+            log.error("批量删除OSS文件失败, 文件数量: {}", urls.size(), e);
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "删除文件失败: " + e.getMessage());
         }
+        this.removeByIds(ids);
         
-        log.info("批量删除完成，成功删除 {} 个文件，共 {} 个文件", successCount, ossFiles.size());
+        log.info("批量删除完成，共删除 {} 个文件", ossFiles.size());
     }
 
     @Override
@@ -164,7 +172,7 @@ public class AliOssFileServiceImpl extends ServiceImpl<AliOssFileMapper, AliOssF
         }
         
         try {
-            aliOssUtil.deleteOss(fileUrl);
+            objectStorage.delete(fileUrl);
             log.info("根据URL删除OSS文件成功: {}", fileUrl);
         } catch (Exception e) {
             log.error("根据URL删除OSS文件失败: {}", fileUrl, e);
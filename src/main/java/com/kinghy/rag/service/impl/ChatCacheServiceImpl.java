@@ -1,35 +1,84 @@
 package com.kinghy.rag.service.impl;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kinghy.rag.config.ChatCacheConfig;
 import com.kinghy.rag.entity.ChatMessage;
 import com.kinghy.rag.entity.ChatSession;
+import com.kinghy.rag.pojo.dto.ChatCacheInvalidationMessage;
 import com.kinghy.rag.service.ChatCacheService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.UUID;
 
 /**
  * 聊天缓存服务实现类
  * 
  * @author yunzhongxiaoma
- * @description 提供聊天相关数据的缓存管理功能实现
+ * @description 提供聊天相关数据的缓存管理功能实现；会话信息和用户当前会话在进程内保留近端副本，
+ *              已有会话中的连续对话不需要访问 Redis，修改时通过 Redis 发布订阅通知其他节点失效副本
  */
 @Service
 @Slf4j
-public class ChatCacheServiceImpl implements ChatCacheService {
+public class ChatCacheServiceImpl implements ChatCacheService, MessageListener {
+
+    /**
+     * 近端缓存失效通知频道
+     */
+    public static final String INVALIDATION_CHANNEL = "chat:cache:invalidate";
+
+    private static final String SESSION_METRIC_NAME = "rag.chat.cache.session.requests";
 
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Autowired
+    private ChatCacheConfig chatCacheConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 本节点标识，用于忽略自己发出的失效通知
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    // 近端缓存，未启用时为空
+    private Cache<Integer, String> currentSessionNearCache;
+    private Cache<String, ChatSession> sessionInfoNearCache;
+
+    private Counter nearHits;
+    private Counter redisHits;
+    private Counter misses;
+
     // 缓存键前缀
     private static final String CURRENT_SESSION_PREFIX = "chat:session:current:";
     private static final String SESSION_INFO_PREFIX = "chat:session:info:";
     private static final String USER_SESSIONS_PREFIX = "chat:user:sessions:";
-    private static final String RECENT_MESSAGES_PREFIX = "chat:messages:recent:";
+    // 最近消息以 Redis 列表存储，与旧版整体序列化的字符串值使用不同的键
+    private static final String RECENT_MESSAGES_PREFIX = "chat:messages:recent:list:";
 
     // 缓存过期时间
     private static final Duration CURRENT_SESSION_TTL = Duration.ofHours(4);
@@ -37,13 +86,81 @@ public class ChatCacheServiceImpl implements ChatCacheService {
     private static final Duration USER_SESSIONS_TTL = Duration.ofMinutes(30);
     private static final Duration RECENT_MESSAGES_TTL = Duration.ofHours(1);
 
+    // 每个会话缓存的最近消息条数
+    private static final int RECENT_MESSAGES_WINDOW = 50;
+
+    private static final RedisSerializer<Long> SCRIPT_RESULT_SERIALIZER = new GenericToStringSerializer<>(Long.class);
+
+    /**
+     * 追加一条消息并裁剪到窗口大小、刷新过期时间
+     * KEYS[1] 列表键；ARGV[1] 消息；ARGV[2] 窗口大小；ARGV[3] 过期时间（毫秒）
+     */
+    private static final RedisScript<Long> APPEND_MESSAGE_SCRIPT = new DefaultRedisScript<>(
+            "local size = redis.call('RPUSH', KEYS[1], ARGV[1]) " +
+            "redis.call('LTRIM', KEYS[1], -tonumber(ARGV[2]), -1) " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[3]) " +
+            "return size", Long.class);
+
+    /**
+     * 用给定的消息整体替换列表
+     * KEYS[1] 列表键；ARGV[1] 过期时间（毫秒）；ARGV[2..] 消息
+     */
+    private static final RedisScript<Long> REPLACE_MESSAGES_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('DEL', KEYS[1]) " +
+            "if #ARGV < 2 then return 0 end " +
+            "local size = redis.call('RPUSH', KEYS[1], unpack(ARGV, 2)) " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[1]) " +
+            "return size", Long.class);
+
+    // ==================== Lifecycle ====================
+
+    @PostConstruct
+    public void init() {
+        if (chatCacheConfig.isNearCacheEnabled()) {
+            Duration ttl = Duration.ofSeconds(chatCacheConfig.getNearCacheTtlSeconds());
+            currentSessionNearCache = Caffeine.newBuilder()
+                    .maximumSize(chatCacheConfig.getNearCacheMaxSize())
+                    .expireAfterWrite(ttl)
+                    .build();
+            sessionInfoNearCache = Caffeine.newBuilder()
+                    .maximumSize(chatCacheConfig.getNearCacheMaxSize())
+                    .expireAfterWrite(ttl)
+                    .build();
+            redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+        }
+        nearHits = Counter.builder(SESSION_METRIC_NAME).tag("result", "near_hit").register(meterRegistry);
+        redisHits = Counter.builder(SESSION_METRIC_NAME).tag("result", "redis_hit").register(meterRegistry);
+        misses = Counter.builder(SESSION_METRIC_NAME).tag("result", "miss").register(meterRegistry);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Object body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            if (body instanceof ChatCacheInvalidationMessage invalidation && !nodeId.equals(invalidation.getNodeId())) {
+                invalidateNear(invalidation.getUserId(), invalidation.getSessionId());
+                log.debug("收到会话缓存失效通知，用户ID: {}, 会话ID: {}", invalidation.getUserId(), invalidation.getSessionId());
+            }
+        } catch (Exception e) {
+            log.error("解析会话缓存失效通知失败", e);
+        }
+    }
+
     // ==================== Session Cache ====================
 
     @Override
     public void cacheCurrentSession(Integer userId, String sessionId) {
+        // 本地副本未变化时说明 Redis 中也已是该会话，不再重复写入和广播
+        if (currentSessionNearCache != null && sessionId.equals(currentSessionNearCache.getIfPresent(userId))) {
+            return;
+        }
         String key = CURRENT_SESSION_PREFIX + userId;
         try {
             redisTemplate.opsForValue().set(key, sessionId, CURRENT_SESSION_TTL);
+            if (currentSessionNearCache != null) {
+                currentSessionNearCache.put(userId, sessionId);
+            }
+            publishInvalidation(userId, null);
             log.debug("缓存用户当前会话，用户ID: {}, 会话ID: {}", userId, sessionId);
         } catch (Exception e) {
             log.error("缓存用户当前会话失败，用户ID: {}, 会话ID: {}", userId, sessionId, e);
@@ -52,16 +169,28 @@ public class ChatCacheServiceImpl implements ChatCacheService {
 
     @Override
     public String getCurrentSessionFromCache(Integer userId) {
+        if (currentSessionNearCache != null) {
+            String sessionId = currentSessionNearCache.getIfPresent(userId);
+            if (sessionId != null) {
+                nearHits.increment();
+                return sessionId;
+            }
+        }
         String key = CURRENT_SESSION_PREFIX + userId;
         try {
             Object value = redisTemplate.opsForValue().get(key);
             if (value != null) {
                 log.debug("从缓存获取用户当前会话，用户ID: {}, 会话ID: {}", userId, value);
+                redisHits.increment();
+                if (currentSessionNearCache != null) {
+                    currentSessionNearCache.put(userId, value.toString());
+                }
                 return value.toString();
             }
         } catch (Exception e) {
             log.error("从缓存获取用户当前会话失败，用户ID: {}", userId, e);
         }
+        misses.increment();
         return null;
     }
 
@@ -70,6 +199,10 @@ public class ChatCacheServiceImpl implements ChatCacheService {
         String key = SESSION_INFO_PREFIX + session.getSessionId();
         try {
             redisTemplate.opsForValue().set(key, session, SESSION_INFO_TTL);
+            if (sessionInfoNearCache != null) {
+                sessionInfoNearCache.put(session.getSessionId(), session.toBuilder().build());
+            }
+            publishInvalidation(null, session.getSessionId());
             log.debug("缓存会话信息，会话ID: {}", session.getSessionId());
         } catch (Exception e) {
             log.error("缓存会话信息失败，会话ID: {}", session.getSessionId(), e);
@@ -78,16 +211,29 @@ public class ChatCacheServiceImpl implements ChatCacheService {
 
     @Override
     public ChatSession getSessionInfoFromCache(String sessionId) {
+        if (sessionInfoNearCache != null) {
+            // 近端副本在节点内共享，返回拷贝，避免调用方修改后影响其他请求
+            ChatSession session = sessionInfoNearCache.getIfPresent(sessionId);
+            if (session != null) {
+                nearHits.increment();
+                return session.toBuilder().build();
+            }
+        }
         String key = SESSION_INFO_PREFIX + sessionId;
         try {
             Object value = redisTemplate.opsForValue().get(key);
-            if (value instanceof ChatSession) {
+            if (value instanceof ChatSession session) {
                 log.debug("从缓存获取会话信息，会话ID: {}", sessionId);
-                return (ChatSession) value;
+                redisHits.increment();
+                if (sessionInfoNearCache != null) {
+                    sessionInfoNearCache.put(sessionId, session.toBuilder().build());
+                }
+                return session;
             }
         } catch (Exception e) {
             log.error("从缓存获取会话信息失败，会话ID: {}", sessionId, e);
         }
+        misses.increment();
         return null;
     }
 
@@ -124,11 +270,20 @@ public class ChatCacheServiceImpl implements ChatCacheService {
     public void cacheRecentMessages(String sessionId, List<ChatMessage> messages) {
         String key = RECENT_MESSAGES_PREFIX + sessionId;
         try {
-            // 只缓存最近50条消息
-            List<ChatMessage> messagesToCache = messages.size() > 50 ? 
-                    messages.subList(Math.max(0, messages.size() - 50), messages.size()) : messages;
+            // 列表按时间正序保存，尾部是最新消息，只缓存最近的窗口内消息
+            List<ChatMessage> sorted = new ArrayList<>(messages);
+            sorted.sort(Comparator.comparing(ChatMessage::getCreateTime, Comparator.nullsFirst(Comparator.naturalOrder())));
+            List<ChatMessage> messagesToCache = sorted.size() > RECENT_MESSAGES_WINDOW ?
+                    sorted.subList(sorted.size() - RECENT_MESSAGES_WINDOW, sorted.size()) : sorted;
             
-            redisTemplate.opsForValue().set(key, messagesToCache, RECENT_MESSAGES_TTL);
+            // 删除旧列表后整体写入，脚本内完成，读者不会看到一半的列表
+            Object[] args = new Object[messagesToCache.size() + 1];
+            args[0] = toArg(RECENT_MESSAGES_TTL.toMillis());
+            for (int i = 0; i < messagesToCache.size(); i++) {
+                args[i + 1] = serialize(messagesToCache.get(i));
+            }
+            redisTemplate.execute(REPLACE_MESSAGES_SCRIPT, RedisSerializer.byteArray(), SCRIPT_RESULT_SERIALIZER,
+                    List.of(key), args);
             log.debug("缓存会话最近消息，会话ID: {}, 消息数量: {}", sessionId, messagesToCache.size());
         } catch (Exception e) {
             log.error("缓存会话最近消息失败，会话ID: {}", sessionId, e);
@@ -136,14 +291,19 @@ public class ChatCacheServiceImpl implements ChatCacheService {
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public List<ChatMessage> getRecentMessagesFromCache(String sessionId) {
         String key = RECENT_MESSAGES_PREFIX + sessionId;
         try {
-            Object value = redisTemplate.opsForValue().get(key);
-            if (value instanceof List) {
+            List<Object> values = redisTemplate.opsForList().range(key, 0, -1);
+            if (values != null && !values.isEmpty()) {
                 log.debug("从缓存获取会话最近消息，会话ID: {}", sessionId);
-                return (List<ChatMessage>) value;
+                List<ChatMessage> messages = new ArrayList<>(values.size());
+                for (Object value : values) {
+                    if (value instanceof ChatMessage message) {
+                        messages.add(message);
+                    }
+                }
+                return messages;
             }
         } catch (Exception e) {
             log.error("从缓存获取会话最近消息失败，会话ID: {}", sessionId, e);
@@ -152,40 +312,39 @@ public class ChatCacheServiceImpl implements ChatCacheService {
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public void addMessageToCache(String sessionId, ChatMessage message) {
         String key = RECENT_MESSAGES_PREFIX + sessionId;
         try {
-            Object value = redisTemplate.opsForValue().get(key);
-            List<ChatMessage> messages = new ArrayList<>();
-            
-            if (value instanceof List) {
-                messages = new ArrayList<>((List<ChatMessage>) value);
-            }
-            
-            // 添加新消息
-            messages.add(message);
-            
-            // 保持最多50条消息
-            if (messages.size() > 50) {
-                messages = messages.subList(messages.size() - 50, messages.size());
-            }
-            
-            // 更新缓存
-            redisTemplate.opsForValue().set(key, messages, RECENT_MESSAGES_TTL);
+            // RPUSH + LTRIM + PEXPIRE 在一个脚本中原子执行，只序列化新消息，开销与窗口大小无关
+            redisTemplate.execute(APPEND_MESSAGE_SCRIPT, RedisSerializer.byteArray(), SCRIPT_RESULT_SERIALIZER,
+                    List.of(key), serialize(message), toArg(RECENT_MESSAGES_WINDOW), toArg(RECENT_MESSAGES_TTL.toMillis()));
             log.debug("添加消息到缓存，会话ID: {}, 消息ID: {}", sessionId, message.getId());
         } catch (Exception e) {
             log.error("添加消息到缓存失败，会话ID: {}, 消息ID: {}", sessionId, message.getId(), e);
         }
     }
 
+    /**
+     * 使用模板的值序列化器序列化消息，与 LRANGE 读取时的反序列化保持一致
+     */
+    @SuppressWarnings("unchecked")
+    private byte[] serialize(ChatMessage message) {
+        return ((RedisSerializer<Object>) redisTemplate.getValueSerializer()).serialize(message);
+    }
+
+    private static byte[] toArg(long value) {
+        return Long.toString(value).getBytes(StandardCharsets.UTF_8);
+    }
+
     // ==================== Cache Invalidation ====================
 
     @Override
     public void clearUserCache(Integer userId) {
         try {
             // 清除用户当前会话缓存
+            invalidateNear(userId, null);
             redisTemplate.delete(CURRENT_SESSION_PREFIX + userId);
+            publishInvalidation(userId, null);
             
             // 清除用户会话列表缓存
             redisTemplate.delete(USER_SESSIONS_PREFIX + userId);
@@ -200,7 +359,9 @@ public class ChatCacheServiceImpl implements ChatCacheService {
     public void clearSessionCache(String sessionId, Integer userId) {
         try {
             // 清除会话信息缓存
+            invalidateNear(null, sessionId);
             redisTemplate.delete(SESSION_INFO_PREFIX + sessionId);
+            publishInvalidation(null, sessionId);
             
             // 清除会话消息缓存
             redisTemplate.delete(RECENT_MESSAGES_PREFIX + sessionId);
@@ -267,6 +428,32 @@ public class ChatCacheServiceImpl implements ChatCacheService {
         // the cache service and the business services, not implemented here to avoid circular dependencies
     }
 
+    /**
+     * 失效本节点的近端缓存
+     */
+    private void invalidateNear(Integer userId, String sessionId) {
+        if (userId != null && currentSessionNearCache != null) {
+            currentSessionNearCache.invalidate(userId);
+        }
+        if (sessionId != null && sessionInfoNearCache != null) {
+            sessionInfoNearCache.invalidate(sessionId);
+        }
+    }
+
+    /**
+     * 通知其他节点失效近端缓存，广播失败时其他节点的副本在过期后自动失效
+     */
+    private void publishInvalidation(Integer userId, String sessionId) {
+        if (!chatCacheConfig.isNearCacheEnabled()) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, new ChatCacheInvalidationMessage(nodeId, userId, sessionId));
+        } catch (Exception e) {
+            log.warn("广播会话缓存失效通知失败，用户ID: {}, 会话ID: {}", userId, sessionId, e);
+        }
+    }
+
     /**
      * 统计匹配模式的键数量
      */
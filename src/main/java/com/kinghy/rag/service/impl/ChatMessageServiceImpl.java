@@ -5,16 +5,20 @@ import com.kinghy.rag.config.ChatPaginationConfig;
 import com.kinghy.rag.entity.ChatMessage;
 import com.kinghy.rag.exception.MessagePersistenceException;
 import com.kinghy.rag.mapper.ChatMessageMapper;
+import com.kinghy.rag.pojo.dto.SessionTouch;
 import com.kinghy.rag.pojo.vo.CursorPageResult;
 import com.kinghy.rag.pojo.vo.PageResult;
 import com.kinghy.rag.service.ChatCacheService;
 import com.kinghy.rag.service.ChatMessageService;
 import com.kinghy.rag.service.ChatSessionService;
+import com.kinghy.rag.service.HotWordService;
+import com.kinghy.rag.task.ChatMessageJournal;
 import com.kinghy.rag.util.RetryUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -42,8 +46,16 @@ public class ChatMessageServiceImpl extends ServiceImpl<ChatMessageMapper, ChatM
     @Autowired
     private ChatPaginationConfig paginationConfig;
 
+    @Autowired
+    private ChatMessageJournal messageJournal;
+
+    @Autowired
+    private HotWordService hotWordService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     @Override
-    @Transactional
     public ChatMessage saveUserMessage(String sessionId, Integer userId, String content) {
         log.info("Saving user message for session: {}, user: {}", sessionId, userId);
         
@@ -57,18 +69,10 @@ public class ChatMessageServiceImpl extends ServiceImpl<ChatMessageMapper, ChatM
                     .createTime(LocalDateTime.now())
                     .build();
             
-            // 使用重试机制保存消息
-            ChatMessage savedMessage = RetryUtil.executeWithRetry(() -> {
-                chatMessageMapper.insert(message);
-                return message;
-            }, 3, 500, "save user message");
+            ChatMessage savedMessage = persistMessage(message, "save user message");
             
-            // 更新会话统计信息（允许失败，不影响消息保存）
-            try {
-                updateSessionStats(sessionId);
-            } catch (Exception e) {
-                log.warn("Failed to update session stats for session: {}, but message was saved successfully", sessionId, e);
-            }
+            // 交给实时热词统计，只入队不分词
+            hotWordService.record(content);
             
             // 添加到缓存（允许失败）
             try {
@@ -87,7 +91,6 @@ public class ChatMessageServiceImpl extends ServiceImpl<ChatMessageMapper, ChatM
     }
 
     @Override
-    @Transactional
     public ChatMessage saveAssistantMessage(String sessionId, Integer userId, String content, String metadata) {
         log.info("Saving assistant message for session: {}, user: {}", sessionId, userId);
         
@@ -101,18 +104,7 @@ public class ChatMessageServiceImpl extends ServiceImpl<ChatMessageMapper, ChatM
                     .createTime(LocalDateTime.now())
                     .build();
             
-            // 使用重试机制保存消息
-            ChatMessage savedMessage = RetryUtil.executeWithRetry(() -> {
-                chatMessageMapper.insert(message);
-                return message;
-            }, 3, 500, "save assistant message");
-            
-            // 更新会话统计信息（允许失败，不影响消息保存）
-            try {
-                updateSessionStats(sessionId);
-            } catch (Exception e) {
-                log.warn("Failed to update session stats for session: {}, but message was saved successfully", sessionId, e);
-            }
+            ChatMessage savedMessage = persistMessage(message, "save assistant message");
             
             // 添加到缓存（允许失败）
             try {
@@ -273,10 +265,13 @@ public class ChatMessageServiceImpl extends ServiceImpl<ChatMessageMapper, ChatM
             boolean result = super.saveBatch(messages);
             
             // 更新相关会话的统计信息
-            messages.stream()
-                    .map(ChatMessage::getSessionId)
-                    .distinct()
-                    .forEach(this::updateSessionStats);
+            try {
+                chatSessionService.touchSessions(messages.stream()
+                        .map(message -> new SessionTouch(message.getSessionId(), 1, message.getCreateTime()))
+                        .toList());
+            } catch (Exception e) {
+                log.error("Failed to update session stats after batch save", e);
+            }
             
             log.info("Successfully batch saved {} messages", messages.size());
             return result;
@@ -287,16 +282,46 @@ public class ChatMessageServiceImpl extends ServiceImpl<ChatMessageMapper, ChatM
     }
 
     /**
-     * 更新会话统计信息（消息计数和最后消息时间）
+     * 持久化单条消息并更新会话统计信息
+     * 
+     * <p>启用写后日志时交给 {@link ChatMessageJournal} 合并写库，会话统计随批次一起更新；
+     * 组提交模式下要等待刷盘线程提交，因此不能在事务中调用，否则等待期间一直占用连接，
+     * 并发写入较多时刷盘线程拿不到连接。否则在一个事务中逐条插入后立即更新会话统计</p>
+     * 
+     * @param message 待保存的消息
+     * @param operationName 操作名称（用于日志）
+     * @return 保存后的消息
+     */
+    private ChatMessage persistMessage(ChatMessage message, String operationName) throws Exception {
+        if (messageJournal.isWriteBehind()) {
+            messageJournal.append(message);
+            return message;
+        }
+        
+        // 使用重试机制保存消息，每次重试一个独立事务
+        return RetryUtil.executeWithRetry(() -> transactionTemplate.execute(status -> {
+            chatMessageMapper.insert(message);
+            
+            // 更新会话统计信息（允许失败，不影响消息保存）
+            try {
+                updateSessionStats(message);
+            } catch (Exception e) {
+                log.warn("Failed to update session stats for session: {}, but message was saved successfully", message.getSessionId(), e);
+            }
+            return message;
+        }), 3, 500, operationName);
+    }
+
+    /**
+     * 更新会话统计信息（消息计数和最后消息时间），一条语句完成
      * 
-     * @param sessionId 会话ID
+     * @param message 新保存的消息
      */
-    private void updateSessionStats(String sessionId) {
+    private void updateSessionStats(ChatMessage message) {
         try {
-            chatSessionService.incrementMessageCount(sessionId);
-            chatSessionService.updateLastMessageTime(sessionId);
+            chatSessionService.touchSession(message.getSessionId(), 1, message.getCreateTime());
         } catch (Exception e) {
-            log.error("Failed to update session stats for session: {}", sessionId, e);
+            log.error("Failed to update session stats for session: {}", message.getSessionId(), e);
         }
     }
 }
\ No newline at end of file
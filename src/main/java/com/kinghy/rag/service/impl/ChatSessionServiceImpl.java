@@ -5,6 +5,7 @@ import com.kinghy.rag.config.ChatPaginationConfig;
 import com.kinghy.rag.entity.ChatSession;
 import com.kinghy.rag.exception.SessionNotFoundException;
 import com.kinghy.rag.mapper.ChatSessionMapper;
+import com.kinghy.rag.pojo.dto.SessionTouch;
 import com.kinghy.rag.pojo.vo.CursorPageResult;
 import com.kinghy.rag.pojo.vo.PageResult;
 import com.kinghy.rag.service.ChatCacheService;
@@ -13,9 +14,14 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.UUID;
 
 /**
@@ -29,6 +35,11 @@ import java.util.UUID;
 public class ChatSessionServiceImpl extends ServiceImpl<ChatSessionMapper, ChatSession>
         implements ChatSessionService {
 
+    /**
+     * 单条批量更新语句最多包含的会话数
+     */
+    private static final int TOUCH_BATCH_SIZE = 500;
+
     @Autowired
     private ChatSessionMapper chatSessionMapper;
 
@@ -38,6 +49,9 @@ public class ChatSessionServiceImpl extends ServiceImpl<ChatSessionMapper, ChatS
     @Autowired
     private ChatPaginationConfig paginationConfig;
 
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     @Override
     @Transactional
     public ChatSession createNewSession(Integer userId) {
@@ -226,6 +240,10 @@ public class ChatSessionServiceImpl extends ServiceImpl<ChatSessionMapper, ChatS
     public void endSession(String sessionId, Integer userId) {
         log.info("Ending session: {} for user: {}", sessionId, userId);
         chatSessionMapper.endSession(sessionId, userId);
+        
+        // 已结束的会话不能再被视为当前会话，否则下次激活会被跳过
+        chatCacheService.clearUserCache(userId);
+        chatCacheService.clearSessionCache(sessionId, userId);
     }
 
     @Override
@@ -270,31 +288,76 @@ public class ChatSessionServiceImpl extends ServiceImpl<ChatSessionMapper, ChatS
 
     @Override
     @Transactional
-    public void activateSession(String sessionId, Integer userId) {
-        log.info("Activating session: {} for user: {}", sessionId, userId);
+    public void touchSession(String sessionId, int delta, LocalDateTime lastMessageTime) {
+        log.debug("Touching session: {}, delta: {}", sessionId, delta);
+        chatSessionMapper.touchSession(sessionId, delta, lastMessageTime);
+    }
+
+    @Override
+    @Transactional
+    public void touchSessions(Collection<SessionTouch> touches) {
+        if (touches == null || touches.isEmpty()) {
+            return;
+        }
         
-        // 验证会话属于该用户
-        ChatSession session = chatSessionMapper.getSessionByIdAndUserId(sessionId, userId);
-        if (session == null) {
-            log.warn("Session not found or access denied: {} for user: {}", sessionId, userId);
-            throw new SessionNotFoundException(sessionId, userId);
+        // 合并同一会话的增量，按会话ID排序，使并发的批量更新按相同顺序加锁
+        Map<String, SessionTouch> merged = new TreeMap<>();
+        for (SessionTouch touch : touches) {
+            merged.merge(touch.getSessionId(),
+                    new SessionTouch(touch.getSessionId(), touch.getDelta(), touch.getLastMessageTime()),
+                    (a, b) -> {
+                        a.setDelta(a.getDelta() + b.getDelta());
+                        if (a.getLastMessageTime() == null
+                                || (b.getLastMessageTime() != null && b.getLastMessageTime().isAfter(a.getLastMessageTime()))) {
+                            a.setLastMessageTime(b.getLastMessageTime());
+                        }
+                        return a;
+                    });
         }
         
-        try {
-            // 将用户的其他会话设为非活跃状态
-            chatSessionMapper.deactivateOtherSessions(userId, sessionId);
-            
-            // 激活指定会话
-            chatSessionMapper.activateSession(sessionId, userId);
-            
-            // 更新缓存
-            chatCacheService.cacheCurrentSession(userId, sessionId);
-            chatCacheService.cacheSessionInfo(session);
-            
-            log.info("Successfully activated session: {} for user: {}", sessionId, userId);
-        } catch (Exception e) {
-            log.error("Failed to activate session: {} for user: {}", sessionId, userId, e);
-            throw new RuntimeException("Failed to activate session", e);
+        List<SessionTouch> sorted = new ArrayList<>(merged.values());
+        for (int from = 0; from < sorted.size(); from += TOUCH_BATCH_SIZE) {
+            chatSessionMapper.touchSessions(sorted.subList(from, Math.min(sorted.size(), from + TOUCH_BATCH_SIZE)));
+        }
+        log.debug("Touched {} sessions from {} updates", sorted.size(), touches.size());
+    }
+
+    @Override
+    public void activateSession(String sessionId, Integer userId) {
+        // 已经是用户的当前会话时无需再访问数据库（当前会话缓存只在创建或激活成功后写入）；
+        // 检查放在事务外，命中时不开启事务也不占用数据库连接
+        if (sessionId.equals(chatCacheService.getCurrentSessionFromCache(userId))) {
+            log.debug("Session {} is already current for user: {}", sessionId, userId);
+            return;
         }
+        
+        log.info("Activating session: {} for user: {}", sessionId, userId);
+        
+        ChatSession session = transactionTemplate.execute(status -> {
+            // 验证会话属于该用户
+            ChatSession found = chatSessionMapper.getSessionByIdAndUserId(sessionId, userId);
+            if (found == null) {
+                log.warn("Session not found or access denied: {} for user: {}", sessionId, userId);
+                throw new SessionNotFoundException(sessionId, userId);
+            }
+            
+            try {
+                // 将用户的其他会话设为非活跃状态
+                chatSessionMapper.deactivateOtherSessions(userId, sessionId);
+                
+                // 激活指定会话
+                chatSessionMapper.activateSession(sessionId, userId);
+            } catch (Exception e) {
+                log.error("Failed to activate session: {} for user: {}", sessionId, userId, e);
+                throw new RuntimeException("Failed to activate session", e);
+            }
+            return found;
+        });
+        
+        // 事务提交后再更新缓存，避免其他请求读到未提交的当前会话
+        chatCacheService.cacheCurrentSession(userId, sessionId);
+        chatCacheService.cacheSessionInfo(session);
+        
+        log.info("Successfully activated session: {} for user: {}", sessionId, userId);
     }
 }
\ No newline at end of file
@@ -0,0 +1,221 @@
+package com.kinghy.rag.service.impl;
+
+import cn.hutool.crypto.SecureUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kinghy.rag.config.EmbeddingCacheConfig;
+import com.kinghy.rag.service.EmbeddingCacheService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 查询向量缓存服务实现类
+ *
+ * @author yunzhongxiaoma
+ * @description 本地 Caffeine 缓存在前，Redis 在后；Redis 中以小端 float 字节数组存储向量，
+ *              比 JSON 数组小且无需解析
+ */
+@Slf4j
+@Service
+public class EmbeddingCacheServiceImpl implements EmbeddingCacheService {
+
+    /**
+     * Redis 缓存键前缀，完整键为 前缀 + 模型标识 + ":" + 文本哈希
+     */
+    private static final String EMBEDDING_CACHE_KEY_PREFIX = "embedding:cache:";
+
+    /**
+     * 文档片段向量键前缀，完整键为 前缀 + 模型标识 + ":" + 片段内容SHA-256
+     */
+    private static final String CHUNK_EMBEDDING_KEY_PREFIX = "embedding:chunk:";
+
+    private static final String METRIC_NAME = "rag.embedding.cache.requests";
+
+    @Autowired
+    private EmbeddingCacheConfig embeddingCacheConfig;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Cache<String, float[]> localCache;
+
+    private Counter localHits;
+    private Counter redisHits;
+    private Counter misses;
+    private Counter chunkHits;
+    private Counter chunkMisses;
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(embeddingCacheConfig.getLocalMaxSize())
+                .expireAfterWrite(Duration.ofMinutes(embeddingCacheConfig.getLocalTtlMinutes()))
+                .build();
+        localHits = Counter.builder(METRIC_NAME).tag("result", "local_hit").register(meterRegistry);
+        redisHits = Counter.builder(METRIC_NAME).tag("result", "redis_hit").register(meterRegistry);
+        misses = Counter.builder(METRIC_NAME).tag("result", "miss").register(meterRegistry);
+        chunkHits = Counter.builder("rag.ingestion.dedup.hits").tag("level", "chunk").register(meterRegistry);
+        chunkMisses = Counter.builder("rag.ingestion.dedup.misses").tag("level", "chunk").register(meterRegistry);
+        Gauge.builder("rag.embedding.cache.hit.rate", this, EmbeddingCacheServiceImpl::hitRate)
+                .description("查询向量缓存命中率")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public float[] get(String text) {
+        if (!embeddingCacheConfig.isEnabled() || text == null) {
+            return null;
+        }
+        String key = cacheKey(text);
+        float[] embedding = localCache.getIfPresent(key);
+        if (embedding != null) {
+            localHits.increment();
+            return embedding;
+        }
+
+        try {
+            byte[] bytes = redisTemplate.execute((RedisCallback<byte[]>) connection ->
+                    connection.stringCommands().get(key.getBytes(StandardCharsets.UTF_8)));
+            if (bytes != null) {
+                embedding = decode(bytes);
+                localCache.put(key, embedding);
+                redisHits.increment();
+                return embedding;
+            }
+        } catch (Exception e) {
+            log.warn("读取Redis查询向量缓存失败: {}", e.getMessage());
+        }
+        misses.increment();
+        return null;
+    }
+
+    @Override
+    public void put(String text, float[] embedding) {
+        if (!embeddingCacheConfig.isEnabled() || text == null || embedding == null) {
+            return;
+        }
+        String key = cacheKey(text);
+        localCache.put(key, embedding);
+
+        try {
+            byte[] value = encode(embedding);
+            Expiration expiration = Expiration.from(embeddingCacheConfig.getRedisTtlHours(), TimeUnit.HOURS);
+            redisTemplate.execute((RedisCallback<Boolean>) connection ->
+                    connection.stringCommands().set(key.getBytes(StandardCharsets.UTF_8), value,
+                            expiration, RedisStringCommands.SetOption.upsert()));
+        } catch (Exception e) {
+            log.warn("写入Redis查询向量缓存失败: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public List<float[]> getChunkEmbeddings(List<String> contentHashes) {
+        List<float[]> embeddings = new ArrayList<>(Collections.nCopies(contentHashes.size(), null));
+        if (!embeddingCacheConfig.isEnabled() || contentHashes.isEmpty()) {
+            return embeddings;
+        }
+
+        try {
+            byte[][] keys = new byte[contentHashes.size()][];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = chunkKey(contentHashes.get(i));
+            }
+            List<byte[]> values = redisTemplate.execute((RedisCallback<List<byte[]>>) connection ->
+                    connection.stringCommands().mGet(keys));
+            if (values != null) {
+                for (int i = 0; i < values.size(); i++) {
+                    if (values.get(i) != null) {
+                        embeddings.set(i, decode(values.get(i)));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("读取文档片段向量失败: {}", e.getMessage());
+        }
+
+        long hits = embeddings.stream().filter(Objects::nonNull).count();
+        chunkHits.increment(hits);
+        chunkMisses.increment(contentHashes.size() - hits);
+        return embeddings;
+    }
+
+    @Override
+    public void putChunkEmbeddings(Map<String, float[]> embeddings) {
+        if (!embeddingCacheConfig.isEnabled() || embeddings.isEmpty()) {
+            return;
+        }
+
+        try {
+            Expiration expiration = Expiration.from(embeddingCacheConfig.getChunkTtlDays(), TimeUnit.DAYS);
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Map.Entry<String, float[]> entry : embeddings.entrySet()) {
+                    connection.stringCommands().set(chunkKey(entry.getKey()), encode(entry.getValue()),
+                            expiration, RedisStringCommands.SetOption.upsert());
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("写入文档片段向量失败: {}", e.getMessage());
+        }
+    }
+
+    private byte[] chunkKey(String contentHash) {
+        return (CHUNK_EMBEDDING_KEY_PREFIX + embeddingCacheConfig.getModelId() + ":" + contentHash)
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 缓存键：规范化文本后取哈希，大小写、全半角和多余空白不同的同一问题命中同一条缓存
+     */
+    private String cacheKey(String text) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC)
+                .trim()
+                .replaceAll("\\s+", " ")
+                .toLowerCase(Locale.ROOT);
+        return EMBEDDING_CACHE_KEY_PREFIX + embeddingCacheConfig.getModelId() + ":"
+                + SecureUtil.sha256(normalized);
+    }
+
+    private double hitRate() {
+        double hits = localHits.count() + redisHits.count();
+        double total = hits + misses.count();
+        return total == 0 ? 0 : hits / total;
+    }
+
+    private static byte[] encode(float[] embedding) {
+        ByteBuffer buffer = ByteBuffer.allocate(embedding.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(embedding);
+        return buffer.array();
+    }
+
+    private static float[] decode(byte[] bytes) {
+        float[] embedding = new float[bytes.length / Float.BYTES];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(embedding);
+        return embedding;
+    }
+}
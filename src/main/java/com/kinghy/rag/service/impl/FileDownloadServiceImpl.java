@@ -0,0 +1,241 @@
+package com.kinghy.rag.service.impl;
+
+import com.kinghy.rag.common.ErrorCode;
+import com.kinghy.rag.entity.KnowledgeBaseFile;
+import com.kinghy.rag.exception.BusinessException;
+import com.kinghy.rag.pojo.dto.StoredObjectInfo;
+import com.kinghy.rag.service.FileDownloadService;
+import com.kinghy.rag.service.KnowledgeBaseFileService;
+import com.kinghy.rag.utils.ObjectStorage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 知识库文件下载服务实现类
+ *
+ * @author yunzhongxiaoma
+ * @since 1.0.0
+ * @description 文件内容经由存储后端的 transferTo 直接写入响应流，不在堆上缓存整个文件；
+ *              ETag 取文件内容哈希，内容不变时客户端可以用条件请求免去重复下载
+ */
+@Slf4j
+@Service
+public class FileDownloadServiceImpl implements FileDownloadService {
+
+    /**
+     * 只支持单个区间，多区间请求按完整内容返回
+     */
+    private static final Pattern RANGE_PATTERN = Pattern.compile("^bytes=(\\d*)-(\\d*)$");
+
+    private static final long[] UNSATISFIABLE = new long[0];
+
+    private static final String ZIP_FILE_NAME = "knowledge_base_files.zip";
+
+    @Autowired
+    private KnowledgeBaseFileService knowledgeBaseFileService;
+
+    @Autowired
+    private ObjectStorage objectStorage;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Counter singleBytes;
+    private Counter zipBytes;
+    private Counter notModified;
+
+    @PostConstruct
+    public void init() {
+        singleBytes = Counter.builder("rag.file.download.bytes").tag("mode", "single").register(meterRegistry);
+        zipBytes = Counter.builder("rag.file.download.bytes").tag("mode", "zip").register(meterRegistry);
+        notModified = Counter.builder("rag.file.download.not.modified").register(meterRegistry);
+    }
+
+    @Override
+    public void download(Long fileId, Long userId, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        KnowledgeBaseFile file = knowledgeBaseFileService.validateFileAccess(fileId, userId);
+        StoredObjectInfo info = objectStorage.stat(file.getFileUrl());
+        long size = info.getContentLength();
+        String eTag = "\"" + (file.getContentHash() != null ? file.getContentHash() : info.getETag()) + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, eTag);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        if (info.getLastModified() > 0) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, info.getLastModified());
+        }
+
+        if (matchesAny(request.getHeader(HttpHeaders.IF_NONE_MATCH), eTag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            notModified.increment();
+            return;
+        }
+
+        long start = 0;
+        long end = size - 1;
+        boolean partial = false;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        // If-Range 与当前版本不一致时忽略 Range，返回完整的新内容
+        if (range != null && (ifRange == null || ifRange.trim().equals(eTag))) {
+            long[] bounds = parseRange(range, size);
+            if (bounds == UNSATISFIABLE) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                return;
+            }
+            if (bounds != null) {
+                start = bounds[0];
+                end = bounds[1];
+                partial = true;
+            }
+        }
+
+        long length = end - start + 1;
+        response.setStatus(partial ? HttpServletResponse.SC_PARTIAL_CONTENT : HttpServletResponse.SC_OK);
+        if (partial) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+        }
+        response.setContentType(MediaTypeFactory.getMediaType(file.getOriginalName())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        response.setContentLengthLong(length);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, attachment(file.getOriginalName()));
+
+        if (length > 0) {
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            singleBytes.increment(objectStorage.transferTo(file.getFileUrl(), start, length, target));
+        }
+        response.flushBuffer();
+    }
+
+    @Override
+    public void downloadZip(List<Long> fileIds, Long userId, HttpServletResponse response) throws IOException {
+        if (fileIds == null || fileIds.isEmpty()) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "请选择要下载的文件");
+        }
+
+        // 开始写响应之前完成全部权限校验，避免输出半个压缩包后才报错
+        List<KnowledgeBaseFile> files = new ArrayList<>(fileIds.size());
+        for (Long fileId : fileIds) {
+            files.add(knowledgeBaseFileService.validateFileAccess(fileId, userId));
+        }
+
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, attachment(ZIP_FILE_NAME));
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-store");
+
+        ZipOutputStream zip = new ZipOutputStream(response.getOutputStream(), StandardCharsets.UTF_8);
+        // 文档类文件大多已压缩，优先保证吞吐
+        zip.setLevel(Deflater.BEST_SPEED);
+        WritableByteChannel target = Channels.newChannel(zip);
+        Set<String> entryNames = new HashSet<>();
+        long total = 0;
+        for (KnowledgeBaseFile file : files) {
+            StoredObjectInfo info = objectStorage.stat(file.getFileUrl());
+            zip.putNextEntry(new ZipEntry(uniqueEntryName(file.getOriginalName(), entryNames)));
+            total += objectStorage.transferTo(file.getFileUrl(), 0, info.getContentLength(), target);
+            zip.closeEntry();
+        }
+        zip.finish();
+        zipBytes.increment(total);
+        response.flushBuffer();
+
+        log.info("用户 {} 打包下载 {} 个文件，共 {} 字节", userId, files.size(), total);
+    }
+
+    /**
+     * 解析单区间Range头
+     *
+     * @return [start, end]；格式不支持时返回null（按完整内容处理）；区间无法满足时返回 {@link #UNSATISFIABLE}
+     */
+    static long[] parseRange(String range, long size) {
+        Matcher matcher = RANGE_PATTERN.matcher(range.trim());
+        if (!matcher.matches() || (matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+            return null;
+        }
+        try {
+            long start;
+            long end;
+            if (matcher.group(1).isEmpty()) {
+                // bytes=-N 表示最后N个字节
+                long suffix = Long.parseLong(matcher.group(2));
+                if (suffix == 0 || size == 0) {
+                    return UNSATISFIABLE;
+                }
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(matcher.group(1));
+                end = matcher.group(2).isEmpty() ? size - 1 : Math.min(Long.parseLong(matcher.group(2)), size - 1);
+                if (start >= size || start > end) {
+                    return UNSATISFIABLE;
+                }
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean matchesAny(String header, String eTag) {
+        if (header == null) {
+            return false;
+        }
+        for (String candidate : header.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if ("*".equals(value) || value.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String attachment(String fileName) {
+        return ContentDisposition.attachment().filename(fileName, StandardCharsets.UTF_8).build().toString();
+    }
+
+    /**
+     * 压缩包内文件重名时追加序号
+     */
+    private static String uniqueEntryName(String name, Set<String> used) {
+        if (used.add(name)) {
+            return name;
+        }
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+        for (int i = 1; ; i++) {
+            String candidate = base + " (" + i + ")" + extension;
+            if (used.add(candidate)) {
+                return candidate;
+            }
+        }
+    }
+}
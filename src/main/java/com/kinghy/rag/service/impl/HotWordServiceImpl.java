@@ -0,0 +1,262 @@
+package com.kinghy.rag.service.impl;
+
+import com.kinghy.rag.common.HotWordWindow;
+import com.kinghy.rag.config.HotWordConfig;
+import com.kinghy.rag.pojo.vo.HotWordVO;
+import com.kinghy.rag.service.HotWordService;
+import com.kinghy.rag.utils.HotWordSketch;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+import org.wltea.analyzer.core.IKSegmenter;
+import org.wltea.analyzer.core.Lexeme;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 实时热词服务实现
+ *
+ * @author yunzhongxiaoma
+ * @description 用户消息进入有界队列，由统计线程分词后写入本节点各窗口当前时间桶的 {@link HotWordSketch}；
+ *              统计线程定期把当前桶序列化后写入 Redis 哈希（键为窗口和桶起始时间，字段为节点ID），
+ *              桶切换时先发布旧桶的最终结果。查询时读取窗口内各桶所有节点的统计并合并，
+ *              本节点只保留每个窗口的当前桶，内存占用固定
+ */
+@Slf4j
+@Service
+public class HotWordServiceImpl implements HotWordService {
+
+    private static final String BUCKET_KEY_PREFIX = "hotword:";
+
+    @Autowired
+    private HotWordConfig hotWordConfig;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * 各窗口的当前时间桶，只由统计线程访问
+     */
+    private final Map<HotWordWindow, Bucket> currentBuckets = new EnumMap<>(HotWordWindow.class);
+
+    private BlockingQueue<String> pending;
+
+    private Thread tracker;
+
+    private volatile boolean accepting;
+
+    private Counter droppedMessages;
+
+    private Counter recordedWords;
+
+    private Timer queryTimer;
+
+    @PostConstruct
+    public void start() {
+        if (!hotWordConfig.isEnabled()) {
+            return;
+        }
+        pending = new ArrayBlockingQueue<>(hotWordConfig.getQueueCapacity());
+        droppedMessages = Counter.builder("rag.hotword.dropped").register(meterRegistry);
+        recordedWords = Counter.builder("rag.hotword.words").register(meterRegistry);
+        queryTimer = Timer.builder("rag.hotword.query").register(meterRegistry);
+
+        accepting = true;
+        tracker = new Thread(this::run, "hot-word-tracker");
+        tracker.setDaemon(true);
+        tracker.start();
+        log.info("实时热词统计启动完成，节点ID: {}, sketch: {}x{}, 候选数: {}", nodeId,
+                hotWordConfig.getSketchWidth(), hotWordConfig.getSketchDepth(), hotWordConfig.getCandidateCapacity());
+    }
+
+    /**
+     * 停止接收新消息，处理完队列中剩余的消息并发布最后的统计
+     */
+    @PreDestroy
+    public void stop() {
+        if (tracker == null) {
+            return;
+        }
+        accepting = false;
+        tracker.interrupt();
+        try {
+            tracker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<String> remaining = new ArrayList<>();
+        pending.drainTo(remaining);
+        IKSegmenter segmenter = new IKSegmenter(new StringReader(""), true);
+        remaining.forEach(text -> count(segmenter, text));
+        publishAll();
+        log.info("实时热词统计已停止");
+    }
+
+    @Override
+    public void record(String text) {
+        if (!accepting || text == null || text.isEmpty()) {
+            return;
+        }
+        if (!pending.offer(text)) {
+            droppedMessages.increment();
+        }
+    }
+
+    @Override
+    public List<HotWordVO> topK(int k, HotWordWindow window) {
+        int limit = Math.max(1, Math.min(k, hotWordConfig.getMaxK()));
+        long start = System.nanoTime();
+        HotWordSketch merged = new HotWordSketch(hotWordConfig.getSketchWidth(), hotWordConfig.getSketchDepth(),
+                hotWordConfig.getCandidateCapacity());
+        long bucketStart = window.bucketStart(System.currentTimeMillis());
+        try {
+            for (int i = 0; i < window.getBuckets(); i++) {
+                String key = bucketKey(window, bucketStart - i * window.getBucketMillis());
+                for (Object value : redisTemplate.opsForHash().entries(key).values()) {
+                    merged.merge(HotWordSketch.fromBytes(Base64.getDecoder().decode((String) value)));
+                }
+            }
+        } catch (Exception e) {
+            log.warn("读取热词统计失败，窗口: {}", window.getCode(), e);
+            return Collections.emptyList();
+        } finally {
+            if (queryTimer != null) {
+                queryTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+        return merged.topK(limit).stream()
+                .map(entry -> new HotWordVO(entry.getKey(), entry.getValue()))
+                .toList();
+    }
+
+    /**
+     * 统计线程：逐条分词计数，每隔发布间隔把各窗口的当前桶发布到 Redis
+     */
+    private void run() {
+        IKSegmenter segmenter = new IKSegmenter(new StringReader(""), true);
+        long publishIntervalNanos = TimeUnit.MILLISECONDS.toNanos(hotWordConfig.getPublishIntervalMs());
+        long nextPublish = System.nanoTime() + publishIntervalNanos;
+        while (true) {
+            try {
+                String text = pending.poll(Math.max(0, nextPublish - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (text != null) {
+                    count(segmenter, text);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (System.nanoTime() - nextPublish >= 0) {
+                publishAll();
+                nextPublish = System.nanoTime() + publishIntervalNanos;
+            }
+        }
+    }
+
+    /**
+     * 一条消息分词后写入各窗口的当前桶
+     */
+    private void count(IKSegmenter segmenter, String text) {
+        long now = System.currentTimeMillis();
+        List<Bucket> buckets = new ArrayList<>(currentBuckets.size());
+        for (HotWordWindow window : HotWordWindow.values()) {
+            buckets.add(currentBucket(window, now));
+        }
+        segmenter.reset(new StringReader(text));
+        try {
+            Lexeme lexeme;
+            while ((lexeme = segmenter.next()) != null) {
+                int length = lexeme.getLength();
+                if (length < hotWordConfig.getMinWordLength() || length > hotWordConfig.getMaxWordLength()) {
+                    continue;
+                }
+                String word = lexeme.getLexemeText();
+                for (Bucket bucket : buckets) {
+                    bucket.sketch.add(word);
+                    bucket.dirty = true;
+                }
+                recordedWords.increment();
+            }
+        } catch (IOException e) {
+            log.warn("热词分词失败", e);
+        }
+    }
+
+    /**
+     * 窗口的当前桶，时间进入下一个桶时先发布旧桶
+     */
+    private Bucket currentBucket(HotWordWindow window, long now) {
+        long start = window.bucketStart(now);
+        Bucket bucket = currentBuckets.get(window);
+        if (bucket != null && bucket.start == start) {
+            return bucket;
+        }
+        if (bucket != null) {
+            publish(window, bucket);
+        }
+        bucket = new Bucket(start, new HotWordSketch(hotWordConfig.getSketchWidth(), hotWordConfig.getSketchDepth(),
+                hotWordConfig.getCandidateCapacity()));
+        currentBuckets.put(window, bucket);
+        return bucket;
+    }
+
+    private void publishAll() {
+        currentBuckets.forEach(this::publish);
+    }
+
+    /**
+     * 覆盖写入本节点在该桶的统计，过期时间为窗口长度加一个桶
+     */
+    private void publish(HotWordWindow window, Bucket bucket) {
+        if (!bucket.dirty) {
+            return;
+        }
+        String key = bucketKey(window, bucket.start);
+        try {
+            redisTemplate.opsForHash().put(key, nodeId, Base64.getEncoder().encodeToString(bucket.sketch.toBytes()));
+            redisTemplate.expire(key, window.getBucketMillis() * (window.getBuckets() + 1), TimeUnit.MILLISECONDS);
+            bucket.dirty = false;
+        } catch (Exception e) {
+            log.warn("发布热词统计失败，窗口: {}, 桶: {}", window.getCode(), bucket.start, e);
+        }
+    }
+
+    private static String bucketKey(HotWordWindow window, long bucketStart) {
+        return BUCKET_KEY_PREFIX + window.getCode() + ":" + bucketStart;
+    }
+
+    /**
+     * 一个时间桶的统计
+     */
+    private static class Bucket {
+        private final long start;
+        private final HotWordSketch sketch;
+        private boolean dirty;
+
+        private Bucket(long start, HotWordSketch sketch) {
+            this.start = start;
+            this.sketch = sketch;
+        }
+    }
+}
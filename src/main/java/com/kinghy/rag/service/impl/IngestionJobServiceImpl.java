@@ -0,0 +1,136 @@
+package com.kinghy.rag.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.kinghy.rag.common.ErrorCode;
+import com.kinghy.rag.common.IngestionStatus;
+import com.kinghy.rag.config.IngestionConfig;
+import com.kinghy.rag.entity.IngestionJob;
+import com.kinghy.rag.exception.BusinessException;
+import com.kinghy.rag.mapper.IngestionJobMapper;
+import com.kinghy.rag.service.IngestionJobService;
+import com.kinghy.rag.service.KnowledgeBaseService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 文件入库任务服务实现类
+ * 
+ * @author yunzhongxiaoma
+ * @since 1.0.0
+ */
+@Slf4j
+@Service
+public class IngestionJobServiceImpl extends ServiceImpl<IngestionJobMapper, IngestionJob>
+        implements IngestionJobService {
+    
+    /**
+     * 失败原因最大长度，与表字段一致
+     */
+    private static final int MAX_ERROR_MESSAGE_LENGTH = 1000;
+    
+    @Autowired
+    private KnowledgeBaseService knowledgeBaseService;
+    
+    @Autowired
+    private IngestionConfig ingestionConfig;
+    
+    @Override
+    public IngestionJob createJob(Long knowledgeBaseId, String fileName, String originalName, Long fileSize, Long userId) {
+        IngestionJob job = IngestionJob.builder()
+                .knowledgeBaseId(knowledgeBaseId)
+                .fileName(fileName)
+                .originalName(originalName)
+                .fileSize(fileSize)
+                .status(IngestionStatus.PENDING.name())
+                .progress(0)
+                .uploadUserId(userId.intValue())
+                .createTime(LocalDateTime.now())
+                .updateTime(LocalDateTime.now())
+                .build();
+        if (!save(job)) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "入库任务创建失败");
+        }
+        return job;
+    }
+    
+    @Override
+    public void updateStatus(Long jobId, IngestionStatus status, int progress) {
+        lambdaUpdate()
+                .eq(IngestionJob::getId, jobId)
+                .set(IngestionJob::getStatus, status.name())
+                .set(IngestionJob::getProgress, progress)
+                .set(IngestionJob::getUpdateTime, LocalDateTime.now())
+                .update();
+    }
+    
+    @Override
+    public void markDone(Long jobId, Long fileId, int chunkCount) {
+        lambdaUpdate()
+                .eq(IngestionJob::getId, jobId)
+                .set(IngestionJob::getStatus, IngestionStatus.DONE.name())
+                .set(IngestionJob::getProgress, 100)
+                .set(IngestionJob::getFileId, fileId)
+                .set(IngestionJob::getChunkCount, chunkCount)
+                .set(IngestionJob::getUpdateTime, LocalDateTime.now())
+                .update();
+    }
+    
+    @Override
+    public void markFailed(Long jobId, String errorMessage) {
+        String message = errorMessage != null && errorMessage.length() > MAX_ERROR_MESSAGE_LENGTH
+                ? errorMessage.substring(0, MAX_ERROR_MESSAGE_LENGTH) : errorMessage;
+        lambdaUpdate()
+                .eq(IngestionJob::getId, jobId)
+                .set(IngestionJob::getStatus, IngestionStatus.FAILED.name())
+                .set(IngestionJob::getErrorMessage, message)
+                .set(IngestionJob::getUpdateTime, LocalDateTime.now())
+                .update();
+    }
+    
+    @Override
+    public int failStaleJobs(LocalDateTime updatedBefore, String errorMessage) {
+        List<String> running = List.of(IngestionStatus.PENDING.name(), IngestionStatus.PARSING.name(),
+                IngestionStatus.EMBEDDING.name());
+        return baseMapper.update(null, new LambdaUpdateWrapper<IngestionJob>()
+                .in(IngestionJob::getStatus, running)
+                .lt(IngestionJob::getUpdateTime, updatedBefore)
+                .set(IngestionJob::getStatus, IngestionStatus.FAILED.name())
+                .set(IngestionJob::getErrorMessage, errorMessage)
+                .set(IngestionJob::getUpdateTime, LocalDateTime.now()));
+    }
+    
+    @Override
+    public IngestionJob getJob(Long jobId, Long userId) {
+        IngestionJob job = getById(jobId);
+        if (job == null) {
+            throw new BusinessException(ErrorCode.INGESTION_JOB_NOT_FOUND);
+        }
+        knowledgeBaseService.validateAccess(job.getKnowledgeBaseId(), userId);
+        return job;
+    }
+    
+    @Override
+    public Flux<IngestionJob> watchJob(Long jobId, Long userId) {
+        // 先在请求线程中校验权限
+        IngestionJob initial = getJob(jobId, userId);
+        if (IngestionStatus.valueOf(initial.getStatus()).isTerminal()) {
+            return Flux.just(initial);
+        }
+        
+        // 轮询任务记录，状态或进度变化时推送，任务结束后完成
+        return Flux.interval(Duration.ZERO, Duration.ofMillis(ingestionConfig.getStatusPollIntervalMs()),
+                        Schedulers.boundedElastic())
+                .map(tick -> getById(jobId))
+                .distinctUntilChanged(job -> job.getStatus() + ":" + job.getProgress())
+                .takeUntil(job -> IngestionStatus.valueOf(job.getStatus()).isTerminal())
+                .take(Duration.ofMinutes(ingestionConfig.getStatusStreamTimeoutMinutes()));
+    }
+}
@@ -1,30 +1,48 @@
 package com.kinghy.rag.service.impl;
 
+import cn.hutool.core.util.HexUtil;
+import cn.hutool.crypto.digest.DigestAlgorithm;
+import cn.hutool.crypto.digest.DigestUtil;
 import com.alibaba.fastjson2.JSON;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.kinghy.rag.common.ErrorCode;
-import com.kinghy.rag.entity.KnowledgeBase;
+import com.kinghy.rag.config.IngestionConfig;
+import com.kinghy.rag.entity.IngestionJob;
 import com.kinghy.rag.entity.KnowledgeBaseFile;
 import com.kinghy.rag.exception.BusinessException;
 import com.kinghy.rag.mapper.KnowledgeBaseFileMapper;
+import com.kinghy.rag.pojo.dto.IngestionTask;
+import com.kinghy.rag.service.IngestionJobService;
 import com.kinghy.rag.service.KnowledgeBaseFileService;
 import com.kinghy.rag.service.KnowledgeBaseService;
+import com.kinghy.rag.service.SemanticAnswerCacheService;
 import com.kinghy.rag.service.VectorStoreManager;
-import com.kinghy.rag.utils.AliOssUtil;
+import com.kinghy.rag.task.IngestionPipeline;
+import com.kinghy.rag.utils.ObjectStorage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.ai.document.Document;
-import org.springframework.ai.reader.tika.TikaDocumentReader;
-import org.springframework.ai.transformer.splitter.TokenTextSplitter;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ByteArrayResource;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.time.LocalDateTime;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -45,104 +63,106 @@ public class KnowledgeBaseFileServiceImpl extends ServiceImpl<KnowledgeBaseFileM
     private KnowledgeBaseService knowledgeBaseService;
     
     @Autowired
-    private AliOssUtil aliOssUtil;
+    private ObjectStorage objectStorage;
     
     @Autowired
     private VectorStoreManager vectorStoreManager;
     
+    @Autowired
+    private SemanticAnswerCacheService semanticAnswerCacheService;
+    
+    @Autowired
+    private IngestionJobService ingestionJobService;
+    
+    @Autowired
+    private IngestionPipeline ingestionPipeline;
+    
+    @Autowired
+    private IngestionConfig ingestionConfig;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private Counter fileDedupHits;
+    
+    @PostConstruct
+    public void init() {
+        fileDedupHits = Counter.builder("rag.ingestion.dedup.hits").tag("level", "file").register(meterRegistry);
+    }
+    
     @Override
-    @Transactional
-    public KnowledgeBaseFile uploadFile(Long knowledgeBaseId, MultipartFile file, Long userId) {
+    public IngestionJob uploadFile(Long knowledgeBaseId, MultipartFile file, Long userId) {
         log.info("上传文件到知识库，知识库ID: {}, 文件名: {}, 用户ID: {}", 
                 knowledgeBaseId, file.getOriginalFilename(), userId);
         
         // 验证知识库访问权限
-        KnowledgeBase knowledgeBase = knowledgeBaseService.validateAccess(knowledgeBaseId, userId);
+        knowledgeBaseService.validateAccess(knowledgeBaseId, userId);
         
         // 验证文件
         validateFile(file);
         
-        try {
-            // 生成唯一文件名
-            String fileName = generateUniqueFileName(file.getOriginalFilename());
-            
-            // 上传到OSS
-            String fileUrl = aliOssUtil.upload(file.getBytes(), fileName);
-            
-            // 处理文档向量化
-            List<String> vectorIds = processDocumentVectorization(file, knowledgeBaseId);
-            
-            // 创建文件记录
-            KnowledgeBaseFile knowledgeBaseFile = KnowledgeBaseFile.builder()
-                    .knowledgeBaseId(knowledgeBaseId)
-                    .fileName(fileName)
-                    .originalName(file.getOriginalFilename())
-                    .fileUrl(fileUrl)
-                    .fileSize(file.getSize())
-                    .fileType(getFileType(file.getOriginalFilename()))
-                    .vectorIds(JSON.toJSONString(vectorIds))
-                    .uploadUserId(userId.intValue())
-                    .createTime(LocalDateTime.now())
-                    .updateTime(LocalDateTime.now())
-                    .build();
-            
-            // 保存文件记录
-            boolean success = save(knowledgeBaseFile);
-            if (!success) {
-                // 如果数据库保存失败，删除已上传的文件
-                aliOssUtil.deleteOss(fileUrl);
-                throw new BusinessException(ErrorCode.OPERATION_ERROR, "文件记录保存失败");
-            }
-            
-            // 更新知识库文件数量
-            knowledgeBaseService.updateFileCount(knowledgeBaseId, 1);
-            
-            log.info("文件上传成功，文件ID: {}, 文件名: {}, 向量数量: {}", 
-                    knowledgeBaseFile.getId(), fileName, vectorIds.size());
-            return knowledgeBaseFile;
-            
-        } catch (IOException e) {
-            log.error("文件读取失败", e);
-            throw new BusinessException(ErrorCode.FILE_ERROR, "文件读取失败");
-        } catch (Exception e) {
-            log.error("文件上传失败", e);
-            throw new BusinessException(ErrorCode.OPERATION_ERROR, "文件上传失败: " + e.getMessage());
-        }
+        return submitIngestion(knowledgeBaseId, file, userId);
     }
     
     @Override
-    @Transactional
-    public List<KnowledgeBaseFile> uploadFiles(Long knowledgeBaseId, List<MultipartFile> files, Long userId) {
+    public List<IngestionJob> uploadFiles(Long knowledgeBaseId, List<MultipartFile> files, Long userId) {
         log.info("批量上传文件到知识库，知识库ID: {}, 文件数量: {}, 用户ID: {}", 
                 knowledgeBaseId, files.size(), userId);
         
-        List<KnowledgeBaseFile> uploadedFiles = new ArrayList<>();
-        List<String> uploadedUrls = new ArrayList<>();
+        // 先整体校验，避免部分文件已提交后才发现非法文件
+        knowledgeBaseService.validateAccess(knowledgeBaseId, userId);
+        files.forEach(this::validateFile);
         
-        try {
-            for (MultipartFile file : files) {
-                KnowledgeBaseFile uploadedFile = uploadFile(knowledgeBaseId, file, userId);
-                uploadedFiles.add(uploadedFile);
-                uploadedUrls.add(uploadedFile.getFileUrl());
-            }
-            
-            log.info("批量文件上传成功，共上传 {} 个文件", uploadedFiles.size());
-            return uploadedFiles;
-            
-        } catch (Exception e) {
-            log.error("批量文件上传失败，开始回滚", e);
-            
-            // 回滚：删除已上传的文件
-            for (String url : uploadedUrls) {
-                try {
-                    aliOssUtil.deleteOss(url);
-                } catch (Exception deleteException) {
-                    log.error("回滚删除文件失败: {}", url, deleteException);
-                }
-            }
-            
-            throw e;
+        List<IngestionJob> jobs = new ArrayList<>();
+        for (MultipartFile file : files) {
+            jobs.add(submitIngestion(knowledgeBaseId, file, userId));
+        }
+        
+        log.info("批量文件已提交入库，共 {} 个文件", jobs.size());
+        return jobs;
+    }
+    
+    @Override
+    public IngestionJob updateFile(Long fileId, MultipartFile file, Long userId) {
+        log.info("更新知识库文件，文件ID: {}, 文件名: {}, 用户ID: {}", fileId, file.getOriginalFilename(), userId);
+        
+        // 验证文件访问权限
+        KnowledgeBaseFile current = validateFileAccess(fileId, userId);
+        
+        // 验证文件
+        validateFile(file);
+        
+        String originalName = file.getOriginalFilename();
+        String fileName = generateUniqueFileName(originalName);
+        SpooledFile spooled = spool(file, fileName);
+        
+        // 内容没有变化，无需重新入库
+        if (spooled.contentHash().equals(current.getContentHash())) {
+            deleteQuietly(spooled.path());
+            fileDedupHits.increment();
+            IngestionJob job = completedJob(current, originalName, file.getSize(), userId);
+            log.info("文件内容未变化，跳过更新，任务ID: {}, 文件ID: {}", job.getId(), fileId);
+            return job;
         }
+        
+        IngestionJob job = ingestionJobService.createJob(current.getKnowledgeBaseId(), fileName, 
+                originalName, file.getSize(), userId);
+        IngestionTask task = IngestionTask.builder()
+                .jobId(job.getId())
+                .targetFileId(fileId)
+                .knowledgeBaseId(current.getKnowledgeBaseId())
+                .userId(userId)
+                .fileName(fileName)
+                .originalName(originalName)
+                .fileType(getFileType(originalName))
+                .fileSize(file.getSize())
+                .contentHash(spooled.contentHash())
+                .tempFile(spooled.path())
+                .build();
+        submitTask(task);
+        
+        log.info("文件更新已提交入库，任务ID: {}, 文件ID: {}", job.getId(), fileId);
+        return job;
     }
     
     @Override
@@ -154,23 +174,10 @@ public class KnowledgeBaseFileServiceImpl extends ServiceImpl<KnowledgeBaseFileM
         KnowledgeBaseFile file = validateFileAccess(fileId, userId);
         
         try {
-            // 删除向量数据
-            if (file.getVectorIds() != null && !file.getVectorIds().isEmpty()) {
-                List<String> vectorIds = JSON.parseArray(file.getVectorIds(), String.class);
-                vectorStoreManager.deleteVectors(file.getKnowledgeBaseId(), vectorIds);
-            }
-            
-            // 删除OSS文件
-            aliOssUtil.deleteOss(file.getFileUrl());
+            KnowledgeBaseFile removed = removeFile(file);
             
-            // 删除数据库记录
-            boolean success = removeById(fileId);
-            if (!success) {
-                throw new BusinessException(ErrorCode.DELETE_ERROR, "文件记录删除失败");
-            }
-            
-            // 更新知识库文件数量
-            knowledgeBaseService.updateFileCount(file.getKnowledgeBaseId(), -1);
+            // 相同内容的文件共用一个OSS对象，没有其他记录引用时才删除
+            deleteUnreferencedObjects(List.of(removed.getFileUrl()));
             
             log.info("文件删除成功，文件ID: {}", fileId);
             
@@ -185,8 +192,23 @@ public class KnowledgeBaseFileServiceImpl extends ServiceImpl<KnowledgeBaseFileM
     public void deleteFiles(List<Long> fileIds, Long userId) {
         log.info("批量删除知识库文件，文件ID列表: {}, 用户ID: {}", fileIds, userId);
         
+        List<KnowledgeBaseFile> files = new ArrayList<>(fileIds.size());
         for (Long fileId : fileIds) {
-            deleteFile(fileId, userId);
+            files.add(validateFileAccess(fileId, userId));
+        }
+        
+        try {
+            Set<String> fileUrls = new HashSet<>();
+            for (KnowledgeBaseFile file : files) {
+                fileUrls.add(removeFile(file).getFileUrl());
+            }
+            
+            // 所有记录删除后一次性批量删除OSS文件
+            deleteUnreferencedObjects(fileUrls);
+            
+        } catch (Exception e) {
+            log.error("批量文件删除失败", e);
+            throw new BusinessException(ErrorCode.DELETE_ERROR, "文件删除失败: " + e.getMessage());
         }
         
         log.info("批量文件删除成功，共删除 {} 个文件", fileIds.size());
@@ -210,27 +232,35 @@ public class KnowledgeBaseFileServiceImpl extends ServiceImpl<KnowledgeBaseFileM
         // 验证知识库访问权限
         knowledgeBaseService.validateAccess(knowledgeBaseId, userId);
         
-        // 获取所有文件
-        List<KnowledgeBaseFile> files = knowledgeBaseFileMapper.selectByKnowledgeBaseId(knowledgeBaseId);
+        // 获取并锁定所有文件，与并发的增量更新串行
+        List<KnowledgeBaseFile> files = knowledgeBaseFileMapper.selectByKnowledgeBaseIdForUpdate(knowledgeBaseId);
         
-        // 删除OSS文件
+        // 删除向量数据
         for (KnowledgeBaseFile file : files) {
             try {
-                // 删除向量数据
                 if (file.getVectorIds() != null && !file.getVectorIds().isEmpty()) {
                     List<String> vectorIds = JSON.parseArray(file.getVectorIds(), String.class);
                     vectorStoreManager.deleteVectors(file.getKnowledgeBaseId(), vectorIds);
                 }
-                
-                // 删除OSS文件
-                aliOssUtil.deleteOss(file.getFileUrl());
             } catch (Exception e) {
-                log.error("删除文件资源失败: {}", file.getFileUrl(), e);
+                log.error("删除文件向量失败: {}", file.getFileUrl(), e);
             }
         }
         
         // 删除数据库记录
         int deletedCount = knowledgeBaseFileMapper.deleteByKnowledgeBaseId(knowledgeBaseId);
+        semanticAnswerCacheService.invalidate(knowledgeBaseId);
+        
+        // 批量删除不再被其他知识库引用的OSS文件
+        Set<String> fileUrls = new HashSet<>();
+        for (KnowledgeBaseFile file : files) {
+            fileUrls.add(file.getFileUrl());
+        }
+        try {
+            deleteUnreferencedObjects(fileUrls);
+        } catch (Exception e) {
+            log.error("删除OSS文件失败, 文件数量: {}", fileUrls.size(), e);
+        }
         
         log.info("知识库文件删除完成，删除数量: {}", deletedCount);
     }
@@ -255,42 +285,184 @@ public class KnowledgeBaseFileServiceImpl extends ServiceImpl<KnowledgeBaseFileM
     }
     
     /**
-     * 处理文档向量化
+     * 将上传文件落盘为临时文件，创建入库任务并提交到入库流水线；
+     * 同一知识库中已有相同内容的文件时不再重复入库，直接返回指向已有文件的完成任务
      * 
-     * @param file 上传的文件
      * @param knowledgeBaseId 知识库ID
-     * @return 向量ID列表
+     * @param file 上传的文件
+     * @param userId 用户ID
+     * @return 入库任务
+     */
+    private IngestionJob submitIngestion(Long knowledgeBaseId, MultipartFile file, Long userId) {
+        String originalName = file.getOriginalFilename();
+        String fileName = generateUniqueFileName(originalName);
+        SpooledFile spooled = spool(file, fileName);
+        
+        KnowledgeBaseFile existing = knowledgeBaseFileMapper.selectFirstByContentHash(knowledgeBaseId, spooled.contentHash());
+        if (existing != null) {
+            deleteQuietly(spooled.path());
+            fileDedupHits.increment();
+            IngestionJob job = completedJob(existing, originalName, file.getSize(), userId);
+            log.info("知识库中已存在相同内容的文件，跳过入库，任务ID: {}, 已有文件ID: {}", job.getId(), existing.getId());
+            return job;
+        }
+        
+        IngestionJob job = ingestionJobService.createJob(knowledgeBaseId, fileName, originalName, file.getSize(), userId);
+        IngestionTask task = IngestionTask.builder()
+                .jobId(job.getId())
+                .knowledgeBaseId(knowledgeBaseId)
+                .userId(userId)
+                .fileName(fileName)
+                .originalName(originalName)
+                .fileType(getFileType(originalName))
+                .fileSize(file.getSize())
+                .contentHash(spooled.contentHash())
+                .tempFile(spooled.path())
+                .build();
+        submitTask(task);
+        
+        log.info("文件已提交入库，任务ID: {}, 文件名: {}", job.getId(), originalName);
+        return job;
+    }
+    
+    /**
+     * 上传落盘后的临时文件及其内容哈希
      */
-    private List<String> processDocumentVectorization(MultipartFile file, Long knowledgeBaseId) {
+    private record SpooledFile(Path path, String contentHash) {
+    }
+    
+    /**
+     * 请求结束后MultipartFile不可再读，先落盘供后台流水线使用，落盘的同时计算内容哈希
+     */
+    private SpooledFile spool(MultipartFile file, String fileName) {
+        Path tempFile = null;
         try {
-            log.info("开始处理文档向量化，文件: {}, 知识库ID: {}", file.getOriginalFilename(), knowledgeBaseId);
-            
-            // 使用Tika读取文档内容
-            ByteArrayResource resource = new ByteArrayResource(file.getBytes());
-            TikaDocumentReader tikaReader = new TikaDocumentReader(resource);
-            List<Document> documents = tikaReader.get();
-            
-            // 使用TokenTextSplitter分割文档
-            TokenTextSplitter tokenTextSplitter = new TokenTextSplitter();
-            List<Document> splitDocuments = tokenTextSplitter.apply(documents);
-            
-            // 为每个文档片段添加知识库元数据
-            for (Document document : splitDocuments) {
-                document.getMetadata().put("knowledge_base_id", knowledgeBaseId.toString());
-                document.getMetadata().put("file_name", file.getOriginalFilename());
-                document.getMetadata().put("file_type", getFileType(file.getOriginalFilename()));
+            tempFile = createTempFile(fileName);
+            return new SpooledFile(tempFile, copyWithSha256(file, tempFile));
+        } catch (IOException e) {
+            if (tempFile != null) {
+                deleteQuietly(tempFile);
             }
-            
-            // 添加到向量存储
-            List<String> vectorIds = vectorStoreManager.addDocuments(knowledgeBaseId, splitDocuments);
-            
-            log.info("文档向量化完成，生成 {} 个向量", vectorIds.size());
-            return vectorIds;
-            
-        } catch (Exception e) {
-            log.error("文档向量化处理失败", e);
-            throw new BusinessException(ErrorCode.VECTOR_STORE_ERROR, 
-                    "文档向量化处理失败: " + e.getMessage());
+            log.error("文件读取失败", e);
+            throw new BusinessException(ErrorCode.FILE_ERROR, "文件读取失败");
+        }
+    }
+    
+    /**
+     * 无需入库时直接创建指向已有文件的完成任务
+     */
+    private IngestionJob completedJob(KnowledgeBaseFile existing, String originalName, long fileSize, Long userId) {
+        IngestionJob job = ingestionJobService.createJob(existing.getKnowledgeBaseId(), existing.getFileName(), 
+                originalName, fileSize, userId);
+        int chunkCount = existing.getVectorIds() == null ? 0 
+                : JSON.parseArray(existing.getVectorIds(), String.class).size();
+        ingestionJobService.markDone(job.getId(), existing.getId(), chunkCount);
+        return ingestionJobService.getById(job.getId());
+    }
+    
+    private void submitTask(IngestionTask task) {
+        if (!ingestionPipeline.submit(task)) {
+            deleteQuietly(task.getTempFile());
+            ingestionJobService.markFailed(task.getJobId(), "入库队列已满");
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "当前上传任务较多，请稍后重试");
+        }
+    }
+    
+    /**
+     * 复制上传内容到临时文件，同时计算SHA-256
+     * 
+     * @return 十六进制的内容哈希
+     */
+    private String copyWithSha256(MultipartFile file, Path target) throws IOException {
+        MessageDigest digest = DigestUtil.digester(DigestAlgorithm.SHA256).getDigest();
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return HexUtil.encodeHexStr(digest.digest());
+    }
+    
+    /**
+     * 删除文件记录及其向量数据，并更新知识库文件数量
+     * 
+     * <p>先在当前事务中锁定记录，按锁定后读到的向量ID删除：并发的增量更新要么已提交（读到新版本的向量），
+     * 要么在本事务提交后因记录已删除而放弃</p>
+     * 
+     * @return 锁定时读到的文件记录
+     */
+    private KnowledgeBaseFile removeFile(KnowledgeBaseFile file) {
+        file = knowledgeBaseFileMapper.selectByIdForUpdate(file.getId());
+        if (file == null) {
+            throw new BusinessException(ErrorCode.KNOWLEDGE_BASE_FILE_NOT_FOUND);
+        }
+        
+        // 删除向量数据
+        if (file.getVectorIds() != null && !file.getVectorIds().isEmpty()) {
+            List<String> vectorIds = JSON.parseArray(file.getVectorIds(), String.class);
+            vectorStoreManager.deleteVectors(file.getKnowledgeBaseId(), vectorIds);
+        }
+        
+        // 删除数据库记录
+        boolean success = removeById(file.getId());
+        if (!success) {
+            throw new BusinessException(ErrorCode.DELETE_ERROR, "文件记录删除失败");
+        }
+        
+        // 更新知识库文件数量
+        knowledgeBaseService.updateFileCount(file.getKnowledgeBaseId(), -1);
+        
+        // 知识库内容变化，相关语义缓存失效
+        semanticAnswerCacheService.invalidate(file.getKnowledgeBaseId());
+        return file;
+    }
+    
+    /**
+     * 批量删除没有文件记录引用的OSS文件。在删除记录的事务中用加锁读检查剩余引用，
+     * 与入库流水线复用文件时的加锁检查串行：复用方已提交的记录一定能读到，
+     * 复用方在本事务提交后才能确认引用，届时会发现文件已无引用并改为重新上传。
+     * OSS删除在事务提交后执行，不延长锁的持有时间，事务回滚时也不会删掉仍被引用的文件
+     */
+    private void deleteUnreferencedObjects(Collection<String> fileUrls) {
+        List<String> unreferenced = new ArrayList<>();
+        for (String fileUrl : fileUrls) {
+            if (knowledgeBaseFileMapper.selectIdByFileUrlForUpdate(fileUrl) == null) {
+                unreferenced.add(fileUrl);
+            } else {
+                log.info("OSS文件仍被其他记录引用，保留: {}", fileUrl);
+            }
+        }
+        if (unreferenced.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            objectStorage.deleteAll(unreferenced);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    objectStorage.deleteAll(unreferenced);
+                } catch (Exception e) {
+                    log.error("删除OSS文件失败, 文件数量: {}", unreferenced.size(), e);
+                }
+            }
+        });
+    }
+    
+    private Path createTempFile(String fileName) throws IOException {
+        String suffix = fileName.substring(fileName.lastIndexOf('/') + 1);
+        if (ingestionConfig.getTempDir() == null || ingestionConfig.getTempDir().isEmpty()) {
+            return Files.createTempFile("kb_upload_", "_" + suffix);
+        }
+        Path dir = Files.createDirectories(Paths.get(ingestionConfig.getTempDir()));
+        return Files.createTempFile(dir, "kb_upload_", "_" + suffix);
+    }
+    
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("删除临时文件失败: {}", path, e);
         }
     }
     
@@ -0,0 +1,50 @@
+package com.kinghy.rag.service.impl;
+
+import org.springframework.ai.document.Document;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 最小-最大归一化融合
+ * 将每个知识库的相似度分别归一化到[0, 1]后再统一排序
+ *
+ * @author yunzhongxiaoma
+ * @since 1.0.0
+ */
+@Component
+public class MinMaxFusionStrategy extends AbstractResultFusionStrategy {
+
+    public static final String NAME = "min-max";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    protected void score(Long knowledgeBaseId, List<Document> results, float[] scores, int offset) {
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < results.size(); i++) {
+            float similarity = similarity(results.get(i));
+            scores[offset + i] = similarity;
+            min = Math.min(min, similarity);
+            max = Math.max(max, similarity);
+        }
+
+        float weight = weight(knowledgeBaseId);
+        float range = max - min;
+        for (int i = offset; i < offset + results.size(); i++) {
+            float normalized = range > 0 ? (scores[i] - min) / range : 1f;
+            scores[i] = normalized * weight;
+        }
+    }
+
+    /**
+     * 知识库权重，默认每个知识库相同
+     */
+    protected float weight(Long knowledgeBaseId) {
+        return 1f;
+    }
+}
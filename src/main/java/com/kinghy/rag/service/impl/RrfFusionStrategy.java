@@ -0,0 +1,42 @@
+package com.kinghy.rag.service.impl;
+
+import com.kinghy.rag.config.VectorSearchConfig;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 倒数排名融合（Reciprocal Rank Fusion）
+ * 只使用文档在各知识库结果中的排名：score = Σ 1 / (k + rank)，不受各知识库分数分布差异影响
+ *
+ * @author yunzhongxiaoma
+ * @since 1.0.0
+ */
+@Component
+public class RrfFusionStrategy extends AbstractResultFusionStrategy {
+
+    public static final String NAME = "rrf";
+
+    @Autowired
+    private VectorSearchConfig vectorSearchConfig;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    protected void score(Long knowledgeBaseId, List<Document> results, float[] scores, int offset) {
+        float k = vectorSearchConfig.getRrfK();
+        for (int rank = 0; rank < results.size(); rank++) {
+            scores[offset + rank] = 1f / (k + rank + 1);
+        }
+    }
+
+    @Override
+    protected float combine(float first, float second) {
+        return first + second;
+    }
+}
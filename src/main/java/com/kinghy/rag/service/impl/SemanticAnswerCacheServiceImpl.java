@@ -0,0 +1,213 @@
+package com.kinghy.rag.service.impl;
+
+import cn.hutool.crypto.SecureUtil;
+import com.kinghy.rag.config.SemanticCacheConfig;
+import com.kinghy.rag.service.SemanticAnswerCacheService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 语义答案缓存服务实现类
+ *
+ * @author yunzhongxiaoma
+ * @description 条目按（知识库集合及其版本, 系统提示词）分桶存放在 Redis 列表中，查询时在桶内比较问题向量的余弦相似度；
+ *              知识库文件变更时只需递增该知识库的版本号，旧桶不再被访问并随过期时间自然清理。
+ *              条目以字节数组存储：维度、小端 float 向量、问题长度及问题、回答，
+ *              比较相似度时直接读取向量字节，只解码命中条目的文本
+ */
+@Slf4j
+@Service
+public class SemanticAnswerCacheServiceImpl implements SemanticAnswerCacheService {
+
+    private static final String ANSWER_CACHE_KEY_PREFIX = "rag:answer:cache:";
+
+    private static final String KNOWLEDGE_BASE_VERSION_KEY_PREFIX = "rag:answer:cache:kb:version:";
+
+    private static final String METRIC_NAME = "rag.semantic.cache.requests";
+
+    @Autowired
+    private SemanticCacheConfig semanticCacheConfig;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private EmbeddingModel embeddingModel;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    public void init() {
+        hits = Counter.builder(METRIC_NAME).tag("result", "hit").register(meterRegistry);
+        misses = Counter.builder(METRIC_NAME).tag("result", "miss").register(meterRegistry);
+    }
+
+    @Override
+    public String lookup(String question, List<Long> knowledgeBaseIds, String systemPrompt) {
+        if (!semanticCacheConfig.isEnabled() || knowledgeBaseIds == null || knowledgeBaseIds.isEmpty()) {
+            return null;
+        }
+        try {
+            byte[] key = bucketKey(knowledgeBaseIds, systemPrompt).getBytes(StandardCharsets.UTF_8);
+            List<byte[]> entries = redisTemplate.execute((RedisCallback<List<byte[]>>) connection ->
+                    connection.listCommands().lRange(key, 0, -1));
+            if (entries == null || entries.isEmpty()) {
+                misses.increment();
+                return null;
+            }
+
+            float[] embedding = embeddingModel.embed(question);
+            byte[] best = null;
+            double bestSimilarity = semanticCacheConfig.getSimilarityThreshold();
+            for (byte[] entry : entries) {
+                double similarity = cosineSimilarity(embedding, entry);
+                if (similarity >= bestSimilarity) {
+                    best = entry;
+                    bestSimilarity = similarity;
+                }
+            }
+
+            if (best == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            String[] questionAndAnswer = decodeText(best);
+            log.info("语义缓存命中，相似度: {}, 原问题: {}", bestSimilarity, questionAndAnswer[0]);
+            return questionAndAnswer[1];
+        } catch (Exception e) {
+            log.warn("查询语义缓存失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void store(String question, List<Long> knowledgeBaseIds, String systemPrompt, String answer) {
+        if (!semanticCacheConfig.isEnabled() || knowledgeBaseIds == null || knowledgeBaseIds.isEmpty()) {
+            return;
+        }
+        try {
+            byte[] key = bucketKey(knowledgeBaseIds, systemPrompt).getBytes(StandardCharsets.UTF_8);
+            byte[] entry = encode(question, embeddingModel.embed(question), answer);
+            long ttlMillis = TimeUnit.HOURS.toMillis(semanticCacheConfig.getTtlHours());
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.listCommands().rPush(key, entry);
+                connection.listCommands().lTrim(key, -semanticCacheConfig.getMaxEntriesPerBucket(), -1);
+                connection.keyCommands().pExpire(key, ttlMillis);
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("写入语义缓存失败: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void invalidate(Long knowledgeBaseId) {
+        try {
+            Long version = redisTemplate.opsForValue().increment(KNOWLEDGE_BASE_VERSION_KEY_PREFIX + knowledgeBaseId);
+            log.info("知识库 {} 的语义缓存已失效，当前版本: {}", knowledgeBaseId, version);
+        } catch (Exception e) {
+            log.warn("使语义缓存失效失败，知识库ID: {}", knowledgeBaseId, e);
+        }
+    }
+
+    @Override
+    public Flux<String> replay(String answer) {
+        int chunkSize = semanticCacheConfig.getReplayChunkSize();
+        int chunks = (answer.length() + chunkSize - 1) / chunkSize;
+        return Flux.range(0, chunks)
+                .map(i -> answer.substring(i * chunkSize, Math.min(answer.length(), (i + 1) * chunkSize)));
+    }
+
+    /**
+     * 分桶键：排序去重后的知识库ID及各自版本号 + 系统提示词
+     */
+    private String bucketKey(List<Long> knowledgeBaseIds, String systemPrompt) {
+        List<Long> ids = knowledgeBaseIds.stream().distinct().sorted().toList();
+        List<String> versionKeys = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            versionKeys.add(KNOWLEDGE_BASE_VERSION_KEY_PREFIX + id);
+        }
+        List<Object> versions = redisTemplate.opsForValue().multiGet(versionKeys);
+
+        StringBuilder bucket = new StringBuilder();
+        for (int i = 0; i < ids.size(); i++) {
+            Object version = versions != null ? versions.get(i) : null;
+            bucket.append(ids.get(i)).append('@').append(version != null ? version : 0).append(',');
+        }
+        bucket.append('|').append(systemPrompt);
+        return ANSWER_CACHE_KEY_PREFIX + SecureUtil.sha256(bucket.toString());
+    }
+
+    /**
+     * 条目编码：维度 + 小端 float 向量 + 问题字节数 + 问题 + 回答
+     */
+    private static byte[] encode(String question, float[] embedding, String answer) {
+        byte[] questionBytes = question.getBytes(StandardCharsets.UTF_8);
+        byte[] answerBytes = answer.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES * 2 + embedding.length * Float.BYTES
+                        + questionBytes.length + answerBytes.length)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(embedding.length);
+        buffer.asFloatBuffer().put(embedding);
+        buffer.position(buffer.position() + embedding.length * Float.BYTES);
+        buffer.putInt(questionBytes.length).put(questionBytes).put(answerBytes);
+        return buffer.array();
+    }
+
+    /**
+     * 解码条目中的问题和回答
+     */
+    private static String[] decodeText(byte[] entry) {
+        ByteBuffer buffer = ByteBuffer.wrap(entry).order(ByteOrder.LITTLE_ENDIAN);
+        int dimensions = buffer.getInt();
+        buffer.position(buffer.position() + dimensions * Float.BYTES);
+        int questionLength = buffer.getInt();
+        String question = new String(entry, buffer.position(), questionLength, StandardCharsets.UTF_8);
+        int answerOffset = buffer.position() + questionLength;
+        String answer = new String(entry, answerOffset, entry.length - answerOffset, StandardCharsets.UTF_8);
+        return new String[]{question, answer};
+    }
+
+    /**
+     * 直接在条目字节上计算余弦相似度，不复制向量
+     */
+    private static double cosineSimilarity(float[] a, byte[] entry) {
+        ByteBuffer buffer = ByteBuffer.wrap(entry).order(ByteOrder.LITTLE_ENDIAN);
+        if (entry.length < Integer.BYTES || buffer.getInt() != a.length
+                || entry.length < Integer.BYTES + a.length * Float.BYTES) {
+            return -1;
+        }
+        FloatBuffer b = buffer.asFloatBuffer();
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            float value = b.get(i);
+            dot += a[i] * value;
+            normA += a[i] * a[i];
+            normB += value * value;
+        }
+        return normA == 0 || normB == 0 ? -1 : dot / (Math.sqrt(normA) * Math.sqrt(normB));
+    }
+}
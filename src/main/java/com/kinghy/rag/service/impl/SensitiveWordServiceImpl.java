@@ -1,20 +1,447 @@
 package com.kinghy.rag.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.kinghy.rag.common.SensitiveAction;
+import com.kinghy.rag.constant.MessageConstant;
+import com.kinghy.rag.entity.SensitiveCategory;
 import com.kinghy.rag.entity.SensitiveWord;
+import com.kinghy.rag.mapper.SensitiveCategoryMapper;
+import com.kinghy.rag.pojo.dto.SensitiveCheckResult;
+import com.kinghy.rag.pojo.dto.SensitiveHit;
+import com.kinghy.rag.pojo.dto.SensitiveWordChangeMessage;
 import com.kinghy.rag.service.SensitiveWordService;
 import com.kinghy.rag.mapper.SensitiveWordMapper;
+import com.kinghy.rag.utils.SensitiveWordMatcher;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
 * @author kinghy
 * @description 针对表【sensitive_word】的数据库操作Service实现
 * @createDate 2025-03-03 21:29:10
 */
+@Slf4j
 @Service
 public class SensitiveWordServiceImpl extends ServiceImpl<SensitiveWordMapper, SensitiveWord>
-    implements SensitiveWordService {
+    implements SensitiveWordService, MessageListener {
+
+    // 词库版本号键及变更通知频道
+    public static final String DICTIONARY_VERSION_KEY = "sensitive:word:version";
+    public static final String DICTIONARY_CHANNEL = "sensitive:word:changed";
+
+    // 未设置分类的敏感词归入该分类，按拦截处理
+    public static final String UNCATEGORIZED = "未分类";
+
+    @Autowired
+    private SensitiveCategoryMapper sensitiveCategoryMapper;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    /**
+     * 当前生效的词库快照，变更时整体替换，读路径无锁
+     */
+    private volatile Dictionary dictionary;
+
+    /**
+     * 各分类命中次数
+     */
+    private final Map<String, LongAdder> categoryHits = new ConcurrentHashMap<>();
+
+    /**
+     * 后台重建线程，单线程保证变更按顺序应用
+     */
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "sensitive-word-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 词库快照：版本号 + 敏感词 + 分类动作 + 编译好的匹配器，
+     * patternCategories/patternActions 按匹配器的模式编号对齐
+     */
+    private record Dictionary(long version,
+                              Map<Integer, SensitiveWord> words,
+                              Map<String, SensitiveAction> categoryActions,
+                              SensitiveWordMatcher matcher,
+                              String[] patternCategories,
+                              SensitiveAction[] patternActions) {
+
+        SensitiveHit hit(int patternIndex, int end) {
+            String word = matcher.pattern(patternIndex);
+            return new SensitiveHit(word, patternCategories[patternIndex], patternActions[patternIndex],
+                    end - word.length(), end);
+        }
+    }
+
+    /**
+     * 单个输出流的审核状态：保存跨分片的自动机状态，以及末尾仍可能构成敏感词开头、暂未发出的字符，
+     * 自身作为命中回调，未命中且没有暂存字符时直接发出原分片，不再额外分配对象
+     */
+    private final class StreamModeration implements SensitiveWordMatcher.HitListener {
+
+        private final Dictionary dictionary;
+        private int state = SensitiveWordMatcher.ROOT;
+        private String chunk;
+        /**
+         * 暂存的字符；本分片需要改写时，分片内容也追加到这里
+         */
+        private final StringBuilder pending = new StringBuilder();
+        private int offset;
+        private boolean buffered;
+        private int blockedPattern = -1;
+        private int blockedEnd;
+
+        private StreamModeration(Dictionary dictionary) {
+            this.dictionary = dictionary;
+        }
+
+        /**
+         * 扫描一个分片，返回现在可以发出的内容；命中拦截时返回敏感词之前的内容
+         */
+        private String accept(String chunk) {
+            this.chunk = chunk;
+            offset = pending.length();
+            buffered = offset > 0;
+            if (buffered) {
+                pending.append(chunk);
+            }
+            state = dictionary.matcher().scan(chunk, state, this);
+            if (blockedPattern >= 0) {
+                buffer();
+                int safeEnd = offset + blockedEnd - dictionary.matcher().pattern(blockedPattern).length();
+                String output = pending.substring(0, safeEnd);
+                pending.setLength(0);
+                return output;
+            }
+
+            // 与自动机当前前缀对应的末尾字符先不发出，等下一个分片确认是否构成敏感词
+            int hold = dictionary.matcher().depth(state);
+            if (!buffered) {
+                if (hold == 0) {
+                    return chunk;
+                }
+                pending.append(chunk, chunk.length() - hold, chunk.length());
+                return chunk.substring(0, chunk.length() - hold);
+            }
+            int emit = pending.length() - hold;
+            String output = pending.substring(0, emit);
+            pending.delete(0, emit);
+            return output;
+        }
+
+        /**
+         * 输出结束时发出剩余的暂存字符，没有则返回null
+         */
+        private String flush() {
+            if (blockedPattern >= 0 || pending.length() == 0) {
+                return null;
+            }
+            String rest = pending.toString();
+            pending.setLength(0);
+            return rest;
+        }
+
+        private void buffer() {
+            if (!buffered) {
+                pending.append(chunk);
+                buffered = true;
+            }
+        }
+
+        @Override
+        public boolean onHit(int patternIndex, int end) {
+            SensitiveAction action = dictionary.patternActions()[patternIndex];
+            recordHit(dictionary.patternCategories()[patternIndex]);
+            if (action == SensitiveAction.BLOCK) {
+                blockedPattern = patternIndex;
+                blockedEnd = end;
+                return false;
+            }
+            if (action == SensitiveAction.MASK) {
+                // 敏感词在本分片之前的部分一定还在暂存区中，可以整体屏蔽
+                buffer();
+                int maskEnd = offset + end;
+                int maskStart = maskEnd - dictionary.matcher().pattern(patternIndex).length();
+                for (int i = maskStart; i < maskEnd; i++) {
+                    pending.setCharAt(i, '*');
+                }
+            }
+            return true;
+        }
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(DICTIONARY_CHANNEL));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdown();
+        try {
+            rebuildExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public SensitiveCheckResult match(String text) {
+        if (text == null) {
+            return new SensitiveCheckResult(null, Collections.emptyList());
+        }
+        Dictionary current = currentDictionary();
+        List<SensitiveHit> hits = new ArrayList<>();
+        current.matcher().scan(text, SensitiveWordMatcher.ROOT, (patternIndex, end) -> {
+            hits.add(current.hit(patternIndex, end));
+            return true;
+        });
+        if (hits.isEmpty()) {
+            return new SensitiveCheckResult(text, hits);
+        }
+
+        char[] masked = null;
+        for (SensitiveHit hit : hits) {
+            recordHit(hit.getCategory());
+            if (hit.getAction() == SensitiveAction.MASK) {
+                if (masked == null) {
+                    masked = text.toCharArray();
+                }
+                Arrays.fill(masked, hit.getStart(), hit.getEnd(), '*');
+            } else if (hit.getAction() == SensitiveAction.LOG) {
+                log.info("命中仅记录类敏感词，分类: {}, 敏感词: {}", hit.getCategory(), hit.getWord());
+            }
+        }
+        return new SensitiveCheckResult(masked == null ? text : new String(masked), hits);
+    }
+
+    @Override
+    public Flux<String> moderate(Flux<String> content) {
+        return Flux.defer(() -> {
+            // 每个订阅固定使用一个词库快照，词库热更新不影响进行中的输出
+            StreamModeration moderation = new StreamModeration(currentDictionary());
+            return content.<String>handle((chunk, sink) -> {
+                String output = moderation.accept(chunk);
+                if (moderation.blockedPattern < 0) {
+                    if (!output.isEmpty()) {
+                        sink.next(output);
+                    }
+                    return;
+                }
+
+                // 命中拦截分类后只发出敏感词之前的内容，随后结束输出
+                log.warn("模型输出命中敏感词，已截断输出: {}",
+                        moderation.dictionary.matcher().pattern(moderation.blockedPattern));
+                sink.next(output + MessageConstant.SENSITIVE_OUTPUT_BLOCKED);
+                sink.complete();
+            }).concatWith(Mono.fromSupplier(moderation::flush));
+        });
+    }
+
+    @Override
+    public long getDictionaryVersion() {
+        return currentDictionary().version();
+    }
+
+    @Override
+    public Map<String, Long> getCategoryHitCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        categoryHits.forEach((category, adder) -> counts.put(category, adder.sum()));
+        return counts;
+    }
+
+    @Override
+    public void publishChange(Collection<Integer> ids) {
+        List<Integer> changedIds = ids == null ? null : new ArrayList<>(ids);
+        Long version;
+        try {
+            version = redisTemplate.opsForValue().increment(DICTIONARY_VERSION_KEY);
+        } catch (Exception e) {
+            log.error("递增敏感词词库版本号失败，仅重建本节点词库", e);
+            rebuildExecutor.execute(this::reloadAll);
+            return;
+        }
+
+        // 本节点直接应用，其他节点通过订阅消息应用；重复的版本会被忽略
+        rebuildExecutor.execute(() -> applyChange(version, changedIds));
+        try {
+            redisTemplate.convertAndSend(DICTIONARY_CHANNEL, new SensitiveWordChangeMessage(version, changedIds));
+            log.info("广播敏感词变更，版本: {}, 变更ID: {}", version, changedIds);
+        } catch (Exception e) {
+            log.error("广播敏感词变更失败，版本: {}", version, e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Object body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            if (body instanceof SensitiveWordChangeMessage change && change.getVersion() != null) {
+                // 监听线程只负责投递，重建在后台线程执行
+                rebuildExecutor.execute(() -> applyChange(change.getVersion(), change.getIds()));
+            }
+        } catch (Exception e) {
+            log.error("解析敏感词变更消息失败", e);
+        }
+    }
+
+    private void recordHit(String category) {
+        categoryHits.computeIfAbsent(category, key -> new LongAdder()).increment();
+    }
+
+    /**
+     * 应用一次变更：版本连续时只重新加载变更的行，出现版本缺口或分类变更时全量重建
+     */
+    private void applyChange(long version, List<Integer> ids) {
+        try {
+            Dictionary current = currentDictionary();
+            if (version <= current.version()) {
+                return;
+            }
+            if (version != current.version() + 1 || ids == null) {
+                log.info("敏感词词库全量重建，本地版本: {}, 收到版本: {}", current.version(), version);
+                reloadAll();
+                return;
+            }
+
+            Map<Integer, SensitiveWord> words = new HashMap<>(current.words());
+            ids.forEach(words::remove);
+            if (!ids.isEmpty()) {
+                LambdaQueryWrapper<SensitiveWord> wrapper = new LambdaQueryWrapper<>();
+                wrapper.select(SensitiveWord::getId, SensitiveWord::getWord, SensitiveWord::getCategory)
+                        .in(SensitiveWord::getId, ids);
+                for (SensitiveWord word : baseMapper.selectList(wrapper)) {
+                    words.put(word.getId(), word);
+                }
+            }
+            dictionary = buildDictionary(version, words, current.categoryActions());
+            log.info("敏感词词库增量更新完成，版本: {}, 敏感词数量: {}", version, words.size());
+        } catch (Exception e) {
+            // 更新失败时保留旧的词库，避免敏感词检查整体失效
+            log.error("敏感词词库更新失败，版本: {}", version, e);
+        }
+    }
+
+    private Dictionary currentDictionary() {
+        Dictionary current = dictionary;
+        if (current == null) {
+            synchronized (this) {
+                current = dictionary;
+                if (current == null) {
+                    current = loadDictionary();
+                    dictionary = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private synchronized void reloadAll() {
+        try {
+            dictionary = loadDictionary();
+        } catch (Exception e) {
+            log.error("全量重建敏感词词库失败，继续使用旧版本", e);
+        }
+    }
+
+    /**
+     * 全量加载：先读取版本号再读取数据库，保证快照不会比版本号旧
+     */
+    private Dictionary loadDictionary() {
+        long version = readVersion();
+
+        Map<String, SensitiveAction> categoryActions = new HashMap<>();
+        for (SensitiveCategory category : sensitiveCategoryMapper.selectList(null)) {
+            if (StringUtils.hasText(category.getCategoryName())) {
+                categoryActions.put(category.getCategoryName(), SensitiveAction.of(category.getAction()));
+            }
+        }
+
+        LambdaQueryWrapper<SensitiveWord> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(SensitiveWord::getId, SensitiveWord::getWord, SensitiveWord::getCategory);
+        Map<Integer, SensitiveWord> words = new HashMap<>();
+        for (SensitiveWord word : baseMapper.selectList(wrapper)) {
+            words.put(word.getId(), word);
+        }
+
+        Dictionary loaded = buildDictionary(version, words, categoryActions);
+        log.info("敏感词词库全量加载完成，版本: {}, 敏感词数量: {}, 分类数量: {}",
+                version, loaded.matcher().size(), categoryActions.size());
+        return loaded;
+    }
+
+    /**
+     * 编译词库：同一个词出现在多个分类时取最严格的动作
+     */
+    private static Dictionary buildDictionary(long version, Map<Integer, SensitiveWord> words,
+                                              Map<String, SensitiveAction> categoryActions) {
+        Map<String, SensitiveAction> wordActions = new LinkedHashMap<>();
+        Map<String, String> wordCategories = new HashMap<>();
+        for (SensitiveWord word : words.values()) {
+            if (word.getWord() == null || word.getWord().isEmpty()) {
+                continue;
+            }
+            String category = StringUtils.hasText(word.getCategory()) ? word.getCategory() : UNCATEGORIZED;
+            SensitiveAction action = categoryActions.getOrDefault(category, SensitiveAction.BLOCK);
+            SensitiveAction existing = wordActions.get(word.getWord());
+            if (existing == null || action.ordinal() < existing.ordinal()) {
+                wordActions.put(word.getWord(), action);
+                wordCategories.put(word.getWord(), category);
+            }
+        }
+
+        SensitiveWordMatcher matcher = SensitiveWordMatcher.compile(wordActions.keySet());
+        String[] patternCategories = new String[matcher.size()];
+        SensitiveAction[] patternActions = new SensitiveAction[matcher.size()];
+        for (int i = 0; i < matcher.size(); i++) {
+            String pattern = matcher.pattern(i);
+            patternCategories[i] = wordCategories.get(pattern);
+            patternActions[i] = wordActions.get(pattern);
+        }
+        return new Dictionary(version, words, categoryActions, matcher, patternCategories, patternActions);
+    }
 
+    private long readVersion() {
+        try {
+            Object value = redisTemplate.opsForValue().get(DICTIONARY_VERSION_KEY);
+            return value == null ? 0L : Long.parseLong(value.toString());
+        } catch (Exception e) {
+            log.warn("读取敏感词词库版本号失败，按版本0处理: {}", e.getMessage());
+            return 0L;
+        }
+    }
 }
 
 
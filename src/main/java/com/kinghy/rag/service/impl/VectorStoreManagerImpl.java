@@ -1,13 +1,18 @@
 package com.kinghy.rag.service.impl;
 
 import com.kinghy.rag.common.ErrorCode;
+import com.kinghy.rag.config.EmbeddingBatchConfig;
+import com.kinghy.rag.config.VectorSearchConfig;
 import com.kinghy.rag.config.VectorStoreConfig;
 import com.kinghy.rag.exception.BusinessException;
+import com.kinghy.rag.service.ResultFusionStrategy;
 import com.kinghy.rag.service.VectorStoreManager;
 import io.milvus.client.MilvusServiceClient;
 import io.milvus.grpc.DataType;
 import io.milvus.param.R;
 import io.milvus.param.collection.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.vectorstore.SearchRequest;
@@ -20,7 +25,8 @@ import org.springframework.stereotype.Service;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 向量存储管理器实现类
@@ -39,6 +45,18 @@ public class VectorStoreManagerImpl implements VectorStoreManager {
     @Autowired
     private VectorStoreConfig.VectorStoreFactory vectorStoreFactory;
     
+    @Autowired
+    private VectorSearchConfig vectorSearchConfig;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private List<ResultFusionStrategy> fusionStrategies;
+    
+    @Autowired
+    private EmbeddingBatchConfig embeddingBatchConfig;
+    
     @Value("${spring.ai.vectorstore.milvus.embeddingDimension:1536}")
     private int embeddingDimension;
     
@@ -48,15 +66,52 @@ public class VectorStoreManagerImpl implements VectorStoreManager {
     // 缓存不同知识库的VectorStore实例
     private final Map<String, VectorStore> vectorStoreCache = new ConcurrentHashMap<>();
     
+    // 耗时指标中名额用完后其余知识库的标签值
+    private static final String OTHER_KNOWLEDGE_BASES_TAG = "other";
+    
+    // 耗时指标中已单独打标签的知识库
+    private final Set<Long> latencyTaggedKnowledgeBases = ConcurrentHashMap.newKeySet();
+    
+    // 多知识库并发检索线程池
+    private ExecutorService searchExecutor;
+    
+    // 分批写入向量库线程池
+    private ExecutorService insertExecutor;
+    
     @PostConstruct
     public void init() {
-        log.info("VectorStoreManager初始化完成");
+        AtomicInteger threadIndex = new AtomicInteger();
+        searchExecutor = new ThreadPoolExecutor(
+                vectorSearchConfig.getParallelism(),
+                vectorSearchConfig.getParallelism(),
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(vectorSearchConfig.getQueueCapacity()),
+                r -> {
+                    Thread thread = new Thread(r, "vector-search-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // 队列满时拒绝提交，由调用方跳过该知识库，避免请求线程被拖进检索里超出截止时间
+                new ThreadPoolExecutor.AbortPolicy());
+        AtomicInteger insertThreadIndex = new AtomicInteger();
+        insertExecutor = Executors.newFixedThreadPool(embeddingBatchConfig.getInsertConcurrency(), r -> {
+            Thread thread = new Thread(r, "vector-insert-" + insertThreadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("VectorStoreManager初始化完成，检索并发度: {}", vectorSearchConfig.getParallelism());
     }
     
     @PreDestroy
     public void destroy() {
         // 清理缓存
         vectorStoreCache.clear();
+        if (searchExecutor != null) {
+            searchExecutor.shutdownNow();
+        }
+        if (insertExecutor != null) {
+            insertExecutor.shutdownNow();
+        }
         log.info("VectorStoreManager资源清理完成");
     }
     
@@ -182,14 +237,31 @@ public class VectorStoreManagerImpl implements VectorStoreManager {
     public List<String> addDocuments(Long knowledgeBaseId, List<Document> documents) {
         log.info("向知识库 {} 添加 {} 个文档向量", knowledgeBaseId, documents.size());
         
+        // 返回文档ID列表
+        List<String> documentIds = new ArrayList<>();
+        for (Document document : documents) {
+            documentIds.add(document.getId());
+        }
+        
         try {
             VectorStore vectorStore = getVectorStore(knowledgeBaseId);
-            vectorStore.add(documents);
-            
-            // 返回文档ID列表
-            List<String> documentIds = new ArrayList<>();
-            for (Document document : documents) {
-                documentIds.add(document.getId());
+            int batchSize = embeddingBatchConfig.getInsertBatchSize();
+            if (documents.size() <= batchSize) {
+                vectorStore.add(documents);
+            } else {
+                // 分批并发写入：各批的向量化请求在嵌入模型侧合并，前一批写入时后一批已在向量化
+                List<CompletableFuture<Void>> batches = new ArrayList<>();
+                for (int from = 0; from < documents.size(); from += batchSize) {
+                    List<Document> batch = documents.subList(from, Math.min(documents.size(), from + batchSize));
+                    batches.add(CompletableFuture.runAsync(() -> vectorStore.add(batch), insertExecutor));
+                }
+                try {
+                    CompletableFuture.allOf(batches.toArray(new CompletableFuture[0])).join();
+                } catch (CompletionException e) {
+                    // 部分批次已写入，清理后再抛出
+                    deleteQuietly(vectorStore, documentIds);
+                    throw e.getCause() instanceof Exception cause ? cause : e;
+                }
             }
             
             log.info("成功向知识库 {} 添加 {} 个文档向量", knowledgeBaseId, documents.size());
@@ -224,36 +296,47 @@ public class VectorStoreManagerImpl implements VectorStoreManager {
         log.info("在知识库 {} 中进行相似性搜索", knowledgeBaseIds);
         
         try {
-            List<Document> allResults = new ArrayList<>();
+            long start = System.nanoTime();
+            long globalDeadline = start + TimeUnit.MILLISECONDS.toNanos(vectorSearchConfig.getGlobalTimeoutMs());
+            long perKnowledgeBaseTimeout = TimeUnit.MILLISECONDS.toNanos(vectorSearchConfig.getPerKnowledgeBaseTimeoutMs());
             
-            // 在每个知识库中进行搜索
+            // 并发提交每个知识库的检索，线程池满时跳过该知识库
+            Map<Long, SearchTask> tasks = new LinkedHashMap<>();
             for (Long knowledgeBaseId : knowledgeBaseIds) {
+                SearchTask task = new SearchTask(knowledgeBaseId, searchRequest);
                 try {
-                    VectorStore vectorStore = getVectorStore(knowledgeBaseId);
-                    List<Document> results = vectorStore.similaritySearch(searchRequest);
-                    allResults.addAll(results);
-                } catch (Exception e) {
-                    log.warn("在知识库 {} 中搜索失败: {}", knowledgeBaseId, e.getMessage());
-                    // 继续搜索其他知识库
+                    task.future = searchExecutor.submit(task);
+                    tasks.put(knowledgeBaseId, task);
+                } catch (RejectedExecutionException e) {
+                    recordSearchLatency(knowledgeBaseId, "rejected", 0);
+                    log.warn("检索线程池已满，跳过知识库 {}", knowledgeBaseId);
                 }
             }
             
-            // 按相似度排序并限制结果数量
-            allResults.sort((d1, d2) -> {
-                Float score1 = d1.getMetadata().get("distance") != null ? 
-                        Float.parseFloat(d1.getMetadata().get("distance").toString()) : 0f;
-                Float score2 = d2.getMetadata().get("distance") != null ? 
-                        Float.parseFloat(d2.getMetadata().get("distance").toString()) : 0f;
-                return Float.compare(score1, score2);
-            });
-            
-            // 限制返回结果数量
-            int topK = searchRequest.getTopK();
-            if (allResults.size() > topK) {
-                allResults = allResults.subList(0, topK);
+            // 每个知识库的超时从它开始执行时计时，同时不超过全局截止时间；超时或失败的知识库跳过，返回部分结果
+            Map<Long, List<Document>> perKnowledgeBaseResults = new LinkedHashMap<>();
+            for (SearchTask task : tasks.values()) {
+                try {
+                    perKnowledgeBaseResults.put(task.knowledgeBaseId,
+                            awaitResult(task, globalDeadline, perKnowledgeBaseTimeout));
+                } catch (TimeoutException e) {
+                    task.future.cancel(true);
+                    recordSearchLatency(task.knowledgeBaseId, "timeout", task.elapsed());
+                    log.warn("在知识库 {} 中搜索超时，跳过该知识库", task.knowledgeBaseId);
+                } catch (ExecutionException e) {
+                    log.warn("在知识库 {} 中搜索失败: {}", task.knowledgeBaseId, e.getCause().getMessage());
+                    // 继续搜索其他知识库
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    tasks.values().forEach(t -> t.future.cancel(true));
+                    break;
+                }
             }
             
-            log.info("相似性搜索完成，返回 {} 个结果", allResults.size());
+            List<Document> allResults = getFusionStrategy().fuse(perKnowledgeBaseResults, searchRequest.getTopK());
+            
+            log.info("相似性搜索完成，返回 {} 个结果，耗时 {}ms", allResults.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
             return allResults;
             
         } catch (Exception e) {
@@ -294,6 +377,126 @@ public class VectorStoreManagerImpl implements VectorStoreManager {
         return "kb_" + knowledgeBaseId;
     }
     
+    private void deleteQuietly(VectorStore vectorStore, List<String> documentIds) {
+        try {
+            vectorStore.delete(documentIds);
+        } catch (Exception e) {
+            log.error("清理已写入的文档向量失败", e);
+        }
+    }
+    
+    /**
+     * 等待单个知识库的检索结果
+     * 
+     * <p>截止时间为该任务开始执行的时间加上单库超时，且不晚于全局截止时间；
+     * 任务还在排队时按单库超时分段等待，开始执行后再按它的开始时间计算截止时间</p>
+     */
+    private List<Document> awaitResult(SearchTask task, long globalDeadline, long perKnowledgeBaseTimeout)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        while (true) {
+            long now = System.nanoTime();
+            long startedAt = task.startedAt;
+            long deadline = startedAt != 0
+                    ? Math.min(globalDeadline, startedAt + perKnowledgeBaseTimeout)
+                    : Math.min(globalDeadline, now + perKnowledgeBaseTimeout);
+            try {
+                return task.future.get(Math.max(0, deadline - now), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (startedAt != 0 || System.nanoTime() - globalDeadline >= 0) {
+                    throw e;
+                }
+            }
+        }
+    }
+    
+    /**
+     * 单个知识库的检索任务，记录开始执行的时间用于计算该库的超时
+     */
+    private class SearchTask implements Callable<List<Document>> {
+        private final Long knowledgeBaseId;
+        private final SearchRequest searchRequest;
+        private volatile long startedAt;
+        private Future<List<Document>> future;
+        
+        private SearchTask(Long knowledgeBaseId, SearchRequest searchRequest) {
+            this.knowledgeBaseId = knowledgeBaseId;
+            this.searchRequest = searchRequest;
+        }
+        
+        @Override
+        public List<Document> call() {
+            // 避免与“未开始”的 0 值冲突
+            startedAt = System.nanoTime() | 1;
+            return searchKnowledgeBase(knowledgeBaseId, searchRequest);
+        }
+        
+        private long elapsed() {
+            return startedAt != 0 ? System.nanoTime() - startedAt : 0;
+        }
+    }
+    
+    /**
+     * 在单个知识库中检索，并记录检索耗时
+     * 
+     * @param knowledgeBaseId 知识库ID
+     * @param searchRequest 搜索请求
+     * @return 按相似度排好序的检索结果
+     */
+    private List<Document> searchKnowledgeBase(Long knowledgeBaseId, SearchRequest searchRequest) {
+        long start = System.nanoTime();
+        try {
+            VectorStore vectorStore = getVectorStore(knowledgeBaseId);
+            List<Document> results = vectorStore.similaritySearch(searchRequest);
+            recordSearchLatency(knowledgeBaseId, "success", System.nanoTime() - start);
+            return results != null ? results : Collections.emptyList();
+        } catch (RuntimeException e) {
+            recordSearchLatency(knowledgeBaseId, "error", System.nanoTime() - start);
+            throw e;
+        }
+    }
+    
+    /**
+     * 按知识库和结果分类记录单库检索耗时，知识库标签的取值数量有上限
+     */
+    private void recordSearchLatency(Long knowledgeBaseId, String outcome, long nanos) {
+        Timer.builder("rag.vector.search.latency")
+                .description("单个知识库向量检索耗时")
+                .tag("knowledgeBaseId", knowledgeBaseTag(knowledgeBaseId))
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * 知识库在耗时指标中的标签值：名额内的知识库使用自身ID，名额用完后的知识库统一为 other
+     */
+    private String knowledgeBaseTag(Long knowledgeBaseId) {
+        if (!latencyTaggedKnowledgeBases.contains(knowledgeBaseId)) {
+            synchronized (latencyTaggedKnowledgeBases) {
+                if (!latencyTaggedKnowledgeBases.contains(knowledgeBaseId)) {
+                    if (latencyTaggedKnowledgeBases.size() >= vectorSearchConfig.getLatencyMetricMaxKnowledgeBases()) {
+                        return OTHER_KNOWLEDGE_BASES_TAG;
+                    }
+                    latencyTaggedKnowledgeBases.add(knowledgeBaseId);
+                }
+            }
+        }
+        return String.valueOf(knowledgeBaseId);
+    }
+    
+    /**
+     * 根据配置选择结果融合策略
+     */
+    private ResultFusionStrategy getFusionStrategy() {
+        String name = vectorSearchConfig.getFusion();
+        for (ResultFusionStrategy strategy : fusionStrategies) {
+            if (strategy.getName().equalsIgnoreCase(name)) {
+                return strategy;
+            }
+        }
+        throw new BusinessException(ErrorCode.PARAMS_ERROR, "不支持的结果融合策略: " + name);
+    }
+    
     /**
      * 获取或创建VectorStore实例
      * 
@@ -0,0 +1,32 @@
+package com.kinghy.rag.service.impl;
+
+import com.kinghy.rag.config.VectorSearchConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 按知识库加权融合
+ * 在最小-最大归一化的基础上乘以配置的知识库权重，未配置的知识库权重为1
+ *
+ * @author yunzhongxiaoma
+ * @since 1.0.0
+ */
+@Component
+public class WeightedFusionStrategy extends MinMaxFusionStrategy {
+
+    public static final String NAME = "weighted";
+
+    @Autowired
+    private VectorSearchConfig vectorSearchConfig;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    protected float weight(Long knowledgeBaseId) {
+        Float weight = vectorSearchConfig.getKnowledgeBaseWeights().get(knowledgeBaseId);
+        return weight != null ? weight : 1f;
+    }
+}
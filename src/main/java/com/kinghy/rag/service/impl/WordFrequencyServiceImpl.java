@@ -4,13 +4,21 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.kinghy.rag.common.PageResult;
+import com.kinghy.rag.config.WordFrequencyConfig;
 import com.kinghy.rag.entity.WordFrequency;
 import com.kinghy.rag.pojo.dto.WordFrequencyPageQueryDTO;
 import com.kinghy.rag.service.WordFrequencyService;
 import com.kinghy.rag.mapper.WordFrequencyMapper;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
 /**
 * @author kinghy
 * @description 针对表【word_frequency】的数据库操作Service实现
@@ -20,6 +28,9 @@ import org.springframework.stereotype.Service;
 public class WordFrequencyServiceImpl extends ServiceImpl<WordFrequencyMapper, WordFrequency>
     implements WordFrequencyService{
 
+    @Autowired
+    private WordFrequencyConfig wordFrequencyConfig;
+
     @Override
     public PageResult pageQuery(WordFrequencyPageQueryDTO queryDTO) {
         Page<WordFrequency> page = new Page<>(queryDTO.getPage(), queryDTO.getPageSize());
@@ -36,8 +47,30 @@ public class WordFrequencyServiceImpl extends ServiceImpl<WordFrequencyMapper, W
         this.page(page, wrapper);
         return new PageResult(page.getTotal(), page.getRecords());
     }
-}
-
-
-
 
+    @Override
+    public void mergeCounts(String businessType, Map<String, Integer> counts) {
+        if (counts == null || counts.isEmpty()) {
+            return;
+        }
+        // 按词排序后分批写入，并发执行时各批按相同顺序加锁
+        Date now = new Date();
+        List<WordFrequency> batch = new ArrayList<>(Math.min(counts.size(), wordFrequencyConfig.getUpsertBatchSize()));
+        for (Map.Entry<String, Integer> entry : new TreeMap<>(counts).entrySet()) {
+            WordFrequency wordFrequency = new WordFrequency();
+            wordFrequency.setWord(entry.getKey());
+            wordFrequency.setCountNum(entry.getValue());
+            wordFrequency.setBusinessType(businessType);
+            wordFrequency.setCreateTime(now);
+            wordFrequency.setUpdateTime(now);
+            batch.add(wordFrequency);
+            if (batch.size() >= wordFrequencyConfig.getUpsertBatchSize()) {
+                baseMapper.batchUpsert(batch);
+                batch = new ArrayList<>(wordFrequencyConfig.getUpsertBatchSize());
+            }
+        }
+        if (!batch.isEmpty()) {
+            baseMapper.batchUpsert(batch);
+        }
+    }
+}
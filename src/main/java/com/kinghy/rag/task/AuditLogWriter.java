@@ -0,0 +1,245 @@
+package com.kinghy.rag.task;
+
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.kinghy.rag.config.AuditLogConfig;
+import com.kinghy.rag.entity.LogInfo;
+import com.kinghy.rag.mapper.LogInfoMapper;
+import com.kinghy.rag.service.LogInfoService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 接口审计日志写入器
+ *
+ * @author yunzhongxiaoma
+ * @description 请求线程只把日志放入有界队列，参数序列化和写库都由后台线程完成，
+ *              每隔固定时间或攒满一批后用一条多行 INSERT 写入 log_info。
+ *              队列写满时按配置丢弃、限时等待或采样，审计日志不影响接口响应
+ */
+@Slf4j
+@Component
+public class AuditLogWriter {
+
+    @Autowired
+    private AuditLogConfig auditLogConfig;
+
+    @Autowired
+    private LogInfoMapper logInfoMapper;
+
+    @Autowired
+    private LogInfoService logInfoService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private BlockingQueue<Entry> pending;
+
+    private Thread writer;
+
+    private volatile boolean accepting;
+
+    private Timer flushTimer;
+
+    private DistributionSummary batchSizes;
+
+    private Counter overflowDropped;
+
+    private Counter sampledDropped;
+
+    private Counter failedLogs;
+
+    @PostConstruct
+    public void start() {
+        if (!auditLogConfig.isAsync()) {
+            return;
+        }
+        pending = new ArrayBlockingQueue<>(auditLogConfig.getQueueCapacity());
+        flushTimer = Timer.builder("rag.audit.flush").register(meterRegistry);
+        batchSizes = DistributionSummary.builder("rag.audit.batch.size").register(meterRegistry);
+        overflowDropped = Counter.builder("rag.audit.dropped").tag("reason", "overflow").register(meterRegistry);
+        sampledDropped = Counter.builder("rag.audit.dropped").tag("reason", "sampled").register(meterRegistry);
+        failedLogs = Counter.builder("rag.audit.failed").register(meterRegistry);
+        Gauge.builder("rag.audit.queue.depth", pending, BlockingQueue::size).register(meterRegistry);
+
+        accepting = true;
+        writer = new Thread(this::run, "audit-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("审计日志写入器启动完成，队列容量: {}, 写满策略: {}",
+                auditLogConfig.getQueueCapacity(), auditLogConfig.getOverflowPolicy());
+    }
+
+    /**
+     * 停止接收新日志，等待写入线程写完队列；超时后由当前线程写完剩余部分
+     */
+    @PreDestroy
+    public void stop() {
+        if (writer == null) {
+            return;
+        }
+        accepting = false;
+        writer.interrupt();
+        try {
+            writer.join(auditLogConfig.getShutdownTimeoutMs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Entry> remaining = new ArrayList<>();
+        pending.drainTo(remaining);
+        while (!remaining.isEmpty()) {
+            List<Entry> batch = remaining.subList(0, Math.min(remaining.size(), auditLogConfig.getMaxBatchSize()));
+            flush(new ArrayList<>(batch));
+            batch.clear();
+        }
+        log.info("审计日志写入器已停止");
+    }
+
+    /**
+     * 提交一条审计日志
+     *
+     * <p>请求参数在写入线程中才生成，参数对象在提交后不应再被修改</p>
+     *
+     * @param logInfo       方法名、类名和请求时间已填好的日志
+     * @param requestParams 生成请求参数文本
+     */
+    public void submit(LogInfo logInfo, Supplier<String> requestParams) {
+        if (!auditLogConfig.isAsync()) {
+            logInfo.setRequestParams(requestParams.get());
+            logInfoService.save(logInfo);
+            return;
+        }
+        if (!accepting) {
+            log.warn("审计日志写入器已停止，丢弃日志: {}.{}", logInfo.getClassName(), logInfo.getMethodName());
+            return;
+        }
+        Entry entry = new Entry(logInfo, requestParams);
+        switch (auditLogConfig.getOverflowPolicy()) {
+            case BLOCK -> {
+                boolean offered;
+                try {
+                    offered = pending.offer(entry, auditLogConfig.getBlockTimeoutMs(), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    offered = false;
+                }
+                if (!offered) {
+                    overflowDropped.increment();
+                }
+            }
+            case SAMPLE -> {
+                double occupancy = (double) pending.size() / auditLogConfig.getQueueCapacity();
+                if (occupancy >= auditLogConfig.getSampleThreshold()
+                        && ThreadLocalRandom.current().nextDouble() >= auditLogConfig.getSampleRate()) {
+                    sampledDropped.increment();
+                } else if (!pending.offer(entry)) {
+                    overflowDropped.increment();
+                }
+            }
+            default -> {
+                if (!pending.offer(entry)) {
+                    overflowDropped.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * 写入线程：取到第一条日志后，在写库间隔内继续攒批，攒满或到时即写库；
+     * 关闭时被中断，已经取出的日志先写完再退出，队列中剩余的由 {@link #stop()} 写完
+     */
+    private void run() {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(auditLogConfig.getFlushIntervalMs());
+        int maxBatchSize = auditLogConfig.getMaxBatchSize();
+        boolean stopping = false;
+        while (!stopping) {
+            Entry first;
+            try {
+                first = pending.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            List<Entry> batch = new ArrayList<>(maxBatchSize);
+            batch.add(first);
+            long deadline = System.nanoTime() + intervalNanos;
+            try {
+                while (batch.size() < maxBatchSize) {
+                    pending.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    Entry next = pending.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                stopping = true;
+            }
+            flush(batch);
+            stopping |= Thread.interrupted();
+        }
+    }
+
+    /**
+     * 生成请求参数并用一条多行 INSERT 写入一批日志，失败只记录，不重试
+     */
+    private void flush(List<Entry> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<LogInfo> logs = new ArrayList<>(batch.size());
+        for (Entry entry : batch) {
+            LogInfo logInfo = entry.logInfo;
+            try {
+                logInfo.setRequestParams(entry.requestParams.get());
+            } catch (Exception e) {
+                log.warn("生成审计日志请求参数失败: {}.{}", logInfo.getClassName(), logInfo.getMethodName(), e);
+            }
+            // 与 save 时的 ASSIGN_ID 保持一致
+            logInfo.setId(IdWorker.getId());
+            logs.add(logInfo);
+        }
+
+        long start = System.nanoTime();
+        try {
+            logInfoMapper.batchInsert(logs);
+        } catch (Exception e) {
+            log.error("审计日志批量写入失败，日志数: {}", logs.size(), e);
+            failedLogs.increment(logs.size());
+            return;
+        }
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        batchSizes.record(logs.size());
+    }
+
+    /**
+     * 队列中的一条日志及其待生成的请求参数
+     */
+    private static class Entry {
+        private final LogInfo logInfo;
+        private final Supplier<String> requestParams;
+
+        private Entry(LogInfo logInfo, Supplier<String> requestParams) {
+            this.logInfo = logInfo;
+            this.requestParams = requestParams;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.kinghy.rag.task;
+
+import com.kinghy.rag.config.ChatPersistenceConfig;
+import com.kinghy.rag.entity.ChatMessage;
+import com.kinghy.rag.mapper.ChatMessageMapper;
+import com.kinghy.rag.pojo.dto.SessionTouch;
+import com.kinghy.rag.service.ChatSessionService;
+import com.kinghy.rag.util.RetryUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 聊天消息写后日志
+ *
+ * @author yunzhongxiaoma
+ * @description 各会话的消息先进入有界队列，由刷盘线程每隔固定时间或攒满一批后
+ *              用一条多行 INSERT 写入，同一批内各会话的统计信息合并后用一条 UPDATE 更新，
+ *              消息和统计在同一个事务中提交；组提交模式下写入方等待所在批次提交，
+ *              异步模式下立即返回。应用关闭时先停止接收，再把队列中剩余的消息写完
+ */
+@Slf4j
+@Component
+public class ChatMessageJournal {
+
+    @Autowired
+    private ChatPersistenceConfig persistenceConfig;
+
+    @Autowired
+    private ChatMessageMapper chatMessageMapper;
+
+    @Autowired
+    private ChatSessionService chatSessionService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private BlockingQueue<Entry> pending;
+
+    private Thread flusher;
+
+    private volatile boolean accepting;
+
+    private Timer flushTimer;
+
+    private DistributionSummary batchSizes;
+
+    private Counter failedMessages;
+
+    @PostConstruct
+    public void start() {
+        if (!isWriteBehind()) {
+            return;
+        }
+        pending = new ArrayBlockingQueue<>(persistenceConfig.getQueueCapacity());
+        flushTimer = Timer.builder("rag.chat.journal.flush").register(meterRegistry);
+        batchSizes = DistributionSummary.builder("rag.chat.journal.batch.size").register(meterRegistry);
+        failedMessages = Counter.builder("rag.chat.journal.failed").register(meterRegistry);
+        Gauge.builder("rag.chat.journal.pending", pending, BlockingQueue::size).register(meterRegistry);
+
+        accepting = true;
+        flusher = new Thread(this::run, "chat-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("聊天消息写后日志启动完成，模式: {}, 刷盘间隔: {}ms, 每批上限: {}",
+                persistenceConfig.getDurability(), persistenceConfig.getFlushIntervalMs(), persistenceConfig.getMaxBatchSize());
+    }
+
+    /**
+     * 停止接收新消息，等待刷盘线程写完队列；超时后由当前线程写完剩余部分
+     */
+    @PreDestroy
+    public void stop() {
+        if (flusher == null) {
+            return;
+        }
+        accepting = false;
+        flusher.interrupt();
+        try {
+            flusher.join(persistenceConfig.getShutdownTimeoutMs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Entry> remaining = new ArrayList<>();
+        pending.drainTo(remaining);
+        while (!remaining.isEmpty()) {
+            List<Entry> batch = remaining.subList(0, Math.min(remaining.size(), persistenceConfig.getMaxBatchSize()));
+            flush(new ArrayList<>(batch));
+            batch.clear();
+        }
+        log.info("聊天消息写后日志已停止");
+    }
+
+    /**
+     * 是否启用写后日志
+     */
+    public boolean isWriteBehind() {
+        return persistenceConfig.getDurability() != ChatPersistenceConfig.Durability.DIRECT;
+    }
+
+    /**
+     * 追加一条消息，会话的消息计数和最后消息时间随所在批次一起更新
+     *
+     * <p>组提交模式下返回时消息已提交并回填了ID；异步模式下消息只进入了队列，ID 为空。
+     * 组提交模式下调用方不能持有数据库连接（不能在事务中调用），否则并发等待的写入方会占满连接池，
+     * 刷盘线程拿不到连接。等待超时时如果消息还在队列中就撤回并抛出异常，
+     * 已经被刷盘线程取走的则继续等待该批次的结果，异常与否和消息是否写入保持一致</p>
+     *
+     * @param message 待写入的消息
+     */
+    public void append(ChatMessage message) {
+        if (!accepting) {
+            throw new IllegalStateException("聊天消息写后日志已停止");
+        }
+        Entry entry = new Entry(message);
+        try {
+            pending.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待写入队列时被中断", e);
+        }
+        if (persistenceConfig.getDurability() != ChatPersistenceConfig.Durability.GROUP_COMMIT) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            log.warn("在事务中等待消息批次提交，等待期间会一直占用数据库连接，会话ID: {}", message.getSessionId());
+        }
+        try {
+            try {
+                entry.committed.get(persistenceConfig.getCommitTimeoutMs(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (pending.remove(entry)) {
+                    throw new IllegalStateException("等待消息批次提交超时，消息未写入", e);
+                }
+                // 已经在刷盘中的批次，结果以该批次为准
+                entry.committed.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("消息批量写入失败: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待消息批次提交时被中断", e);
+        }
+    }
+
+    /**
+     * 刷盘线程：取到第一条消息后，在刷盘间隔内继续攒批，攒满或到时即写库；
+     * 关闭时被中断，已经取出的消息先写完再退出，队列中剩余的由 {@link #stop()} 写完
+     */
+    private void run() {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(persistenceConfig.getFlushIntervalMs());
+        int maxBatchSize = persistenceConfig.getMaxBatchSize();
+        boolean stopping = false;
+        while (!stopping) {
+            Entry first;
+            try {
+                first = pending.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            List<Entry> batch = new ArrayList<>(maxBatchSize);
+            batch.add(first);
+            long deadline = System.nanoTime() + intervalNanos;
+            try {
+                while (batch.size() < maxBatchSize) {
+                    pending.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    Entry next = pending.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                stopping = true;
+            }
+            flush(batch);
+            stopping |= Thread.interrupted();
+        }
+    }
+
+    /**
+     * 在一个事务中写入一批消息，并按会话合并统计信息更新
+     */
+    private void flush(List<Entry> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<ChatMessage> messages = new ArrayList<>(batch.size());
+        List<SessionTouch> touches = new ArrayList<>(batch.size());
+        for (Entry entry : batch) {
+            ChatMessage message = entry.message;
+            messages.add(message);
+            touches.add(new SessionTouch(message.getSessionId(), 1, message.getCreateTime()));
+        }
+
+        long start = System.nanoTime();
+        try {
+            RetryUtil.executeWithRetry(() -> transactionTemplate.execute(status -> {
+                // 重试前清掉上次失败时可能回填的ID
+                messages.forEach(message -> message.setId(null));
+                chatMessageMapper.batchInsert(messages);
+                // 同一会话的增量在 touchSessions 中合并，整批会话一条语句更新
+                chatSessionService.touchSessions(touches);
+                return null;
+            }), persistenceConfig.getMaxRetries(), persistenceConfig.getFlushIntervalMs(), "flush chat messages");
+        } catch (Exception e) {
+            log.error("聊天消息批量写入失败，消息数: {}", messages.size(), e);
+            failedMessages.increment(messages.size());
+            batch.forEach(entry -> entry.committed.completeExceptionally(e));
+            return;
+        }
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        batchSizes.record(messages.size());
+        batch.forEach(entry -> entry.committed.complete(null));
+        log.debug("聊天消息批量写入完成，消息数: {}", messages.size());
+    }
+
+    /**
+     * 队列中的一条消息及其提交结果
+     */
+    private static class Entry {
+        private final ChatMessage message;
+        private final CompletableFuture<Void> committed = new CompletableFuture<>();
+
+        private Entry(ChatMessage message) {
+            this.message = message;
+        }
+    }
+}
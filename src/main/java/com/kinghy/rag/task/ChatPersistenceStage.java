@@ -0,0 +1,130 @@
+package com.kinghy.rag.task;
+
+import com.kinghy.rag.config.ChatPersistenceConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 流式对话持久化阶段
+ *
+ * @author yunzhongxiaoma
+ * @description 流式对话中的会话激活、消息写库等阻塞操作统一交给独立的有界线程池执行，
+ *              请求线程和模型响应的推送线程只负责提交任务，不等待数据库。
+ *              排队任务超过上限时直接拒绝，由调用方把压力反馈给客户端，而不是阻塞流水线
+ */
+@Slf4j
+@Component
+public class ChatPersistenceStage {
+
+    @Autowired
+    private ChatPersistenceConfig persistenceConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Scheduler scheduler;
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    @PostConstruct
+    public void start() {
+        scheduler = Schedulers.newBoundedElastic(persistenceConfig.getWorkerThreads(),
+                persistenceConfig.getWorkerQueueCapacity(), "chat-persistence", 60, true);
+        Gauge.builder("rag.chat.persistence.pending", pending, AtomicInteger::get).register(meterRegistry);
+        log.info("流式对话持久化阶段启动完成，线程数: {}, 排队上限: {}",
+                persistenceConfig.getWorkerThreads(), persistenceConfig.getWorkerQueueCapacity());
+    }
+
+    /**
+     * 停止接收新任务，等待已提交的任务执行完
+     */
+    @PreDestroy
+    public void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        try {
+            scheduler.disposeGracefully()
+                    .timeout(Duration.ofMillis(persistenceConfig.getShutdownTimeoutMs()))
+                    .block();
+        } catch (Exception e) {
+            log.warn("等待持久化任务执行完成超时，剩余任务数: {}", pending.get());
+            scheduler.dispose();
+        }
+        log.info("流式对话持久化阶段已停止");
+    }
+
+    /**
+     * 在持久化线程池中执行一个操作，订阅时提交，不阻塞订阅线程
+     *
+     * <p>结果在公共弹性线程上发出，下游后续的处理不占用持久化线程；
+     * 排队已满时以 {@link RejectedExecutionException} 结束</p>
+     *
+     * @param operation 操作名称，用于指标和日志
+     * @param task      写库操作
+     * @return 操作结果
+     */
+    public <T> Mono<T> submit(String operation, Callable<T> task) {
+        return Mono.defer(() -> {
+                    pending.incrementAndGet();
+                    long submitted = System.nanoTime();
+                    return Mono.fromCallable(() -> {
+                                long started = System.nanoTime();
+                                timer("rag.chat.persistence.queue.wait", operation)
+                                        .record(started - submitted, TimeUnit.NANOSECONDS);
+                                try {
+                                    return task.call();
+                                } finally {
+                                    // 从请求路径上移走的耗时
+                                    timer("rag.chat.persistence.latency", operation)
+                                            .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                                }
+                            })
+                            .subscribeOn(scheduler)
+                            .doFinally(signal -> pending.decrementAndGet());
+                })
+                .doOnError(error -> counter(error instanceof RejectedExecutionException
+                        ? "rag.chat.persistence.rejected" : "rag.chat.persistence.failed", operation).increment())
+                .publishOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * 提交一个不关心结果的操作，立即返回，失败只记录日志和指标
+     *
+     * @param operation 操作名称，用于指标和日志
+     * @param task      写库操作
+     */
+    public void execute(String operation, Runnable task) {
+        submit(operation, () -> {
+            task.run();
+            return Boolean.TRUE;
+        }).subscribe(
+                ignored -> {
+                },
+                error -> log.error("持久化操作失败: {}", operation, error));
+    }
+
+    private Timer timer(String name, String operation) {
+        return Timer.builder(name).tag("operation", operation).register(meterRegistry);
+    }
+
+    private Counter counter(String name, String operation) {
+        return Counter.builder(name).tag("operation", operation).register(meterRegistry);
+    }
+}
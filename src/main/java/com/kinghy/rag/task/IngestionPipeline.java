@@ -0,0 +1,610 @@
+package com.kinghy.rag.task;
+
+import cn.hutool.crypto.SecureUtil;
+import com.alibaba.fastjson2.JSON;
+import com.kinghy.rag.common.IngestionStatus;
+import com.kinghy.rag.config.IngestionConfig;
+import com.kinghy.rag.entity.KnowledgeBaseFile;
+import com.kinghy.rag.mapper.KnowledgeBaseFileMapper;
+import com.kinghy.rag.pojo.dto.IngestionTask;
+import com.kinghy.rag.service.IngestionJobService;
+import com.kinghy.rag.service.KnowledgeBaseService;
+import com.kinghy.rag.service.SemanticAnswerCacheService;
+import com.kinghy.rag.service.VectorStoreManager;
+import com.kinghy.rag.utils.ObjectStorage;
+import com.kinghy.rag.utils.SegmentedTikaReader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.DefaultContentFormatter;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 知识库文件异步入库流水线
+ * 
+ * @author yunzhongxiaoma
+ * @description 上传请求只负责落盘临时文件和创建任务记录，
+ *              之后由 存储 → 解析切分 → 向量化 → 建立索引 四个阶段依次处理；
+ *              文件只在临时文件中保留一份，上传和解析都从临时文件流式读取，解析出的正文按段切分；
+ *              阶段之间使用有界队列，下游处理不过来时上游阻塞，入口队列满时拒绝新的上传。
+ *              应用关闭时未完成的任务标记为失败；进程异常退出遗留的任务和临时文件在启动时及定期清理
+ */
+@Slf4j
+@Component
+public class IngestionPipeline {
+    
+    /**
+     * 片段内容哈希的元数据键
+     */
+    public static final String CHUNK_HASH_METADATA = "chunk_hash";
+    
+    /**
+     * 上传临时文件名前缀，与创建临时文件处保持一致
+     */
+    private static final String TEMP_FILE_PREFIX = "kb_upload_";
+    
+    private static final String SHUTDOWN_MESSAGE = "应用关闭，入库任务未完成";
+    
+    /**
+     * 生成向量时只使用片段正文，不拼接文件相关的元数据，
+     * 这样不同文件中的相同片段得到相同的向量输入，可以按内容哈希复用
+     */
+    private static final DefaultContentFormatter CHUNK_CONTENT_FORMATTER = DefaultContentFormatter.builder()
+            .withExcludedEmbedMetadataKeys("knowledge_base_id", "file_name", "file_type", CHUNK_HASH_METADATA)
+            .build();
+    
+    @Autowired
+    private IngestionConfig ingestionConfig;
+    
+    @Autowired
+    private IngestionJobService ingestionJobService;
+    
+    @Autowired
+    private ObjectStorage objectStorage;
+    
+    @Autowired
+    private VectorStoreManager vectorStoreManager;
+    
+    @Autowired
+    private KnowledgeBaseFileMapper knowledgeBaseFileMapper;
+    
+    @Autowired
+    private KnowledgeBaseService knowledgeBaseService;
+    
+    @Autowired
+    private SemanticAnswerCacheService semanticAnswerCacheService;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private final TokenTextSplitter tokenTextSplitter = new TokenTextSplitter();
+    
+    private SegmentedTikaReader segmentedTikaReader;
+    
+    private Counter objectDedupHits;
+    
+    private Counter reindexKeptChunks;
+    
+    private Counter reindexAddedChunks;
+    
+    private Counter reindexRemovedChunks;
+    
+    private final List<Stage> stages = new ArrayList<>();
+    
+    private Stage entryStage;
+    
+    private volatile boolean stopping;
+    
+    @PostConstruct
+    public void start() {
+        segmentedTikaReader = new SegmentedTikaReader(ingestionConfig.getSegmentChars());
+        objectDedupHits = Counter.builder("rag.ingestion.dedup.hits").tag("level", "object").register(meterRegistry);
+        reindexKeptChunks = Counter.builder("rag.ingestion.reindex.chunks").tag("result", "kept").register(meterRegistry);
+        reindexAddedChunks = Counter.builder("rag.ingestion.reindex.chunks").tag("result", "added").register(meterRegistry);
+        reindexRemovedChunks = Counter.builder("rag.ingestion.reindex.chunks").tag("result", "removed").register(meterRegistry);
+        Stage index = new Stage("index", 1, this::index, null);
+        Stage embed = new Stage("embed", ingestionConfig.getEmbedWorkers(), this::embed, index);
+        Stage parse = new Stage("parse", ingestionConfig.getParseWorkers(), this::parse, embed);
+        entryStage = new Stage("store", ingestionConfig.getStoreWorkers(), this::store, parse);
+        stages.addAll(List.of(entryStage, parse, embed, index));
+        reconcileOrphanedJobs();
+        stages.forEach(Stage::start);
+        log.info("文件入库流水线启动完成，队列容量: {}", ingestionConfig.getQueueCapacity());
+    }
+    
+    /**
+     * 中断各阶段工作线程并等待退出，再把各队列中剩余的任务标记为失败并清理其资源
+     */
+    @PreDestroy
+    public void stop() {
+        stopping = true;
+        stages.forEach(Stage::interrupt);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ingestionConfig.getShutdownTimeoutMs());
+        for (Stage stage : stages) {
+            stage.join(deadline);
+        }
+        int abandoned = 0;
+        for (Stage stage : stages) {
+            abandoned += stage.abandonQueued();
+        }
+        log.info("文件入库流水线已停止，未完成任务数: {}", abandoned);
+    }
+    
+    /**
+     * 清理进程退出遗留的任务：长时间没有进展的未结束任务标记为失败，删除同样过期的上传临时文件
+     */
+    @Scheduled(fixedDelayString = "${rag.ingestion.orphan-check-interval-ms:600000}",
+            initialDelayString = "${rag.ingestion.orphan-check-interval-ms:600000}")
+    public void reconcileOrphanedJobs() {
+        long timeoutMinutes = ingestionConfig.getOrphanJobTimeoutMinutes();
+        try {
+            int failed = ingestionJobService.failStaleJobs(LocalDateTime.now().minusMinutes(timeoutMinutes),
+                    "任务长时间没有进展，可能因应用重启而中断，请重新上传");
+            if (failed > 0) {
+                log.warn("已将 {} 个中断的入库任务标记为失败", failed);
+            }
+        } catch (Exception e) {
+            log.error("清理中断的入库任务失败", e);
+        }
+        
+        Path dir = ingestionConfig.getTempDir() == null || ingestionConfig.getTempDir().isEmpty()
+                ? Paths.get(System.getProperty("java.io.tmpdir")) : Paths.get(ingestionConfig.getTempDir());
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        FileTime cutoff = FileTime.from(Instant.now().minus(timeoutMinutes, ChronoUnit.MINUTES));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, TEMP_FILE_PREFIX + "*")) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).compareTo(cutoff) < 0) {
+                    Files.deleteIfExists(file);
+                    log.info("删除遗留的上传临时文件: {}", file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("清理遗留的上传临时文件失败: {}", dir, e);
+        }
+    }
+    
+    /**
+     * 提交入库任务
+     * 
+     * @param task 任务上下文
+     * @return 入口队列已满时返回false
+     */
+    public boolean submit(IngestionTask task) {
+        return entryStage.queue.offer(task);
+    }
+    
+    /**
+     * 存储阶段：上传原始文件到对象存储，已有相同内容的文件时直接复用
+     */
+    private void store(IngestionTask task) {
+        ingestionJobService.updateStatus(task.getJobId(), IngestionStatus.PENDING, 10);
+        if (task.getContentHash() != null) {
+            KnowledgeBaseFile existing = knowledgeBaseFileMapper.selectFirstByContentHash(null, task.getContentHash());
+            if (existing != null) {
+                task.setUploadFileName(task.getFileName());
+                task.setFileName(existing.getFileName());
+                task.setFileUrl(existing.getFileUrl());
+                task.setFileReused(true);
+                objectDedupHits.increment();
+                log.info("复用已上传的相同文件，任务ID: {}, 文件URL: {}", task.getJobId(), existing.getFileUrl());
+                return;
+            }
+        }
+        task.setFileUrl(objectStorage.upload(task.getTempFile(), task.getFileName()));
+    }
+    
+    /**
+     * 解析切分阶段：使用Tika流式解析文档，正文每攒够一段就用TokenTextSplitter切分，
+     * 并添加知识库元数据和片段内容哈希
+     */
+    private void parse(IngestionTask task) throws IOException {
+        ingestionJobService.updateStatus(task.getJobId(), IngestionStatus.PARSING, 30);
+        List<Document> chunks = new ArrayList<>();
+        List<String> chunkHashes = new ArrayList<>();
+        segmentedTikaReader.read(task.getTempFile(), segment -> {
+            for (Document chunk : tokenTextSplitter.split(new Document(segment))) {
+                String chunkHash = SecureUtil.sha256(chunk.getText());
+                chunk.getMetadata().put("knowledge_base_id", task.getKnowledgeBaseId().toString());
+                chunk.getMetadata().put("file_name", task.getOriginalName());
+                chunk.getMetadata().put("file_type", task.getFileType());
+                chunk.getMetadata().put(CHUNK_HASH_METADATA, chunkHash);
+                chunk.setContentFormatter(CHUNK_CONTENT_FORMATTER);
+                chunks.add(chunk);
+                chunkHashes.add(chunkHash);
+            }
+        });
+        ingestionJobService.updateStatus(task.getJobId(), IngestionStatus.PARSING, 50);
+        task.setDocuments(chunks);
+        task.setChunkHashes(chunkHashes);
+    }
+    
+    /**
+     * 向量化阶段：生成向量并写入向量库
+     */
+    private void embed(IngestionTask task) {
+        ingestionJobService.updateStatus(task.getJobId(), IngestionStatus.EMBEDDING, 60);
+        if (task.getTargetFileId() != null) {
+            reembed(task);
+        } else {
+            List<String> vectorIds = vectorStoreManager.addDocuments(task.getKnowledgeBaseId(), task.getDocuments());
+            task.setVectorIds(vectorIds);
+            task.setAddedVectorIds(vectorIds);
+        }
+        // 文档内容已写入向量库，尽早释放
+        task.setDocuments(null);
+    }
+    
+    /**
+     * 增量向量化：按片段哈希与旧版本比对，未变化的片段沿用原向量ID，
+     * 只对新增或修改的片段生成向量，旧版本中多出的片段在文件记录更新后删除。
+     * 记下比对所依据的版本号，建立索引时只有版本号未变化才更新
+     */
+    private void reembed(IngestionTask task) {
+        KnowledgeBaseFile current = knowledgeBaseFileMapper.selectById(task.getTargetFileId());
+        if (current == null) {
+            throw new IllegalStateException("待更新的文件已被删除");
+        }
+        task.setBaseVersion(current.getVersion());
+        task.setPreviousFileUrl(current.getFileUrl());
+        
+        // 同一片段内容可能出现多次，按哈希保存可复用的向量ID队列
+        Map<String, Deque<String>> reusable = new HashMap<>();
+        List<String> oldVectorIds = parseList(current.getVectorIds());
+        List<String> oldChunkHashes = parseList(current.getChunkHashes());
+        if (oldChunkHashes.size() == oldVectorIds.size()) {
+            for (int i = 0; i < oldVectorIds.size(); i++) {
+                reusable.computeIfAbsent(oldChunkHashes.get(i), key -> new ArrayDeque<>()).add(oldVectorIds.get(i));
+            }
+        }
+        
+        List<Document> documents = task.getDocuments();
+        List<String> vectorIds = new ArrayList<>(documents.size());
+        List<Document> changed = new ArrayList<>();
+        List<Integer> changedPositions = new ArrayList<>();
+        for (int i = 0; i < documents.size(); i++) {
+            Deque<String> candidates = reusable.get(task.getChunkHashes().get(i));
+            String vectorId = candidates == null ? null : candidates.poll();
+            vectorIds.add(vectorId);
+            if (vectorId == null) {
+                changed.add(documents.get(i));
+                changedPositions.add(i);
+            }
+        }
+        
+        List<String> addedVectorIds = changed.isEmpty() ? new ArrayList<>()
+                : vectorStoreManager.addDocuments(task.getKnowledgeBaseId(), changed);
+        for (int i = 0; i < changedPositions.size(); i++) {
+            vectorIds.set(changedPositions.get(i), addedVectorIds.get(i));
+        }
+        
+        Set<String> kept = new HashSet<>(vectorIds);
+        List<String> staleVectorIds = new ArrayList<>();
+        for (String oldVectorId : oldVectorIds) {
+            if (!kept.contains(oldVectorId)) {
+                staleVectorIds.add(oldVectorId);
+            }
+        }
+        
+        task.setVectorIds(vectorIds);
+        task.setAddedVectorIds(addedVectorIds);
+        task.setStaleVectorIds(staleVectorIds);
+        reindexKeptChunks.increment(vectorIds.size() - addedVectorIds.size());
+        reindexAddedChunks.increment(addedVectorIds.size());
+        reindexRemovedChunks.increment(staleVectorIds.size());
+        log.info("文件增量向量化完成，文件ID: {}, 保留: {}, 新增: {}, 删除: {}", task.getTargetFileId(),
+                vectorIds.size() - addedVectorIds.size(), addedVectorIds.size(), staleVectorIds.size());
+    }
+    
+    /**
+     * 建立索引阶段：保存文件记录并更新知识库文件数量
+     */
+    private void index(IngestionTask task) {
+        if (task.getTargetFileId() != null) {
+            reindex(task);
+            return;
+        }
+        KnowledgeBaseFile knowledgeBaseFile = KnowledgeBaseFile.builder()
+                .knowledgeBaseId(task.getKnowledgeBaseId())
+                .fileName(task.getFileName())
+                .originalName(task.getOriginalName())
+                .fileUrl(task.getFileUrl())
+                .fileSize(task.getFileSize())
+                .fileType(task.getFileType())
+                .vectorIds(JSON.toJSONString(task.getVectorIds()))
+                .contentHash(task.getContentHash())
+                .chunkHashes(JSON.toJSONString(task.getChunkHashes()))
+                .uploadUserId(task.getUserId().intValue())
+                .createTime(LocalDateTime.now())
+                .updateTime(LocalDateTime.now())
+                .build();
+        
+        if (!Boolean.TRUE.equals(transactionTemplate.execute(status -> 
+                reusedObjectReferenced(task) && insertFile(task, knowledgeBaseFile)))) {
+            uploadInsteadOfReuse(task);
+            knowledgeBaseFile.setFileUrl(task.getFileUrl());
+            transactionTemplate.executeWithoutResult(status -> insertFile(task, knowledgeBaseFile));
+        }
+        complete(task, knowledgeBaseFile.getId());
+        
+        log.info("文件入库完成，任务ID: {}, 文件ID: {}, 向量数量: {}", 
+                task.getJobId(), knowledgeBaseFile.getId(), task.getVectorIds().size());
+    }
+    
+    /**
+     * 增量更新的建立索引阶段：按比对时的版本号条件更新文件记录，再删除旧版本独有的片段向量和不再被引用的旧文件。
+     * 版本号已变化说明期间文件被删除或被其他更新修改，本次比对结果作废，按失败处理并清理本次新增的向量
+     */
+    private void reindex(IngestionTask task) {
+        KnowledgeBaseFile update = KnowledgeBaseFile.builder()
+                .id(task.getTargetFileId())
+                .fileName(task.getFileName())
+                .originalName(task.getOriginalName())
+                .fileUrl(task.getFileUrl())
+                .fileSize(task.getFileSize())
+                .fileType(task.getFileType())
+                .vectorIds(JSON.toJSONString(task.getVectorIds()))
+                .contentHash(task.getContentHash())
+                .chunkHashes(JSON.toJSONString(task.getChunkHashes()))
+                .updateTime(LocalDateTime.now())
+                .build();
+        if (!Boolean.TRUE.equals(transactionTemplate.execute(status -> 
+                reusedObjectReferenced(task) && updateFileIndex(task, update)))) {
+            uploadInsteadOfReuse(task);
+            update.setFileUrl(task.getFileUrl());
+            transactionTemplate.executeWithoutResult(status -> updateFileIndex(task, update));
+        }
+        complete(task, task.getTargetFileId());
+        
+        // 文件记录已指向新版本，旧资源清理失败不影响本次更新结果
+        if (!task.getStaleVectorIds().isEmpty()) {
+            try {
+                vectorStoreManager.deleteVectors(task.getKnowledgeBaseId(), task.getStaleVectorIds());
+            } catch (Exception e) {
+                log.error("删除旧版本片段向量失败，文件ID: {}", task.getTargetFileId(), e);
+            }
+        }
+        String previousFileUrl = task.getPreviousFileUrl();
+        if (!previousFileUrl.equals(task.getFileUrl())) {
+            try {
+                // 在锁内判断是否已无引用，提交释放锁后再删除对象存储文件
+                Boolean unreferenced = transactionTemplate.execute(status -> 
+                        knowledgeBaseFileMapper.selectIdByFileUrlForUpdate(previousFileUrl) == null);
+                if (Boolean.TRUE.equals(unreferenced)) {
+                    objectStorage.delete(previousFileUrl);
+                }
+            } catch (Exception e) {
+                log.error("删除旧版本文件失败: {}", previousFileUrl, e);
+            }
+        }
+        
+        log.info("文件增量更新完成，任务ID: {}, 文件ID: {}, 向量数量: {}", 
+                task.getJobId(), task.getTargetFileId(), task.getVectorIds().size());
+    }
+    
+    private boolean insertFile(IngestionTask task, KnowledgeBaseFile knowledgeBaseFile) {
+        knowledgeBaseFileMapper.insert(knowledgeBaseFile);
+        knowledgeBaseService.updateFileCount(task.getKnowledgeBaseId(), 1);
+        return true;
+    }
+    
+    private boolean updateFileIndex(IngestionTask task, KnowledgeBaseFile update) {
+        if (knowledgeBaseFileMapper.updateIndexByVersion(update, task.getBaseVersion()) == 0) {
+            throw new IllegalStateException("文件在更新期间已被删除或修改，请重新上传");
+        }
+        return true;
+    }
+    
+    /**
+     * 复用的对象存储文件可能在存储阶段之后随最后一条引用记录一起被删除。
+     * 在写文件记录的事务中锁定一条仍引用它的记录，删除方在同一记录上串行，
+     * 锁定成功说明文件在本事务提交前不会被删除
+     * 
+     * @return 未复用文件或复用的文件仍被引用时返回true
+     */
+    private boolean reusedObjectReferenced(IngestionTask task) {
+        return !task.isFileReused() || knowledgeBaseFileMapper.selectIdByFileUrlForUpdate(task.getFileUrl()) != null;
+    }
+    
+    /**
+     * 复用的文件已无引用（已被删除或即将在删除方提交后被删除），改用本次生成的对象名上传临时文件，
+     * 不与即将被删除的对象同名
+     */
+    private void uploadInsteadOfReuse(IngestionTask task) {
+        log.warn("复用的文件已被删除，重新上传，任务ID: {}, 文件URL: {}", task.getJobId(), task.getFileUrl());
+        task.setFileName(task.getUploadFileName());
+        task.setFileUrl(objectStorage.upload(task.getTempFile(), task.getFileName()));
+        task.setFileReused(false);
+    }
+    
+    /**
+     * 文件记录提交后的收尾：使语义缓存失效、删除临时文件、标记任务完成。
+     * 此时向量和对象存储文件已被文件记录引用，收尾失败只记录日志，不能再走 {@link #fail} 回滚
+     */
+    private void complete(IngestionTask task, Long fileId) {
+        // 知识库内容变化，相关语义缓存失效
+        try {
+            semanticAnswerCacheService.invalidate(task.getKnowledgeBaseId());
+        } catch (Exception e) {
+            log.error("使语义缓存失效失败，知识库ID: {}", task.getKnowledgeBaseId(), e);
+        }
+        deleteTempFile(task);
+        try {
+            ingestionJobService.markDone(task.getJobId(), fileId, task.getVectorIds().size());
+        } catch (Exception e) {
+            log.error("文件已入库，但更新入库任务状态失败，任务ID: {}, 文件ID: {}", task.getJobId(), fileId, e);
+        }
+    }
+    
+    /**
+     * 任务失败：清理本次写入的向量和对象存储文件，并记录失败原因
+     */
+    private void fail(IngestionTask task, Exception e) {
+        log.error("文件入库失败，任务ID: {}, 文件名: {}", task.getJobId(), task.getOriginalName(), e);
+        
+        if (task.getAddedVectorIds() != null && !task.getAddedVectorIds().isEmpty()) {
+            try {
+                vectorStoreManager.deleteVectors(task.getKnowledgeBaseId(), task.getAddedVectorIds());
+            } catch (Exception deleteException) {
+                log.error("回滚删除向量失败，任务ID: {}", task.getJobId(), deleteException);
+            }
+        }
+        if (task.getFileUrl() != null && !task.isFileReused()) {
+            try {
+                objectStorage.delete(task.getFileUrl());
+            } catch (Exception deleteException) {
+                log.error("回滚删除文件失败: {}", task.getFileUrl(), deleteException);
+            }
+        }
+        deleteTempFile(task);
+        
+        try {
+            ingestionJobService.markFailed(task.getJobId(), e.getMessage());
+        } catch (Exception updateException) {
+            log.error("更新入库任务状态失败，任务ID: {}", task.getJobId(), updateException);
+        }
+    }
+    
+    private static List<String> parseList(String json) {
+        if (json == null || json.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return JSON.parseArray(json, String.class);
+    }
+    
+    private void deleteTempFile(IngestionTask task) {
+        try {
+            Files.deleteIfExists(task.getTempFile());
+        } catch (IOException | RuntimeException e) {
+            log.warn("删除临时文件失败: {}", task.getTempFile(), e);
+        }
+    }
+    
+    /**
+     * 阶段处理逻辑
+     */
+    @FunctionalInterface
+    private interface StageHandler {
+        void handle(IngestionTask task) throws Exception;
+    }
+    
+    /**
+     * 流水线阶段：固定数量的工作线程从本阶段队列取任务，处理后放入下一阶段队列
+     */
+    private final class Stage {
+        
+        private final String name;
+        private final int workers;
+        private final StageHandler handler;
+        private final Stage next;
+        private final BlockingQueue<IngestionTask> queue;
+        private final List<Thread> threads = new ArrayList<>();
+        
+        private Stage(String name, int workers, StageHandler handler, Stage next) {
+            this.name = name;
+            this.workers = workers;
+            this.handler = handler;
+            this.next = next;
+            this.queue = new ArrayBlockingQueue<>(ingestionConfig.getQueueCapacity());
+        }
+        
+        private void start() {
+            for (int i = 0; i < workers; i++) {
+                Thread thread = new Thread(this::run, "ingestion-" + name + "-" + (i + 1));
+                thread.setDaemon(true);
+                thread.start();
+                threads.add(thread);
+            }
+        }
+        
+        private void interrupt() {
+            threads.forEach(Thread::interrupt);
+        }
+        
+        private void join(long deadline) {
+            for (Thread thread : threads) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedJoin(thread, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        
+        /**
+         * 取出队列中还未处理的任务，逐个标记失败并清理
+         */
+        private int abandonQueued() {
+            List<IngestionTask> remaining = new ArrayList<>();
+            queue.drainTo(remaining);
+            remaining.forEach(task -> fail(task, new IllegalStateException(SHUTDOWN_MESSAGE)));
+            return remaining.size();
+        }
+        
+        private void run() {
+            while (!stopping && !Thread.currentThread().isInterrupted()) {
+                IngestionTask task;
+                try {
+                    task = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                
+                try {
+                    handler.handle(task);
+                    if (next != null) {
+                        if (stopping) {
+                            // 下游阶段已经或即将清空队列，不再交给下游
+                            fail(task, new IllegalStateException(SHUTDOWN_MESSAGE));
+                            return;
+                        }
+                        // 下游队列满时阻塞，形成背压
+                        next.queue.put(task);
+                    }
+                } catch (InterruptedException e) {
+                    fail(task, new IllegalStateException(SHUTDOWN_MESSAGE, e));
+                    return;
+                } catch (Exception e) {
+                    fail(task, e);
+                }
+            }
+        }
+    }
+}
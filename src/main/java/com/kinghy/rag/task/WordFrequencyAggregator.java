@@ -0,0 +1,143 @@
+package com.kinghy.rag.task;
+
+import com.kinghy.rag.config.WordFrequencyConfig;
+import com.kinghy.rag.entity.LogInfo;
+import com.kinghy.rag.mapper.LogInfoMapper;
+import com.kinghy.rag.mapper.WordFrequencyCheckpointMapper;
+import com.kinghy.rag.service.WordFrequencyService;
+import com.kinghy.rag.utils.ParallelWordCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 日志词频增量统计
+ *
+ * @author yunzhongxiaoma
+ * @description 记录已处理到的 log_info 最大主键，每次只按主键顺序分页读取之后的新日志，
+ *              在分词线程池中并行逐条分词计数，再把整页的计数合并后批量累加到词频表。
+ *              每页的词频和处理进度在同一个事务中提交，进度行加锁，多个节点同时运行时不会重复统计。
+ *              主键是雪花ID，生成顺序不等于提交顺序，只处理生成时间早于 commitLagSeconds 之前的日志，
+ *              避免较小的ID晚于进度提交而被永久跳过
+ */
+@Slf4j
+@Component
+public class WordFrequencyAggregator {
+
+    /**
+     * 日志词频的业务类型，同时作为进度记录的任务名
+     */
+    public static final String BUSINESS_TYPE = "log";
+
+    /**
+     * MyBatis-Plus 雪花ID的起始时间戳，与 {@link com.baomidou.mybatisplus.core.toolkit.Sequence} 一致
+     */
+    private static final long SNOWFLAKE_EPOCH = 1288834974657L;
+
+    /**
+     * 雪花ID中时间戳左移的位数（5位数据中心 + 5位机器 + 12位序列）
+     */
+    private static final int SNOWFLAKE_TIMESTAMP_SHIFT = 22;
+
+    @Autowired
+    private WordFrequencyConfig wordFrequencyConfig;
+
+    @Autowired
+    private LogInfoMapper logInfoMapper;
+
+    @Autowired
+    private WordFrequencyCheckpointMapper checkpointMapper;
+
+    @Autowired
+    private WordFrequencyService wordFrequencyService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private ParallelWordCounter wordCounter;
+
+    @PostConstruct
+    public void start() {
+        int parallelism = wordFrequencyConfig.getParallelism() > 0
+                ? wordFrequencyConfig.getParallelism() : Runtime.getRuntime().availableProcessors();
+        wordCounter = new ParallelWordCounter(parallelism, wordFrequencyConfig.getSegmentLeafSize(),
+                wordFrequencyConfig.getMinWordLength(), wordFrequencyConfig.getMaxWordLength());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (wordCounter != null) {
+            wordCounter.close();
+        }
+    }
+
+    /**
+     * 处理上次进度之后的新日志，最多处理 maxPagesPerRun 页
+     *
+     * @return 本次处理的日志条数
+     */
+    public int processNewLogs() {
+        checkpointMapper.initCheckpoint(BUSINESS_TYPE);
+        int total = 0;
+        for (int page = 0; page < wordFrequencyConfig.getMaxPagesPerRun(); page++) {
+            Integer processed = transactionTemplate.execute(status -> processPage());
+            if (processed == null || processed == 0) {
+                break;
+            }
+            total += processed;
+        }
+        meterRegistry.counter("rag.word.frequency.logs").increment(total);
+        return total;
+    }
+
+    /**
+     * 在当前事务中锁定进度，处理一页日志并推进进度
+     */
+    private int processPage() {
+        Long lastLogId = checkpointMapper.selectLastLogIdForUpdate(BUSINESS_TYPE);
+        long settledBefore = System.currentTimeMillis() - wordFrequencyConfig.getCommitLagSeconds() * 1000;
+        List<LogInfo> logs = logInfoMapper.selectPageAfterId(lastLogId == null ? 0L : lastLogId,
+                snowflakeIdAt(settledBefore), wordFrequencyConfig.getPageSize());
+        if (logs.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, Integer> counts = countWords(logs);
+        wordFrequencyService.mergeCounts(BUSINESS_TYPE, counts);
+        Long maxId = logs.get(logs.size() - 1).getId();
+        checkpointMapper.updateLastLogId(BUSINESS_TYPE, maxId);
+        log.debug("词频统计处理一页日志，日志数: {}, 词数: {}, 进度: {}", logs.size(), counts.size(), maxId);
+        return logs.size();
+    }
+
+    /**
+     * 指定时间生成的最小雪花ID，之前生成的ID都小于它
+     *
+     * @param epochMillis 时间戳（毫秒）
+     * @return 雪花ID下界
+     */
+    static long snowflakeIdAt(long epochMillis) {
+        return Math.max(0, epochMillis - SNOWFLAKE_EPOCH) << SNOWFLAKE_TIMESTAMP_SHIFT;
+    }
+
+    /**
+     * 逐条日志并行分词计数，单字和过长的词不统计
+     *
+     * @param logs 日志列表
+     * @return 词 -> 出现次数
+     */
+    public Map<String, Integer> countWords(List<LogInfo> logs) {
+        List<String> texts = logs.stream().map(LogInfo::getRequestParams).toList();
+        return wordCounter.count(texts).toMap();
+    }
+}
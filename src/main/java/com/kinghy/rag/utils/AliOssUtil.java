@@ -1,123 +1,215 @@
 package com.kinghy.rag.utils;
 
+import com.aliyun.oss.ClientBuilderConfiguration;
 import com.aliyun.oss.ClientException;
 import com.aliyun.oss.OSS;
 import com.aliyun.oss.OSSClientBuilder;
 import com.aliyun.oss.OSSException;
+import com.aliyun.oss.model.DeleteObjectsRequest;
 import com.aliyun.oss.model.GetObjectRequest;
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.SneakyThrows;
+import com.aliyun.oss.model.OSSObject;
+import com.aliyun.oss.model.ObjectMetadata;
+import com.aliyun.oss.model.UploadFileRequest;
+import com.kinghy.rag.config.ObjectStorageConfig;
+import com.kinghy.rag.pojo.dto.StoredObjectInfo;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.concurrent.TimeUnit;
-
-@Data
-@AllArgsConstructor
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 阿里云OSS对象存储
+ *
+ * @description 整个应用共用一个OSS客户端，复用连接池中的TLS连接，应用关闭时释放；
+ *              大文件分片并行上传，多个对象使用批量删除接口
+ */
+@Getter
 @Slf4j
-public class AliOssUtil {
-
-    private String endpoint;
-    private String accessKeyId;
-    private String accessKeySecret;
-    private String bucketName;
+public class AliOssUtil implements ObjectStorage {
 
     /**
-     * 文件上传
-     *
-     * @param bytes
-     * @param objectName
-     * @return
+     * 单次批量删除的最大对象数（OSS接口限制）
      */
-    public String upload(byte[] bytes, String objectName) {
+    private static final int MAX_DELETE_BATCH = 1000;
 
-        // 创建OSSClient实例。
-        OSS ossClient = new OSSClientBuilder().build(endpoint, accessKeyId, accessKeySecret);
+    /**
+     * 区间读取时的缓冲区大小
+     */
+    private static final int TRANSFER_BUFFER_SIZE = 64 * 1024;
+
+    private final String endpoint;
+    private final String accessKeyId;
+    private final String accessKeySecret;
+    private final String bucketName;
+
+    private final ObjectStorageConfig objectStorageConfig;
+
+    private final OSS ossClient;
+
+    public AliOssUtil(String endpoint, String accessKeyId, String accessKeySecret, String bucketName,
+                      ObjectStorageConfig objectStorageConfig) {
+        this.endpoint = endpoint;
+        this.accessKeyId = accessKeyId;
+        this.accessKeySecret = accessKeySecret;
+        this.bucketName = bucketName;
+        this.objectStorageConfig = objectStorageConfig;
+
+        ClientBuilderConfiguration configuration = new ClientBuilderConfiguration();
+        configuration.setMaxConnections(objectStorageConfig.getMaxConnections());
+        configuration.setConnectionTimeout(objectStorageConfig.getConnectionTimeoutMs());
+        configuration.setSocketTimeout(objectStorageConfig.getSocketTimeoutMs());
+        configuration.setIdleConnectionTime(objectStorageConfig.getIdleConnectionTimeMs());
+        this.ossClient = new OSSClientBuilder().build(endpoint, accessKeyId, accessKeySecret, configuration);
+    }
 
+    /**
+     * 流式文件上传，不需要把文件整体读入内存
+     *
+     * @param inputStream 文件内容
+     * @param contentLength 文件大小（字节）
+     * @param objectName 对象名
+     * @return 文件访问路径
+     */
+    @Override
+    public String upload(InputStream inputStream, long contentLength, String objectName) {
         try {
-            // 创建PutObject请求。
-            ossClient.putObject(bucketName, objectName, new ByteArrayInputStream(bytes));
+            // 声明长度后SDK直接按流发送，不再整体缓冲
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(contentLength);
+            ossClient.putObject(bucketName, objectName, inputStream, metadata);
         } catch (OSSException oe) {
-            System.out.println("Caught an OSSException, which means your request made it to OSS, "
-                    + "but was rejected with an error response for some reason.");
-            System.out.println("Error Message:" + oe.getErrorMessage());
-            System.out.println("Error Code:" + oe.getErrorCode());
-            System.out.println("Request ID:" + oe.getRequestId());
-            System.out.println("Host ID:" + oe.getHostId());
+            log.error("OSS拒绝上传请求, 对象: {}, 错误码: {}, 错误信息: {}, 请求ID: {}",
+                    objectName, oe.getErrorCode(), oe.getErrorMessage(), oe.getRequestId());
+            throw oe;
         } catch (ClientException ce) {
-            System.out.println("Caught an ClientException, which means the client encountered "
-                    + "a serious internal problem while trying to communicate with OSS, "
-                    + "such as not being able to access the network.");
-            System.out.println("Error Message:" + ce.getMessage());
-        } finally {
-            if (ossClient != null) {
-                ossClient.shutdown();
-            }
+            log.error("OSS客户端上传失败, 对象: {}, 错误信息: {}", objectName, ce.getMessage());
+            throw ce;
         }
+        return buildUrl(objectName);
+    }
 
-        //文件访问路径规则 https://BucketName.Endpoint/ObjectName
-        StringBuilder stringBuilder = new StringBuilder("https://");
-        stringBuilder
-                .append(bucketName)
-                .append(".")
-                .append(endpoint)
-                .append("/")
-                .append(objectName);
-
-        log.info("文件上传到:{}", stringBuilder.toString());
+    /**
+     * 上传本地文件，超过阈值时分片并行上传
+     *
+     * @param file 本地文件
+     * @param objectName 对象名
+     * @return 文件访问路径
+     */
+    @Override
+    public String upload(Path file, String objectName) {
+        long size;
+        try {
+            size = Files.size(file);
+        } catch (IOException e) {
+            throw new IllegalStateException("读取文件大小失败: " + file, e);
+        }
+        if (size < objectStorageConfig.getMultipartThreshold()) {
+            try (InputStream in = Files.newInputStream(file)) {
+                return upload(in, size, objectName);
+            } catch (IOException e) {
+                throw new IllegalStateException("读取文件失败: " + file, e);
+            }
+        }
 
-        return stringBuilder.toString();
+        UploadFileRequest request = new UploadFileRequest(bucketName, objectName);
+        request.setUploadFile(file.toString());
+        request.setPartSize(objectStorageConfig.getPartSize());
+        request.setTaskNum(objectStorageConfig.getUploadParallelism());
+        request.setEnableCheckpoint(false);
+        try {
+            ossClient.uploadFile(request);
+        } catch (Throwable e) {
+            log.error("OSS分片上传失败, 对象: {}, 大小: {}", objectName, size, e);
+            throw new IllegalStateException("分片上传失败: " + e.getMessage(), e);
+        }
+        log.info("文件分片上传完成, 对象: {}, 大小: {}", objectName, size);
+        return buildUrl(objectName);
     }
 
+    @Override
+    public StoredObjectInfo stat(String fileUrl) {
+        ObjectMetadata metadata = ossClient.getObjectMetadata(bucketName, toObjectKey(fileUrl));
+        long lastModified = metadata.getLastModified() == null ? 0 : metadata.getLastModified().getTime();
+        return new StoredObjectInfo(metadata.getContentLength(), lastModified, metadata.getETag());
+    }
 
+    /**
+     * 按区间读取OSS对象写入目标通道，只拉取需要的字节
+     */
+    @Override
+    public long transferTo(String fileUrl, long position, long count, WritableByteChannel target) throws IOException {
+        if (count <= 0) {
+            return 0;
+        }
+        GetObjectRequest request = new GetObjectRequest(bucketName, toObjectKey(fileUrl));
+        request.setRange(position, position + count - 1);
+        OSSObject object = ossClient.getObject(request);
+        try (ReadableByteChannel source = Channels.newChannel(object.getObjectContent())) {
+            ByteBuffer buffer = ByteBuffer.allocate(TRANSFER_BUFFER_SIZE);
+            long transferred = 0;
+            while (transferred < count && source.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    transferred += target.write(buffer);
+                }
+                buffer.clear();
+            }
+            return transferred;
+        }
+    }
 
     /**
      * 删除文件
+     *
+     * @param objectName 文件访问路径
+     * @return 是否删除成功
      */
+    @Override
+    public boolean delete(String objectName) {
+        ossClient.deleteObject(bucketName, toObjectKey(objectName));
+        return true;
+    }
+
     /**
-     * @param objectName
-     * @Method deleteOss
-     * @Author lofxve
-     * @Description 删除oss文件
-     * @Date 2021/4/21 9:02
-     * @Return boolean
+     * 批量删除文件，每批最多1000个对象
+     *
+     * @param fileUrls 文件访问路径
      */
-    public boolean deleteOss(String objectName) {
-        // 创建OSSClient实例。
-        OSS ossClient = new OSSClientBuilder().build(endpoint, accessKeyId, accessKeySecret);
-        try {
-            URL url = new URL(objectName);
-            String fileName = url.getPath().replaceFirst("/", "");
-            // 删除文件
-            ossClient.deleteObject(bucketName, fileName);
-        } catch (MalformedURLException e) {
-            e.printStackTrace();
-            throw new RuntimeException(e);
-        }finally {
-            if (ossClient != null) {
-                ossClient.shutdown();
-            }
-
+    @Override
+    public void deleteAll(Collection<String> fileUrls) {
+        List<String> keys = new ArrayList<>(fileUrls.size());
+        for (String fileUrl : fileUrls) {
+            keys.add(toObjectKey(fileUrl));
         }
-        return true;
+        for (int from = 0; from < keys.size(); from += MAX_DELETE_BATCH) {
+            List<String> batch = keys.subList(from, Math.min(keys.size(), from + MAX_DELETE_BATCH));
+            ossClient.deleteObjects(new DeleteObjectsRequest(bucketName).withKeys(new ArrayList<>(batch)).withQuiet(true));
+        }
+        log.info("批量删除OSS文件完成, 数量: {}", keys.size());
     }
 
     /**
      * 下载文件
      */
-
     public void download(String objectName) {
-        OSS ossClient = new OSSClientBuilder().build(endpoint, accessKeyId, accessKeySecret);
         // 填写Object下载到本地的完整路径。
         // 修改点1：构造完整文件路径
         String dirPath = "D:\\fileOSS";
         String filePath = dirPath + File.separator + objectName.replace("/", "_");
 
-
         try {
             File dir = new File(dirPath);
             if (!dir.exists()) {
@@ -128,25 +220,34 @@ public class AliOssUtil {
             ossClient.getObject(new GetObjectRequest(bucketName, objectName), new File(filePath));
 
         } catch (OSSException oe) {
-            System.out.println("Caught an OSSException, which means your request made it to OSS, "
-                    + "but was rejected with an error response for some reason.");
-            System.out.println("Error Message:" + oe.getErrorMessage());
-            System.out.println("Error Code:" + oe.getErrorCode());
-            System.out.println("Request ID:" + oe.getRequestId());
-            System.out.println("Host ID:" + oe.getHostId());
+            log.error("OSS拒绝下载请求, 对象: {}, 错误码: {}, 错误信息: {}, 请求ID: {}",
+                    objectName, oe.getErrorCode(), oe.getErrorMessage(), oe.getRequestId());
         } catch (ClientException ce) {
-            System.out.println("Caught an ClientException, which means the client encountered "
-                    + "a serious internal problem while trying to communicate with OSS, "
-                    + "such as not being able to access the network.");
-            System.out.println("Error Message:" + ce.getMessage());
-        } finally {
-            if (ossClient != null) {
-                ossClient.shutdown();
-            }
+            log.error("OSS客户端下载失败, 对象: {}, 错误信息: {}", objectName, ce.getMessage());
         }
     }
 
+    /**
+     * 关闭OSS客户端，释放连接池
+     */
+    public void shutdown() {
+        ossClient.shutdown();
+    }
 
+    /**
+     * 文件访问路径规则 https://BucketName.Endpoint/ObjectName
+     */
+    private String buildUrl(String objectName) {
+        String url = "https://" + bucketName + "." + endpoint + "/" + objectName;
+        log.info("文件上传到:{}", url);
+        return url;
+    }
 
-
+    private static String toObjectKey(String fileUrl) {
+        try {
+            return new URL(fileUrl).getPath().replaceFirst("/", "");
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("非法的文件URL: " + fileUrl, e);
+        }
+    }
 }
@@ -0,0 +1,367 @@
+package com.kinghy.rag.utils;
+
+import com.kinghy.rag.config.EmbeddingBatchConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 合并批处理的嵌入模型
+ *
+ * @author yunzhongxiaoma
+ * @description 并发调用方的文本先进入队列，由调度线程按 token 预算凑批后并发调用被包装的模型；
+ *              批次耗时低于目标时逐步放大预算，超时或失败时减半（加性增、乘性减）
+ */
+@Slf4j
+public class BatchingEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+    private final EmbeddingModel delegate;
+
+    private final Supplier<EmbeddingBatchConfig> configSupplier;
+
+    private final TokenCountEstimator tokenCountEstimator = new JTokkitTokenCountEstimator();
+
+    private volatile EmbeddingBatchConfig config;
+
+    private BlockingQueue<Chunk> pending;
+
+    private Semaphore inFlight;
+
+    private ExecutorService batchExecutor;
+
+    private Thread dispatcher;
+
+    private volatile int tokenBudget;
+
+    private volatile boolean closed;
+
+    /**
+     * 上一批未能放入的片段，留到下一批
+     */
+    private volatile Chunk carry;
+
+    public BatchingEmbeddingModel(EmbeddingModel delegate, Supplier<EmbeddingBatchConfig> configSupplier) {
+        this.delegate = delegate;
+        this.configSupplier = configSupplier;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        EmbeddingBatchConfig batchConfig = config();
+        if (!batchConfig.isEnabled() || !isDefaultOptions(request.getOptions())) {
+            return delegate.call(request);
+        }
+
+        if (closed) {
+            throw new IllegalStateException("向量化模型已关闭");
+        }
+
+        List<String> texts = request.getInstructions();
+        List<CompletableFuture<float[]>> futures = new ArrayList<>(texts.size());
+        try {
+            for (String text : texts) {
+                Chunk chunk = new Chunk(text, Math.max(1, tokenCountEstimator.estimate(text)));
+                pending.put(chunk);
+                futures.add(chunk.future);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待向量化队列时被中断", e);
+        }
+        if (closed) {
+            // 与 close 并发入队的片段可能错过了关闭时的清理
+            failPending();
+        }
+
+        List<Embedding> embeddings = new ArrayList<>(texts.size());
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                embeddings.add(new Embedding(futures.get(i).join(), i));
+            }
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException runtimeException
+                    ? runtimeException : new IllegalStateException(e.getCause());
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    /**
+     * 单条文本（检索时的查询）直接调用，避免排在入库片段之后
+     */
+    @Override
+    public float[] embed(String text) {
+        return delegate.embed(text);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return delegate.embed(document);
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    /**
+     * 停止调度，队列中、暂存的以及尚未执行的批次中的片段全部以异常结束，阻塞在 {@link #call} 的调用方随之返回
+     */
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (this) {
+            if (dispatcher == null) {
+                return;
+            }
+        }
+        dispatcher.interrupt();
+        try {
+            dispatcher.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Runnable discarded : batchExecutor.shutdownNow()) {
+            if (discarded instanceof BatchTask task) {
+                fail(task.batch);
+            }
+        }
+        failPending();
+    }
+
+    /**
+     * 当前每批 token 预算
+     */
+    public int getTokenBudget() {
+        return tokenBudget;
+    }
+
+    public EmbeddingModel getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * 首次使用时初始化，配置在包装时可能尚未绑定
+     */
+    private EmbeddingBatchConfig config() {
+        EmbeddingBatchConfig current = config;
+        if (current == null) {
+            synchronized (this) {
+                current = config;
+                if (current == null) {
+                    current = configSupplier.get();
+                    start(current);
+                    config = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private void start(EmbeddingBatchConfig batchConfig) {
+        tokenBudget = batchConfig.getInitialTokenBudget();
+        pending = new ArrayBlockingQueue<>(batchConfig.getQueueCapacity());
+        inFlight = new Semaphore(batchConfig.getMaxConcurrentBatches());
+        AtomicInteger threadIndex = new AtomicInteger();
+        batchExecutor = Executors.newFixedThreadPool(batchConfig.getMaxConcurrentBatches(), r -> {
+            Thread thread = new Thread(r, "embedding-batch-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcher = new Thread(() -> dispatch(batchConfig), "embedding-batch-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * 调度线程：凑满 token 预算、条数上限或等待超时后提交一批
+     */
+    private void dispatch(EmbeddingBatchConfig batchConfig) {
+        List<Chunk> batch = null;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Chunk first = carry != null ? carry : pending.take();
+                carry = null;
+
+                batch = new ArrayList<>();
+                batch.add(first);
+                int tokens = first.tokens;
+                int budget = tokenBudget;
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchConfig.getMaxWaitMs());
+                while (batch.size() < batchConfig.getMaxBatchSize()) {
+                    Chunk next = pending.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    if (tokens + next.tokens > budget) {
+                        carry = next;
+                        break;
+                    }
+                    batch.add(next);
+                    tokens += next.tokens;
+                }
+
+                inFlight.acquire();
+                try {
+                    batchExecutor.execute(new BatchTask(batch, tokens, batchConfig));
+                } catch (RejectedExecutionException e) {
+                    inFlight.release();
+                    fail(batch);
+                }
+                batch = null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 被中断时正在凑的批次
+        if (batch != null) {
+            fail(batch);
+        }
+    }
+
+    private void runBatch(List<Chunk> batch, int tokens, int attempt, EmbeddingBatchConfig batchConfig) {
+        List<String> texts = new ArrayList<>(batch.size());
+        for (Chunk chunk : batch) {
+            texts.add(chunk.text);
+        }
+
+        long start = System.nanoTime();
+        List<Embedding> results;
+        try {
+            results = delegate.call(new EmbeddingRequest(texts, EmbeddingOptionsBuilder.builder().build())).getResults();
+            if (results.size() != batch.size()) {
+                throw new IllegalStateException("嵌入模型返回的向量数与片段数不一致");
+            }
+        } catch (Throwable e) {
+            // 捕获 Throwable，保证批次中的片段总会结束，调用方不会一直阻塞
+            onFailure(batchConfig);
+            if (attempt >= batchConfig.getMaxRetries() || closed || e instanceof Error) {
+                log.error("向量化批次失败，片段数: {}, token数: {}", batch.size(), tokens, e);
+                batch.forEach(chunk -> chunk.future.completeExceptionally(e));
+                return;
+            }
+
+            log.warn("向量化批次失败，第 {} 次重试，片段数: {}, 原因: {}", attempt + 1, batch.size(), e.getMessage());
+            if (batch.size() == 1) {
+                runBatch(batch, tokens, attempt + 1, batchConfig);
+                return;
+            }
+            int half = batch.size() / 2;
+            List<Chunk> left = batch.subList(0, half);
+            List<Chunk> right = batch.subList(half, batch.size());
+            runBatch(left, sumTokens(left), attempt + 1, batchConfig);
+            runBatch(right, sumTokens(right), attempt + 1, batchConfig);
+            return;
+        }
+
+        // 先调整预算再结束片段，调用方返回时预算已经生效
+        onSuccess(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), batchConfig);
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).future.complete(results.get(i).getOutput());
+        }
+    }
+
+    /**
+     * 队列中和暂存的片段以异常结束
+     */
+    private void failPending() {
+        List<Chunk> remaining = new ArrayList<>();
+        pending.drainTo(remaining);
+        Chunk held = carry;
+        if (held != null) {
+            carry = null;
+            remaining.add(held);
+        }
+        fail(remaining);
+    }
+
+    private static void fail(List<Chunk> chunks) {
+        IllegalStateException closedException = new IllegalStateException("向量化模型已关闭，片段未处理");
+        chunks.forEach(chunk -> chunk.future.completeExceptionally(closedException));
+    }
+
+    private synchronized void onSuccess(long latencyMs, EmbeddingBatchConfig batchConfig) {
+        if (latencyMs <= batchConfig.getTargetLatencyMs()) {
+            tokenBudget = Math.min(batchConfig.getMaxTokenBudget(), tokenBudget + batchConfig.getTokenBudgetStep());
+        } else {
+            tokenBudget = Math.max(batchConfig.getMinTokenBudget(), tokenBudget / 2);
+        }
+    }
+
+    private synchronized void onFailure(EmbeddingBatchConfig batchConfig) {
+        tokenBudget = Math.max(batchConfig.getMinTokenBudget(), tokenBudget / 2);
+    }
+
+    private static int sumTokens(List<Chunk> chunks) {
+        int tokens = 0;
+        for (Chunk chunk : chunks) {
+            tokens += chunk.tokens;
+        }
+        return tokens;
+    }
+
+    /**
+     * 只合并使用默认选项的请求，指定了模型或维度的请求直接透传
+     */
+    private static boolean isDefaultOptions(EmbeddingOptions options) {
+        return options == null || (options.getModel() == null && options.getDimensions() == null);
+    }
+
+    /**
+     * 提交到批处理线程池的一批片段，线程池关闭时据此结束未执行批次中的片段
+     */
+    private final class BatchTask implements Runnable {
+        private final List<Chunk> batch;
+        private final int tokens;
+        private final EmbeddingBatchConfig batchConfig;
+
+        private BatchTask(List<Chunk> batch, int tokens, EmbeddingBatchConfig batchConfig) {
+            this.batch = batch;
+            this.tokens = tokens;
+            this.batchConfig = batchConfig;
+        }
+
+        @Override
+        public void run() {
+            try {
+                runBatch(batch, tokens, 0, batchConfig);
+            } finally {
+                inFlight.release();
+            }
+        }
+    }
+
+    /**
+     * 待向量化的文本片段
+     */
+    private static final class Chunk {
+        private final String text;
+        private final int tokens;
+        private final CompletableFuture<float[]> future = new CompletableFuture<>();
+
+        private Chunk(String text, int tokens) {
+            this.text = text;
+            this.tokens = tokens;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.kinghy.rag.utils;
+
+import cn.hutool.crypto.SecureUtil;
+import com.kinghy.rag.service.EmbeddingCacheService;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 带查询向量缓存的嵌入模型
+ *
+ * @author yunzhongxiaoma
+ * @description 单条文本的 embed(String) 即检索时的查询向量，按规范化文本缓存；
+ *              文档入库走批量接口，按片段内容的SHA-256寻址复用已有向量，只把未命中的片段交给被包装的模型
+ */
+public class CachingEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+    private final EmbeddingModel delegate;
+
+    private final Supplier<EmbeddingCacheService> embeddingCacheService;
+
+    public CachingEmbeddingModel(EmbeddingModel delegate, Supplier<EmbeddingCacheService> embeddingCacheService) {
+        this.delegate = delegate;
+        this.embeddingCacheService = embeddingCacheService;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        EmbeddingCacheService cache = embeddingCacheService.get();
+        float[] cached = cache.get(text);
+        if (cached != null) {
+            return cached;
+        }
+        float[] embedding = delegate.embed(text);
+        cache.put(text, embedding);
+        return embedding;
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return delegate.embed(document);
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<String> texts = request.getInstructions();
+        EmbeddingCacheService cache = embeddingCacheService.get();
+        List<String> hashes = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            hashes.add(SecureUtil.sha256(text));
+        }
+        List<float[]> embeddings = cache.getChunkEmbeddings(hashes);
+
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i++) {
+            if (embeddings.get(i) == null) {
+                missing.add(i);
+            }
+        }
+        if (!missing.isEmpty()) {
+            List<String> missingTexts = new ArrayList<>(missing.size());
+            for (int index : missing) {
+                missingTexts.add(texts.get(index));
+            }
+            List<Embedding> results = delegate.call(new EmbeddingRequest(missingTexts, request.getOptions())).getResults();
+
+            Map<String, float[]> computed = new HashMap<>(missing.size() * 2);
+            for (int i = 0; i < missing.size(); i++) {
+                int index = missing.get(i);
+                float[] embedding = results.get(i).getOutput();
+                embeddings.set(index, embedding);
+                computed.put(hashes.get(index), embedding);
+            }
+            cache.putChunkEmbeddings(computed);
+        }
+
+        List<Embedding> response = new ArrayList<>(texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            response.add(new Embedding(embeddings.get(i), i));
+        }
+        return new EmbeddingResponse(response);
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    public EmbeddingModel getDelegate() {
+        return delegate;
+    }
+}
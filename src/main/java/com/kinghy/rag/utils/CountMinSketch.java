@@ -0,0 +1,141 @@
+package com.kinghy.rag.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Count-Min Sketch
+ *
+ * @author yunzhongxiaoma
+ * @description depth 行 width 列的计数矩阵，每个词在每行命中一个计数格，估计值取各行最小值，
+ *              只会高估不会低估；宽度和深度相同的两个 sketch 可以逐格相加合并。
+ *              内存占用固定为 width * depth 个 int，与词的数量无关。非线程安全
+ */
+public class CountMinSketch {
+
+    private final int width;
+
+    private final int depth;
+
+    private final int[] counters;
+
+    private long total;
+
+    public CountMinSketch(int width, int depth) {
+        if (width <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("sketch 的宽度和深度必须大于0");
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counters = new int[width * depth];
+    }
+
+    /**
+     * 累加词的计数
+     *
+     * @return 累加后的估计值
+     */
+    public long add(String word, int count) {
+        long[] hashes = hashes(word);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int index = row * width + column(hashes, row);
+            counters[index] += count;
+            estimate = Math.min(estimate, counters[index]);
+        }
+        total += count;
+        return estimate;
+    }
+
+    /**
+     * 词的估计计数
+     */
+    public long estimate(String word) {
+        long[] hashes = hashes(word);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[row * width + column(hashes, row)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * 逐格累加另一个相同规格的 sketch
+     */
+    public void merge(CountMinSketch other) {
+        if (other.width != width || other.depth != depth) {
+            throw new IllegalArgumentException("sketch 规格不一致，无法合并");
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] += other.counters[i];
+        }
+        total += other.total;
+    }
+
+    /**
+     * 所有词的计数总和
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * 序列化后的字节数
+     */
+    int serializedSize() {
+        return Integer.BYTES * 2 + Long.BYTES + Integer.BYTES * counters.length;
+    }
+
+    void writeTo(ByteBuffer buffer) {
+        buffer.putInt(width).putInt(depth).putLong(total);
+        for (int counter : counters) {
+            buffer.putInt(counter);
+        }
+    }
+
+    static CountMinSketch readFrom(ByteBuffer buffer) {
+        CountMinSketch sketch = new CountMinSketch(buffer.getInt(), buffer.getInt());
+        sketch.total = buffer.getLong();
+        for (int i = 0; i < sketch.counters.length; i++) {
+            sketch.counters[i] = buffer.getInt();
+        }
+        return sketch;
+    }
+
+    private int column(long[] hashes, int row) {
+        // 用两个独立哈希组合出各行的哈希
+        long combined = hashes[0] + row * hashes[1];
+        return (int) Long.remainderUnsigned(combined, width);
+    }
+
+    /**
+     * 对词的 UTF-8 字节计算两个 64 位哈希，各节点结果一致，不依赖 JVM 的 String.hashCode 实现
+     */
+    private static long[] hashes(String word) {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        long h1 = 0xcbf29ce484222325L;
+        long h2 = 0x84222325cbf29ce4L;
+        for (byte b : bytes) {
+            h1 = (h1 ^ (b & 0xff)) * 0x100000001b3L;
+            h2 = (h2 ^ (b & 0xff)) * 0x9E3779B97F4A7C15L;
+        }
+        return new long[]{mix(h1), mix(h2) | 1};
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,153 @@
+package com.kinghy.rag.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 热词统计
+ *
+ * @author yunzhongxiaoma
+ * @description Count-Min Sketch 负责估计任意词的计数，另外只保留估计值最大的 capacity 个候选词，
+ *              新词的估计值超过候选集中的最小值时替换它（Space-Saving 的做法），
+ *              因此内存只与 sketch 规格和候选数有关。两个规格相同的统计可以合并，
+ *              合并后候选词的计数按合并后的 sketch 重新估计。非线程安全
+ */
+public class HotWordSketch {
+
+    private final CountMinSketch sketch;
+
+    private final int capacity;
+
+    private final Map<String, Long> candidates;
+
+    /**
+     * 候选集中最小估计值的下界，只在可能发生替换时重新计算
+     */
+    private long minCandidate;
+
+    public HotWordSketch(int width, int depth, int capacity) {
+        this(new CountMinSketch(width, depth), capacity);
+    }
+
+    private HotWordSketch(CountMinSketch sketch, int capacity) {
+        this.sketch = sketch;
+        this.capacity = capacity;
+        this.candidates = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * 词出现一次
+     */
+    public void add(String word) {
+        offer(word, sketch.add(word, 1));
+    }
+
+    /**
+     * 把另一个统计合并进来
+     */
+    public void merge(HotWordSketch other) {
+        sketch.merge(other.sketch);
+        Set<String> words = new HashSet<>(candidates.keySet());
+        words.addAll(other.candidates.keySet());
+        candidates.clear();
+        minCandidate = 0;
+        for (String word : words) {
+            offer(word, sketch.estimate(word));
+        }
+    }
+
+    /**
+     * 估计值最大的 k 个词，按估计值从大到小排列
+     */
+    public List<Map.Entry<String, Long>> topK(int k) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(candidates.entrySet());
+        entries.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Map.Entry.comparingByKey()));
+        return entries.subList(0, Math.min(k, entries.size()));
+    }
+
+    /**
+     * 词的估计计数
+     */
+    public long estimate(String word) {
+        return sketch.estimate(word);
+    }
+
+    /**
+     * 是否还没有统计过任何词
+     */
+    public boolean isEmpty() {
+        return sketch.getTotal() == 0;
+    }
+
+    /**
+     * 序列化为字节数组：sketch、候选数、各候选词的 UTF-8 字节
+     */
+    public byte[] toBytes() {
+        List<byte[]> words = new ArrayList<>(candidates.size());
+        int size = sketch.serializedSize() + Integer.BYTES * 2;
+        for (String word : candidates.keySet()) {
+            byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+            words.add(bytes);
+            size += Integer.BYTES + bytes.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        sketch.writeTo(buffer);
+        buffer.putInt(capacity).putInt(words.size());
+        for (byte[] bytes : words) {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 从 {@link #toBytes()} 的结果恢复
+     */
+    public static HotWordSketch fromBytes(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        CountMinSketch sketch = CountMinSketch.readFrom(buffer);
+        HotWordSketch hotWords = new HotWordSketch(sketch, buffer.getInt());
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            String word = new String(bytes, StandardCharsets.UTF_8);
+            hotWords.offer(word, sketch.estimate(word));
+        }
+        return hotWords;
+    }
+
+    /**
+     * 用估计值更新候选集，候选集已满时替换掉估计值最小且小于新值的词
+     */
+    private void offer(String word, long estimate) {
+        if (candidates.containsKey(word) || candidates.size() < capacity) {
+            candidates.put(word, estimate);
+            return;
+        }
+        if (estimate <= minCandidate) {
+            return;
+        }
+        // 候选词的计数只增不减，缓存的最小值只可能偏小，需要替换时再精确计算
+        String minWord = null;
+        long minValue = Long.MAX_VALUE;
+        for (Map.Entry<String, Long> entry : candidates.entrySet()) {
+            if (entry.getValue() < minValue) {
+                minValue = entry.getValue();
+                minWord = entry.getKey();
+            }
+        }
+        minCandidate = minValue;
+        if (estimate > minValue) {
+            candidates.remove(minWord);
+            candidates.put(word, estimate);
+        }
+    }
+}
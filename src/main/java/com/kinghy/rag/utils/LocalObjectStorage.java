@@ -0,0 +1,152 @@
+package com.kinghy.rag.utils;
+
+import com.kinghy.rag.pojo.dto.StoredObjectInfo;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+
+/**
+ * 本地磁盘对象存储
+ *
+ * @author yunzhongxiaoma
+ * @description 对象保存在根目录下与对象名相同的相对路径中，访问URL为 file:// 地址；
+ *              读写都基于 FileChannel 的 transferFrom/transferTo，文件到文件、文件到socket
+ *              由内核直接搬运数据，不经过用户态缓冲；写入先落临时文件再原子改名，读者不会看到半个文件。
+ *              用于离线压测和无法访问公网的部署环境
+ */
+@Slf4j
+public class LocalObjectStorage implements ObjectStorage {
+
+    /**
+     * 单次 transferFrom 的最大长度，避免一次映射过大的区间
+     */
+    private static final long TRANSFER_CHUNK = 8L * 1024 * 1024;
+
+    private final Path root;
+
+    public LocalObjectStorage(Path root) {
+        try {
+            this.root = Files.createDirectories(root).toAbsolutePath().normalize();
+        } catch (IOException e) {
+            throw new UncheckedIOException("创建本地存储目录失败: " + root, e);
+        }
+        log.info("本地对象存储目录: {}", this.root);
+    }
+
+    @Override
+    public String upload(InputStream inputStream, long contentLength, String objectName) {
+        try (ReadableByteChannel source = Channels.newChannel(inputStream)) {
+            return write(objectName, source, contentLength);
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入本地存储失败: " + objectName, e);
+        }
+    }
+
+    @Override
+    public String upload(Path file, String objectName) {
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+            return write(objectName, source, source.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入本地存储失败: " + objectName, e);
+        }
+    }
+
+    @Override
+    public StoredObjectInfo stat(String fileUrl) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(toPath(fileUrl), BasicFileAttributes.class);
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String eTag = Long.toHexString(attributes.size()) + "-" + Long.toHexString(lastModified);
+        return new StoredObjectInfo(attributes.size(), lastModified, eTag);
+    }
+
+    @Override
+    public long transferTo(String fileUrl, long position, long count, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(toPath(fileUrl), StandardOpenOption.READ)) {
+            long end = Math.min(channel.size(), position + count);
+            long offset = position;
+            while (offset < end) {
+                long transferred = channel.transferTo(offset, end - offset, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                offset += transferred;
+            }
+            return offset - position;
+        }
+    }
+
+    @Override
+    public boolean delete(String fileUrl) {
+        try {
+            return Files.deleteIfExists(toPath(fileUrl));
+        } catch (IOException e) {
+            throw new UncheckedIOException("删除本地存储文件失败: " + fileUrl, e);
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<String> fileUrls) {
+        for (String fileUrl : fileUrls) {
+            delete(fileUrl);
+        }
+    }
+
+    /**
+     * 先写同目录下的临时文件，写完后原子改名为目标文件
+     */
+    private String write(String objectName, ReadableByteChannel source, long contentLength) throws IOException {
+        Path target = resolve(objectName);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), ".upload_", ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                long position = 0;
+                while (position < contentLength) {
+                    long transferred = out.transferFrom(source, position, Math.min(TRANSFER_CHUNK, contentLength - position));
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    position += transferred;
+                }
+                if (position != contentLength) {
+                    throw new IOException("写入长度不一致，期望 " + contentLength + " 实际 " + position);
+                }
+                out.force(false);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return target.toUri().toString();
+    }
+
+    private Path resolve(String objectName) {
+        Path target = root.resolve(objectName).normalize();
+        if (!target.startsWith(root)) {
+            throw new IllegalArgumentException("非法的对象名: " + objectName);
+        }
+        return target;
+    }
+
+    private Path toPath(String fileUrl) {
+        Path path = Paths.get(URI.create(fileUrl)).normalize();
+        if (!path.startsWith(root)) {
+            throw new IllegalArgumentException("文件不在本地存储目录中: " + fileUrl);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,84 @@
+package com.kinghy.rag.utils;
+
+import com.kinghy.rag.pojo.dto.StoredObjectInfo;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.Collection;
+
+/**
+ * 对象存储接口
+ *
+ * @author yunzhongxiaoma
+ * @description 屏蔽具体存储实现，对象以访问URL标识；
+ *              线上使用阿里云OSS，离线压测和内网环境可切换为本地磁盘
+ */
+public interface ObjectStorage {
+
+    /**
+     * 从输入流上传对象
+     *
+     * @param inputStream 对象内容
+     * @param contentLength 对象大小（字节）
+     * @param objectName 对象名
+     * @return 对象访问URL
+     */
+    String upload(InputStream inputStream, long contentLength, String objectName);
+
+    /**
+     * 上传本地文件，大文件由实现决定是否分片并行上传
+     *
+     * @param file 本地文件
+     * @param objectName 对象名
+     * @return 对象访问URL
+     */
+    String upload(Path file, String objectName);
+
+    /**
+     * 上传字节数组
+     *
+     * @param bytes 对象内容
+     * @param objectName 对象名
+     * @return 对象访问URL
+     */
+    default String upload(byte[] bytes, String objectName) {
+        return upload(new ByteArrayInputStream(bytes), bytes.length, objectName);
+    }
+
+    /**
+     * 查询对象元信息
+     *
+     * @param fileUrl 对象访问URL
+     * @return 元信息
+     */
+    StoredObjectInfo stat(String fileUrl) throws IOException;
+
+    /**
+     * 把对象的指定区间写入目标通道，本地存储直接由内核在文件和通道之间传输
+     *
+     * @param fileUrl 对象访问URL
+     * @param position 起始偏移（字节）
+     * @param count 传输长度（字节）
+     * @param target 目标通道
+     * @return 实际传输的字节数
+     */
+    long transferTo(String fileUrl, long position, long count, WritableByteChannel target) throws IOException;
+
+    /**
+     * 删除对象
+     *
+     * @param fileUrl 对象访问URL
+     * @return 是否删除成功
+     */
+    boolean delete(String fileUrl);
+
+    /**
+     * 批量删除对象
+     *
+     * @param fileUrls 对象访问URL
+     */
+    void deleteAll(Collection<String> fileUrls);
+}
@@ -0,0 +1,142 @@
+package com.kinghy.rag.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.wltea.analyzer.core.IKSegmenter;
+import org.wltea.analyzer.core.Lexeme;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 并行分词计数器
+ *
+ * @author yunzhongxiaoma
+ * @description 把待分词的文本按区间拆分给 ForkJoin 线程池，每个工作线程复用自己的 IKSegmenter，
+ *              每个分片写自己的 {@link WordCountMap}，分片之间不共享可变状态，最后两两合并。
+ *              IKSegmenter 不是线程安全的，因此按线程各持有一个
+ */
+@Slf4j
+public class ParallelWordCounter implements AutoCloseable {
+
+    private final ForkJoinPool pool;
+
+    private final int leafSize;
+
+    private final int minWordLength;
+
+    private final int maxWordLength;
+
+    private final ThreadLocal<IKSegmenter> segmenters =
+            ThreadLocal.withInitial(() -> new IKSegmenter(new StringReader(""), true));
+
+    /**
+     * @param parallelism   分词线程数
+     * @param leafSize      单个分片最多处理的文本条数，不足时不再拆分
+     * @param minWordLength 参与统计的最短词长
+     * @param maxWordLength 参与统计的最长词长
+     */
+    public ParallelWordCounter(int parallelism, int leafSize, int minWordLength, int maxWordLength) {
+        this.pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+            var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("word-segmenter-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        this.leafSize = Math.max(1, leafSize);
+        this.minWordLength = minWordLength;
+        this.maxWordLength = maxWordLength;
+    }
+
+    /**
+     * 并行分词并统计词频，空文本跳过
+     *
+     * @param texts 待分词文本
+     * @return 各分片合并后的词频
+     */
+    public WordCountMap count(List<String> texts) {
+        if (texts.size() <= leafSize) {
+            return countRange(texts, 0, texts.size());
+        }
+        return pool.invoke(new CountTask(texts, 0, texts.size()));
+    }
+
+    /**
+     * 在当前线程中分词统计一个区间
+     */
+    private WordCountMap countRange(List<String> texts, int from, int to) {
+        IKSegmenter segmenter = segmenters.get();
+        WordCountMap counts = new WordCountMap();
+        for (int i = from; i < to; i++) {
+            String text = texts.get(i);
+            if (text == null || text.isEmpty()) {
+                continue;
+            }
+            segmenter.reset(new StringReader(text));
+            try {
+                Lexeme lexeme;
+                while ((lexeme = segmenter.next()) != null) {
+                    int length = lexeme.getLength();
+                    if (length < minWordLength || length > maxWordLength) {
+                        continue;
+                    }
+                    counts.add(lexeme.getLexemeText(), 1);
+                }
+            } catch (IOException e) {
+                log.warn("文本分词失败，序号: {}", i, e);
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(5, TimeUnit.SECONDS)) {
+                pool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * 二分拆分区间，到达分片大小后在工作线程中分词，返回时把较小的计数表合并进较大的
+     */
+    private class CountTask extends RecursiveTask<WordCountMap> {
+
+        private final List<String> texts;
+        private final int from;
+        private final int to;
+
+        private CountTask(List<String> texts, int from, int to) {
+            this.texts = texts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected WordCountMap compute() {
+            if (to - from <= leafSize) {
+                return countRange(texts, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            CountTask left = new CountTask(texts, from, middle);
+            CountTask right = new CountTask(texts, middle, to);
+            left.fork();
+            WordCountMap rightCounts = right.compute();
+            WordCountMap leftCounts = left.join();
+            if (leftCounts.size() >= rightCounts.size()) {
+                leftCounts.merge(rightCounts);
+                return leftCounts;
+            }
+            rightCounts.merge(leftCounts);
+            return rightCounts;
+        }
+    }
+}
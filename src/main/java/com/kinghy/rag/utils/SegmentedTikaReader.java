@@ -0,0 +1,134 @@
+package com.kinghy.rag.utils;
+
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 分段读取的Tika文档解析器
+ *
+ * @author yunzhongxiaoma
+ * @description 从文件流式解析，正文按段落边界攒够指定字符数后交给回调处理，
+ *              不在内存中拼出整篇文档的文本；单个段落过长时在空白处强制切开
+ */
+public class SegmentedTikaReader {
+
+    /**
+     * 结束时可以作为分段边界的块级元素
+     */
+    private static final Set<String> BLOCK_ELEMENTS = Set.of(
+            "p", "div", "br", "li", "tr", "table", "pre", "blockquote",
+            "h1", "h2", "h3", "h4", "h5", "h6");
+
+    /**
+     * AutoDetectParser 无状态，可以在多线程间共享
+     */
+    private final AutoDetectParser parser = new AutoDetectParser();
+
+    private final int segmentChars;
+
+    public SegmentedTikaReader(int segmentChars) {
+        this.segmentChars = segmentChars;
+    }
+
+    /**
+     * 解析文件，每攒够一段正文回调一次
+     *
+     * @param file 文件路径
+     * @param consumer 分段回调
+     */
+    public void read(Path file, Consumer<String> consumer) throws IOException {
+        SegmentHandler handler = new SegmentHandler(consumer);
+        try (InputStream in = TikaInputStream.get(file)) {
+            parser.parse(in, handler, new Metadata(), new ParseContext());
+        } catch (SAXException | TikaException e) {
+            throw new IOException("文档解析失败: " + e.getMessage(), e);
+        }
+        handler.flush();
+    }
+
+    private final class SegmentHandler extends DefaultHandler {
+
+        private final Consumer<String> consumer;
+
+        private final StringBuilder buffer = new StringBuilder();
+
+        private boolean inBody;
+
+        private SegmentHandler(Consumer<String> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if ("body".equals(localName)) {
+                inBody = true;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if ("body".equals(localName)) {
+                inBody = false;
+            } else if (inBody && BLOCK_ELEMENTS.contains(localName)) {
+                buffer.append('\n');
+                if (buffer.length() >= segmentChars) {
+                    flush();
+                }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (!inBody) {
+                return;
+            }
+            buffer.append(ch, start, length);
+            // 纯文本等格式整篇只有一个段落，超过上限时在空白处切开
+            while (buffer.length() >= segmentChars * 2) {
+                int cut = lastWhitespace(segmentChars / 2, segmentChars * 2);
+                emit(buffer.substring(0, cut));
+                buffer.delete(0, cut);
+            }
+        }
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) {
+            characters(ch, start, length);
+        }
+
+        private void flush() {
+            emit(buffer.toString());
+            buffer.setLength(0);
+        }
+
+        private void emit(String segment) {
+            if (!segment.isBlank()) {
+                consumer.accept(segment);
+            }
+        }
+
+        /**
+         * 在 [from, to) 范围内找最后一个空白之后的位置，找不到时返回 to
+         */
+        private int lastWhitespace(int from, int to) {
+            for (int i = to - 1; i >= from; i--) {
+                if (Character.isWhitespace(buffer.charAt(i))) {
+                    return i + 1;
+                }
+            }
+            return to;
+        }
+    }
+}
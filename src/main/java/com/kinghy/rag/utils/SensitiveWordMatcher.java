@@ -0,0 +1,308 @@
+package com.kinghy.rag.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 敏感词多模式匹配器（Aho-Corasick 自动机）
+ *
+ * @author yunzhongxiaoma
+ * @description 一次线性扫描即可找出文本中的全部敏感词，构建完成后不可变，
+ *              可以在多线程间共享；词库变更时重新构建并整体替换实例
+ */
+public final class SensitiveWordMatcher {
+
+    /**
+     * 根状态
+     */
+    public static final int ROOT = 0;
+
+    private static final long EMPTY_KEY = -1L;
+
+    private static final SensitiveWordMatcher EMPTY = compile(Collections.emptyList());
+
+    /**
+     * 模式串（下标即模式编号）
+     */
+    private final String[] patterns;
+
+    /**
+     * 转移表：开放寻址哈希，key = state << 16 | char
+     */
+    private final long[] edgeKeys;
+    private final int[] edgeTargets;
+    private final int edgeMask;
+
+    /**
+     * 失败指针
+     */
+    private final int[] fail;
+
+    /**
+     * 以该状态结尾的模式编号，-1 表示无
+     */
+    private final int[] output;
+
+    /**
+     * 沿失败指针可达的最近输出状态，-1 表示无
+     */
+    private final int[] dictLink;
+
+    /**
+     * 状态深度，即该状态对应的模式前缀长度
+     */
+    private final int[] depth;
+
+    /**
+     * 命中回调
+     */
+    @FunctionalInterface
+    public interface HitListener {
+
+        /**
+         * @param patternIndex 命中的模式编号
+         * @param end 命中结束位置（不包含）
+         * @return 是否继续扫描
+         */
+        boolean onHit(int patternIndex, int end);
+    }
+
+    private SensitiveWordMatcher(String[] patterns, long[] edgeKeys, int[] edgeTargets,
+                                 int[] fail, int[] output, int[] dictLink, int[] depth) {
+        this.patterns = patterns;
+        this.edgeKeys = edgeKeys;
+        this.edgeTargets = edgeTargets;
+        this.edgeMask = edgeKeys.length - 1;
+        this.fail = fail;
+        this.output = output;
+        this.dictLink = dictLink;
+        this.depth = depth;
+    }
+
+    /**
+     * 空匹配器，不命中任何文本
+     */
+    public static SensitiveWordMatcher empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 根据敏感词集合构建匹配器，空串和重复词会被忽略
+     *
+     * @param words 敏感词
+     * @return 匹配器
+     */
+    public static SensitiveWordMatcher compile(Collection<String> words) {
+        Set<String> unique = new LinkedHashSet<>();
+        for (String word : words) {
+            if (word != null && !word.isEmpty()) {
+                unique.add(word);
+            }
+        }
+        String[] patterns = unique.toArray(new String[0]);
+
+        int capacity = 1;
+        for (String pattern : patterns) {
+            capacity += pattern.length();
+        }
+
+        // 1. 构建 Trie
+        int[] output = new int[capacity];
+        int[] depth = new int[capacity];
+        Arrays.fill(output, -1);
+        int[] firstChild = new int[capacity];
+        Arrays.fill(firstChild, -1);
+        int[] nextSibling = new int[capacity];
+        char[] edgeChar = new char[capacity];
+        Map<Long, Integer> edges = new HashMap<>();
+        int states = 1;
+
+        for (int i = 0; i < patterns.length; i++) {
+            String pattern = patterns[i];
+            int state = ROOT;
+            for (int j = 0; j < pattern.length(); j++) {
+                char c = pattern.charAt(j);
+                long key = key(state, c);
+                Integer next = edges.get(key);
+                if (next == null) {
+                    next = states++;
+                    edges.put(key, next);
+                    edgeChar[next] = c;
+                    depth[next] = depth[state] + 1;
+                    nextSibling[next] = firstChild[state];
+                    firstChild[state] = next;
+                }
+                state = next;
+            }
+            output[state] = i;
+        }
+
+        // 2. 压缩为开放寻址转移表
+        int tableSize = Integer.highestOneBit(Math.max(2, edges.size() * 2) - 1) << 1;
+        long[] edgeKeys = new long[tableSize];
+        Arrays.fill(edgeKeys, EMPTY_KEY);
+        int[] edgeTargets = new int[tableSize];
+        int mask = tableSize - 1;
+        for (Map.Entry<Long, Integer> entry : edges.entrySet()) {
+            long key = entry.getKey();
+            int slot = hash(key) & mask;
+            while (edgeKeys[slot] != EMPTY_KEY) {
+                slot = (slot + 1) & mask;
+            }
+            edgeKeys[slot] = key;
+            edgeTargets[slot] = entry.getValue();
+        }
+
+        // 3. BFS 计算失败指针和输出链
+        int[] fail = new int[states];
+        int[] dictLink = new int[states];
+        Arrays.fill(dictLink, -1);
+        SensitiveWordMatcher matcher = new SensitiveWordMatcher(patterns, edgeKeys, edgeTargets,
+                fail, Arrays.copyOf(output, states), dictLink, Arrays.copyOf(depth, states));
+
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+        for (int child = firstChild[ROOT]; child != -1; child = nextSibling[child]) {
+            fail[child] = ROOT;
+            queue[tail++] = child;
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            int f = fail[state];
+            dictLink[state] = output[f] >= 0 ? f : dictLink[f];
+            for (int child = firstChild[state]; child != -1; child = nextSibling[child]) {
+                char c = edgeChar[child];
+                int g = f;
+                int target;
+                while ((target = matcher.lookup(g, c)) < 0 && g != ROOT) {
+                    g = fail[g];
+                }
+                fail[child] = Math.max(target, ROOT);
+                queue[tail++] = child;
+            }
+        }
+        return matcher;
+    }
+
+    /**
+     * 从指定状态开始扫描文本，每个命中回调一次
+     *
+     * @param text 文本
+     * @param state 起始状态，首次扫描传 {@link #ROOT}
+     * @param listener 命中回调，返回false时提前结束
+     * @return 扫描结束时的状态，可用于跨分片继续扫描
+     */
+    public int scan(CharSequence text, int state, HitListener listener) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            state = next(state, text.charAt(i));
+            int hit = output[state] >= 0 ? state : dictLink[state];
+            while (hit >= 0) {
+                if (!listener.onHit(output[hit], i + 1)) {
+                    return state;
+                }
+                hit = dictLink[hit];
+            }
+        }
+        return state;
+    }
+
+    /**
+     * 查找文本中第一个出现的敏感词
+     *
+     * @param text 文本
+     * @return 敏感词，未命中返回null
+     */
+    public String findFirst(CharSequence text) {
+        if (text == null || patterns.length == 0) {
+            return null;
+        }
+        int[] first = {-1};
+        scan(text, ROOT, (patternIndex, end) -> {
+            first[0] = patternIndex;
+            return false;
+        });
+        return first[0] >= 0 ? patterns[first[0]] : null;
+    }
+
+    /**
+     * 查找文本中出现的全部敏感词（去重，按首次出现顺序）
+     *
+     * @param text 文本
+     * @return 敏感词列表
+     */
+    public List<String> findAll(CharSequence text) {
+        if (text == null || patterns.length == 0) {
+            return Collections.emptyList();
+        }
+        Set<String> hits = new LinkedHashSet<>();
+        scan(text, ROOT, (patternIndex, end) -> {
+            hits.add(patterns[patternIndex]);
+            return true;
+        });
+        return new ArrayList<>(hits);
+    }
+
+    /**
+     * 状态转移
+     */
+    public int next(int state, char c) {
+        while (true) {
+            int target = lookup(state, c);
+            if (target >= 0) {
+                return target;
+            }
+            if (state == ROOT) {
+                return ROOT;
+            }
+            state = fail[state];
+        }
+    }
+
+    /**
+     * 状态对应的模式前缀长度：扫描停在该状态时，文本末尾这么多个字符仍可能是某个敏感词的开头
+     */
+    public int depth(int state) {
+        return depth[state];
+    }
+
+    public String pattern(int patternIndex) {
+        return patterns[patternIndex];
+    }
+
+    public int size() {
+        return patterns.length;
+    }
+
+    private int lookup(int state, char c) {
+        long key = key(state, c);
+        int slot = hash(key) & edgeMask;
+        while (true) {
+            long current = edgeKeys[slot];
+            if (current == key) {
+                return edgeTargets[slot];
+            }
+            if (current == EMPTY_KEY) {
+                return -1;
+            }
+            slot = (slot + 1) & edgeMask;
+        }
+    }
+
+    private static long key(int state, char c) {
+        return ((long) state << 16) | c;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
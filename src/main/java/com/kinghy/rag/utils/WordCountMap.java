@@ -0,0 +1,127 @@
+package com.kinghy.rag.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * 词频计数表
+ *
+ * @author yunzhongxiaoma
+ * @description 开放寻址的 String -> int 计数表，计数直接存在 int 数组中，
+ *              累加时不产生装箱对象；各分词线程各自计数，最后用 {@link #merge(WordCountMap)} 合并。
+ *              非线程安全
+ */
+public class WordCountMap {
+
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private String[] keys;
+
+    private int[] counts;
+
+    private int size;
+
+    public WordCountMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public WordCountMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize * 2, 16) - 1) << 1;
+        keys = new String[capacity];
+        counts = new int[capacity];
+    }
+
+    /**
+     * 给词累加计数
+     */
+    public void add(String word, int delta) {
+        int mask = keys.length - 1;
+        int index = mix(word.hashCode()) & mask;
+        while (keys[index] != null) {
+            if (keys[index].equals(word)) {
+                counts[index] += delta;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = word;
+        counts[index] = delta;
+        // 负载因子超过 0.5 时扩容
+        if (++size * 2 > keys.length) {
+            resize(keys.length << 1);
+        }
+    }
+
+    /**
+     * 词的计数，不存在时为 0
+     */
+    public int get(String word) {
+        int mask = keys.length - 1;
+        int index = mix(word.hashCode()) & mask;
+        while (keys[index] != null) {
+            if (keys[index].equals(word)) {
+                return counts[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return 0;
+    }
+
+    /**
+     * 不同词的个数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 把另一个计数表累加到当前表
+     */
+    public void merge(WordCountMap other) {
+        other.forEach(this::add);
+    }
+
+    /**
+     * 遍历所有词及其计数
+     */
+    public void forEach(ObjIntConsumer<String> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                action.accept(keys[i], counts[i]);
+            }
+        }
+    }
+
+    /**
+     * 转为普通 Map
+     */
+    public Map<String, Integer> toMap() {
+        Map<String, Integer> map = new HashMap<>(size * 2);
+        forEach(map::put);
+        return map;
+    }
+
+    private void resize(int capacity) {
+        String[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new String[capacity];
+        counts = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int index = mix(oldKeys[i].hashCode()) & mask;
+                while (keys[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                counts[index] = oldCounts[i];
+            }
+        }
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,23 @@
+-- 文件异步入库任务表
+-- @author yunzhongxiaoma
+-- @since 1.0.0
+
+CREATE TABLE IF NOT EXISTS `tb_ingestion_job` (
+    `id` BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '主键ID',
+    `knowledge_base_id` BIGINT NOT NULL COMMENT '知识库ID',
+    `file_id` BIGINT COMMENT '入库完成后生成的文件ID',
+    `file_name` VARCHAR(255) NOT NULL COMMENT '存储文件名',
+    `original_name` VARCHAR(255) NOT NULL COMMENT '原始文件名',
+    `file_size` BIGINT COMMENT '文件大小(字节)',
+    `status` VARCHAR(20) NOT NULL DEFAULT 'PENDING' COMMENT '任务状态：PENDING/PARSING/EMBEDDING/DONE/FAILED',
+    `progress` INT NOT NULL DEFAULT 0 COMMENT '进度(0-100)',
+    `chunk_count` INT COMMENT '文档片段数量',
+    `error_message` VARCHAR(1000) COMMENT '失败原因',
+    `upload_user_id` INT NOT NULL COMMENT '上传用户ID',
+    `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    
+    INDEX `idx_knowledge_base_id` (`knowledge_base_id`),
+    INDEX `idx_status` (`status`),
+    FOREIGN KEY (`knowledge_base_id`) REFERENCES `tb_knowledge_base`(`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='文件入库任务表';
@@ -73,16 +73,45 @@ CREATE TABLE `tb_knowledge_base_file` (
     `file_size` BIGINT COMMENT '文件大小(字节)',
     `file_type` VARCHAR(50) COMMENT '文件类型',
     `vector_ids` TEXT COMMENT '向量ID列表(JSON格式)',
+    `content_hash` CHAR(64) COMMENT '文件内容SHA-256',
+    `chunk_hashes` MEDIUMTEXT COMMENT '片段内容SHA-256列表(JSON格式)',
+    `version` INT NOT NULL DEFAULT 0 COMMENT '索引版本号，增量更新时用于检查并发修改',
     `upload_user_id` INT NOT NULL COMMENT '上传用户ID',
     `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     
     INDEX `idx_knowledge_base_id` (`knowledge_base_id`),
     INDEX `idx_upload_user_id` (`upload_user_id`),
+    INDEX `idx_content_hash` (`content_hash`),
+    INDEX `idx_file_url` (`file_url`),
     FOREIGN KEY (`knowledge_base_id`) REFERENCES `tb_knowledge_base`(`id`) ON DELETE CASCADE,
     FOREIGN KEY (`upload_user_id`) REFERENCES `tb_user`(`id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='知识库文件表';
 
+-- ----------------------------
+-- Table structure for tb_ingestion_job
+-- ----------------------------
+DROP TABLE IF EXISTS `tb_ingestion_job`;
+CREATE TABLE `tb_ingestion_job` (
+    `id` BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '主键ID',
+    `knowledge_base_id` BIGINT NOT NULL COMMENT '知识库ID',
+    `file_id` BIGINT COMMENT '入库完成后生成的文件ID',
+    `file_name` VARCHAR(255) NOT NULL COMMENT '存储文件名',
+    `original_name` VARCHAR(255) NOT NULL COMMENT '原始文件名',
+    `file_size` BIGINT COMMENT '文件大小(字节)',
+    `status` VARCHAR(20) NOT NULL DEFAULT 'PENDING' COMMENT '任务状态：PENDING/PARSING/EMBEDDING/DONE/FAILED',
+    `progress` INT NOT NULL DEFAULT 0 COMMENT '进度(0-100)',
+    `chunk_count` INT COMMENT '文档片段数量',
+    `error_message` VARCHAR(1000) COMMENT '失败原因',
+    `upload_user_id` INT NOT NULL COMMENT '上传用户ID',
+    `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    
+    INDEX `idx_knowledge_base_id` (`knowledge_base_id`),
+    INDEX `idx_status` (`status`),
+    FOREIGN KEY (`knowledge_base_id`) REFERENCES `tb_knowledge_base`(`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='文件入库任务表';
+
 -- ----------------------------
 -- Records of tb_knowledge_base
 -- ----------------------------
@@ -131,9 +160,21 @@ CREATE TABLE `word_frequency` (
                                   `business_type` VARCHAR(255) COMMENT '业务类型',
                                   `create_time` DATE COMMENT '创建时间',
                                   `update_time` DATE COMMENT '更新时间',
-                                  PRIMARY KEY (`id`)
+                                  PRIMARY KEY (`id`),
+                                  UNIQUE KEY `uk_word_business_type` (`word`, `business_type`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='词频统计表';
 
+-- ----------------------------
+-- Table structure for word_frequency_checkpoint
+-- ----------------------------
+DROP TABLE IF EXISTS `word_frequency_checkpoint`;
+CREATE TABLE `word_frequency_checkpoint` (
+                                  `job_name` VARCHAR(64) NOT NULL COMMENT '统计任务名',
+                                  `last_log_id` BIGINT NOT NULL DEFAULT 0 COMMENT '已处理的最大日志ID',
+                                  `update_time` DATETIME COMMENT '更新时间',
+                                  PRIMARY KEY (`job_name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='词频统计进度表';
+
 
 -- ----------------------------
 -- Table structure for sensitive_category
@@ -145,6 +186,7 @@ CREATE TABLE `sensitive_category` (
                                       `created_time` DATE COMMENT '创建时间',
                                       `update_time` DATE COMMENT '更新时间',
                                       `status` VARCHAR(50) COMMENT '状态',
+                                      `action` VARCHAR(20) NOT NULL DEFAULT 'BLOCK' COMMENT '命中处理动作：BLOCK/MASK/LOG',
                                       PRIMARY KEY (`id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='敏感词分类表';
 
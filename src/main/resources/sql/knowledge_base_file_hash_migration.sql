@@ -0,0 +1,9 @@
+-- 知识库文件内容哈希迁移脚本
+-- 为已有的 tb_knowledge_base_file 表增加文件内容哈希和片段哈希，用于重复文件和未变化片段的复用
+-- 历史数据的哈希为空，不参与去重
+-- @author yunzhongxiaoma
+
+ALTER TABLE `tb_knowledge_base_file`
+    ADD COLUMN `content_hash` CHAR(64) COMMENT '文件内容SHA-256' AFTER `vector_ids`,
+    ADD COLUMN `chunk_hashes` MEDIUMTEXT COMMENT '片段内容SHA-256列表(JSON格式)' AFTER `content_hash`,
+    ADD INDEX `idx_content_hash` (`content_hash`);
@@ -0,0 +1,6 @@
+-- 知识库文件URL索引迁移脚本
+-- 删除文件和复用对象存储文件时按 file_url 加锁读取引用记录，没有索引时会全表扫描并锁住整张表
+-- @author yunzhongxiaoma
+
+ALTER TABLE `tb_knowledge_base_file`
+    ADD INDEX `idx_file_url` (`file_url`);
@@ -0,0 +1,7 @@
+-- 知识库文件索引版本号迁移脚本
+-- 增量更新文件时按读取到的版本号条件更新，版本号已变化（并发更新）或记录已删除时放弃本次更新，
+-- 避免删除仍被新版本复用的向量或遗留无人引用的向量
+-- @author yunzhongxiaoma
+
+ALTER TABLE `tb_knowledge_base_file`
+    ADD COLUMN `version` INT NOT NULL DEFAULT 0 COMMENT '索引版本号，增量更新时用于检查并发修改' AFTER `chunk_hashes`;
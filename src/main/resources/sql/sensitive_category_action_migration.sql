@@ -0,0 +1,6 @@
+-- 敏感词分类处理动作迁移脚本
+-- 为已有的 sensitive_category 表增加命中处理动作，默认保持原有的拦截行为
+-- @author yunzhongxiaoma
+
+ALTER TABLE `sensitive_category`
+    ADD COLUMN `action` VARCHAR(20) NOT NULL DEFAULT 'BLOCK' COMMENT '命中处理动作：BLOCK/MASK/LOG' AFTER `status`;
@@ -0,0 +1,30 @@
+-- 词频增量统计迁移脚本
+-- 合并 word_frequency 中重复的词并增加唯一索引，供批量 upsert 使用；
+-- 新增统计进度表，进度从当前最大日志ID开始，已有的词频保持不变，只累加之后的新日志
+-- @author yunzhongxiaoma
+
+UPDATE `word_frequency` w
+    JOIN (
+        SELECT MIN(`id`) AS `keep_id`, `word`, `business_type`, SUM(`count_num`) AS `total`
+        FROM `word_frequency`
+        GROUP BY `word`, `business_type`
+        HAVING COUNT(*) > 1
+    ) d ON w.`id` = d.`keep_id`
+SET w.`count_num` = d.`total`;
+
+DELETE w FROM `word_frequency` w
+    JOIN `word_frequency` k
+      ON w.`word` = k.`word` AND w.`business_type` <=> k.`business_type` AND w.`id` > k.`id`;
+
+ALTER TABLE `word_frequency`
+    ADD UNIQUE KEY `uk_word_business_type` (`word`, `business_type`);
+
+CREATE TABLE IF NOT EXISTS `word_frequency_checkpoint` (
+    `job_name` VARCHAR(64) NOT NULL COMMENT '统计任务名',
+    `last_log_id` BIGINT NOT NULL DEFAULT 0 COMMENT '已处理的最大日志ID',
+    `update_time` DATETIME COMMENT '更新时间',
+    PRIMARY KEY (`job_name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='词频统计进度表';
+
+INSERT IGNORE INTO `word_frequency_checkpoint` (`job_name`, `last_log_id`, `update_time`)
+SELECT 'log', COALESCE(MAX(`id`), 0), NOW() FROM `log_info`;
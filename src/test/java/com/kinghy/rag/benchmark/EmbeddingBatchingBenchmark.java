@@ -0,0 +1,176 @@
+package com.kinghy.rag.benchmark;
+
+import com.kinghy.rag.config.EmbeddingBatchConfig;
+import com.kinghy.rag.utils.BatchingEmbeddingModel;
+import com.kinghy.rag.utils.StubEmbeddingModel;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 嵌入调用合并批处理吞吐基准测试
+ *
+ * @author yunzhongxiaoma
+ * @description 用 {@link StubEmbeddingModel} 模拟每次调用的固定耗时和按片段的耗时，多个“文件”并发向量化，
+ *              对比每个片段单独调用、每个文件调用一次和经 {@link BatchingEmbeddingModel} 合并批处理三种方式，
+ *              结果中 chunks 一项为每秒向量化的片段数。运行方式：mvn test-compile 后执行本类的 main 方法
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EmbeddingBatchingBenchmark {
+
+    private static final String[] PHRASES = {
+            "员工每年享有5天带薪年假", "需在OA系统中提前申请", "报销单据需在每月25日前提交",
+            "新员工入职需完成安全培训", "知识库文件支持PDF和Word格式", "会议室预订请使用企业微信",
+            "差旅住宿标准按城市等级执行", "离职交接需部门负责人签字"
+    };
+
+    /**
+     * 并发向量化的文件数
+     */
+    @Param({"1", "8", "32"})
+    private int files;
+
+    @Param({"4"})
+    private int chunksPerFile;
+
+    /**
+     * 模型每次调用的固定耗时（毫秒），模拟网络往返
+     */
+    @Param({"20"})
+    private long callLatencyMs;
+
+    private List<List<String>> requests;
+
+    private StubEmbeddingModel stub;
+
+    private BatchingEmbeddingModel batching;
+
+    private ExecutorService callers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        requests = new ArrayList<>(files);
+        for (int i = 0; i < files; i++) {
+            List<String> chunks = new ArrayList<>(chunksPerFile);
+            for (int j = 0; j < chunksPerFile; j++) {
+                chunks.add(PHRASES[random.nextInt(PHRASES.length)] + "，第" + i + "个文件第" + j + "段");
+            }
+            requests.add(chunks);
+        }
+
+        stub = new StubEmbeddingModel(256, callLatencyMs, 0.2);
+        EmbeddingBatchConfig config = new EmbeddingBatchConfig();
+        config.setMaxWaitMs(5);
+        batching = new BatchingEmbeddingModel(stub, () -> config);
+        callers = Executors.newFixedThreadPool(files);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        callers.shutdownNow();
+        batching.close();
+    }
+
+    /**
+     * 每个片段单独调用一次模型
+     */
+    @Benchmark
+    public int perChunk(ChunkCounter chunks) throws Exception {
+        return dispatch(chunks, texts -> {
+            for (String text : texts) {
+                stub.embed(text);
+            }
+        });
+    }
+
+    /**
+     * 每个文件的全部片段调用一次模型
+     */
+    @Benchmark
+    public int perFile(ChunkCounter chunks) throws Exception {
+        return dispatch(chunks, texts -> stub.call(new EmbeddingRequest(texts, null)));
+    }
+
+    /**
+     * 经合并批处理模型调用，并发文件的片段按 token 预算凑批
+     */
+    @Benchmark
+    public int batched(ChunkCounter chunks) throws Exception {
+        return dispatch(chunks, texts -> batching.call(new EmbeddingRequest(texts, null)));
+    }
+
+    /**
+     * 所有文件并发向量化，全部完成后返回
+     */
+    private int dispatch(ChunkCounter chunks, FileEmbedder embedder) throws InterruptedException, ExecutionException {
+        List<Future<?>> futures = new ArrayList<>(files);
+        for (List<String> texts : requests) {
+            futures.add(callers.submit(() -> embedder.embed(texts)));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        int embedded = files * chunksPerFile;
+        chunks.chunks += embedded;
+        return embedded;
+    }
+
+    /**
+     * 向量化一个文件的全部片段，{@link EmbeddingModel} 的调用方式由各基准决定
+     */
+    @FunctionalInterface
+    private interface FileEmbedder {
+        void embed(List<String> texts);
+    }
+
+    /**
+     * 每次迭代向量化的片段数，按 OPERATIONS 类型输出为每秒片段数
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class ChunkCounter {
+        public long chunks;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            chunks = 0;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EmbeddingBatchingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,138 @@
+package com.kinghy.rag.benchmark;
+
+import com.kinghy.rag.utils.ParallelWordCounter;
+import com.kinghy.rag.utils.WordCountMap;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.wltea.analyzer.core.IKSegmenter;
+import org.wltea.analyzer.core.Lexeme;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 日志分词吞吐基准测试
+ *
+ * @author yunzhongxiaoma
+ * @description 在合成的中文日志语料上对比单线程逐条分词（一个 IKSegmenter + HashMap 计数）
+ *              和 {@link ParallelWordCounter} 的分词吞吐，结果中 tokens 一项为每秒统计的词数。
+ *              运行方式：mvn test-compile 后执行本类的 main 方法
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WordSegmentationBenchmark {
+
+    private static final String[] PHRASES = {
+            "如何在知识库中上传文件", "向量数据库的检索结果不准确", "请帮我总结这份会议纪要",
+            "知识库文件解析失败怎么办", "客服系统支持哪些文档格式", "帮我写一段产品介绍",
+            "订单状态一直显示处理中", "怎样修改账号绑定的手机号", "大模型回答的内容和文档不一致",
+            "导出聊天记录需要什么权限", "敏感词过滤规则在哪里配置", "语义缓存命中率偏低的原因"
+    };
+
+    @Param({"5000"})
+    private int rows;
+
+    @Param({"2", "4", "8"})
+    private int parallelism;
+
+    private List<String> corpus;
+
+    private ParallelWordCounter counter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        corpus = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            StringBuilder text = new StringBuilder("{message=");
+            int phrases = 1 + random.nextInt(4);
+            for (int j = 0; j < phrases; j++) {
+                text.append(PHRASES[random.nextInt(PHRASES.length)]).append('，');
+            }
+            corpus.add(text.append('}').toString());
+        }
+        counter = new ParallelWordCounter(parallelism, 64, 2, 9);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        counter.close();
+    }
+
+    /**
+     * 单线程逐条分词基准
+     */
+    @Benchmark
+    public Map<String, Integer> singleThreaded(TokenCounter tokens) throws IOException {
+        Map<String, Integer> counts = new HashMap<>();
+        IKSegmenter segmenter = new IKSegmenter(new StringReader(""), true);
+        for (String text : corpus) {
+            segmenter.reset(new StringReader(text));
+            Lexeme lexeme;
+            while ((lexeme = segmenter.next()) != null) {
+                int length = lexeme.getLength();
+                if (length < 2 || length > 9) {
+                    continue;
+                }
+                counts.merge(lexeme.getLexemeText(), 1, Integer::sum);
+                tokens.tokens++;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * ForkJoin 并行分词
+     */
+    @Benchmark
+    public WordCountMap parallel(TokenCounter tokens) {
+        WordCountMap counts = counter.count(corpus);
+        counts.forEach((word, count) -> tokens.tokens += count);
+        return counts;
+    }
+
+    /**
+     * 每次迭代统计的词数，按 OPERATIONS 类型输出为每秒词数
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class TokenCounter {
+        public long tokens;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            tokens = 0;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(WordSegmentationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,92 @@
+package com.kinghy.rag.integration;
+
+import com.kinghy.rag.config.ChatTestConfiguration;
+import com.kinghy.rag.entity.ChatMessage;
+import com.kinghy.rag.entity.ChatSession;
+import com.kinghy.rag.mapper.ChatSessionMapper;
+import com.kinghy.rag.service.ChatMessageService;
+import com.kinghy.rag.service.ChatSessionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 组提交模式在小连接池下的并发写入测试
+ *
+ * @author yunzhongxiaoma
+ * @description 连接池只有 2 个连接，并发写入方远多于连接数；写入方等待批次提交时不占用连接，
+ *              刷盘线程始终能拿到连接，所有消息都应在提交超时前写入
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+@Import(ChatTestConfiguration.class)
+@TestPropertySource(properties = {
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.sql.init.mode=always",
+    "spring.datasource.druid.initial-size=1",
+    "spring.datasource.druid.max-active=2",
+    "spring.datasource.druid.max-wait=1000",
+    "rag.chat-persistence.durability=group-commit",
+    "rag.chat-persistence.flush-interval-ms=50",
+    "rag.chat-persistence.commit-timeout-ms=3000"
+})
+public class ChatMessageGroupCommitPoolTest {
+
+    private static final int WRITERS = 16;
+
+    private static final Integer USER_ID = 1;
+
+    @Autowired
+    private ChatSessionService chatSessionService;
+
+    @Autowired
+    private ChatMessageService chatMessageService;
+
+    @Autowired
+    private ChatSessionMapper chatSessionMapper;
+
+    @AfterEach
+    void tearDown() {
+        chatSessionMapper.deleteUserSessions(USER_ID);
+    }
+
+    @Test
+    public void testConcurrentWritersDoNotStarveFlusher() throws Exception {
+        String sessionId = chatSessionService.createNewSession(USER_ID).getSessionId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<ChatMessage>> futures = new ArrayList<>();
+        for (int i = 0; i < WRITERS; i++) {
+            String content = "message-" + i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                return chatMessageService.saveUserMessage(sessionId, USER_ID, content);
+            }));
+        }
+        start.countDown();
+        for (Future<ChatMessage> future : futures) {
+            ChatMessage message = future.get(10, TimeUnit.SECONDS);
+            assertNotNull(message.getId());
+        }
+        executor.shutdown();
+
+        assertEquals(WRITERS, chatMessageService.getMessageCount(sessionId, USER_ID));
+        ChatSession session = chatSessionMapper.getSessionByIdAndUserId(sessionId, USER_ID);
+        assertEquals(WRITERS, session.getMessageCount());
+    }
+}
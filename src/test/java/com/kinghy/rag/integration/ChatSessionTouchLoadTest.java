@@ -0,0 +1,183 @@
+package com.kinghy.rag.integration;
+
+import com.kinghy.rag.config.ChatTestConfiguration;
+import com.kinghy.rag.entity.ChatSession;
+import com.kinghy.rag.mapper.ChatSessionMapper;
+import com.kinghy.rag.pojo.dto.SessionTouch;
+import com.kinghy.rag.service.ChatSessionService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 会话统计更新并发压测
+ *
+ * @author yunzhongxiaoma
+ * @description 多个线程同时向少量热点会话写入，对比三种更新方式在 chat_session 行锁上的争用：
+ *              逐条两次 UPDATE（计数、时间各一次事务）、合并后的单条 UPDATE、缓冲后批量 UPDATE。
+ *              每次语句调用的耗时包含等待行锁的时间，以平均值和 p99 衡量争用程度，
+ *              并校验并发下计数没有丢失
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+@Import(ChatTestConfiguration.class)
+@Slf4j
+@TestPropertySource(properties = {
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.sql.init.mode=always"
+})
+public class ChatSessionTouchLoadTest {
+
+    private static final int THREADS = 16;
+
+    private static final int MESSAGES_PER_THREAD = 200;
+
+    private static final int HOT_SESSIONS = 4;
+
+    private static final int BUFFER_SIZE = 20;
+
+    private static final Integer USER_ID = 1;
+
+    @Autowired
+    private ChatSessionService chatSessionService;
+
+    @Autowired
+    private ChatSessionMapper chatSessionMapper;
+
+    private final List<String> sessionIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < HOT_SESSIONS; i++) {
+            sessionIds.add(chatSessionService.createNewSession(USER_ID).getSessionId());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        chatSessionMapper.deleteUserSessions(USER_ID);
+    }
+
+    @Test
+    public void testRowLockContention() throws Exception {
+        int expectedPerSession = THREADS * MESSAGES_PER_THREAD / HOT_SESSIONS;
+
+        LoadResult separate = run("separate", (thread, i, buffer) -> {
+            String sessionId = sessionIds.get((thread + i) % HOT_SESSIONS);
+            chatSessionService.incrementMessageCount(sessionId);
+            chatSessionService.updateLastMessageTime(sessionId);
+            return 2;
+        });
+        assertMessageCounts(expectedPerSession);
+
+        LoadResult combined = run("combined", (thread, i, buffer) -> {
+            chatSessionService.touchSession(sessionIds.get((thread + i) % HOT_SESSIONS), 1, LocalDateTime.now());
+            return 1;
+        });
+        assertMessageCounts(expectedPerSession * 2);
+
+        LoadResult bulk = run("bulk", (thread, i, buffer) -> {
+            buffer.add(new SessionTouch(sessionIds.get((thread + i) % HOT_SESSIONS), 1, LocalDateTime.now()));
+            if (buffer.size() < BUFFER_SIZE && i < MESSAGES_PER_THREAD - 1) {
+                return 0;
+            }
+            chatSessionService.touchSessions(buffer);
+            buffer.clear();
+            return 1;
+        });
+        assertMessageCounts(expectedPerSession * 3);
+
+        log.info("会话统计更新压测，线程数: {}, 热点会话数: {}, 每线程消息数: {}", THREADS, HOT_SESSIONS, MESSAGES_PER_THREAD);
+        for (LoadResult result : List.of(separate, combined, bulk)) {
+            log.info("{}", result);
+        }
+
+        // 合并后每条消息只执行一条语句，批量模式的语句数按缓冲区大小下降
+        assertEquals(2L * THREADS * MESSAGES_PER_THREAD, separate.statements);
+        assertEquals((long) THREADS * MESSAGES_PER_THREAD, combined.statements);
+        assertEquals((long) THREADS * MESSAGES_PER_THREAD / BUFFER_SIZE, bulk.statements);
+    }
+
+    private LoadResult run(String name, Workload workload) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger statements = new AtomicInteger();
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                List<SessionTouch> buffer = new ArrayList<>();
+                List<Long> latencies = new ArrayList<>();
+                start.await();
+                for (int i = 0; i < MESSAGES_PER_THREAD; i++) {
+                    long begin = System.nanoTime();
+                    int executed = workload.apply(thread, i, buffer);
+                    if (executed > 0) {
+                        latencies.add(System.nanoTime() - begin);
+                        statements.addAndGet(executed);
+                    }
+                }
+                return latencies.stream().mapToLong(Long::longValue).toArray();
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        List<Long> all = new ArrayList<>();
+        for (Future<long[]> future : futures) {
+            for (long latency : future.get(2, TimeUnit.MINUTES)) {
+                all.add(latency);
+            }
+        }
+        long elapsed = System.nanoTime() - begin;
+        executor.shutdown();
+
+        long[] sorted = all.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        double avgMs = Arrays.stream(sorted).average().orElse(0) / 1_000_000d;
+        double p99Ms = sorted.length == 0 ? 0 : sorted[(int) Math.ceil(sorted.length * 0.99) - 1] / 1_000_000d;
+        return new LoadResult(name, statements.get(), TimeUnit.NANOSECONDS.toMillis(elapsed), avgMs, p99Ms);
+    }
+
+    private void assertMessageCounts(int expected) {
+        for (String sessionId : sessionIds) {
+            ChatSession session = chatSessionMapper.getSessionByIdAndUserId(sessionId, USER_ID);
+            assertEquals(expected, session.getMessageCount(), "会话 " + sessionId + " 的消息计数丢失了更新");
+        }
+    }
+
+    /**
+     * 单个线程的第 i 次写入，返回本次实际执行的语句数
+     */
+    @FunctionalInterface
+    private interface Workload {
+        int apply(int thread, int i, List<SessionTouch> buffer);
+    }
+
+    private record LoadResult(String name, long statements, long elapsedMs, double avgMs, double p99Ms) {
+        @Override
+        public String toString() {
+            return String.format("%-8s 语句数: %6d, 总耗时: %6dms, 单次调用平均: %.2fms, p99: %.2fms",
+                    name, statements, elapsedMs, avgMs, p99Ms);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.kinghy.rag.service;
+
+import com.kinghy.rag.config.ChatCacheConfig;
+import com.kinghy.rag.config.RedisConfig;
+import com.kinghy.rag.entity.ChatMessage;
+import com.kinghy.rag.entity.ChatSession;
+import com.kinghy.rag.service.impl.ChatCacheServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 聊天缓存测试类：最近消息列表和会话近端缓存（嵌入式Redis）
+ *
+ * @author yunzhongxiaoma
+ */
+class ChatCacheServiceTest {
+
+    private static final int REDIS_PORT = 16382;
+
+    private static final String SESSION_ID = "session-1";
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, Object> redisTemplate;
+
+    private ChatCacheServiceImpl chatCacheService;
+
+    private final List<RedisMessageListenerContainer> containers = new ArrayList<>();
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        redisServer = new RedisServer(REDIS_PORT);
+        redisServer.start();
+
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", REDIS_PORT));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new RedisConfig().redisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        redisTemplate.getConnectionFactory().getConnection().serverCommands().flushAll();
+        chatCacheService = createNode();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (RedisMessageListenerContainer container : containers) {
+            container.destroy();
+        }
+        containers.clear();
+    }
+
+    @Test
+    void testAppendKeepsOnlyLatestWindow() {
+        for (long id = 1; id <= 60; id++) {
+            chatCacheService.addMessageToCache(SESSION_ID, message(id));
+        }
+
+        List<ChatMessage> cached = chatCacheService.getRecentMessagesFromCache(SESSION_ID);
+
+        assertEquals(50, cached.size());
+        assertEquals(11L, cached.get(0).getId());
+        assertEquals(60L, cached.get(cached.size() - 1).getId());
+        assertEquals("message 60", cached.get(cached.size() - 1).getContent());
+        assertTrue(redisTemplate.getExpire("chat:messages:recent:list:" + SESSION_ID) > 0);
+    }
+
+    @Test
+    void testConcurrentAppendsAreNotLost() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (long id = 1; id <= 40; id++) {
+            ChatMessage message = message(id);
+            futures.add(executor.submit(() -> chatCacheService.addMessageToCache(SESSION_ID, message)));
+        }
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        Set<Long> ids = new HashSet<>();
+        chatCacheService.getRecentMessagesFromCache(SESSION_ID).forEach(message -> ids.add(message.getId()));
+        assertEquals(40, ids.size());
+    }
+
+    @Test
+    void testCacheRecentMessagesReplacesListInTimeOrder() {
+        chatCacheService.addMessageToCache(SESSION_ID, message(100));
+
+        // 数据库按时间倒序返回，缓存中按时间正序保存
+        List<ChatMessage> fromDb = new ArrayList<>();
+        for (long id = 3; id >= 1; id--) {
+            fromDb.add(message(id));
+        }
+        chatCacheService.cacheRecentMessages(SESSION_ID, fromDb);
+        chatCacheService.addMessageToCache(SESSION_ID, message(4));
+
+        List<ChatMessage> cached = chatCacheService.getRecentMessagesFromCache(SESSION_ID);
+        assertEquals(List.of(1L, 2L, 3L, 4L), cached.stream().map(ChatMessage::getId).toList());
+    }
+
+    @Test
+    void testClearAndMiss() {
+        chatCacheService.addMessageToCache(SESSION_ID, message(1));
+        chatCacheService.clearSessionMessagesCache(SESSION_ID);
+
+        assertNull(chatCacheService.getRecentMessagesFromCache(SESSION_ID));
+    }
+
+    @Test
+    void testSessionLookupServedFromNearCache() {
+        ChatSession session = session("session-1");
+        chatCacheService.cacheCurrentSession(1, "session-1");
+        chatCacheService.cacheSessionInfo(session);
+
+        // Redis 中的数据被删掉后，本节点仍从近端副本返回，不访问 Redis
+        redisTemplate.delete(List.of("chat:session:current:1", "chat:session:info:session-1"));
+
+        assertEquals("session-1", chatCacheService.getCurrentSessionFromCache(1));
+        assertEquals(session, chatCacheService.getSessionInfoFromCache("session-1"));
+    }
+
+    @Test
+    void testNearCacheReturnsCopies() {
+        ChatSession session = session("session-1");
+        chatCacheService.cacheSessionInfo(session);
+
+        // 调用方修改自己持有的对象，不影响近端副本
+        session.setTitle("缓存后修改");
+        ChatSession first = chatCacheService.getSessionInfoFromCache("session-1");
+        first.setMessageCount(99);
+        ChatSession second = chatCacheService.getSessionInfoFromCache("session-1");
+
+        assertNotSame(first, second);
+        assertEquals("旧标题", second.getTitle());
+        assertNotEquals(99, second.getMessageCount());
+    }
+
+    @Test
+    void testInvalidationPropagatesToOtherNode() throws Exception {
+        ChatCacheServiceImpl other = createNode();
+        chatCacheService.cacheCurrentSession(1, "session-1");
+        chatCacheService.cacheSessionInfo(session("session-1"));
+
+        // 另一个节点读取后持有近端副本
+        assertEquals("session-1", other.getCurrentSessionFromCache(1));
+        assertEquals("旧标题", other.getSessionInfoFromCache("session-1").getTitle());
+
+        // 本节点切换当前会话并修改会话信息
+        ChatSession renamed = session("session-1");
+        renamed.setTitle("新标题");
+        chatCacheService.cacheCurrentSession(1, "session-2");
+        chatCacheService.cacheSessionInfo(renamed);
+
+        long start = System.currentTimeMillis();
+        while ((!"session-2".equals(other.getCurrentSessionFromCache(1))
+                || !"新标题".equals(other.getSessionInfoFromCache("session-1").getTitle()))
+                && System.currentTimeMillis() - start < 1000) {
+            Thread.sleep(10);
+        }
+        assertEquals("session-2", other.getCurrentSessionFromCache(1));
+        assertEquals("新标题", other.getSessionInfoFromCache("session-1").getTitle());
+
+        // 清除后两个节点都读不到
+        chatCacheService.clearUserCache(1);
+        start = System.currentTimeMillis();
+        while (other.getCurrentSessionFromCache(1) != null && System.currentTimeMillis() - start < 1000) {
+            Thread.sleep(10);
+        }
+        assertNull(other.getCurrentSessionFromCache(1));
+        assertNull(chatCacheService.getCurrentSessionFromCache(1));
+    }
+
+    private ChatCacheServiceImpl createNode() throws Exception {
+        RedisMessageListenerContainer container = new RedisConfig().redisMessageListenerContainer(connectionFactory);
+        container.afterPropertiesSet();
+        container.start();
+        containers.add(container);
+
+        ChatCacheServiceImpl node = new ChatCacheServiceImpl();
+        ReflectionTestUtils.setField(node, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(node, "redisMessageListenerContainer", container);
+        ReflectionTestUtils.setField(node, "chatCacheConfig", new ChatCacheConfig());
+        ReflectionTestUtils.setField(node, "meterRegistry", new SimpleMeterRegistry());
+        node.init();
+        return node;
+    }
+
+    private static ChatSession session(String sessionId) {
+        return ChatSession.builder()
+                .sessionId(sessionId)
+                .userId(1)
+                .title("旧标题")
+                .status(1)
+                .messageCount(0)
+                .build();
+    }
+
+    private static ChatMessage message(long id) {
+        return ChatMessage.builder()
+                .id(id)
+                .sessionId(SESSION_ID)
+                .userId(1)
+                .messageType(ChatMessage.MessageType.USER)
+                .content("message " + id)
+                .createTime(LocalDateTime.of(2024, 1, 1, 0, 0).plusSeconds(id))
+                .build();
+    }
+}
@@ -3,12 +3,16 @@ package com.kinghy.rag.service;
 import com.kinghy.rag.entity.ChatMessage;
 import com.kinghy.rag.mapper.ChatMessageMapper;
 import com.kinghy.rag.service.impl.ChatMessageServiceImpl;
+import com.kinghy.rag.task.ChatMessageJournal;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -30,6 +34,15 @@ public class ChatMessageServiceTest {
     @Mock
     private ChatSessionService chatSessionService;
 
+    @Mock
+    private ChatMessageJournal messageJournal;
+
+    @Mock
+    private HotWordService hotWordService;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
     @InjectMocks
     private ChatMessageServiceImpl chatMessageService;
 
@@ -83,8 +96,10 @@ public class ChatMessageServiceTest {
 
         // Verify interactions
         verify(chatMessageMapper).insert(any(ChatMessage.class));
-        verify(chatSessionService).incrementMessageCount(testSessionId);
-        verify(chatSessionService).updateLastMessageTime(testSessionId);
+        verify(chatSessionService).touchSession(testSessionId, 1, result.getCreateTime());
+        verify(hotWordService).record(content);
+        verify(chatSessionService, never()).incrementMessageCount(anyString());
+        verify(chatSessionService, never()).updateLastMessageTime(anyString());
     }
 
     @Test
@@ -108,8 +123,24 @@ public class ChatMessageServiceTest {
 
         // Verify interactions
         verify(chatMessageMapper).insert(any(ChatMessage.class));
-        verify(chatSessionService).incrementMessageCount(testSessionId);
-        verify(chatSessionService).updateLastMessageTime(testSessionId);
+        verify(chatSessionService).touchSession(testSessionId, 1, result.getCreateTime());
+        verify(chatSessionService, never()).incrementMessageCount(anyString());
+        verify(chatSessionService, never()).updateLastMessageTime(anyString());
+    }
+
+    @Test
+    void testSaveUserMessage_WriteBehind() {
+        // Given
+        when(messageJournal.isWriteBehind()).thenReturn(true);
+
+        // When
+        ChatMessage result = chatMessageService.saveUserMessage(testSessionId, testUserId, "Test user message");
+
+        // Then
+        assertEquals(testSessionId, result.getSessionId());
+        verify(messageJournal).append(result);
+        verify(chatMessageMapper, never()).insert(any(ChatMessage.class));
+        verify(chatSessionService, never()).touchSession(anyString(), anyInt(), any());
     }
 
     @Test
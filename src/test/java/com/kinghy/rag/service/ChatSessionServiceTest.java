@@ -2,13 +2,18 @@ package com.kinghy.rag.service;
 
 import com.kinghy.rag.entity.ChatSession;
 import com.kinghy.rag.mapper.ChatSessionMapper;
+import com.kinghy.rag.pojo.dto.SessionTouch;
 import com.kinghy.rag.service.impl.ChatSessionServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -27,6 +32,12 @@ public class ChatSessionServiceTest {
     @Mock
     private ChatSessionMapper chatSessionMapper;
 
+    @Mock
+    private ChatCacheService chatCacheService;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
     @InjectMocks
     private ChatSessionServiceImpl chatSessionService;
 
@@ -203,6 +214,53 @@ public class ChatSessionServiceTest {
         verify(chatSessionMapper).updateLastMessageTime(sessionId);
     }
 
+    @Test
+    void testTouchSession() {
+        // Given
+        String sessionId = "test-session-123";
+        LocalDateTime time = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+        // When
+        chatSessionService.touchSession(sessionId, 2, time);
+
+        // Then
+        verify(chatSessionMapper).touchSession(sessionId, 2, time);
+        verify(chatSessionMapper, never()).incrementMessageCount(anyString());
+        verify(chatSessionMapper, never()).updateLastMessageTime(anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testTouchSessions_MergesAndSortsBySessionId() {
+        // Given
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 12, 0);
+        List<SessionTouch> touches = Arrays.asList(
+                new SessionTouch("s2", 1, base.plusSeconds(1)),
+                new SessionTouch("s1", 1, base.plusSeconds(3)),
+                new SessionTouch("s2", 1, base.plusSeconds(2)),
+                new SessionTouch("s1", 1, base));
+
+        // When
+        chatSessionService.touchSessions(touches);
+
+        // Then
+        ArgumentCaptor<List<SessionTouch>> captor = ArgumentCaptor.forClass(List.class);
+        verify(chatSessionMapper).touchSessions(captor.capture());
+        List<SessionTouch> applied = captor.getValue();
+        assertEquals(2, applied.size());
+        assertEquals(new SessionTouch("s1", 2, base.plusSeconds(3)), applied.get(0));
+        assertEquals(new SessionTouch("s2", 2, base.plusSeconds(2)), applied.get(1));
+        // 入参不应被合并过程修改
+        assertEquals(1, touches.get(0).getDelta());
+    }
+
+    @Test
+    void testTouchSessions_Empty() {
+        chatSessionService.touchSessions(List.of());
+
+        verify(chatSessionMapper, never()).touchSessions(anyList());
+    }
+
     @Test
     void testActivateSession() {
         // Given
@@ -216,6 +274,36 @@ public class ChatSessionServiceTest {
         verify(chatSessionMapper).getSessionByIdAndUserId(sessionId, testUserId);
         verify(chatSessionMapper).deactivateOtherSessions(testUserId, sessionId);
         verify(chatSessionMapper).activateSession(sessionId, testUserId);
+        verify(transactionTemplate).execute(any());
+        verify(chatCacheService).cacheCurrentSession(testUserId, sessionId);
+    }
+
+    @Test
+    void testActivateSession_SkippedWhenAlreadyCurrent() {
+        // Given
+        String sessionId = "test-session-123";
+        when(chatCacheService.getCurrentSessionFromCache(testUserId)).thenReturn(sessionId);
+
+        // When
+        chatSessionService.activateSession(sessionId, testUserId);
+
+        // Then
+        verifyNoInteractions(chatSessionMapper);
+        verifyNoInteractions(transactionTemplate);
+        verify(chatCacheService, never()).cacheCurrentSession(any(), any());
+    }
+
+    @Test
+    void testEndSession_ClearsCurrentSessionCache() {
+        // Given
+        String sessionId = "test-session-123";
+
+        // When
+        chatSessionService.endSession(sessionId, testUserId);
+
+        // Then
+        verify(chatSessionMapper).endSession(sessionId, testUserId);
+        verify(chatCacheService).clearUserCache(testUserId);
     }
 
     @Test
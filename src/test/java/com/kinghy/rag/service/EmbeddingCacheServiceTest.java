@@ -0,0 +1,139 @@
+package com.kinghy.rag.service;
+
+import com.kinghy.rag.config.EmbeddingCacheConfig;
+import com.kinghy.rag.config.RedisConfig;
+import com.kinghy.rag.service.impl.EmbeddingCacheServiceImpl;
+import com.kinghy.rag.utils.CachingEmbeddingModel;
+import com.kinghy.rag.utils.StubEmbeddingModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 查询向量和文档片段向量缓存测试类（嵌入式Redis）
+ *
+ * @author yunzhongxiaoma
+ */
+class EmbeddingCacheServiceTest {
+
+    private static final int REDIS_PORT = 16380;
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, Object> redisTemplate;
+
+    private EmbeddingModel delegate;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        redisServer = new RedisServer(REDIS_PORT);
+        redisServer.start();
+
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", REDIS_PORT));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new RedisConfig().redisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.getConnectionFactory().getConnection().serverCommands().flushAll();
+        delegate = mock(EmbeddingModel.class);
+        when(delegate.embed("什么是RAG？")).thenReturn(new float[]{0.1f, -0.2f, 0.3f});
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testRepeatedQueryHitsLocalCache() {
+        EmbeddingCacheService cache = createCache();
+        CachingEmbeddingModel model = new CachingEmbeddingModel(delegate, () -> cache);
+
+        float[] first = model.embed("什么是RAG？");
+        float[] second = model.embed("  什么是rag？ ");
+
+        assertArrayEquals(first, second);
+        verify(delegate, times(1)).embed(anyString());
+        assertEquals(1.0, meterRegistry.get("rag.embedding.cache.requests").tag("result", "local_hit").counter().count());
+        assertEquals(0.5, meterRegistry.get("rag.embedding.cache.hit.rate").gauge().value());
+    }
+
+    @Test
+    void testOtherNodeHitsRedisCache() {
+        EmbeddingCacheService nodeA = createCache();
+        EmbeddingCacheService nodeB = createCache();
+
+        new CachingEmbeddingModel(delegate, () -> nodeA).embed("什么是RAG？");
+        float[] fromRedis = new CachingEmbeddingModel(delegate, () -> nodeB).embed("什么是RAG？");
+
+        assertArrayEquals(new float[]{0.1f, -0.2f, 0.3f}, fromRedis);
+        verify(delegate, times(1)).embed(anyString());
+        assertEquals(1.0, meterRegistry.get("rag.embedding.cache.requests").tag("result", "redis_hit").counter().count());
+    }
+
+    @Test
+    void testDisabledCacheAlwaysCallsModel() {
+        EmbeddingCacheConfig config = new EmbeddingCacheConfig();
+        config.setEnabled(false);
+        EmbeddingCacheService cache = createCache(config);
+        CachingEmbeddingModel model = new CachingEmbeddingModel(delegate, () -> cache);
+
+        model.embed("什么是RAG？");
+        model.embed("什么是RAG？");
+
+        verify(delegate, times(2)).embed(anyString());
+    }
+
+    @Test
+    void testUnchangedChunksReuseStoredEmbeddings() {
+        StubEmbeddingModel stub = new StubEmbeddingModel(4, 0, 0);
+        EmbeddingCacheService cache = createCache();
+        CachingEmbeddingModel model = new CachingEmbeddingModel(stub, () -> cache);
+
+        model.call(new EmbeddingRequest(List.of("第一段", "第二段"), null));
+        EmbeddingResponse response = model.call(new EmbeddingRequest(List.of("第一段", "第三段", "第二段"), null));
+
+        assertEquals(2, stub.getCalls());
+        assertEquals(List.of(2, 1), stub.getBatchSizes());
+        assertArrayEquals(stub.vector("第一段"), response.getResults().get(0).getOutput());
+        assertArrayEquals(stub.vector("第三段"), response.getResults().get(1).getOutput());
+        assertArrayEquals(stub.vector("第二段"), response.getResults().get(2).getOutput());
+        assertEquals(2.0, meterRegistry.get("rag.ingestion.dedup.hits").tag("level", "chunk").counter().count());
+        assertEquals(3.0, meterRegistry.get("rag.ingestion.dedup.misses").tag("level", "chunk").counter().count());
+    }
+
+    private EmbeddingCacheService createCache() {
+        return createCache(new EmbeddingCacheConfig());
+    }
+
+    private EmbeddingCacheService createCache(EmbeddingCacheConfig config) {
+        EmbeddingCacheServiceImpl cache = new EmbeddingCacheServiceImpl();
+        ReflectionTestUtils.setField(cache, "embeddingCacheConfig", config);
+        ReflectionTestUtils.setField(cache, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(cache, "meterRegistry", meterRegistry);
+        cache.init();
+        return cache;
+    }
+}
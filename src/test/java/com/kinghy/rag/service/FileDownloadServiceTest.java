@@ -0,0 +1,150 @@
+package com.kinghy.rag.service;
+
+import com.kinghy.rag.entity.KnowledgeBaseFile;
+import com.kinghy.rag.service.impl.FileDownloadServiceImpl;
+import com.kinghy.rag.utils.LocalObjectStorage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 知识库文件下载服务测试类
+ *
+ * @author yunzhongxiaoma
+ * @since 1.0.0
+ */
+class FileDownloadServiceTest {
+
+    @TempDir
+    Path root;
+
+    private KnowledgeBaseFileService knowledgeBaseFileService;
+    private FileDownloadServiceImpl fileDownloadService;
+
+    @BeforeEach
+    void setUp() {
+        LocalObjectStorage storage = new LocalObjectStorage(root);
+        knowledgeBaseFileService = mock(KnowledgeBaseFileService.class);
+        when(knowledgeBaseFileService.validateFileAccess(1L, 2L))
+                .thenReturn(file(1L, "年假制度.txt", storage.upload("0123456789".getBytes(StandardCharsets.UTF_8), "kb_files/a.txt")));
+        when(knowledgeBaseFileService.validateFileAccess(3L, 2L))
+                .thenReturn(file(3L, "年假制度.txt", storage.upload("abc".getBytes(StandardCharsets.UTF_8), "kb_files/b.txt")));
+
+        fileDownloadService = new FileDownloadServiceImpl();
+        ReflectionTestUtils.setField(fileDownloadService, "knowledgeBaseFileService", knowledgeBaseFileService);
+        ReflectionTestUtils.setField(fileDownloadService, "objectStorage", storage);
+        ReflectionTestUtils.setField(fileDownloadService, "meterRegistry", new SimpleMeterRegistry());
+        fileDownloadService.init();
+    }
+
+    @Test
+    void testFullDownload() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileDownloadService.download(1L, 2L, new MockHttpServletRequest(), response);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("0123456789", response.getContentAsString());
+        assertEquals("\"hash-1\"", response.getHeader("ETag"));
+        assertEquals("bytes", response.getHeader("Accept-Ranges"));
+    }
+
+    @Test
+    void testRangeDownload() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Range", "bytes=2-5");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileDownloadService.download(1L, 2L, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2-5/10", response.getHeader("Content-Range"));
+        assertEquals("2345", response.getContentAsString());
+    }
+
+    @Test
+    void testSuffixAndUnsatisfiableRange() throws Exception {
+        MockHttpServletRequest suffix = new MockHttpServletRequest();
+        suffix.addHeader("Range", "bytes=-3");
+        MockHttpServletResponse suffixResponse = new MockHttpServletResponse();
+        fileDownloadService.download(1L, 2L, suffix, suffixResponse);
+        assertEquals("789", suffixResponse.getContentAsString());
+
+        MockHttpServletRequest outside = new MockHttpServletRequest();
+        outside.addHeader("Range", "bytes=20-");
+        MockHttpServletResponse outsideResponse = new MockHttpServletResponse();
+        fileDownloadService.download(1L, 2L, outside, outsideResponse);
+        assertEquals(416, outsideResponse.getStatus());
+        assertEquals("bytes */10", outsideResponse.getHeader("Content-Range"));
+    }
+
+    @Test
+    void testIfNoneMatchReturnsNotModified() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("If-None-Match", "\"hash-1\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileDownloadService.download(1L, 2L, request, response);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void testStaleIfRangeReturnsFullContent() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Range", "bytes=2-5");
+        request.addHeader("If-Range", "\"old-hash\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileDownloadService.download(1L, 2L, request, response);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("0123456789", response.getContentAsString());
+    }
+
+    @Test
+    void testZipDownloadStreamsAllFiles() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileDownloadService.downloadZip(List.of(1L, 3L), 2L, response);
+
+        assertEquals("application/zip", response.getContentType());
+        List<String> names = new ArrayList<>();
+        List<String> contents = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(response.getContentAsByteArray()), StandardCharsets.UTF_8)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                names.add(entry.getName());
+                contents.add(new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        assertEquals(List.of("年假制度.txt", "年假制度 (1).txt"), names);
+        assertEquals(List.of("0123456789", "abc"), contents);
+    }
+
+    private static KnowledgeBaseFile file(Long id, String originalName, String fileUrl) {
+        return KnowledgeBaseFile.builder()
+                .id(id)
+                .knowledgeBaseId(1L)
+                .originalName(originalName)
+                .fileUrl(fileUrl)
+                .contentHash("hash-" + id)
+                .build();
+    }
+}
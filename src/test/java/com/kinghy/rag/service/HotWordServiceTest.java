@@ -0,0 +1,127 @@
+package com.kinghy.rag.service;
+
+import com.kinghy.rag.common.HotWordWindow;
+import com.kinghy.rag.config.HotWordConfig;
+import com.kinghy.rag.config.RedisConfig;
+import com.kinghy.rag.pojo.vo.HotWordVO;
+import com.kinghy.rag.service.impl.HotWordServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 实时热词服务测试类（嵌入式Redis）
+ *
+ * @author yunzhongxiaoma
+ */
+class HotWordServiceTest {
+
+    private static final int REDIS_PORT = 16383;
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, Object> redisTemplate;
+
+    private final List<HotWordServiceImpl> nodes = new ArrayList<>();
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        redisServer = new RedisServer(REDIS_PORT);
+        redisServer.start();
+
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", REDIS_PORT));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new RedisConfig().redisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.getConnectionFactory().getConnection().serverCommands().flushAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodes.forEach(HotWordServiceImpl::stop);
+        nodes.clear();
+    }
+
+    @Test
+    void testTopKMergesAllNodes() {
+        HotWordServiceImpl first = createNode(new HotWordConfig());
+        HotWordServiceImpl second = createNode(new HotWordConfig());
+        for (int i = 0; i < 3; i++) {
+            first.record("北京欢迎你");
+        }
+        second.record("北京和上海");
+        second.record("北京和上海");
+
+        // 停止时处理完队列并发布本节点的统计
+        first.stop();
+        second.stop();
+
+        for (HotWordWindow window : HotWordWindow.values()) {
+            List<HotWordVO> top = first.topK(3, window);
+            assertEquals("北京", top.get(0).getWord(), "窗口 " + window.getCode());
+            assertEquals(5L, top.get(0).getCount());
+            assertTrue(top.size() <= 3);
+        }
+        List<HotWordVO> fromSecond = second.topK(10, HotWordWindow.FIVE_MINUTES);
+        assertEquals(first.topK(10, HotWordWindow.FIVE_MINUTES), fromSecond);
+    }
+
+    @Test
+    void testKIsCappedAndEmptyWindowReturnsNothing() {
+        HotWordConfig config = new HotWordConfig();
+        config.setMaxK(1);
+        HotWordServiceImpl node = createNode(config);
+
+        assertTrue(node.topK(10, HotWordWindow.ONE_HOUR).isEmpty());
+
+        node.record("北京欢迎你");
+        node.stop();
+
+        assertEquals(1, node.topK(10, HotWordWindow.ONE_HOUR).size());
+    }
+
+    @Test
+    void testDisabledIgnoresMessages() {
+        HotWordConfig config = new HotWordConfig();
+        config.setEnabled(false);
+        HotWordServiceImpl node = createNode(config);
+
+        node.record("北京欢迎你");
+
+        assertTrue(node.topK(10, HotWordWindow.FIVE_MINUTES).isEmpty());
+    }
+
+    private HotWordServiceImpl createNode(HotWordConfig config) {
+        HotWordServiceImpl node = new HotWordServiceImpl();
+        ReflectionTestUtils.setField(node, "hotWordConfig", config);
+        ReflectionTestUtils.setField(node, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(node, "meterRegistry", new SimpleMeterRegistry());
+        node.start();
+        nodes.add(node);
+        return node;
+    }
+}
@@ -0,0 +1,131 @@
+package com.kinghy.rag.service;
+
+import cn.hutool.crypto.SecureUtil;
+import com.alibaba.fastjson2.JSON;
+import com.kinghy.rag.config.IngestionConfig;
+import com.kinghy.rag.entity.IngestionJob;
+import com.kinghy.rag.entity.KnowledgeBaseFile;
+import com.kinghy.rag.mapper.KnowledgeBaseFileMapper;
+import com.kinghy.rag.pojo.dto.IngestionTask;
+import com.kinghy.rag.service.impl.KnowledgeBaseFileServiceImpl;
+import com.kinghy.rag.task.IngestionPipeline;
+import com.kinghy.rag.utils.ObjectStorage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 知识库文件服务测试类
+ * 
+ * @author yunzhongxiaoma
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+class KnowledgeBaseFileServiceTest {
+    
+    private static final String CONTENT = "员工每年享有5天带薪年假，需在OA系统中提前申请。";
+    
+    @Mock
+    private KnowledgeBaseFileMapper knowledgeBaseFileMapper;
+    
+    @Mock
+    private KnowledgeBaseService knowledgeBaseService;
+    
+    @Mock
+    private ObjectStorage objectStorage;
+    
+    @Mock
+    private VectorStoreManager vectorStoreManager;
+    
+    @Mock
+    private SemanticAnswerCacheService semanticAnswerCacheService;
+    
+    @Mock
+    private IngestionJobService ingestionJobService;
+    
+    @Mock
+    private IngestionPipeline ingestionPipeline;
+    
+    @InjectMocks
+    private KnowledgeBaseFileServiceImpl knowledgeBaseFileService;
+    
+    private SimpleMeterRegistry meterRegistry;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(knowledgeBaseFileService, "ingestionConfig", new IngestionConfig());
+        ReflectionTestUtils.setField(knowledgeBaseFileService, "meterRegistry", meterRegistry);
+        knowledgeBaseFileService.init();
+    }
+    
+    @Test
+    void testUploadFile_SameContentInKnowledgeBaseSkipsIngestion() {
+        KnowledgeBaseFile existing = KnowledgeBaseFile.builder()
+                .id(50L)
+                .knowledgeBaseId(1L)
+                .fileName("kb_files/old.txt")
+                .fileUrl("https://oss/kb_files/old.txt")
+                .vectorIds(JSON.toJSONString(List.of("v1", "v2")))
+                .build();
+        when(knowledgeBaseFileMapper.selectFirstByContentHash(1L, SecureUtil.sha256(CONTENT))).thenReturn(existing);
+        when(ingestionJobService.createJob(1L, "kb_files/old.txt", "年假制度.txt", (long) bytes().length, 2L))
+                .thenReturn(IngestionJob.builder().id(7L).build());
+        IngestionJob done = IngestionJob.builder().id(7L).fileId(50L).build();
+        when(ingestionJobService.getById(7L)).thenReturn(done);
+        
+        IngestionJob job = knowledgeBaseFileService.uploadFile(1L, upload(), 2L);
+        
+        // 直接返回指向已有文件的完成任务，不进入入库流水线
+        assertSame(done, job);
+        verify(ingestionJobService).markDone(7L, 50L, 2);
+        verify(ingestionPipeline, never()).submit(any());
+        verify(objectStorage, never()).upload(any(java.nio.file.Path.class), anyString());
+        assertEquals(1.0, meterRegistry.get("rag.ingestion.dedup.hits").tag("level", "file").counter().count());
+    }
+    
+    @Test
+    void testUploadFile_NewContentSubmittedWithContentHash() throws Exception {
+        when(ingestionJobService.createJob(eq(1L), anyString(), eq("年假制度.txt"), eq((long) bytes().length), eq(2L)))
+                .thenReturn(IngestionJob.builder().id(8L).build());
+        ArgumentCaptor<IngestionTask> submitted = ArgumentCaptor.forClass(IngestionTask.class);
+        when(ingestionPipeline.submit(submitted.capture())).thenReturn(true);
+        
+        IngestionJob job = knowledgeBaseFileService.uploadFile(1L, upload(), 2L);
+        
+        // 其他知识库中的相同文件不影响本知识库入库，哈希随任务传给流水线用于复用对象存储文件
+        assertEquals(8L, job.getId());
+        IngestionTask task = submitted.getValue();
+        try {
+            assertEquals(SecureUtil.sha256(CONTENT), task.getContentHash());
+            assertEquals(CONTENT, Files.readString(task.getTempFile(), StandardCharsets.UTF_8));
+            verify(knowledgeBaseFileMapper).selectFirstByContentHash(1L, task.getContentHash());
+            verify(ingestionJobService, never()).markDone(anyLong(), anyLong(), anyInt());
+        } finally {
+            Files.deleteIfExists(task.getTempFile());
+        }
+    }
+    
+    private static MockMultipartFile upload() {
+        return new MockMultipartFile("file", "年假制度.txt", "text/plain", bytes());
+    }
+    
+    private static byte[] bytes() {
+        return CONTENT.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,101 @@
+package com.kinghy.rag.service;
+
+import com.kinghy.rag.config.VectorSearchConfig;
+import com.kinghy.rag.service.impl.MinMaxFusionStrategy;
+import com.kinghy.rag.service.impl.RrfFusionStrategy;
+import com.kinghy.rag.service.impl.WeightedFusionStrategy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 多知识库结果融合策略测试类
+ *
+ * @author yunzhongxiaoma
+ * @since 1.0.0
+ */
+class ResultFusionStrategyTest {
+
+    private VectorSearchConfig config;
+
+    @BeforeEach
+    void setUp() {
+        config = new VectorSearchConfig();
+    }
+
+    @Test
+    void testRrf_SumsRanksOfSharedDocuments() {
+        RrfFusionStrategy rrf = new RrfFusionStrategy();
+        ReflectionTestUtils.setField(rrf, "vectorSearchConfig", config);
+
+        Map<Long, List<Document>> results = new LinkedHashMap<>();
+        results.put(1L, List.of(doc("a", 0.9), doc("shared", 0.8), doc("c", 0.7)));
+        results.put(2L, List.of(doc("shared", 0.3), doc("d", 0.2)));
+
+        // shared 在两个列表中都排名靠前，累加后超过只出现一次的 a
+        assertEquals(List.of("shared", "a", "d"), ids(rrf.fuse(results, 3)));
+    }
+
+    @Test
+    void testMinMax_NormalizesEachKnowledgeBase() {
+        MinMaxFusionStrategy minMax = new MinMaxFusionStrategy();
+
+        Map<Long, List<Document>> results = new LinkedHashMap<>();
+        // 知识库1的原始分数整体偏高，知识库2整体偏低
+        results.put(1L, List.of(doc("a1", 0.95), doc("a2", 0.94), doc("a3", 0.90)));
+        results.put(2L, List.of(doc("b1", 0.40), doc("b2", 0.10)));
+
+        List<Document> fused = minMax.fuse(results, 4);
+
+        // 归一化后两个知识库的第一名并列，第二名按相对位置排序
+        assertEquals(List.of("a1", "b1", "a2", "a3"), ids(fused));
+    }
+
+    @Test
+    void testWeighted_AppliesKnowledgeBaseWeight() {
+        config.setKnowledgeBaseWeights(Map.of(2L, 2f));
+        WeightedFusionStrategy weighted = new WeightedFusionStrategy();
+        ReflectionTestUtils.setField(weighted, "vectorSearchConfig", config);
+
+        Map<Long, List<Document>> results = new LinkedHashMap<>();
+        results.put(1L, List.of(doc("a1", 0.9), doc("a2", 0.1)));
+        results.put(2L, List.of(doc("b1", 0.5), doc("b2", 0.4), doc("b3", 0.1)));
+
+        assertEquals(List.of("b1", "b2", "a1"), ids(weighted.fuse(results, 3)));
+    }
+
+    @Test
+    void testFuse_UsesDistanceWhenScoreMissing() {
+        MinMaxFusionStrategy minMax = new MinMaxFusionStrategy();
+
+        Map<Long, List<Document>> results = new LinkedHashMap<>();
+        results.put(1L, List.of(
+                new Document("far", "内容", Map.of("distance", "0.8")),
+                new Document("near", "内容", Map.of("distance", 0.1f))));
+
+        assertEquals(List.of("near", "far"), ids(minMax.fuse(results, 5)));
+    }
+
+    @Test
+    void testFuse_EmptyResults() {
+        MinMaxFusionStrategy minMax = new MinMaxFusionStrategy();
+
+        assertTrue(minMax.fuse(Map.of(), 5).isEmpty());
+        assertTrue(minMax.fuse(Map.of(1L, List.of(doc("a", 0.5))), 0).isEmpty());
+    }
+
+    private static Document doc(String id, double score) {
+        return Document.builder().id(id).text("内容" + id).score(score).build();
+    }
+
+    private static List<String> ids(List<Document> documents) {
+        return documents.stream().map(Document::getId).toList();
+    }
+}
@@ -0,0 +1,136 @@
+package com.kinghy.rag.service;
+
+import com.kinghy.rag.config.RedisConfig;
+import com.kinghy.rag.config.SemanticCacheConfig;
+import com.kinghy.rag.service.impl.SemanticAnswerCacheServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 语义答案缓存测试类（嵌入式Redis）
+ *
+ * @author yunzhongxiaoma
+ */
+class SemanticAnswerCacheServiceTest {
+
+    private static final int REDIS_PORT = 16381;
+
+    private static final String PROMPT = "你是一名基于知识库的AI助手";
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, Object> redisTemplate;
+
+    private SemanticAnswerCacheServiceImpl cacheService;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        redisServer = new RedisServer(REDIS_PORT);
+        redisServer.start();
+
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", REDIS_PORT));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new RedisConfig().redisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.getConnectionFactory().getConnection().serverCommands().flushAll();
+
+        EmbeddingModel embeddingModel = mock(EmbeddingModel.class);
+        when(embeddingModel.embed("如何申请年假？")).thenReturn(new float[]{1f, 0f, 0.1f});
+        when(embeddingModel.embed("怎么申请年假")).thenReturn(new float[]{1f, 0f, 0.12f});
+        when(embeddingModel.embed("报销流程是什么？")).thenReturn(new float[]{0f, 1f, 0f});
+
+        cacheService = new SemanticAnswerCacheServiceImpl();
+        ReflectionTestUtils.setField(cacheService, "semanticCacheConfig", new SemanticCacheConfig());
+        ReflectionTestUtils.setField(cacheService, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(cacheService, "embeddingModel", embeddingModel);
+        ReflectionTestUtils.setField(cacheService, "meterRegistry", new SimpleMeterRegistry());
+        cacheService.init();
+    }
+
+    @Test
+    void testSimilarQuestionHitsRegardlessOfKnowledgeBaseOrder() {
+        cacheService.store("如何申请年假？", List.of(1L, 2L), PROMPT, "在OA系统提交年假申请");
+
+        assertEquals("在OA系统提交年假申请", cacheService.lookup("怎么申请年假", List.of(2L, 1L), PROMPT));
+        assertNull(cacheService.lookup("报销流程是什么？", List.of(1L, 2L), PROMPT));
+        assertNull(cacheService.lookup("怎么申请年假", List.of(1L), PROMPT));
+        assertNull(cacheService.lookup("怎么申请年假", List.of(1L, 2L), "其他提示词"));
+    }
+
+    @Test
+    void testInvalidateKnowledgeBase() {
+        cacheService.store("如何申请年假？", List.of(1L, 2L), PROMPT, "在OA系统提交年假申请");
+        cacheService.store("如何申请年假？", List.of(3L), PROMPT, "请咨询人事部门");
+
+        cacheService.invalidate(2L);
+
+        assertNull(cacheService.lookup("如何申请年假？", List.of(1L, 2L), PROMPT));
+        assertEquals("请咨询人事部门", cacheService.lookup("如何申请年假？", List.of(3L), PROMPT));
+    }
+
+    @Test
+    void testEntryStoredAsLittleEndianBytes() {
+        String answer = "在OA系统提交年假申请";
+        cacheService.store("如何申请年假？", List.of(1L), PROMPT, answer);
+
+        Set<String> keys = redisTemplate.keys("rag:answer:cache:*");
+        assertNotNull(keys);
+        assertEquals(1, keys.size());
+        List<byte[]> entries = redisTemplate.getConnectionFactory().getConnection().listCommands()
+                .lRange(keys.iterator().next().getBytes(StandardCharsets.UTF_8), 0, -1);
+        assertNotNull(entries);
+        assertEquals(1, entries.size());
+
+        byte[] questionBytes = "如何申请年假？".getBytes(StandardCharsets.UTF_8);
+        byte[] answerBytes = answer.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer entry = ByteBuffer.wrap(entries.get(0)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(Integer.BYTES * 2 + 3 * Float.BYTES + questionBytes.length + answerBytes.length,
+                entries.get(0).length);
+        assertEquals(3, entry.getInt());
+        assertEquals(1f, entry.getFloat());
+        assertEquals(0f, entry.getFloat());
+        assertEquals(0.1f, entry.getFloat());
+        assertEquals(questionBytes.length, entry.getInt());
+    }
+
+    @Test
+    void testReplaySplitsAnswerIntoChunks() {
+        String answer = "在OA系统提交年假申请，经部门负责人审批后生效。";
+
+        List<String> chunks = cacheService.replay(answer).collectList().block();
+
+        assertNotNull(chunks);
+        assertTrue(chunks.size() > 1);
+        assertEquals(answer, String.join("", chunks));
+    }
+}
@@ -0,0 +1,170 @@
+package com.kinghy.rag.service;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.kinghy.rag.common.SensitiveAction;
+import com.kinghy.rag.constant.MessageConstant;
+import com.kinghy.rag.entity.SensitiveCategory;
+import com.kinghy.rag.entity.SensitiveWord;
+import com.kinghy.rag.mapper.SensitiveCategoryMapper;
+import com.kinghy.rag.mapper.SensitiveWordMapper;
+import com.kinghy.rag.pojo.dto.SensitiveCheckResult;
+import com.kinghy.rag.service.impl.SensitiveWordServiceImpl;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+
+/**
+ * SensitiveWordService 测试类
+ *
+ * @author yunzhongxiaoma
+ */
+@ExtendWith(MockitoExtension.class)
+class SensitiveWordServiceTest {
+
+    @Mock
+    private SensitiveWordMapper sensitiveWordMapper;
+
+    @Mock
+    private SensitiveCategoryMapper sensitiveCategoryMapper;
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @InjectMocks
+    private SensitiveWordServiceImpl sensitiveWordService;
+
+    @BeforeAll
+    static void initTableInfo() {
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), SensitiveWord.class);
+    }
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(sensitiveWordService, "baseMapper", sensitiveWordMapper);
+        lenient().when(sensitiveWordMapper.selectList(any())).thenReturn(Arrays.asList(
+                word(1, "赌博", "违法"),
+                word(2, "发票", null),
+                word(3, "加微信", "广告"),
+                word(4, "内卷", "低俗")));
+        lenient().when(sensitiveCategoryMapper.selectList(any())).thenReturn(Arrays.asList(
+                category("违法", "BLOCK"),
+                category("广告", "MASK"),
+                category("低俗", "LOG")));
+    }
+
+    @Test
+    void testMatch() {
+        assertEquals("赌博", sensitiveWordService.match("网上赌博合法吗").getBlockedWord());
+        assertFalse(sensitiveWordService.match("今天天气不错").isBlocked());
+    }
+
+    @Test
+    void testMatch_ReturnsEveryHitWithCategory() {
+        SensitiveCheckResult result = sensitiveWordService.match("太内卷了，加微信聊，顺便代开发票");
+
+        assertEquals(3, result.getHits().size());
+        assertEquals("低俗", result.getHits().get(0).getCategory());
+        assertEquals(SensitiveAction.LOG, result.getHits().get(0).getAction());
+        assertEquals("广告", result.getHits().get(1).getCategory());
+        assertEquals(SensitiveAction.MASK, result.getHits().get(1).getAction());
+        assertEquals("未分类", result.getHits().get(2).getCategory());
+        assertEquals("发票", result.getBlockedWord());
+    }
+
+    @Test
+    void testMatch_MaskAndLogCategoriesAreNotBlocked() {
+        SensitiveCheckResult result = sensitiveWordService.match("太内卷了，加微信聊");
+
+        assertFalse(result.isBlocked());
+        assertEquals("太内卷了，***聊", result.getText());
+        assertEquals(1L, sensitiveWordService.getCategoryHitCounts().get("广告"));
+        assertEquals(1L, sensitiveWordService.getCategoryHitCounts().get("低俗"));
+    }
+
+    @Test
+    void testModerate_CleanStreamPassesThrough() {
+        List<String> result = sensitiveWordService.moderate(Flux.just("你好，", "有什么可以", "帮你的？"))
+                .collectList()
+                .block();
+
+        assertEquals(Arrays.asList("你好，", "有什么可以", "帮你的？"), result);
+    }
+
+    @Test
+    void testModerate_WordInsideChunkIsTruncated() {
+        List<String> result = sensitiveWordService.moderate(Flux.just("第一段。", "这里可以代开发票哦", "后续内容"))
+                .collectList()
+                .block();
+
+        assertEquals(Arrays.asList("第一段。", "这里可以代开" + MessageConstant.SENSITIVE_OUTPUT_BLOCKED), result);
+    }
+
+    @Test
+    void testModerate_MaskCategoryIsReplaced() {
+        List<String> result = sensitiveWordService.moderate(Flux.just("有问题可以", "加微信咨询"))
+                .collectList()
+                .block();
+
+        assertEquals(Arrays.asList("有问题可以", "***咨询"), result);
+    }
+
+    @Test
+    void testModerate_WordSplitAcrossChunks() {
+        List<String> result = sensitiveWordService.moderate(Flux.just("这是网上赌", "博的内容", "后续内容"))
+                .collectList()
+                .block();
+
+        // "赌"可能是敏感词的开头，先不发出，下一个分片确认命中后一并截断
+        assertEquals(Arrays.asList("这是网上", MessageConstant.SENSITIVE_OUTPUT_BLOCKED), result);
+    }
+
+    @Test
+    void testModerate_MaskWordSplitAcrossChunksIsFullyReplaced() {
+        List<String> result = sensitiveWordService.moderate(Flux.just("有问题可以加", "微", "信咨询"))
+                .collectList()
+                .block();
+
+        assertEquals(Arrays.asList("有问题可以", "***咨询"), result);
+    }
+
+    @Test
+    void testModerate_HeldPrefixReleasedWhenNotAWord() {
+        List<String> result = sensitiveWordService.moderate(Flux.just("可以加", "油", "，结尾是加微"))
+                .collectList()
+                .block();
+
+        // 未构成敏感词的暂存字符随下一个分片发出，输出结束时发出剩余的暂存字符
+        assertEquals(Arrays.asList("可以", "加油", "，结尾是", "加微"), result);
+    }
+
+    private static SensitiveWord word(int id, String text, String category) {
+        SensitiveWord word = new SensitiveWord();
+        word.setId(id);
+        word.setWord(text);
+        word.setCategory(category);
+        return word;
+    }
+
+    private static SensitiveCategory category(String name, String action) {
+        SensitiveCategory category = new SensitiveCategory();
+        category.setCategoryName(name);
+        category.setAction(action);
+        return category;
+    }
+}
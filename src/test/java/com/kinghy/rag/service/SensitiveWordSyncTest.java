@@ -0,0 +1,161 @@
+package com.kinghy.rag.service;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.kinghy.rag.config.RedisConfig;
+import com.kinghy.rag.entity.SensitiveWord;
+import com.kinghy.rag.mapper.SensitiveCategoryMapper;
+import com.kinghy.rag.mapper.SensitiveWordMapper;
+import com.kinghy.rag.service.impl.SensitiveWordServiceImpl;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 敏感词词库跨节点同步测试（嵌入式Redis）
+ *
+ * @author yunzhongxiaoma
+ */
+class SensitiveWordSyncTest {
+
+    private static final int REDIS_PORT = 16379;
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 模拟 sensitive_word 表，两个节点共享
+     */
+    private final List<SensitiveWord> table = new CopyOnWriteArrayList<>();
+
+    private RedisMessageListenerContainer containerA;
+    private RedisMessageListenerContainer containerB;
+    private SensitiveWordServiceImpl nodeA;
+    private SensitiveWordServiceImpl nodeB;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        redisServer = new RedisServer(REDIS_PORT);
+        redisServer.start();
+
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", REDIS_PORT));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new RedisConfig().redisTemplate(connectionFactory);
+
+        // Lambda 条件构造器需要实体表信息
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), SensitiveWord.class);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        redisTemplate.delete(SensitiveWordServiceImpl.DICTIONARY_VERSION_KEY);
+        table.add(word(1, "赌博"));
+
+        containerA = startContainer();
+        containerB = startContainer();
+        nodeA = createNode(containerA);
+        nodeB = createNode(containerB);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        nodeA.shutdown();
+        nodeB.shutdown();
+        containerA.destroy();
+        containerB.destroy();
+    }
+
+    @Test
+    void testChangePropagatesToOtherNodeWithinOneSecond() throws Exception {
+        // 两个节点都已加载初始词库
+        assertEquals("赌博", nodeA.match("网上赌博").getBlockedWord());
+        assertNull(nodeB.match("代开发票").getBlockedWord());
+
+        // 节点A新增敏感词并广播
+        table.add(word(2, "发票"));
+        long start = System.currentTimeMillis();
+        nodeA.publishChange(List.of(2));
+
+        while (!nodeB.match("代开发票").isBlocked() && System.currentTimeMillis() - start < 1000) {
+            Thread.sleep(10);
+        }
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals("发票", nodeB.match("代开发票").getBlockedWord(), "节点B应在1秒内收到变更");
+        assertTrue(elapsed < 1000, "传播耗时: " + elapsed + "ms");
+        assertEquals(1L, nodeB.getDictionaryVersion());
+    }
+
+    @Test
+    void testDeletePropagatesToOtherNode() throws Exception {
+        assertEquals("赌博", nodeB.match("网上赌博").getBlockedWord());
+
+        table.clear();
+        nodeA.publishChange(List.of(1));
+
+        long start = System.currentTimeMillis();
+        while (nodeB.match("网上赌博").isBlocked() && System.currentTimeMillis() - start < 1000) {
+            Thread.sleep(10);
+        }
+
+        assertFalse(nodeB.match("网上赌博").isBlocked());
+        assertFalse(nodeA.match("网上赌博").isBlocked());
+    }
+
+    private RedisMessageListenerContainer startContainer() throws Exception {
+        RedisMessageListenerContainer container = new RedisConfig().redisMessageListenerContainer(connectionFactory);
+        container.afterPropertiesSet();
+        container.start();
+        return container;
+    }
+
+    private SensitiveWordServiceImpl createNode(RedisMessageListenerContainer container) {
+        SensitiveWordMapper mapper = mock(SensitiveWordMapper.class);
+        when(mapper.selectList(any())).thenAnswer(invocation -> List.copyOf(table));
+
+        SensitiveCategoryMapper categoryMapper = mock(SensitiveCategoryMapper.class);
+        when(categoryMapper.selectList(any())).thenReturn(List.of());
+
+        SensitiveWordServiceImpl node = new SensitiveWordServiceImpl();
+        ReflectionTestUtils.setField(node, "baseMapper", mapper);
+        ReflectionTestUtils.setField(node, "sensitiveCategoryMapper", categoryMapper);
+        ReflectionTestUtils.setField(node, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(node, "redisMessageListenerContainer", container);
+        node.subscribe();
+        return node;
+    }
+
+    private static SensitiveWord word(int id, String text) {
+        SensitiveWord word = new SensitiveWord();
+        word.setId(id);
+        word.setWord(text);
+        word.setStatus("1");
+        return word;
+    }
+}
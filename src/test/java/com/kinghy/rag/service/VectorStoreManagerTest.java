@@ -1,7 +1,11 @@
 package com.kinghy.rag.service;
 
+import com.kinghy.rag.config.EmbeddingBatchConfig;
+import com.kinghy.rag.config.VectorSearchConfig;
 import com.kinghy.rag.config.VectorStoreConfig;
+import com.kinghy.rag.service.impl.RrfFusionStrategy;
 import com.kinghy.rag.service.impl.VectorStoreManagerImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.milvus.client.MilvusServiceClient;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,10 +14,13 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -45,6 +52,7 @@ class VectorStoreManagerTest {
     @BeforeEach
     void setUp() {
         testKnowledgeBaseId = 1L;
+        ReflectionTestUtils.setField(vectorStoreManager, "embeddingBatchConfig", new EmbeddingBatchConfig());
     }
     
     @Test
@@ -93,6 +101,31 @@ class VectorStoreManagerTest {
         verify(mockVectorStore, times(1)).add(documents);
     }
     
+    @Test
+    void testAddDocuments_LargeFileWrittenInBatches() {
+        EmbeddingBatchConfig batchConfig = new EmbeddingBatchConfig();
+        batchConfig.setInsertBatchSize(100);
+        ReflectionTestUtils.setField(vectorStoreManager, "embeddingBatchConfig", batchConfig);
+        ReflectionTestUtils.setField(vectorStoreManager, "vectorSearchConfig", new VectorSearchConfig());
+        vectorStoreManager.init();
+        
+        List<Document> documents = new java.util.ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            documents.add(new Document("test content " + i));
+        }
+        when(vectorStoreFactory.createVectorStore(any())).thenReturn(mockVectorStore);
+        
+        try {
+            List<String> result = vectorStoreManager.addDocuments(testKnowledgeBaseId, documents);
+            
+            assertEquals(250, result.size());
+            verify(mockVectorStore, times(3)).add(anyList());
+            verify(mockVectorStore).add(documents.subList(200, 250));
+        } finally {
+            vectorStoreManager.destroy();
+        }
+    }
+    
     @Test
     void testDeleteVectors() {
         // 准备测试数据
@@ -123,4 +156,134 @@ class VectorStoreManagerTest {
         assertNotNull(result);
         verify(vectorStoreFactory, times(1)).createVectorStore("kb_123");
     }
-}
\ No newline at end of file
+    
+    @Test
+    void testSimilaritySearch_PartialResultsAndMerge() {
+        VectorSearchConfig config = new VectorSearchConfig();
+        config.setPerKnowledgeBaseTimeoutMs(200);
+        config.setGlobalTimeoutMs(500);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(vectorStoreManager, "vectorSearchConfig", config);
+        ReflectionTestUtils.setField(vectorStoreManager, "meterRegistry", meterRegistry);
+        RrfFusionStrategy rrf = new RrfFusionStrategy();
+        ReflectionTestUtils.setField(rrf, "vectorSearchConfig", config);
+        ReflectionTestUtils.setField(vectorStoreManager, "fusionStrategies", List.of(rrf));
+        vectorStoreManager.init();
+        
+        VectorStore store1 = mock(VectorStore.class);
+        VectorStore store2 = mock(VectorStore.class);
+        VectorStore failingStore = mock(VectorStore.class);
+        VectorStore slowStore = mock(VectorStore.class);
+        when(vectorStoreFactory.createVectorStore("kb_1")).thenReturn(store1);
+        when(vectorStoreFactory.createVectorStore("kb_2")).thenReturn(store2);
+        when(vectorStoreFactory.createVectorStore("kb_3")).thenReturn(failingStore);
+        when(vectorStoreFactory.createVectorStore("kb_4")).thenReturn(slowStore);
+        when(store1.similaritySearch(any(SearchRequest.class))).thenReturn(List.of(doc("a", 0.1f), doc("c", 0.5f)));
+        when(store2.similaritySearch(any(SearchRequest.class))).thenReturn(List.of(doc("b", 0.2f), doc("d", 0.9f)));
+        when(failingStore.similaritySearch(any(SearchRequest.class))).thenThrow(new RuntimeException("连接失败"));
+        when(slowStore.similaritySearch(any(SearchRequest.class))).thenAnswer(invocation -> {
+            Thread.sleep(5000);
+            return List.of(doc("slow", 0f));
+        });
+        
+        try {
+            long start = System.currentTimeMillis();
+            List<Document> results = vectorStoreManager.similaritySearch(List.of(1L, 2L, 3L, 4L),
+                    SearchRequest.builder().query("测试").topK(3).build());
+            
+            // 失败和超时的知识库被跳过，其余结果按排名融合
+            assertTrue(System.currentTimeMillis() - start < 1000);
+            assertEquals(List.of("a", "b", "c"), results.stream().map(Document::getId).toList());
+            assertEquals(1, meterRegistry.find("rag.vector.search.latency")
+                    .tags("knowledgeBaseId", "4", "outcome", "timeout").timer().count());
+            assertEquals(1, meterRegistry.find("rag.vector.search.latency")
+                    .tags("knowledgeBaseId", "3", "outcome", "error").timer().count());
+            assertEquals(1, meterRegistry.find("rag.vector.search.latency")
+                    .tags("knowledgeBaseId", "1", "outcome", "success").timer().count());
+        } finally {
+            vectorStoreManager.destroy();
+        }
+    }
+    
+    @Test
+    void testSimilaritySearch_QueuedTaskTimedFromItsStartAndOverflowSkipped() {
+        VectorSearchConfig config = new VectorSearchConfig();
+        config.setParallelism(1);
+        config.setQueueCapacity(1);
+        config.setPerKnowledgeBaseTimeoutMs(300);
+        config.setGlobalTimeoutMs(2000);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(vectorStoreManager, "vectorSearchConfig", config);
+        ReflectionTestUtils.setField(vectorStoreManager, "meterRegistry", meterRegistry);
+        RrfFusionStrategy rrf = new RrfFusionStrategy();
+        ReflectionTestUtils.setField(rrf, "vectorSearchConfig", config);
+        ReflectionTestUtils.setField(vectorStoreManager, "fusionStrategies", List.of(rrf));
+        vectorStoreManager.init();
+        
+        VectorStore store1 = mock(VectorStore.class);
+        VectorStore store2 = mock(VectorStore.class);
+        when(vectorStoreFactory.createVectorStore("kb_1")).thenReturn(store1);
+        when(vectorStoreFactory.createVectorStore("kb_2")).thenReturn(store2);
+        when(store1.similaritySearch(any(SearchRequest.class))).thenAnswer(invocation -> {
+            Thread.sleep(200);
+            return List.of(doc("a", 0.1f));
+        });
+        when(store2.similaritySearch(any(SearchRequest.class))).thenAnswer(invocation -> {
+            Thread.sleep(200);
+            return List.of(doc("b", 0.2f));
+        });
+        
+        try {
+            long start = System.currentTimeMillis();
+            List<Document> results = vectorStoreManager.similaritySearch(List.of(1L, 2L, 3L),
+                    SearchRequest.builder().query("测试").topK(3).build());
+            
+            // 第二个知识库排队后才开始执行，总耗时超过单库超时，但从开始执行算起没有超时；
+            // 第三个知识库提交时队列已满，直接跳过，不在调用线程中执行
+            assertTrue(System.currentTimeMillis() - start < 1000);
+            assertEquals(List.of("a", "b"), results.stream().map(Document::getId).toList());
+            assertEquals(1, meterRegistry.find("rag.vector.search.latency")
+                    .tags("knowledgeBaseId", "3", "outcome", "rejected").timer().count());
+            assertNull(meterRegistry.find("rag.vector.search.latency").tag("outcome", "timeout").timer());
+            verify(vectorStoreFactory, never()).createVectorStore("kb_3");
+        } finally {
+            vectorStoreManager.destroy();
+        }
+    }
+    
+    @Test
+    void testSimilaritySearch_LatencyTagCappedByKnowledgeBaseCount() {
+        VectorSearchConfig config = new VectorSearchConfig();
+        config.setLatencyMetricMaxKnowledgeBases(1);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(vectorStoreManager, "vectorSearchConfig", config);
+        ReflectionTestUtils.setField(vectorStoreManager, "meterRegistry", meterRegistry);
+        RrfFusionStrategy rrf = new RrfFusionStrategy();
+        ReflectionTestUtils.setField(rrf, "vectorSearchConfig", config);
+        ReflectionTestUtils.setField(vectorStoreManager, "fusionStrategies", List.of(rrf));
+        vectorStoreManager.init();
+        
+        when(vectorStoreFactory.createVectorStore(any())).thenReturn(mockVectorStore);
+        when(mockVectorStore.similaritySearch(any(SearchRequest.class))).thenReturn(List.of(doc("a", 0.1f)));
+        
+        try {
+            SearchRequest request = SearchRequest.builder().query("测试").topK(3).build();
+            vectorStoreManager.similaritySearch(List.of(1L), request);
+            vectorStoreManager.similaritySearch(List.of(2L), request);
+            vectorStoreManager.similaritySearch(List.of(3L), request);
+            
+            // 名额内的知识库单独打标签，其余知识库合并到 other，所有序列都带相同的标签键
+            assertEquals(1, meterRegistry.find("rag.vector.search.latency")
+                    .tags("knowledgeBaseId", "1", "outcome", "success").timer().count());
+            assertEquals(2, meterRegistry.find("rag.vector.search.latency")
+                    .tags("knowledgeBaseId", "other", "outcome", "success").timer().count());
+            assertEquals(2, meterRegistry.find("rag.vector.search.latency").timers().size());
+        } finally {
+            vectorStoreManager.destroy();
+        }
+    }
+    
+    private static Document doc(String id, float distance) {
+        return new Document(id, "内容" + id, Map.of("distance", distance));
+    }
+}
@@ -0,0 +1,185 @@
+package com.kinghy.rag.task;
+
+import com.kinghy.rag.config.AuditLogConfig;
+import com.kinghy.rag.entity.LogInfo;
+import com.kinghy.rag.mapper.LogInfoMapper;
+import com.kinghy.rag.service.LogInfoService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 接口审计日志写入器测试类
+ *
+ * @author yunzhongxiaoma
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+class AuditLogWriterTest {
+
+    @Mock
+    private LogInfoMapper logInfoMapper;
+
+    @Mock
+    private LogInfoService logInfoService;
+
+    @InjectMocks
+    private AuditLogWriter writer;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final List<List<LogInfo>> insertedBatches = new CopyOnWriteArrayList<>();
+
+    private final CountDownLatch firstInsertStarted = new CountDownLatch(1);
+
+    private final CountDownLatch releaseFirstInsert = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        writer.stop();
+    }
+
+    @Test
+    void testBatchesLogsAndSerializesParamsOffRequestThread() {
+        AuditLogConfig config = new AuditLogConfig();
+        config.setFlushIntervalMs(60_000);
+        config.setMaxBatchSize(3);
+        start(config);
+
+        Thread requestThread = Thread.currentThread();
+        AtomicReference<Thread> serializer = new AtomicReference<>();
+        writer.submit(logInfo("stream"), () -> {
+            serializer.set(Thread.currentThread());
+            return "{message=你好}";
+        });
+        writer.submit(logInfo("stream"), () -> "{message=a}");
+        writer.submit(logInfo("draw"), () -> "[b]");
+
+        // 攒满一批后用一条语句写入
+        verify(logInfoMapper, timeout(2000)).batchInsert(anyList());
+        assertEquals(1, insertedBatches.size());
+        List<LogInfo> batch = insertedBatches.get(0);
+        assertEquals(3, batch.size());
+        assertEquals("{message=你好}", batch.get(0).getRequestParams());
+        assertTrue(batch.stream().allMatch(log -> log.getId() != null));
+        assertNotSame(requestThread, serializer.get());
+        verify(logInfoService, never()).save(any());
+    }
+
+    @Test
+    void testDropPolicy_DropsWhenQueueIsFull() throws Exception {
+        AuditLogConfig config = new AuditLogConfig();
+        config.setQueueCapacity(2);
+        config.setMaxBatchSize(1);
+        start(config);
+        blockFirstInsert();
+
+        // 第一条被写入线程取走并卡住，随后两条占满队列，再提交的被丢弃
+        for (int i = 0; i < 5; i++) {
+            writer.submit(logInfo("stream"), () -> "x");
+            if (i == 0) {
+                assertTrue(firstInsertStarted.await(5, TimeUnit.SECONDS));
+            }
+        }
+
+        assertEquals(2.0, meterRegistry.get("rag.audit.dropped").tag("reason", "overflow").counter().count());
+        assertEquals(2.0, meterRegistry.get("rag.audit.queue.depth").gauge().value());
+        releaseFirstInsert.countDown();
+    }
+
+    @Test
+    void testSamplePolicy_SamplesAboveThreshold() throws Exception {
+        AuditLogConfig config = new AuditLogConfig();
+        config.setQueueCapacity(10);
+        config.setMaxBatchSize(1);
+        config.setOverflowPolicy(AuditLogConfig.OverflowPolicy.SAMPLE);
+        config.setSampleThreshold(0.5);
+        config.setSampleRate(0.0);
+        start(config);
+        blockFirstInsert();
+
+        writer.submit(logInfo("stream"), () -> "x");
+        assertTrue(firstInsertStarted.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 10; i++) {
+            writer.submit(logInfo("stream"), () -> "x");
+        }
+
+        // 队列占用达到一半后全部被采样丢弃，不会写满
+        assertEquals(5.0, meterRegistry.get("rag.audit.queue.depth").gauge().value());
+        assertEquals(5.0, meterRegistry.get("rag.audit.dropped").tag("reason", "sampled").counter().count());
+        assertEquals(0.0, meterRegistry.get("rag.audit.dropped").tag("reason", "overflow").counter().count());
+        releaseFirstInsert.countDown();
+    }
+
+    @Test
+    void testStopFlushesRemaining() {
+        AuditLogConfig config = new AuditLogConfig();
+        config.setFlushIntervalMs(60_000);
+        start(config);
+
+        for (int i = 0; i < 4; i++) {
+            writer.submit(logInfo("stream"), () -> "x");
+        }
+        writer.stop();
+
+        assertEquals(4, insertedBatches.stream().mapToInt(List::size).sum());
+    }
+
+    @Test
+    void testSyncMode_SavesOnCallerThread() {
+        AuditLogConfig config = new AuditLogConfig();
+        config.setAsync(false);
+        start(config);
+
+        LogInfo logInfo = logInfo("stream");
+        writer.submit(logInfo, () -> "{message=hi}");
+
+        assertEquals("{message=hi}", logInfo.getRequestParams());
+        verify(logInfoService).save(logInfo);
+        verify(logInfoMapper, never()).batchInsert(anyList());
+    }
+
+    private void blockFirstInsert() {
+        doAnswer(invocation -> {
+            if (firstInsertStarted.getCount() > 0) {
+                firstInsertStarted.countDown();
+                releaseFirstInsert.await(5, TimeUnit.SECONDS);
+            }
+            return null;
+        }).when(logInfoMapper).batchInsert(anyList());
+    }
+
+    private void start(AuditLogConfig config) {
+        lenient().doAnswer(invocation -> {
+            insertedBatches.add(List.copyOf(invocation.getArgument(0)));
+            return null;
+        }).when(logInfoMapper).batchInsert(anyList());
+        ReflectionTestUtils.setField(writer, "auditLogConfig", config);
+        ReflectionTestUtils.setField(writer, "meterRegistry", meterRegistry);
+        writer.start();
+    }
+
+    private static LogInfo logInfo(String methodName) {
+        LogInfo logInfo = new LogInfo();
+        logInfo.setClassName("com.kinghy.rag.controller.ChatController");
+        logInfo.setMethodName(methodName);
+        logInfo.setRequestTime(new Date());
+        return logInfo;
+    }
+}
@@ -0,0 +1,179 @@
+package com.kinghy.rag.task;
+
+import com.kinghy.rag.config.ChatPersistenceConfig;
+import com.kinghy.rag.entity.ChatMessage;
+import com.kinghy.rag.mapper.ChatMessageMapper;
+import com.kinghy.rag.pojo.dto.SessionTouch;
+import com.kinghy.rag.service.ChatSessionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 聊天消息写后日志测试类
+ *
+ * @author yunzhongxiaoma
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+class ChatMessageJournalTest {
+
+    @Mock
+    private ChatMessageMapper chatMessageMapper;
+
+    @Mock
+    private ChatSessionService chatSessionService;
+
+    @InjectMocks
+    private ChatMessageJournal journal;
+
+    private final List<List<ChatMessage>> insertedBatches = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    @AfterEach
+    void tearDown() {
+        journal.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGroupCommit_MergesConcurrentMessagesAndFoldsSessionStats() throws Exception {
+        int writers = 6;
+        ChatPersistenceConfig config = config(ChatPersistenceConfig.Durability.GROUP_COMMIT);
+        config.setFlushIntervalMs(60_000);
+        config.setMaxBatchSize(writers);
+        start(config);
+
+        // 两个会话共 6 条消息并发写入，攒满一批后一起提交
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        List<ChatMessage> messages = new ArrayList<>();
+        List<Future<?>> futures = new ArrayList<>();
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 12, 0);
+        for (int i = 0; i < writers; i++) {
+            ChatMessage message = message(i % 2 == 0 ? "s1" : "s2", base.plusSeconds(i));
+            messages.add(message);
+            futures.add(executor.submit(() -> journal.append(message)));
+        }
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // 组提交返回时已写库并回填ID
+        assertTrue(messages.stream().allMatch(message -> message.getId() != null));
+        assertEquals(1, insertedBatches.size());
+        assertEquals(writers, insertedBatches.get(0).size());
+
+        // 整批的会话统计一次性交给 touchSessions，不再逐条更新
+        ArgumentCaptor<List<SessionTouch>> touches = ArgumentCaptor.forClass(List.class);
+        verify(chatSessionService).touchSessions(touches.capture());
+        assertEquals(writers, touches.getValue().size());
+        assertEquals(3, touches.getValue().stream().filter(touch -> "s1".equals(touch.getSessionId())).count());
+        verify(chatSessionService, never()).touchSession(anyString(), anyInt(), any());
+    }
+
+    @Test
+    void testFlushWhenBatchIsFull() {
+        ChatPersistenceConfig config = config(ChatPersistenceConfig.Durability.ASYNC);
+        config.setFlushIntervalMs(60_000);
+        config.setMaxBatchSize(3);
+        start(config);
+
+        for (int i = 0; i < 3; i++) {
+            journal.append(message("s1", LocalDateTime.now()));
+        }
+
+        // 攒满一批立即写库，不等刷盘间隔
+        verify(chatMessageMapper, timeout(2000)).batchInsert(anyList());
+        verify(chatSessionService, timeout(2000)).touchSessions(argThat(touches -> touches.size() == 3));
+    }
+
+    @Test
+    void testAsync_ReturnsBeforeCommitAndStopFlushesRemaining() {
+        ChatPersistenceConfig config = config(ChatPersistenceConfig.Durability.ASYNC);
+        config.setFlushIntervalMs(60_000);
+        start(config);
+
+        ChatMessage first = message("s1", LocalDateTime.now());
+        ChatMessage second = message("s1", LocalDateTime.now());
+        journal.append(first);
+        journal.append(second);
+
+        // 异步模式立即返回，尚未写库
+        assertNull(second.getId());
+
+        journal.stop();
+
+        assertEquals(2, insertedBatches.stream().mapToInt(List::size).sum());
+        assertNotNull(second.getId());
+        assertThrows(IllegalStateException.class, () -> journal.append(message("s1", LocalDateTime.now())));
+    }
+
+    @Test
+    void testGroupCommit_FailurePropagatesToWriters() {
+        ChatPersistenceConfig config = config(ChatPersistenceConfig.Durability.GROUP_COMMIT);
+        config.setMaxRetries(1);
+        start(config);
+        doThrow(new IllegalStateException("db down")).when(chatMessageMapper).batchInsert(anyList());
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> journal.append(message("s1", LocalDateTime.now())));
+
+        assertTrue(e.getMessage().contains("db down"));
+        verify(chatMessageMapper, times(2)).batchInsert(anyList());
+        verify(chatSessionService, never()).touchSessions(any());
+    }
+
+    private void start(ChatPersistenceConfig config) {
+        lenient().doAnswer(invocation -> {
+            List<ChatMessage> batch = invocation.getArgument(0);
+            batch.forEach(message -> message.setId(nextId.getAndIncrement()));
+            insertedBatches.add(List.copyOf(batch));
+            return null;
+        }).when(chatMessageMapper).batchInsert(anyList());
+        ReflectionTestUtils.setField(journal, "persistenceConfig", config);
+        ReflectionTestUtils.setField(journal, "transactionTemplate",
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(journal, "meterRegistry", new SimpleMeterRegistry());
+        journal.start();
+    }
+
+    private static ChatPersistenceConfig config(ChatPersistenceConfig.Durability durability) {
+        ChatPersistenceConfig config = new ChatPersistenceConfig();
+        config.setDurability(durability);
+        return config;
+    }
+
+    private static ChatMessage message(String sessionId, LocalDateTime createTime) {
+        return ChatMessage.builder()
+                .sessionId(sessionId)
+                .userId(1)
+                .messageType(ChatMessage.MessageType.USER)
+                .content("hello")
+                .createTime(createTime)
+                .build();
+    }
+}
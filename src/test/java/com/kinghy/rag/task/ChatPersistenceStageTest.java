@@ -0,0 +1,120 @@
+package com.kinghy.rag.task;
+
+import com.kinghy.rag.config.ChatPersistenceConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 流式对话持久化阶段测试类
+ *
+ * @author yunzhongxiaoma
+ * @since 1.0.0
+ */
+class ChatPersistenceStageTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ChatPersistenceStage stage;
+
+    @AfterEach
+    void tearDown() {
+        stage.stop();
+    }
+
+    @Test
+    void testSubmit_RunsOffCallerThreadAndRecordsLatency() {
+        start(2, 10);
+        Thread caller = Thread.currentThread();
+
+        String worker = stage.submit("user_message", () -> Thread.currentThread().getName())
+                .block(Duration.ofSeconds(5));
+
+        assertNotNull(worker);
+        assertNotEquals(caller.getName(), worker);
+        assertTrue(worker.startsWith("chat-persistence"));
+        assertEquals(1, meterRegistry.get("rag.chat.persistence.latency").tag("operation", "user_message").timer().count());
+        assertEquals(1, meterRegistry.get("rag.chat.persistence.queue.wait").tag("operation", "user_message").timer().count());
+    }
+
+    @Test
+    void testExecute_ReturnsWithoutWaitingForWrite() throws Exception {
+        start(1, 10);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+
+        long begin = System.nanoTime();
+        stage.execute("assistant_message", () -> {
+            await(release);
+            done.countDown();
+        });
+
+        // 写库还没完成，提交方已经返回
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin) < 1000);
+        assertEquals(1, done.getCount());
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testSubmit_RejectsWhenQueueIsFull() throws Exception {
+        start(1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // 第一个任务占住唯一的线程，第二个任务占满排队位置
+        stage.execute("assistant_message", () -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        stage.execute("assistant_message", () -> await(release));
+
+        assertThrows(RejectedExecutionException.class,
+                () -> stage.submit("user_message", () -> "session-1").block(Duration.ofSeconds(5)));
+        assertEquals(1.0, meterRegistry.get("rag.chat.persistence.rejected").tag("operation", "user_message").counter().count());
+
+        release.countDown();
+    }
+
+    @Test
+    void testSubmit_FailurePropagatesAndIsCounted() {
+        start(1, 10);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> stage.submit("user_message", () -> {
+                    throw new IllegalStateException("db down");
+                }).block(Duration.ofSeconds(5)));
+
+        assertEquals("db down", e.getMessage());
+        assertEquals(1.0, meterRegistry.get("rag.chat.persistence.failed").tag("operation", "user_message").counter().count());
+    }
+
+    private void start(int workerThreads, int workerQueueCapacity) {
+        ChatPersistenceConfig config = new ChatPersistenceConfig();
+        config.setWorkerThreads(workerThreads);
+        config.setWorkerQueueCapacity(workerQueueCapacity);
+        config.setShutdownTimeoutMs(1000);
+        stage = new ChatPersistenceStage();
+        ReflectionTestUtils.setField(stage, "persistenceConfig", config);
+        ReflectionTestUtils.setField(stage, "meterRegistry", meterRegistry);
+        stage.start();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
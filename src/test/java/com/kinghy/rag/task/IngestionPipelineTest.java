@@ -0,0 +1,343 @@
+package com.kinghy.rag.task;
+
+import com.alibaba.fastjson2.JSON;
+import com.kinghy.rag.common.IngestionStatus;
+import com.kinghy.rag.config.IngestionConfig;
+import com.kinghy.rag.entity.KnowledgeBaseFile;
+import com.kinghy.rag.mapper.KnowledgeBaseFileMapper;
+import com.kinghy.rag.pojo.dto.IngestionTask;
+import com.kinghy.rag.service.IngestionJobService;
+import com.kinghy.rag.service.KnowledgeBaseService;
+import com.kinghy.rag.service.SemanticAnswerCacheService;
+import com.kinghy.rag.service.VectorStoreManager;
+import com.kinghy.rag.utils.ObjectStorage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 文件异步入库流水线测试类
+ * 
+ * @author yunzhongxiaoma
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+class IngestionPipelineTest {
+    
+    @Mock
+    private IngestionJobService ingestionJobService;
+    
+    @Mock
+    private ObjectStorage objectStorage;
+    
+    @Mock
+    private VectorStoreManager vectorStoreManager;
+    
+    @Mock
+    private KnowledgeBaseFileMapper knowledgeBaseFileMapper;
+    
+    @Mock
+    private KnowledgeBaseService knowledgeBaseService;
+    
+    @Mock
+    private SemanticAnswerCacheService semanticAnswerCacheService;
+    
+    @InjectMocks
+    private IngestionPipeline ingestionPipeline;
+    
+    private Path tempFile;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        ReflectionTestUtils.setField(ingestionPipeline, "ingestionConfig", new IngestionConfig());
+        ReflectionTestUtils.setField(ingestionPipeline, "transactionTemplate",
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(ingestionPipeline, "meterRegistry", new SimpleMeterRegistry());
+        ingestionPipeline.start();
+        
+        tempFile = Files.createTempFile("kb_upload_", "_test.txt");
+        Files.writeString(tempFile, "员工每年享有5天带薪年假，需在OA系统中提前申请。", StandardCharsets.UTF_8);
+    }
+    
+    @AfterEach
+    void tearDown() throws Exception {
+        ingestionPipeline.stop();
+        Files.deleteIfExists(tempFile);
+    }
+    
+    @Test
+    void testSubmit_RunsAllStagesAndMarksDone() {
+        when(objectStorage.upload(any(Path.class), eq("kb_files/test.txt"))).thenReturn("https://oss/kb_files/test.txt");
+        when(vectorStoreManager.addDocuments(eq(1L), anyList())).thenReturn(List.of("v1"));
+        doAnswer(invocation -> {
+            invocation.<KnowledgeBaseFile>getArgument(0).setId(100L);
+            return 1;
+        }).when(knowledgeBaseFileMapper).insert(any(KnowledgeBaseFile.class));
+        
+        assertTrue(ingestionPipeline.submit(task()));
+        
+        verify(ingestionJobService, timeout(5000)).markDone(10L, 100L, 1);
+        verify(ingestionJobService).updateStatus(10L, IngestionStatus.PARSING, 30);
+        verify(ingestionJobService).updateStatus(10L, IngestionStatus.EMBEDDING, 60);
+        verify(knowledgeBaseService).updateFileCount(1L, 1);
+        verify(semanticAnswerCacheService).invalidate(1L);
+        assertFalse(Files.exists(tempFile));
+    }
+    
+    @Test
+    void testSubmit_EmbeddingFailureRollsBackUploadedFile() {
+        when(objectStorage.upload(any(Path.class), anyString())).thenReturn("https://oss/kb_files/test.txt");
+        when(vectorStoreManager.addDocuments(eq(1L), anyList())).thenThrow(new RuntimeException("向量库不可用"));
+        
+        assertTrue(ingestionPipeline.submit(task()));
+        
+        verify(ingestionJobService, timeout(5000)).markFailed(10L, "向量库不可用");
+        verify(objectStorage).delete("https://oss/kb_files/test.txt");
+        verify(knowledgeBaseFileMapper, never()).insert(any(KnowledgeBaseFile.class));
+        assertFalse(Files.exists(tempFile));
+    }
+    
+    @Test
+    void testSubmit_FailureAfterCommitKeepsIndexedResources() {
+        when(objectStorage.upload(any(Path.class), anyString())).thenReturn("https://oss/kb_files/test.txt");
+        when(vectorStoreManager.addDocuments(eq(1L), anyList())).thenReturn(List.of("v1"));
+        doAnswer(invocation -> {
+            invocation.<KnowledgeBaseFile>getArgument(0).setId(100L);
+            return 1;
+        }).when(knowledgeBaseFileMapper).insert(any(KnowledgeBaseFile.class));
+        doThrow(new RuntimeException("缓存不可用")).when(semanticAnswerCacheService).invalidate(1L);
+        doThrow(new RuntimeException("数据库繁忙")).when(ingestionJobService).markDone(10L, 100L, 1);
+        
+        assertTrue(ingestionPipeline.submit(task()));
+        
+        // 文件记录已提交，收尾失败不能删除记录引用的向量和文件
+        verify(ingestionJobService, timeout(5000)).markDone(10L, 100L, 1);
+        verify(vectorStoreManager, never()).deleteVectors(anyLong(), anyList());
+        verify(objectStorage, never()).delete(anyString());
+        verify(ingestionJobService, never()).markFailed(anyLong(), anyString());
+        assertFalse(Files.exists(tempFile));
+    }
+    
+    @Test
+    void testStop_FailsInFlightAndQueuedTasks() throws Exception {
+        // 两个存储线程都阻塞在上传中，第三个任务留在队列里
+        CountDownLatch uploading = new CountDownLatch(2);
+        CountDownLatch never = new CountDownLatch(1);
+        when(objectStorage.upload(any(Path.class), anyString())).thenAnswer(invocation -> {
+            uploading.countDown();
+            never.await();
+            return "https://oss/kb_files/test.txt";
+        });
+        
+        List<Path> tempFiles = new ArrayList<>();
+        for (long jobId = 10; jobId < 13; jobId++) {
+            Path file = Files.createTempFile("kb_upload_", "_test.txt");
+            tempFiles.add(file);
+            IngestionTask task = task();
+            task.setJobId(jobId);
+            task.setTempFile(file);
+            assertTrue(ingestionPipeline.submit(task));
+        }
+        assertTrue(uploading.await(5, TimeUnit.SECONDS));
+        
+        ingestionPipeline.stop();
+        
+        for (long jobId = 10; jobId < 13; jobId++) {
+            verify(ingestionJobService).markFailed(jobId, "应用关闭，入库任务未完成");
+        }
+        for (Path file : tempFiles) {
+            assertFalse(Files.exists(file));
+        }
+    }
+    
+    @Test
+    void testReconcile_FailsStaleJobsAndDeletesOldTempFiles() throws Exception {
+        Path dir = Files.createTempDirectory("ingestion_test");
+        Path stale = Files.createTempFile(dir, "kb_upload_", "_old.txt");
+        Files.setLastModifiedTime(stale, FileTime.from(Instant.now().minus(2, ChronoUnit.HOURS)));
+        Path fresh = Files.createTempFile(dir, "kb_upload_", "_new.txt");
+        IngestionConfig config = (IngestionConfig) ReflectionTestUtils.getField(ingestionPipeline, "ingestionConfig");
+        config.setTempDir(dir.toString());
+        when(ingestionJobService.failStaleJobs(any(LocalDateTime.class), anyString())).thenReturn(2);
+        
+        ingestionPipeline.reconcileOrphanedJobs();
+        
+        ArgumentCaptor<LocalDateTime> cutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(ingestionJobService, atLeastOnce()).failStaleJobs(cutoff.capture(), anyString());
+        assertTrue(cutoff.getValue().isBefore(LocalDateTime.now().minusMinutes(59)));
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.exists(fresh));
+        
+        Files.delete(fresh);
+        Files.delete(dir);
+    }
+    
+    @Test
+    void testSubmit_ReusesUploadedObjectWithSameContentHash() {
+        KnowledgeBaseFile existing = KnowledgeBaseFile.builder()
+                .id(50L)
+                .knowledgeBaseId(3L)
+                .fileName("kb_files/old.txt")
+                .fileUrl("https://oss/kb_files/old.txt")
+                .build();
+        when(knowledgeBaseFileMapper.selectFirstByContentHash(null, "hash")).thenReturn(existing);
+        when(knowledgeBaseFileMapper.selectIdByFileUrlForUpdate("https://oss/kb_files/old.txt")).thenReturn(50L);
+        when(vectorStoreManager.addDocuments(eq(1L), anyList())).thenReturn(List.of("v1"));
+        doAnswer(invocation -> {
+            KnowledgeBaseFile file = invocation.getArgument(0);
+            assertEquals("https://oss/kb_files/old.txt", file.getFileUrl());
+            assertEquals("hash", file.getContentHash());
+            assertNotNull(file.getChunkHashes());
+            file.setId(100L);
+            return 1;
+        }).when(knowledgeBaseFileMapper).insert(any(KnowledgeBaseFile.class));
+        
+        IngestionTask task = task();
+        task.setContentHash("hash");
+        assertTrue(ingestionPipeline.submit(task));
+        
+        verify(ingestionJobService, timeout(5000)).markDone(10L, 100L, 1);
+        verify(objectStorage, never()).upload(any(Path.class), anyString());
+    }
+    
+    @Test
+    void testSubmit_ReusedObjectDeletedMeanwhileIsUploadedAgain() {
+        KnowledgeBaseFile existing = KnowledgeBaseFile.builder()
+                .id(50L)
+                .knowledgeBaseId(3L)
+                .fileName("kb_files/old.txt")
+                .fileUrl("https://oss/kb_files/old.txt")
+                .build();
+        when(knowledgeBaseFileMapper.selectFirstByContentHash(null, "hash")).thenReturn(existing);
+        // 存储阶段之后，最后一条引用该文件的记录被删除，文件随之删除
+        when(knowledgeBaseFileMapper.selectIdByFileUrlForUpdate("https://oss/kb_files/old.txt")).thenReturn(null);
+        // 用本次生成的对象名上传，不与删除方提交后才删除的旧对象同名
+        when(objectStorage.upload(any(Path.class), eq("kb_files/test.txt"))).thenReturn("https://oss/kb_files/test.txt");
+        when(vectorStoreManager.addDocuments(eq(1L), anyList())).thenReturn(List.of("v1"));
+        ArgumentCaptor<KnowledgeBaseFile> inserted = ArgumentCaptor.forClass(KnowledgeBaseFile.class);
+        doAnswer(invocation -> {
+            invocation.<KnowledgeBaseFile>getArgument(0).setId(100L);
+            return 1;
+        }).when(knowledgeBaseFileMapper).insert(inserted.capture());
+        
+        IngestionTask task = task();
+        task.setContentHash("hash");
+        assertTrue(ingestionPipeline.submit(task));
+        
+        verify(ingestionJobService, timeout(5000)).markDone(10L, 100L, 1);
+        verify(knowledgeBaseFileMapper, times(1)).insert(any(KnowledgeBaseFile.class));
+        assertEquals("https://oss/kb_files/test.txt", inserted.getValue().getFileUrl());
+        assertEquals("kb_files/test.txt", inserted.getValue().getFileName());
+        verify(knowledgeBaseService, times(1)).updateFileCount(1L, 1);
+    }
+    
+    @Test
+    void testUpdate_ReembedsOnlyChangedChunks() throws Exception {
+        when(objectStorage.upload(any(Path.class), anyString())).thenReturn("https://oss/kb_files/test.txt");
+        when(vectorStoreManager.addDocuments(eq(1L), anyList())).thenReturn(List.of("v1"));
+        ArgumentCaptor<KnowledgeBaseFile> inserted = ArgumentCaptor.forClass(KnowledgeBaseFile.class);
+        doAnswer(invocation -> {
+            invocation.<KnowledgeBaseFile>getArgument(0).setId(100L);
+            return 1;
+        }).when(knowledgeBaseFileMapper).insert(inserted.capture());
+        
+        assertTrue(ingestionPipeline.submit(task()));
+        verify(ingestionJobService, timeout(5000)).markDone(10L, 100L, 1);
+        
+        // 旧版本比新版本多一个片段
+        String unchangedHash = JSON.parseArray(inserted.getValue().getChunkHashes(), String.class).get(0);
+        KnowledgeBaseFile current = KnowledgeBaseFile.builder()
+                .id(100L)
+                .knowledgeBaseId(1L)
+                .fileUrl("https://oss/kb_files/test.txt")
+                .vectorIds(JSON.toJSONString(List.of("v1", "v2")))
+                .chunkHashes(JSON.toJSONString(List.of(unchangedHash, "removed")))
+                .version(3)
+                .build();
+        when(knowledgeBaseFileMapper.selectById(100L)).thenReturn(current);
+        when(knowledgeBaseFileMapper.updateIndexByVersion(any(KnowledgeBaseFile.class), eq(3))).thenReturn(1);
+        
+        tempFile = Files.createTempFile("kb_upload_", "_test.txt");
+        Files.writeString(tempFile, "员工每年享有5天带薪年假，需在OA系统中提前申请。", StandardCharsets.UTF_8);
+        IngestionTask update = task();
+        update.setJobId(11L);
+        update.setTargetFileId(100L);
+        assertTrue(ingestionPipeline.submit(update));
+        
+        verify(ingestionJobService, timeout(5000)).markDone(11L, 100L, 1);
+        verify(vectorStoreManager, times(1)).addDocuments(eq(1L), anyList());
+        verify(vectorStoreManager).deleteVectors(1L, List.of("v2"));
+        verify(knowledgeBaseFileMapper).updateIndexByVersion(argThat((KnowledgeBaseFile file) -> 
+                JSON.toJSONString(List.of("v1")).equals(file.getVectorIds())), eq(3));
+        verify(knowledgeBaseService, times(1)).updateFileCount(1L, 1);
+    }
+    
+    @Test
+    void testUpdate_ConcurrentModificationAbortsWithoutTouchingCurrentVectors() throws Exception {
+        // 比对时读到的是版本 3，提交前另一个更新（或删除）已经改动了记录
+        KnowledgeBaseFile current = KnowledgeBaseFile.builder()
+                .id(100L)
+                .knowledgeBaseId(1L)
+                .fileUrl("https://oss/kb_files/old.txt")
+                .vectorIds(JSON.toJSONString(List.of("v1", "v2")))
+                .chunkHashes(JSON.toJSONString(List.of("changed", "removed")))
+                .version(3)
+                .build();
+        when(knowledgeBaseFileMapper.selectById(100L)).thenReturn(current);
+        when(objectStorage.upload(any(Path.class), anyString())).thenReturn("https://oss/kb_files/new.txt");
+        when(vectorStoreManager.addDocuments(eq(1L), anyList())).thenReturn(List.of("v3"));
+        when(knowledgeBaseFileMapper.updateIndexByVersion(any(KnowledgeBaseFile.class), eq(3))).thenReturn(0);
+        
+        IngestionTask update = task();
+        update.setJobId(11L);
+        update.setTargetFileId(100L);
+        assertTrue(ingestionPipeline.submit(update));
+        
+        // 只清理本次新增的向量和上传的文件，不删除按过期比对结果算出的旧向量和旧文件
+        verify(ingestionJobService, timeout(5000)).markFailed(eq(11L), anyString());
+        verify(vectorStoreManager).deleteVectors(1L, List.of("v3"));
+        verify(vectorStoreManager, never()).deleteVectors(1L, List.of("v1", "v2"));
+        verify(objectStorage).delete("https://oss/kb_files/new.txt");
+        verify(objectStorage, never()).delete("https://oss/kb_files/old.txt");
+        verify(ingestionJobService, never()).markDone(anyLong(), anyLong(), anyInt());
+        verify(semanticAnswerCacheService, never()).invalidate(anyLong());
+    }
+    
+    private IngestionTask task() {
+        return IngestionTask.builder()
+                .jobId(10L)
+                .knowledgeBaseId(1L)
+                .userId(2L)
+                .fileName("kb_files/test.txt")
+                .originalName("test.txt")
+                .fileType("txt")
+                .fileSize(100L)
+                .tempFile(tempFile)
+                .build();
+    }
+}
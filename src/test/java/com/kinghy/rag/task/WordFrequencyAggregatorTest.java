@@ -0,0 +1,187 @@
+package com.kinghy.rag.task;
+
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.kinghy.rag.config.WordFrequencyConfig;
+import com.kinghy.rag.entity.LogInfo;
+import com.kinghy.rag.mapper.LogInfoMapper;
+import com.kinghy.rag.mapper.WordFrequencyCheckpointMapper;
+import com.kinghy.rag.service.WordFrequencyService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 日志词频增量统计测试类
+ *
+ * @author yunzhongxiaoma
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+class WordFrequencyAggregatorTest {
+
+    @Mock
+    private LogInfoMapper logInfoMapper;
+
+    @Mock
+    private WordFrequencyCheckpointMapper checkpointMapper;
+
+    @Mock
+    private WordFrequencyService wordFrequencyService;
+
+    @InjectMocks
+    private WordFrequencyAggregator aggregator;
+
+    private final WordFrequencyConfig config = new WordFrequencyConfig();
+
+    private final List<LogInfo> table = new ArrayList<>();
+
+    private final AtomicLong checkpoint = new AtomicLong();
+
+    private final Map<String, Integer> merged = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(aggregator, "wordFrequencyConfig", config);
+        ReflectionTestUtils.setField(aggregator, "transactionTemplate",
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(aggregator, "meterRegistry", new SimpleMeterRegistry());
+        aggregator.start();
+
+        // 模拟 log_info 按主键分页和进度表
+        lenient().when(checkpointMapper.selectLastLogIdForUpdate(WordFrequencyAggregator.BUSINESS_TYPE))
+                .thenAnswer(invocation -> checkpoint.get());
+        lenient().when(checkpointMapper.updateLastLogId(eq(WordFrequencyAggregator.BUSINESS_TYPE), anyLong()))
+                .thenAnswer(invocation -> {
+                    checkpoint.set(invocation.getArgument(1));
+                    return 1;
+                });
+        lenient().when(logInfoMapper.selectPageAfterId(anyLong(), anyLong(), anyInt())).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            long beforeId = invocation.getArgument(1);
+            int limit = invocation.getArgument(2);
+            return table.stream()
+                    .filter(log -> log.getId() > afterId && log.getId() < beforeId)
+                    .sorted((a, b) -> Long.compare(a.getId(), b.getId()))
+                    .limit(limit)
+                    .toList();
+        });
+        lenient().doAnswer(invocation -> {
+            Map<String, Integer> counts = invocation.getArgument(1);
+            counts.forEach((word, count) -> merged.merge(word, count, Integer::sum));
+            return null;
+        }).when(wordFrequencyService).mergeCounts(eq(WordFrequencyAggregator.BUSINESS_TYPE), anyMap());
+    }
+
+    @AfterEach
+    void tearDown() {
+        aggregator.stop();
+    }
+
+    @Test
+    void testProcessesNewLogsInPagesAndAdvancesCheckpoint() {
+        config.setPageSize(2);
+        for (long id = 1; id <= 5; id++) {
+            table.add(log(id, "{message=知识库检索}"));
+        }
+
+        assertEquals(5, aggregator.processNewLogs());
+
+        // 5 条日志分 3 页处理，每页提交一次进度
+        verify(wordFrequencyService, times(3)).mergeCounts(eq(WordFrequencyAggregator.BUSINESS_TYPE), anyMap());
+        assertEquals(5L, checkpoint.get());
+        assertEquals(5, merged.get("知识库"));
+
+        // 没有新日志时不再统计，已统计的日志不会被重复计数
+        assertEquals(0, aggregator.processNewLogs());
+        table.add(log(6, "{message=知识库}"));
+        assertEquals(1, aggregator.processNewLogs());
+        assertEquals(6, merged.get("知识库"));
+        assertEquals(6L, checkpoint.get());
+    }
+
+    @Test
+    void testStopsAfterMaxPagesPerRun() {
+        config.setPageSize(1);
+        config.setMaxPagesPerRun(2);
+        for (long id = 1; id <= 3; id++) {
+            table.add(log(id, "{message=知识库}"));
+        }
+
+        assertEquals(2, aggregator.processNewLogs());
+        assertEquals(2L, checkpoint.get());
+        assertEquals(1, aggregator.processNewLogs());
+        assertEquals(3L, checkpoint.get());
+    }
+
+    @Test
+    void testSkipsRecentLogsUntilCommitLagPasses() {
+        config.setCommitLagSeconds(60);
+        long now = System.currentTimeMillis();
+        long settledId = WordFrequencyAggregator.snowflakeIdAt(now - 120_000);
+        table.add(log(settledId, "{message=知识库}"));
+        // 刚生成的ID可能还有更小的ID未提交，暂不处理
+        long recentId = IdWorker.getId();
+        table.add(log(recentId, "{message=知识库}"));
+
+        assertEquals(1, aggregator.processNewLogs());
+        assertEquals(settledId, checkpoint.get());
+
+        // 在安全时间之前生成、之后才提交的日志ID仍大于进度，不会被跳过
+        long lateId = settledId + 1;
+        table.add(log(lateId, "{message=知识库}"));
+        assertEquals(1, aggregator.processNewLogs());
+        assertEquals(lateId, checkpoint.get());
+
+        config.setCommitLagSeconds(0);
+        assertEquals(1, aggregator.processNewLogs());
+        assertEquals(recentId, checkpoint.get());
+        assertEquals(3, merged.get("知识库"));
+    }
+
+    @Test
+    void testSnowflakeIdAtMatchesIdWorkerTimestamp() {
+        long before = WordFrequencyAggregator.snowflakeIdAt(System.currentTimeMillis() - 1);
+        long id = IdWorker.getId();
+        long after = WordFrequencyAggregator.snowflakeIdAt(System.currentTimeMillis() + 1);
+
+        assertTrue(before <= id);
+        assertTrue(id < after);
+    }
+
+    @Test
+    void testCountWordsSkipsShortAndLongWordsAndEmptyRows() {
+        Map<String, Integer> counts = aggregator.countWords(List.of(
+                log(1, "{message=知识库 的 知识库}"),
+                log(2, null),
+                log(3, "")));
+
+        assertEquals(2, counts.get("知识库"));
+        assertFalse(counts.containsKey("的"));
+        assertTrue(counts.keySet().stream().allMatch(word -> word.length() >= 2 && word.length() <= 9));
+    }
+
+    private static LogInfo log(long id, String requestParams) {
+        LogInfo logInfo = new LogInfo();
+        logInfo.setId(id);
+        logInfo.setRequestParams(requestParams);
+        return logInfo;
+    }
+}
@@ -0,0 +1,117 @@
+package com.kinghy.rag.utils;
+
+import com.kinghy.rag.config.EmbeddingBatchConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 合并批处理嵌入模型测试
+ *
+ * @author yunzhongxiaoma
+ */
+class BatchingEmbeddingModelTest {
+
+    private BatchingEmbeddingModel model;
+
+    @AfterEach
+    void tearDown() {
+        if (model != null) {
+            model.close();
+        }
+    }
+
+    @Test
+    void testConcurrentFilesAreCoalescedIntoBatches() {
+        StubEmbeddingModel stub = new StubEmbeddingModel(8, 5, 0);
+        EmbeddingBatchConfig config = new EmbeddingBatchConfig();
+        config.setMaxWaitMs(50);
+        model = new BatchingEmbeddingModel(stub, () -> config);
+
+        // 20 个“文件”各带 3 个片段并发向量化
+        List<CompletableFuture<EmbeddingResponse>> files = new ArrayList<>();
+        for (int file = 0; file < 20; file++) {
+            List<String> chunks = List.of("文件" + file + "片段A", "文件" + file + "片段B", "文件" + file + "片段C");
+            files.add(CompletableFuture.supplyAsync(() -> model.call(request(chunks))));
+        }
+
+        for (int file = 0; file < files.size(); file++) {
+            EmbeddingResponse response = files.get(file).join();
+            assertEquals(3, response.getResults().size());
+            assertArrayEquals(stub.vector("文件" + file + "片段B"), response.getResults().get(1).getOutput());
+        }
+        assertTrue(stub.getCalls() < 20, "片段应跨文件合并，实际调用次数: " + stub.getCalls());
+        assertTrue(stub.getBatchSizes().stream().allMatch(size -> size <= config.getMaxBatchSize()));
+    }
+
+    @Test
+    void testFailureShrinksBudgetAndRetries() {
+        StubEmbeddingModel stub = new StubEmbeddingModel(4, 0, 0);
+        EmbeddingBatchConfig config = new EmbeddingBatchConfig();
+        model = new BatchingEmbeddingModel(stub, () -> config);
+        stub.failNext(1);
+
+        EmbeddingResponse response = model.call(request(List.of("片段1", "片段2", "片段3", "片段4")));
+
+        assertEquals(4, response.getResults().size());
+        assertArrayEquals(stub.vector("片段4"), response.getResults().get(3).getOutput());
+        assertTrue(stub.getCalls() >= 2);
+        assertTrue(model.getTokenBudget() < config.getInitialTokenBudget());
+    }
+
+    @Test
+    void testSlowBatchesShrinkBudget() {
+        StubEmbeddingModel stub = new StubEmbeddingModel(4, 30, 0);
+        EmbeddingBatchConfig config = new EmbeddingBatchConfig();
+        config.setTargetLatencyMs(10);
+        model = new BatchingEmbeddingModel(stub, () -> config);
+
+        model.call(request(List.of("片段1")));
+        model.call(request(List.of("片段2")));
+
+        assertEquals(config.getInitialTokenBudget() / 4, model.getTokenBudget());
+    }
+
+    @Test
+    void testPersistentFailureIsReported() {
+        StubEmbeddingModel stub = new StubEmbeddingModel(4, 0, 0);
+        EmbeddingBatchConfig config = new EmbeddingBatchConfig();
+        model = new BatchingEmbeddingModel(stub, () -> config);
+        stub.failNext(100);
+
+        assertThrows(IllegalStateException.class, () -> model.call(request(List.of("片段1"))));
+    }
+
+    @Test
+    void testCloseReleasesBlockedCallers() throws Exception {
+        StubEmbeddingModel stub = new StubEmbeddingModel(4, 300, 0);
+        EmbeddingBatchConfig config = new EmbeddingBatchConfig();
+        config.setMaxBatchSize(1);
+        config.setMaxConcurrentBatches(1);
+        model = new BatchingEmbeddingModel(stub, () -> config);
+
+        // 一批在执行，其余片段在队列中等待
+        CompletableFuture<EmbeddingResponse> file = CompletableFuture.supplyAsync(
+                () -> model.call(request(List.of("片段1", "片段2", "片段3", "片段4"))));
+        Thread.sleep(100);
+        model.close();
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> file.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertThrows(IllegalStateException.class, () -> model.call(request(List.of("片段5"))));
+    }
+
+    private static EmbeddingRequest request(List<String> texts) {
+        return new EmbeddingRequest(texts, EmbeddingOptionsBuilder.builder().build());
+    }
+}
@@ -0,0 +1,92 @@
+package com.kinghy.rag.utils;
+
+import cn.hutool.crypto.SecureUtil;
+import com.kinghy.rag.service.EmbeddingCacheService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 带缓存的嵌入模型批量接口测试
+ *
+ * @author yunzhongxiaoma
+ */
+class CachingEmbeddingModelTest {
+
+    private StubEmbeddingModel stub;
+
+    private EmbeddingCacheService cache;
+
+    private CachingEmbeddingModel model;
+
+    @BeforeEach
+    void setUp() {
+        stub = new StubEmbeddingModel(4, 0, 0);
+        cache = mock(EmbeddingCacheService.class);
+        model = new CachingEmbeddingModel(stub, () -> cache);
+    }
+
+    @Test
+    void testPartialHitsKeepRequestOrder() {
+        // 第 1、3 个片段已有向量，第 0、2、4 个未命中
+        List<String> texts = List.of("片段A", "片段B", "片段C", "片段D", "片段E");
+        when(cache.getChunkEmbeddings(hashes(texts))).thenReturn(new ArrayList<>(Arrays.asList(
+                null, stub.vector("片段B"), null, stub.vector("片段D"), null)));
+
+        EmbeddingResponse response = model.call(new EmbeddingRequest(texts, null));
+
+        // 只把未命中的片段按原顺序交给模型，结果按请求顺序返回，下标连续
+        assertEquals(List.of(3), stub.getBatchSizes());
+        assertEquals(texts.size(), response.getResults().size());
+        for (int i = 0; i < texts.size(); i++) {
+            assertEquals(i, response.getResults().get(i).getIndex());
+            assertArrayEquals(stub.vector(texts.get(i)), response.getResults().get(i).getOutput());
+        }
+
+        // 只写回新算出的向量
+        verify(cache).putChunkEmbeddings(argThat((Map<String, float[]> stored) -> stored.size() == 3
+                && Arrays.equals(stub.vector("片段A"), stored.get(SecureUtil.sha256("片段A")))
+                && Arrays.equals(stub.vector("片段C"), stored.get(SecureUtil.sha256("片段C")))
+                && Arrays.equals(stub.vector("片段E"), stored.get(SecureUtil.sha256("片段E")))));
+    }
+
+    @Test
+    void testAllHitsSkipModel() {
+        List<String> texts = List.of("片段A", "片段B");
+        when(cache.getChunkEmbeddings(hashes(texts))).thenReturn(new ArrayList<>(Arrays.asList(
+                stub.vector("片段A"), stub.vector("片段B"))));
+
+        EmbeddingResponse response = model.call(new EmbeddingRequest(texts, null));
+
+        assertEquals(0, stub.getCalls());
+        assertArrayEquals(stub.vector("片段B"), response.getResults().get(1).getOutput());
+        verify(cache, never()).putChunkEmbeddings(anyMap());
+    }
+
+    @Test
+    void testDuplicateTextsInOneRequest() {
+        List<String> texts = List.of("重复片段", "片段B", "重复片段");
+        when(cache.getChunkEmbeddings(hashes(texts))).thenReturn(new ArrayList<>(Arrays.asList(null, null, null)));
+
+        EmbeddingResponse response = model.call(new EmbeddingRequest(texts, null));
+
+        assertArrayEquals(stub.vector("重复片段"), response.getResults().get(0).getOutput());
+        assertArrayEquals(stub.vector("片段B"), response.getResults().get(1).getOutput());
+        assertArrayEquals(stub.vector("重复片段"), response.getResults().get(2).getOutput());
+        verify(cache).putChunkEmbeddings(argThat((Map<String, float[]> stored) -> stored.size() == 2));
+    }
+
+    private static List<String> hashes(List<String> texts) {
+        return texts.stream().map(SecureUtil::sha256).toList();
+    }
+}
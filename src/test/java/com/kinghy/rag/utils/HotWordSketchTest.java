@@ -0,0 +1,94 @@
+package com.kinghy.rag.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 热词统计测试类
+ *
+ * @author yunzhongxiaoma
+ * @since 1.0.0
+ */
+class HotWordSketchTest {
+
+    private static final String[] HOT_WORDS = {"知识库", "上传", "检索", "会话", "模型"};
+
+    @Test
+    void testFindsHeavyHittersAmongManyRareWords() {
+        HotWordSketch sketch = new HotWordSketch(1024, 4, 20);
+        Map<String, Integer> actual = feed(sketch, new Random(7), 20000);
+
+        List<Map.Entry<String, Long>> top = sketch.topK(HOT_WORDS.length);
+        assertEquals(HOT_WORDS.length, top.size());
+        for (int i = 0; i < HOT_WORDS.length; i++) {
+            assertEquals(HOT_WORDS[i], top.get(i).getKey());
+            // Count-Min 只会高估
+            assertTrue(top.get(i).getValue() >= actual.get(HOT_WORDS[i]));
+        }
+    }
+
+    @Test
+    void testMergeMatchesCombinedStream() {
+        HotWordSketch left = new HotWordSketch(1024, 4, 20);
+        HotWordSketch right = new HotWordSketch(1024, 4, 20);
+        HotWordSketch combined = new HotWordSketch(1024, 4, 20);
+        Random random = new Random(11);
+        feed(left, random, 5000);
+        feed(right, random, 5000);
+        feed(combined, new Random(11), 10000);
+
+        left.merge(right);
+
+        assertEquals(combined.topK(HOT_WORDS.length), left.topK(HOT_WORDS.length));
+    }
+
+    @Test
+    void testSerializationRoundTrip() {
+        HotWordSketch sketch = new HotWordSketch(256, 3, 10);
+        feed(sketch, new Random(3), 2000);
+
+        HotWordSketch restored = HotWordSketch.fromBytes(sketch.toBytes());
+
+        assertEquals(sketch.topK(10), restored.topK(10));
+        assertEquals(sketch.estimate("知识库"), restored.estimate("知识库"));
+        assertTrue(new HotWordSketch(256, 3, 10).isEmpty());
+        assertFalse(restored.isEmpty());
+    }
+
+    @Test
+    void testMergeRejectsDifferentShape() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new HotWordSketch(256, 3, 10).merge(new HotWordSketch(512, 3, 10)));
+    }
+
+    /**
+     * 热词按 5:4:3:2:1 的比例出现，其余为大量只出现几次的冷门词
+     */
+    private static Map<String, Integer> feed(HotWordSketch sketch, Random random, int words) {
+        Map<String, Integer> actual = new HashMap<>();
+        for (int i = 0; i < words; i++) {
+            String word;
+            int roll = random.nextInt(30);
+            if (roll < 15) {
+                int index = 0;
+                int remaining = roll;
+                while (remaining >= HOT_WORDS.length - index) {
+                    remaining -= HOT_WORDS.length - index;
+                    index++;
+                }
+                word = HOT_WORDS[index];
+            } else {
+                word = "冷门词" + random.nextInt(5000);
+            }
+            sketch.add(word);
+            actual.merge(word, 1, Integer::sum);
+        }
+        return actual;
+    }
+}
@@ -0,0 +1,80 @@
+package com.kinghy.rag.utils;
+
+import com.kinghy.rag.pojo.dto.StoredObjectInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 本地磁盘对象存储测试类
+ *
+ * @author yunzhongxiaoma
+ */
+class LocalObjectStorageTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void testUploadAndDeleteAll() throws Exception {
+        LocalObjectStorage storage = new LocalObjectStorage(root);
+        Path source = Files.writeString(root.resolve("source.txt"), "年假制度", StandardCharsets.UTF_8);
+
+        String first = storage.upload(source, "kb_files/a.txt");
+        String second = storage.upload("报销制度".getBytes(StandardCharsets.UTF_8), "kb_files/b.txt");
+
+        assertEquals("年假制度", Files.readString(Paths.get(URI.create(first)), StandardCharsets.UTF_8));
+        assertEquals("报销制度", Files.readString(Paths.get(URI.create(second)), StandardCharsets.UTF_8));
+
+        storage.deleteAll(List.of(first, second));
+
+        assertFalse(Files.exists(root.resolve("kb_files/a.txt")));
+        assertFalse(Files.exists(root.resolve("kb_files/b.txt")));
+    }
+
+    @Test
+    void testStatAndRangeTransfer() throws Exception {
+        LocalObjectStorage storage = new LocalObjectStorage(root);
+        byte[] content = "0123456789".getBytes(StandardCharsets.UTF_8);
+        String url = storage.upload(new ByteArrayInputStream(content), content.length, "kb_files/digits.txt");
+
+        StoredObjectInfo info = storage.stat(url);
+        assertEquals(10, info.getContentLength());
+        assertNotNull(info.getETag());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long transferred = storage.transferTo(url, 3, 4, Channels.newChannel(out));
+
+        assertEquals(4, transferred);
+        assertEquals("3456", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testShortStreamDoesNotLeavePartialObject() {
+        LocalObjectStorage storage = new LocalObjectStorage(root);
+
+        assertThrows(UncheckedIOException.class, () -> storage.upload(
+                new ByteArrayInputStream(new byte[]{1, 2}), 10, "kb_files/partial.txt"));
+        assertFalse(Files.exists(root.resolve("kb_files/partial.txt")));
+    }
+
+    @Test
+    void testRejectsObjectNameOutsideRoot() {
+        LocalObjectStorage storage = new LocalObjectStorage(root);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> storage.upload(new byte[]{1}, "../escape.txt"));
+    }
+}
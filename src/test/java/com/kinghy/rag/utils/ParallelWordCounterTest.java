@@ -0,0 +1,69 @@
+package com.kinghy.rag.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 并行分词计数器测试类
+ *
+ * @author yunzhongxiaoma
+ * @since 1.0.0
+ */
+class ParallelWordCounterTest {
+
+    private final ParallelWordCounter parallel = new ParallelWordCounter(4, 8, 2, 9);
+
+    @AfterEach
+    void tearDown() {
+        parallel.close();
+    }
+
+    @Test
+    void testParallelCountsMatchSingleThreaded() {
+        List<String> texts = new ArrayList<>();
+        String[] samples = {
+                "{message=如何在知识库中上传文件}",
+                "{message=向量数据库的检索结果不准确}",
+                "{message=请帮我总结这份会议纪要}",
+                null,
+                "",
+                "{message=知识库文件解析失败怎么办}"
+        };
+        for (int i = 0; i < 500; i++) {
+            texts.add(samples[i % samples.length]);
+        }
+
+        // 分片大小大于文本数时在调用线程中完成，作为单线程基准
+        try (ParallelWordCounter sequential = new ParallelWordCounter(1, Integer.MAX_VALUE, 2, 9)) {
+            Map<String, Integer> expected = sequential.count(texts).toMap();
+            Map<String, Integer> actual = parallel.count(texts).toMap();
+
+            assertFalse(expected.isEmpty());
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    void testWordCountMapGrowsAndMerges() {
+        WordCountMap left = new WordCountMap(4);
+        WordCountMap right = new WordCountMap();
+        for (int i = 0; i < 1000; i++) {
+            left.add("词" + i, 1);
+            right.add("词" + (i % 10), 2);
+        }
+
+        left.merge(right);
+
+        assertEquals(1000, left.size());
+        assertEquals(1 + 200, left.get("词3"));
+        assertEquals(1, left.get("词999"));
+        assertEquals(0, left.get("不存在"));
+        assertEquals(1000 + 2000, left.toMap().values().stream().mapToInt(Integer::intValue).sum());
+    }
+}
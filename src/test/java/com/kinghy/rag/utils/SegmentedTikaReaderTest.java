@@ -0,0 +1,66 @@
+package com.kinghy.rag.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分段读取的Tika文档解析器测试类
+ *
+ * @author yunzhongxiaoma
+ */
+class SegmentedTikaReaderTest {
+
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        file = Files.createTempFile("segmented_", ".txt");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    void testLargeTextIsEmittedInBoundedSegments() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            text.append("第").append(i).append("条：员工每年享有带薪年假，需在OA系统中提前申请。\n");
+        }
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+
+        List<String> segments = new ArrayList<>();
+        new SegmentedTikaReader(500).read(file, segments::add);
+
+        assertTrue(segments.size() > 1, "应分多段输出");
+        for (String segment : segments) {
+            assertTrue(segment.length() <= 1000, "单段长度: " + segment.length());
+        }
+        assertEquals(strip(text.toString()), strip(String.join("", segments)));
+    }
+
+    @Test
+    void testSmallTextIsEmittedOnce() throws Exception {
+        Files.writeString(file, "员工每年享有5天带薪年假。", StandardCharsets.UTF_8);
+
+        List<String> segments = new ArrayList<>();
+        new SegmentedTikaReader(500).read(file, segments::add);
+
+        assertEquals(1, segments.size());
+        assertEquals("员工每年享有5天带薪年假。", segments.get(0).trim());
+    }
+
+    private static String strip(String text) {
+        return text.replaceAll("\\s+", "");
+    }
+}
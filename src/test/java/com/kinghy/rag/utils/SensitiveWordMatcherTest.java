@@ -0,0 +1,61 @@
+package com.kinghy.rag.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 敏感词匹配器测试类
+ *
+ * @author yunzhongxiaoma
+ */
+class SensitiveWordMatcherTest {
+
+    @Test
+    void testFindAll_OverlappingPatterns() {
+        SensitiveWordMatcher matcher = SensitiveWordMatcher.compile(Arrays.asList("he", "she", "his", "hers"));
+
+        List<String> hits = matcher.findAll("ushers");
+
+        assertEquals(Arrays.asList("she", "he", "hers"), hits);
+    }
+
+    @Test
+    void testFindFirst_ChineseWords() {
+        SensitiveWordMatcher matcher = SensitiveWordMatcher.compile(Arrays.asList("赌博", "博彩"));
+
+        assertEquals("赌博", matcher.findFirst("请问网上赌博彩票合法吗"));
+        assertNull(matcher.findFirst("今天天气不错"));
+    }
+
+    @Test
+    void testCompile_IgnoresEmptyAndDuplicateWords() {
+        SensitiveWordMatcher matcher = SensitiveWordMatcher.compile(Arrays.asList("", null, "abc", "abc"));
+
+        assertEquals(1, matcher.size());
+        assertNull(matcher.findFirst("任意文本"));
+        assertEquals("abc", matcher.findFirst("xxabcxx"));
+    }
+
+    @Test
+    void testDepth_TracksLongestPendingPrefix() {
+        SensitiveWordMatcher matcher = SensitiveWordMatcher.compile(Arrays.asList("加微信", "微博"));
+
+        assertEquals(2, matcher.depth(matcher.scan("请加微", SensitiveWordMatcher.ROOT, (p, e) -> true)));
+        assertEquals(1, matcher.depth(matcher.scan("看微", SensitiveWordMatcher.ROOT, (p, e) -> true)));
+        assertEquals(0, matcher.depth(matcher.scan("你好", SensitiveWordMatcher.ROOT, (p, e) -> true)));
+    }
+
+    @Test
+    void testEmptyMatcher() {
+        SensitiveWordMatcher matcher = SensitiveWordMatcher.compile(Collections.emptyList());
+
+        assertNull(matcher.findFirst("abc"));
+        assertTrue(matcher.findAll("abc").isEmpty());
+        assertNull(SensitiveWordMatcher.empty().findFirst(null));
+    }
+}
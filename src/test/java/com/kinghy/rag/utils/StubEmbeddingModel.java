@@ -0,0 +1,106 @@
+package com.kinghy.rag.utils;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 本地桩嵌入模型，用于测试和吞吐量压测
+ *
+ * @author yunzhongxiaoma
+ * @description 根据文本哈希生成确定的向量，可模拟每次调用的固定耗时和按token的耗时，
+ *              以及前若干次调用失败
+ */
+public class StubEmbeddingModel implements EmbeddingModel {
+
+    private final int dimensions;
+
+    private final long fixedLatencyMs;
+
+    private final double latencyMsPerText;
+
+    private final AtomicInteger failuresRemaining = new AtomicInteger();
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+    public StubEmbeddingModel(int dimensions, long fixedLatencyMs, double latencyMsPerText) {
+        this.dimensions = dimensions;
+        this.fixedLatencyMs = fixedLatencyMs;
+        this.latencyMsPerText = latencyMsPerText;
+    }
+
+    /**
+     * 接下来的若干次调用抛出异常
+     */
+    public void failNext(int times) {
+        failuresRemaining.set(times);
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        calls.incrementAndGet();
+        List<String> texts = request.getInstructions();
+        batchSizes.add(texts.size());
+        sleep(fixedLatencyMs + (long) (latencyMsPerText * texts.size()));
+        if (failuresRemaining.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+            throw new IllegalStateException("模拟嵌入模型调用失败");
+        }
+
+        List<Embedding> embeddings = new ArrayList<>(texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            embeddings.add(new Embedding(vector(texts.get(i)), i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return call(new EmbeddingRequest(List.of(document.getText()), null)).getResult().getOutput();
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * 文本对应的确定向量
+     */
+    public float[] vector(String text) {
+        float[] vector = new float[dimensions];
+        int seed = text.hashCode();
+        for (int i = 0; i < dimensions; i++) {
+            seed = seed * 1103515245 + 12345;
+            vector[i] = (seed >>> 8) / (float) (1 << 24);
+        }
+        return vector;
+    }
+
+    public int getCalls() {
+        return calls.get();
+    }
+
+    public List<Integer> getBatchSizes() {
+        return batchSizes;
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}